@@ -0,0 +1,22 @@
+package com.demo.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH entry point that always attaches the GC profiler, so every run reports allocation rate
+ * (gc.alloc.rate.norm = bytes per operation) next to throughput and latency.
+ * Accepts the usual JMH command line, e.g. {@code OrderHotPath -p itemsPerOrder=100 -rf json}.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
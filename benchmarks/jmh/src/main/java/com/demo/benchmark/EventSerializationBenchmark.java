@@ -0,0 +1,115 @@
+package com.demo.benchmark;
+
+import com.demo.event.OrderCreatedEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.demo.event.codec.EventDeserializer;
+import com.demo.event.codec.EventSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka value (de)serialization: the binary event codec the services use, against the
+ * JsonSerializer / JsonDeserializer setup it replaced as a baseline.
+ * Encoded sizes for the current {@code itemsPerOrder} are printed during setup.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventSerializationBenchmark {
+
+    private static final String TOPIC = "bench";
+
+    @Param({"1", "10", "100", "1000"})
+    public int itemsPerOrder;
+
+    private EventSerializer serializer;
+    private EventDeserializer deserializer;
+
+    private JsonSerializer<Object> jsonSerializer;
+    private JsonDeserializer<OrderCreatedEvent> jsonOrderCreatedDeserializer;
+    private JsonDeserializer<PaymentProcessedEvent> jsonPaymentProcessedDeserializer;
+
+    private OrderCreatedEvent orderCreated;
+    private PaymentProcessedEvent paymentProcessed;
+    private byte[] orderCreatedBytes;
+    private byte[] paymentProcessedBytes;
+    private ByteBuffer orderCreatedBuffer;
+    private byte[] orderCreatedJson;
+    private byte[] paymentProcessedJson;
+
+    @Setup
+    public void setUp() {
+        serializer = new EventSerializer();
+        deserializer = new EventDeserializer();
+
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.setAddTypeInfo(false);
+        jsonOrderCreatedDeserializer = new JsonDeserializer<>(OrderCreatedEvent.class, false);
+        jsonPaymentProcessedDeserializer = new JsonDeserializer<>(PaymentProcessedEvent.class, false);
+
+        orderCreated = Fixtures.orderCreatedEvent(itemsPerOrder);
+        paymentProcessed = Fixtures.paymentProcessedEvent();
+        orderCreatedBytes = serializer.serialize(TOPIC, orderCreated);
+        paymentProcessedBytes = serializer.serialize(TOPIC, paymentProcessed);
+        orderCreatedBuffer = ByteBuffer.wrap(orderCreatedBytes);
+        orderCreatedJson = jsonSerializer.serialize(TOPIC, orderCreated);
+        paymentProcessedJson = jsonSerializer.serialize(TOPIC, paymentProcessed);
+
+        System.out.printf("%nitemsPerOrder=%d OrderCreated binary=%dB json=%dB, PaymentProcessed binary=%dB json=%dB%n",
+                itemsPerOrder, orderCreatedBytes.length, orderCreatedJson.length,
+                paymentProcessedBytes.length, paymentProcessedJson.length);
+    }
+
+    @Benchmark
+    public byte[] serializeOrderCreated() {
+        return serializer.serialize(TOPIC, orderCreated);
+    }
+
+    @Benchmark
+    public Object deserializeOrderCreated() {
+        return deserializer.deserialize(TOPIC, orderCreatedBytes);
+    }
+
+    // The path the consumer takes: decoding straight from the fetch buffer
+    @Benchmark
+    public Object deserializeOrderCreatedFromBuffer() {
+        return deserializer.deserialize(TOPIC, null, orderCreatedBuffer.duplicate());
+    }
+
+    @Benchmark
+    public byte[] serializePaymentProcessed() {
+        return serializer.serialize(TOPIC, paymentProcessed);
+    }
+
+    @Benchmark
+    public Object deserializePaymentProcessed() {
+        return deserializer.deserialize(TOPIC, paymentProcessedBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonSerializeOrderCreated() {
+        return jsonSerializer.serialize(TOPIC, orderCreated);
+    }
+
+    @Benchmark
+    public OrderCreatedEvent jsonDeserializeOrderCreated() {
+        return jsonOrderCreatedDeserializer.deserialize(TOPIC, orderCreatedJson);
+    }
+
+    @Benchmark
+    public byte[] jsonSerializePaymentProcessed() {
+        return jsonSerializer.serialize(TOPIC, paymentProcessed);
+    }
+
+    @Benchmark
+    public PaymentProcessedEvent jsonDeserializePaymentProcessed() {
+        return jsonPaymentProcessedDeserializer.deserialize(TOPIC, paymentProcessedJson);
+    }
+}
@@ -0,0 +1,53 @@
+package com.demo.benchmark;
+
+import com.demo.dto.CreateOderRequest;
+import com.demo.dto.OrderItemRequest;
+import com.demo.event.OrderCreatedEvent;
+import com.demo.event.OrderItemEvent;
+import com.demo.event.PaymentProcessedEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deterministic payloads shaped like production traffic.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public static CreateOderRequest createOrderRequest(int items) {
+        List<OrderItemRequest> lines = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            lines.add(new OrderItemRequest(
+                    "PROD-" + (10_000 + i),
+                    "Product number " + i,
+                    1 + i % 5,
+                    new BigDecimal("19.99").add(BigDecimal.valueOf(i, 2))));
+        }
+        return new CreateOderRequest("CUST-42", lines);
+    }
+
+    public static OrderCreatedEvent orderCreatedEvent(int items) {
+        List<OrderItemEvent> lines = new ArrayList<>(items);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            BigDecimal price = new BigDecimal("19.99").add(BigDecimal.valueOf(i, 2));
+            int quantity = 1 + i % 5;
+            lines.add(new OrderItemEvent("PROD-" + (10_000 + i), "Product number " + i, quantity, price));
+            total = total.add(price.multiply(BigDecimal.valueOf(quantity)));
+        }
+        return new OrderCreatedEvent(UUID.randomUUID().toString(), "CUST-42", total, lines,
+                LocalDateTime.of(2025, 1, 1, 12, 0));
+    }
+
+    public static PaymentProcessedEvent paymentProcessedEvent() {
+        return new PaymentProcessedEvent(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                true, "Payment processed successfully", LocalDateTime.of(2025, 1, 1, 12, 0, 1),
+                orderCreatedEvent(3).items());
+    }
+}
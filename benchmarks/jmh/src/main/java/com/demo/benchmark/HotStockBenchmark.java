@@ -0,0 +1,64 @@
+package com.demo.benchmark;
+
+import com.demo.service.StockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservations of one unit each against a single product, as during a flash sale, at 1 to
+ * 8 threads. {@code striped} is the product on its ledger lock stripe, {@code sharded} the
+ * same product after hot-key promotion. The stock is large enough never to run out, so this
+ * measures the fast path, not the rebalance near sell-out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HotStockBenchmark {
+
+    private static final String SKU = "SKU-FLASH";
+
+    @Param({"striped", "sharded"})
+    public String mode;
+
+    private StockLedger ledger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Repository, transaction manager and write-behind are only used by startup and orders
+        ledger = new StockLedger(null, null, null, null, Duration.ofMinutes(15), 1024, 0, new SimpleMeterRegistry());
+        ledger.setAvailable(SKU, "Flash sale item", Long.MAX_VALUE / 4);
+        if (mode.equals("sharded")) {
+            ledger.promote(SKU);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean reserve1Thread() {
+        return ledger.tryTake(SKU, 1);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean reserve2Threads() {
+        return ledger.tryTake(SKU, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean reserve4Threads() {
+        return ledger.tryTake(SKU, 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean reserve8Threads() {
+        return ledger.tryTake(SKU, 1);
+    }
+}
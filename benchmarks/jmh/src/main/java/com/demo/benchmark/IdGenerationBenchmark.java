@@ -0,0 +1,41 @@
+package com.demo.benchmark;
+
+import com.demo.id.TimeOrderedIds;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity id and transaction id generation: {@link TimeOrderedIds} against the
+ * {@code UUID.randomUUID()} (SecureRandom) path it replaced. Run with {@code -t} above 1
+ * to see how the single-CAS state holds up under contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGenerationBenchmark {
+
+    @Benchmark
+    public UUID timeOrderedUuid() {
+        return TimeOrderedIds.next();
+    }
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public String timeOrderedTransactionId() {
+        return TimeOrderedIds.next("TXN-");
+    }
+
+    @Benchmark
+    public String randomTransactionId() {
+        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
@@ -0,0 +1,73 @@
+package com.demo.service;
+
+import com.demo.benchmark.Fixtures;
+import com.demo.dto.CreateOderRequest;
+import com.demo.dto.OrderResponse;
+import com.demo.entity.Order;
+import com.demo.entity.OrderItem;
+import com.demo.entity.OrderStatus;
+import com.demo.id.TimeOrderedIds;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-only parts of OrderService.createOrder and getOrder: item mapping, the BigDecimal total
+ * and the entity-to-response mapping. Lives in com.demo.service to reach the package-private helpers.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderHotPathBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int itemsPerOrder;
+
+    private CreateOderRequest request;
+    private List<OrderItem> items;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        request = Fixtures.createOrderRequest(itemsPerOrder);
+        items = request.items().stream().map(OrderService::mapToOderItem).toList();
+        items.forEach(item -> item.setId(TimeOrderedIds.next()));
+
+        order = Order.builder()
+                .id(TimeOrderedIds.next())
+                .customerId(request.customerId())
+                .status(OrderStatus.PENDING)
+                .totalAmount(OrderService.calculateTotal(items))
+                .items(items)
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .build();
+        items.forEach(item -> item.setOrder(order));
+    }
+
+    @Benchmark
+    public List<OrderItem> mapItems() {
+        return request.items().stream().map(OrderService::mapToOderItem).toList();
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotal() {
+        return OrderService.calculateTotal(items);
+    }
+
+    /** Mapping plus total, i.e. the CPU work createOrder does before touching the database. */
+    @Benchmark
+    public BigDecimal mapItemsAndTotal() {
+        return OrderService.calculateTotal(request.items().stream().map(OrderService::mapToOderItem).toList());
+    }
+
+    @Benchmark
+    public OrderResponse mapToResponse() {
+        return OrderService.mapToResponse(order);
+    }
+}
@@ -0,0 +1,43 @@
+package com.demo.service;
+
+import com.demo.dto.PaymentResponse;
+import com.demo.entity.Payment;
+import com.demo.entity.PaymentStatus;
+import com.demo.id.TimeOrderedIds;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentHotPathBenchmark {
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() {
+        payment = Payment.builder()
+                .id(TimeOrderedIds.next())
+                .orderId(UUID.randomUUID().toString())
+                .customerId("CUST-42")
+                .amount(new BigDecimal("249.90"))
+                .status(PaymentStatus.COMPLETED)
+                .paymentMethod("AUTO")
+                .transactionId("TXN-1A2B3C4D")
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .processedAt(LocalDateTime.of(2025, 1, 1, 12, 0, 1))
+                .build();
+    }
+
+    @Benchmark
+    public PaymentResponse mapToResponse() {
+        return PaymentService.mapToResponse(payment);
+    }
+}
@@ -0,0 +1,75 @@
+package com.demo.load;
+
+import java.time.Duration;
+
+/**
+ * Offered load over time, in orders per second. Elapsed time counts from the end of the warmup;
+ * the warmup itself runs at the rate of time zero.
+ */
+public sealed interface ArrivalProfile {
+
+    double ratePerSecond(Duration elapsed);
+
+    String name();
+
+    String describe();
+
+    record Constant(double rate) implements ArrivalProfile {
+
+        @Override
+        public double ratePerSecond(Duration elapsed) {
+            return rate;
+        }
+
+        @Override
+        public String name() {
+            return "constant";
+        }
+
+        @Override
+        public String describe() {
+            return "%.0f orders/s".formatted(rate);
+        }
+    }
+
+    /** Linear from {@code from} to {@code to} over {@code length}, then held at {@code to}. */
+    record Ramp(double from, double to, Duration length) implements ArrivalProfile {
+
+        @Override
+        public double ratePerSecond(Duration elapsed) {
+            double progress = Math.clamp((double) elapsed.toNanos() / length.toNanos(), 0.0, 1.0);
+            return from + (to - from) * progress;
+        }
+
+        @Override
+        public String name() {
+            return "ramp";
+        }
+
+        @Override
+        public String describe() {
+            return "%.0f to %.0f orders/s over %s".formatted(from, to, LoadConfig.format(length));
+        }
+    }
+
+    /** {@code base} throughout, except {@code peak} for {@code length} from {@code start}. */
+    record Spike(double base, double peak, Duration start, Duration length) implements ArrivalProfile {
+
+        @Override
+        public double ratePerSecond(Duration elapsed) {
+            boolean inSpike = elapsed.compareTo(start) >= 0 && elapsed.compareTo(start.plus(length)) < 0;
+            return inSpike ? peak : base;
+        }
+
+        @Override
+        public String name() {
+            return "spike";
+        }
+
+        @Override
+        public String describe() {
+            return "%.0f orders/s, %.0f orders/s for %s from %s".formatted(
+                    base, peak, LoadConfig.format(length), LoadConfig.format(start));
+        }
+    }
+}
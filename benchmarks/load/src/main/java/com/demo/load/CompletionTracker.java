@@ -0,0 +1,188 @@
+package com.demo.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time from an order's intended start to the commit that made it final (COMPLETED,
+ * PAYMENT_FAILED or INVENTORY_FAILED), without polling the service.
+ * <p>
+ * A trigger on the harness-owned order database sends a {@code NOTIFY} for every order that
+ * reaches a final status. Postgres delivers notifications when the transaction commits, so
+ * they arrive exactly when the status becomes visible to readers, and the listener times them
+ * with the same clock as the HTTP side. The trigger costs the order service one queue entry
+ * per finished order, in the transaction that finishes it.
+ */
+public class CompletionTracker implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletionTracker.class);
+
+    private static final String CHANNEL = "load_harness_final";
+    private static final String INSTALL_TRIGGER = """
+            CREATE OR REPLACE FUNCTION load_harness_final() RETURNS trigger AS $$
+            BEGIN
+                IF NEW.status IN ('COMPLETED', 'PAYMENT_FAILED', 'INVENTORY_FAILED')
+                        AND NEW.status IS DISTINCT FROM OLD.status THEN
+                    PERFORM pg_notify('%1$s', NEW.id::text || ' ' || NEW.status);
+                END IF;
+                RETURN NEW;
+            END
+            $$ LANGUAGE plpgsql;
+            DROP TRIGGER IF EXISTS load_harness_final ON orders;
+            CREATE TRIGGER load_harness_final AFTER UPDATE OF status ON orders
+                FOR EACH ROW EXECUTE FUNCTION load_harness_final();
+            """.formatted(CHANNEL);
+
+    private final Connection connection;
+    private final Thread listener;
+
+    private final Map<String, Expected> pending = new ConcurrentHashMap<>();
+    // Final before the HTTP response was read, e.g. when the client thread was descheduled
+    private final Map<String, Finished> early = new ConcurrentHashMap<>();
+
+    private final Recorder intervalCompleted = new Recorder(LoadGenerator.HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram completed = new ConcurrentHistogram(LoadGenerator.HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder completedAll = new LongAdder();
+    private final LongAdder failedAll = new LongAdder();
+    private final Map<String, LongAdder> measuredOutcomes = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    private record Expected(long intendedNanos, boolean measured) {
+    }
+
+    private record Finished(long atNanos, String status) {
+    }
+
+    /** {@code connection} must be to the order database, after order-service created its schema. */
+    public CompletionTracker(Connection connection) throws SQLException {
+        this.connection = connection;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(INSTALL_TRIGGER);
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        this.listener = Thread.ofPlatform().name("completion-listener").daemon().start(this::listen);
+    }
+
+    private void listen() {
+        PGConnection notifications;
+        try {
+            notifications = connection.unwrap(PGConnection.class);
+        } catch (SQLException e) {
+            log.error("Order database connection is not a Postgres one", e);
+            return;
+        }
+        while (running) {
+            try {
+                PGNotification[] received = notifications.getNotifications(50);
+                long now = System.nanoTime();
+                if (received != null) {
+                    for (PGNotification notification : received) {
+                        String payload = notification.getParameter();
+                        int split = payload.indexOf(' ');
+                        finished(payload.substring(0, split), payload.substring(split + 1), now);
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.error("Lost the order database connection, time-to-final stops here", e);
+                }
+                return;
+            }
+        }
+    }
+
+    /** Called with every accepted order; {@code orderId} is null if the response had none. */
+    public void expect(String orderId, long intendedNanos, boolean measured) {
+        if (orderId == null) {
+            return;
+        }
+        Expected expected = new Expected(intendedNanos, measured);
+        pending.put(orderId, expected);
+        Finished finished = early.remove(orderId);
+        if (finished != null && pending.remove(orderId, expected)) {
+            record(expected, finished);
+        }
+    }
+
+    private void finished(String orderId, String status, long nanos) {
+        Expected expected = pending.remove(orderId);
+        if (expected != null) {
+            record(expected, new Finished(nanos, status));
+            return;
+        }
+        early.put(orderId, new Finished(nanos, status));
+        // expect() may have run in between
+        expected = pending.remove(orderId);
+        if (expected != null && early.remove(orderId) != null) {
+            record(expected, new Finished(nanos, status));
+        }
+    }
+
+    private void record(Expected expected, Finished finished) {
+        boolean completedOk = finished.status().equals("COMPLETED");
+        (completedOk ? completedAll : failedAll).increment();
+        long micros = Math.min((finished.atNanos() - expected.intendedNanos()) / 1_000,
+                LoadGenerator.HIGHEST_TRACKABLE_MICROS);
+        if (completedOk) {
+            intervalCompleted.recordValue(micros);
+        }
+        if (expected.measured()) {
+            measuredOutcomes.computeIfAbsent(finished.status(), k -> new LongAdder()).increment();
+            if (completedOk) {
+                completed.recordValue(micros);
+            }
+        }
+    }
+
+    /** Time to COMPLETED of the orders completed since the last call, warmup included. */
+    public Histogram takeInterval() {
+        return intervalCompleted.getIntervalHistogram();
+    }
+
+    /** Time to COMPLETED of orders sent in the measured phase. */
+    public Histogram completed() {
+        return completed;
+    }
+
+    public long completedAll() {
+        return completedAll.sum();
+    }
+
+    public long failedAll() {
+        return failedAll.sum();
+    }
+
+    /** Final statuses reached by orders sent in the measured phase. */
+    public Map<String, LongAdder> measuredOutcomes() {
+        return measuredOutcomes;
+    }
+
+    /** Accepted orders sent in the measured phase that have not reached a final status. */
+    public long unfinishedMeasured() {
+        return pending.values().stream().filter(Expected::measured).count();
+    }
+
+    public long unfinished() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() throws SQLException, InterruptedException {
+        running = false;
+        listener.join();
+        connection.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.demo.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of one run, from {@code key=value} arguments (a leading {@code --} is allowed).
+ * Durations take a unit: {@code 500ms}, {@code 30s}, {@code 10m}, {@code 2h}.
+ */
+public record LoadConfig(
+        ArrivalProfile profile,
+        Duration warmup,
+        Duration duration,
+        Duration drain,
+        int products,
+        long stockPerProduct,
+        int customers,
+        int maxOutstanding,
+        Duration requestTimeout,
+        Duration sampleInterval,
+        Path repositoryRoot,
+        Path outputDir,
+        List<String> serviceJvmArgs,
+        Map<String, List<String>> serviceArgs,
+        Gates gates
+) {
+
+    static final List<String> SERVICES = List.of("order-service", "payment-service", "inventory-service");
+
+    /** Thresholds a release run must stay under; a {@code null} threshold isn't checked. */
+    public record Gates(Duration httpP99, Duration completedP99, Double maxErrorRate, Long maxEndLag) {
+    }
+
+    public static LoadConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int split = option.indexOf('=');
+            if (split <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(option.substring(0, split), option.substring(split + 1));
+        }
+        Options options = new Options(values);
+
+        Duration duration = options.duration("duration", "5m");
+        double rate = options.number("rate", "200");
+        double peakRate = options.number("peak-rate", String.valueOf(rate * 5));
+        ArrivalProfile profile = switch (options.text("profile", "constant")) {
+            case "constant" -> new ArrivalProfile.Constant(rate);
+            case "ramp" -> new ArrivalProfile.Ramp(rate, peakRate, duration);
+            case "spike" -> new ArrivalProfile.Spike(rate, peakRate,
+                    options.duration("spike-start", format(duration.dividedBy(2))),
+                    options.duration("spike-length", "10s"));
+            default -> throw new IllegalArgumentException("profile must be constant, ramp or spike");
+        };
+
+        Path root = Path.of(options.text("root", ".")).toAbsolutePath().normalize();
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path out = Path.of(options.text("out", root.resolve("benchmarks/load/results")
+                .resolve(profile.name() + "-" + stamp).toString()));
+
+        Map<String, List<String>> serviceArgs = new HashMap<>();
+        for (String service : SERVICES) {
+            serviceArgs.put(service, options.list(service + ".args"));
+        }
+
+        LoadConfig config = new LoadConfig(
+                profile,
+                options.duration("warmup", "30s"),
+                duration,
+                options.duration("drain", "60s"),
+                (int) options.number("products", "100"),
+                (long) options.number("stock-per-product", "100000000"),
+                (int) options.number("customers", "10000"),
+                (int) options.number("max-outstanding", "20000"),
+                options.duration("request-timeout", "30s"),
+                options.duration("sample-interval", "1s"),
+                root,
+                out,
+                options.list("jvm-args", "-Xmx1g -XX:+UseG1GC"),
+                serviceArgs,
+                new Gates(
+                        options.optionalDuration("gate.http-p99"),
+                        options.optionalDuration("gate.completed-p99"),
+                        options.has("gate.max-error-rate") ? options.number("gate.max-error-rate", null) : null,
+                        options.has("gate.max-end-lag") ? (long) options.number("gate.max-end-lag", null) : null));
+        options.rejectUnused();
+        return config;
+    }
+
+    static Duration parseDuration(String value) {
+        String text = value.trim();
+        int unit = 0;
+        while (unit < text.length() && (Character.isDigit(text.charAt(unit)) || text.charAt(unit) == '.')) {
+            unit++;
+        }
+        double amount = Double.parseDouble(text.substring(0, unit));
+        long nanosPerUnit = switch (text.substring(unit)) {
+            case "ms" -> 1_000_000L;
+            case "s", "" -> 1_000_000_000L;
+            case "m" -> 60_000_000_000L;
+            case "h" -> 3_600_000_000_000L;
+            default -> throw new IllegalArgumentException("Unknown duration unit in: " + value);
+        };
+        return Duration.ofNanos(Math.round(amount * nanosPerUnit));
+    }
+
+    static String format(Duration duration) {
+        return duration.toMillis() % 1000 == 0 ? duration.toSeconds() + "s" : duration.toMillis() + "ms";
+    }
+
+    private static final class Options {
+
+        private final Map<String, String> values;
+        private final Map<String, String> unused;
+
+        Options(Map<String, String> values) {
+            this.values = values;
+            this.unused = new HashMap<>(values);
+        }
+
+        boolean has(String key) {
+            return values.containsKey(key);
+        }
+
+        String text(String key, String defaultValue) {
+            unused.remove(key);
+            return values.getOrDefault(key, defaultValue);
+        }
+
+        double number(String key, String defaultValue) {
+            return Double.parseDouble(text(key, defaultValue));
+        }
+
+        Duration duration(String key, String defaultValue) {
+            return parseDuration(text(key, defaultValue));
+        }
+
+        Duration optionalDuration(String key) {
+            String value = text(key, null);
+            return value != null ? parseDuration(value) : null;
+        }
+
+        List<String> list(String key) {
+            return list(key, "");
+        }
+
+        List<String> list(String key, String defaultValue) {
+            String value = text(key, defaultValue).trim();
+            return value.isEmpty() ? List.of() : List.of(value.split("\\s+"));
+        }
+
+        void rejectUnused() {
+            if (!unused.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options: " + unused.keySet());
+            }
+        }
+    }
+}
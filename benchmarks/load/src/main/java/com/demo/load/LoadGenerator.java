@@ -0,0 +1,269 @@
+package com.demo.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load on {@code POST /api/orders}: arrivals follow the {@link ArrivalProfile} as a
+ * Poisson process, whether or not earlier requests have returned, the way independent
+ * customers would behave.
+ * <p>
+ * Every request has an intended start time from that schedule, and its latency is measured
+ * from there rather than from when it was actually sent. If the client falls behind (or the
+ * service stalls and requests pile up) the wait counts against the service instead of quietly
+ * disappearing from the numbers, which is the coordinated-omission correction. The plain
+ * send-to-response time is kept next to it as service time.
+ * <p>
+ * Failed requests count in the latency at their corrected time like any other, so errors
+ * can't make the percentiles look better. Timeouts count at no less than {@code requestTimeout}.
+ * <p>
+ * Past {@code maxOutstanding} unanswered requests the arrival is shed and counted, so a
+ * service that stopped answering can't run the harness out of memory. A shed arrival counts
+ * in the latency at {@code requestTimeout}: it would have waited behind requests that are
+ * taking that long already.
+ */
+public class LoadGenerator {
+
+    static final long HIGHEST_TRACKABLE_MICROS = Duration.ofMinutes(10).toNanos() / 1_000;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+    private final URI ordersUri;
+    private final LoadConfig config;
+    private final CompletionTracker completions;
+
+    private final Recorder intervalLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final long requestTimeoutMicros;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Counts all = new Counts();
+    private final Counts measured = new Counts();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    private volatile long startNanos;
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+    private volatile long measureEndNanos = Long.MAX_VALUE;
+
+    public LoadGenerator(HttpClient client, URI ordersUri, LoadConfig config, CompletionTracker completions) {
+        this.client = client;
+        this.ordersUri = ordersUri;
+        this.config = config;
+        this.completions = completions;
+        this.requestTimeoutMicros = micros(config.requestTimeout().toNanos());
+    }
+
+    /** Fixes the timeline: warmup from {@code startNanos}, then the measured phase. */
+    public void schedule(long startNanos) {
+        this.startNanos = startNanos;
+        measureStartNanos = startNanos + config.warmup().toNanos();
+        measureEndNanos = measureStartNanos + config.duration().toNanos();
+    }
+
+    /** Sends the scheduled arrivals on the calling thread; returns when the last one was sent. */
+    public void run() {
+        // Same seed every run, so two runs of a profile offer the same arrivals
+        SplittableRandom random = new SplittableRandom(42);
+        long intended = startNanos;
+        while (true) {
+            double rate = currentRate(intended);
+            // Exponential gaps make the arrivals Poisson; a rate of zero just waits for the profile to move on
+            intended += rate > 0
+                    ? (long) (-Math.log(1 - random.nextDouble()) / rate * 1_000_000_000L)
+                    : 10_000_000L;
+            if (intended >= measureEndNanos) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (rate > 0) {
+                send(intended, random);
+            }
+        }
+    }
+
+    public double currentRate(long nanos) {
+        return config.profile().ratePerSecond(Duration.ofNanos(Math.max(0, nanos - measureStartNanos)));
+    }
+
+    private void send(long intended, SplittableRandom random) {
+        boolean inMeasure = intended >= measureStartNanos;
+        all.scheduled.increment();
+        if (inMeasure) {
+            measured.scheduled.increment();
+        }
+        if (outstanding.get() >= config.maxOutstanding()) {
+            all.shed.increment();
+            if (inMeasure) {
+                measured.shed.increment();
+            }
+            recordLatency(Math.max(micros(System.nanoTime() - intended), requestTimeoutMicros), inMeasure);
+            return;
+        }
+        outstanding.incrementAndGet();
+        long sent = System.nanoTime();
+        client.sendAsync(orderRequest(random), HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, failure) -> {
+                    long now = System.nanoTime();
+                    outstanding.decrementAndGet();
+                    boolean ok = failure == null && response.statusCode() < 300;
+                    (ok ? all.succeeded : all.failed).increment();
+                    if (inMeasure) {
+                        (ok ? measured.succeeded : measured.failed).increment();
+                        outcome(failure != null
+                                ? rootCause(failure).getClass().getSimpleName()
+                                : "HTTP " + response.statusCode());
+                    }
+                    long correctedMicros = micros(now - intended);
+                    if (failure != null && rootCause(failure) instanceof HttpTimeoutException) {
+                        correctedMicros = Math.max(correctedMicros, requestTimeoutMicros);
+                    }
+                    recordLatency(correctedMicros, inMeasure);
+                    if (inMeasure && failure == null) {
+                        serviceTime.recordValue(micros(now - sent));
+                    }
+                    if (ok) {
+                        completions.expect(orderId(response.body()), intended, inMeasure);
+                    }
+                });
+    }
+
+    private void recordLatency(long correctedMicros, boolean inMeasure) {
+        intervalLatency.recordValue(correctedMicros);
+        if (inMeasure) {
+            latency.recordValue(correctedMicros);
+        }
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(nanos / 1_000, HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private HttpRequest orderRequest(SplittableRandom random) {
+        StringBuilder body = new StringBuilder(256)
+                .append("{\"customerId\":\"load-").append(random.nextInt(config.customers()))
+                .append("\",\"items\":[");
+        int items = random.nextInt(1, 4);
+        int firstProduct = random.nextInt(config.products());
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"productId\":\"").append(LoadHarness.productId((firstProduct + i) % config.products()))
+                    .append("\",\"productName\":\"Load item\",\"quantity\":").append(random.nextInt(1, 5))
+                    .append(",\"unitPrice\":19.99}");
+        }
+        body.append("]}");
+        return HttpRequest.newBuilder(ordersUri)
+                .timeout(config.requestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private static String orderId(byte[] body) {
+        try {
+            JsonNode id = JSON.readTree(body).get("id");
+            return id != null ? id.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void outcome(String key) {
+        outcomes.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        Throwable cause = failure;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /** HTTP latency of the requests ended or shed since the last call, warmup included. */
+    public Histogram takeInterval() {
+        return intervalLatency.getIntervalHistogram();
+    }
+
+    public long measureStartNanos() {
+        return measureStartNanos;
+    }
+
+    public long measureEndNanos() {
+        return measureEndNanos;
+    }
+
+    public Histogram latency() {
+        return latency;
+    }
+
+    public Histogram serviceTime() {
+        return serviceTime;
+    }
+
+    /** Counts since the start, warmup included. */
+    public Counts all() {
+        return all;
+    }
+
+    /** Counts of the arrivals scheduled in the measured phase. */
+    public Counts measured() {
+        return measured;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /** Status codes and exceptions of measured requests. */
+    public Map<String, LongAdder> outcomes() {
+        return outcomes;
+    }
+
+    public static final class Counts {
+
+        private final LongAdder scheduled = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+
+        public long scheduled() {
+            return scheduled.sum();
+        }
+
+        public long succeeded() {
+            return succeeded.sum();
+        }
+
+        public long failed() {
+            return failed.sum();
+        }
+
+        public long shed() {
+            return shed.sum();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.demo.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Load and soak runs of the full order saga on one Linux box, no network or containers:
+ * Kafka and Postgres are {@link StandIns}, the three services run from their packaged jars,
+ * and the {@link LoadGenerator} drives {@code POST /api/orders} with an open-model arrival
+ * profile. Time to COMPLETED comes from the {@link CompletionTracker}, curves from the
+ * {@link Sampler}, and the {@link Report} decides whether the release gates passed.
+ * <p>
+ * Exit code 0 when every gate passed, 1 when one failed, 2 when the run itself broke.
+ * Options are listed in {@link LoadConfig}; see the module pom for examples.
+ */
+public class LoadHarness {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadHarness.class);
+
+    private static final Map<String, String> DATABASES = Map.of(
+            "order-service", "orderdb",
+            "payment-service", "paymentdb",
+            "inventory-service", "inventorydb");
+    // As in each service's datasource URL: payment-service needs per-row batch counts, so no rewriting there
+    private static final Map<String, String> JDBC_PARAMETERS = Map.of(
+            "order-service", "?reWriteBatchedInserts=true",
+            "payment-service", "",
+            "inventory-service", "");
+    private static final Map<String, Integer> PORTS = Map.of(
+            "order-service", 8081,
+            "payment-service", 8082,
+            "inventory-service", 8083);
+
+    public static void main(String[] args) {
+        // A run stopped with Ctrl-C or kill must not leave the services behind
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                ProcessHandle.current().children().forEach(ProcessHandle::destroy)));
+        int exitCode;
+        try {
+            List<String> violations = run(LoadConfig.parse(args));
+            exitCode = violations.isEmpty() ? 0 : 1;
+        } catch (Exception e) {
+            log.error("Load run failed", e);
+            exitCode = 2;
+        }
+        // Kafka and client threads would keep the JVM alive
+        System.exit(exitCode);
+    }
+
+    static String productId(int index) {
+        return "LOAD-%04d".formatted(index);
+    }
+
+    private static List<String> run(LoadConfig config) throws Exception {
+        long began = System.nanoTime();
+        Files.createDirectories(config.outputDir());
+        log.info("Writing results to {}", config.outputDir());
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        try (StandIns standIns = StandIns.start(config.outputDir().resolve("stand-ins"), DATABASES)) {
+            List<ServiceProcess> services = new ArrayList<>();
+            try {
+                for (String service : LoadConfig.SERVICES) {
+                    services.add(ServiceProcess.start(service, PORTS.get(service), config.repositoryRoot(),
+                            config.outputDir(), config.serviceJvmArgs(), serviceArgs(config, standIns, service)));
+                }
+                for (ServiceProcess service : services) {
+                    service.awaitHealthy(http, Duration.ofMinutes(3));
+                }
+                ServiceProcess orders = services.get(0);
+                ServiceProcess inventory = services.get(2);
+                seedStock(http, inventory, config);
+
+                try (CompletionTracker completions = new CompletionTracker(
+                        standIns.connect("order-service", DATABASES.get("order-service")))) {
+                    LoadGenerator generator = new LoadGenerator(http, orders.uri("/api/orders"), config, completions);
+                    generator.schedule(System.nanoTime());
+                    List<Sampler.Sample> samples;
+                    try (Sampler sampler = new Sampler(generator, completions, services, http,
+                            standIns.bootstrapServers(), config.sampleInterval())) {
+                        log.info("Offering {} after {} warmup, for {}", config.profile().describe(),
+                                LoadConfig.format(config.warmup()), LoadConfig.format(config.duration()));
+                        generator.run();
+                        drain(generator, completions, config.drain());
+                        // one more sample, so the curves show where the drain left things
+                        Thread.sleep(config.sampleInterval().toMillis() + 100);
+                        sampler.close();
+                        samples = sampler.samples();
+                    }
+                    Map<String, Long> statuses = orderStatuses(standIns);
+                    List<String> violations = new Report(config, generator, completions, samples, statuses).write();
+                    log.info(Report.summaryLine(Duration.ofNanos(System.nanoTime() - began), violations));
+                    log.info("Report: {}", config.outputDir().resolve("report.md"));
+                    return violations;
+                }
+            } finally {
+                for (ServiceProcess service : services.reversed()) {
+                    service.close();
+                }
+            }
+        }
+    }
+
+    private static List<String> serviceArgs(LoadConfig config, StandIns standIns, String service) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url="
+                        + standIns.jdbcUrl(service, DATABASES.get(service), JDBC_PARAMETERS.get(service)),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.kafka.bootstrap-servers=" + standIns.bootstrapServers()));
+        args.addAll(config.serviceArgs().get(service));
+        return args;
+    }
+
+    private static void seedStock(HttpClient http, ServiceProcess inventory, LoadConfig config)
+            throws IOException, InterruptedException {
+        for (int i = 0; i < config.products(); i++) {
+            HttpRequest request = HttpRequest.newBuilder(inventory.uri("/api/inventory/" + productId(i)))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(
+                            "{\"productName\":\"Load item\",\"available\":" + config.stockPerProduct() + "}"))
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 300) {
+                throw new IllegalStateException("Could not seed stock of " + productId(i) + ": "
+                        + response.statusCode() + " " + response.body());
+            }
+        }
+        log.info("Seeded {} products with {} each", config.products(), config.stockPerProduct());
+    }
+
+    private static Map<String, Long> orderStatuses(StandIns standIns) throws SQLException {
+        Map<String, Long> statuses = new TreeMap<>();
+        try (Connection connection = standIns.connect("order-service", DATABASES.get("order-service"));
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT status, count(*) FROM orders GROUP BY status")) {
+            while (rows.next()) {
+                statuses.put(rows.getString(1), rows.getLong(2));
+            }
+        }
+        return statuses;
+    }
+
+    /** Waits until every request was answered and every accepted order is final, or the drain runs out. */
+    private static void drain(LoadGenerator generator, CompletionTracker completions, Duration drain)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + drain.toNanos();
+        while (System.nanoTime() < deadline && (generator.outstanding() > 0 || completions.unfinished() > 0)) {
+            Thread.sleep(200);
+        }
+        if (completions.unfinished() > 0) {
+            log.warn("{} accepted orders not final after the {} drain", completions.unfinished(),
+                    LoadConfig.format(drain));
+        }
+    }
+}
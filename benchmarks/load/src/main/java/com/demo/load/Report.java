@@ -0,0 +1,308 @@
+package com.demo.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes the results of a run to its output directory and checks the release gates:
+ * <ul>
+ *     <li>{@code report.md} – settings, totals, latency percentiles, lag, gates and the charts</li>
+ *     <li>{@code timeseries.csv} – one row per sample, for plotting elsewhere</li>
+ *     <li>{@code *.hgrm} – full percentile distributions in milliseconds, as HdrHistogram prints them</li>
+ *     <li>{@code throughput.svg}, {@code latency.svg}, {@code completion.svg}, {@code lag.svg}, {@code heap.svg}</li>
+ * </ul>
+ */
+public class Report {
+
+    private final LoadConfig config;
+    private final LoadGenerator generator;
+    private final CompletionTracker completions;
+    private final List<Sampler.Sample> samples;
+    private final Map<String, Long> orderStatuses;
+
+    public Report(LoadConfig config, LoadGenerator generator, CompletionTracker completions,
+                  List<Sampler.Sample> samples, Map<String, Long> orderStatuses) {
+        this.config = config;
+        this.generator = generator;
+        this.completions = completions;
+        this.samples = samples;
+        this.orderStatuses = orderStatuses;
+    }
+
+    /** Writes everything and returns the gates that failed, empty if the run passed. */
+    public List<String> write() throws IOException {
+        Path out = config.outputDir();
+        Files.createDirectories(out);
+        writeDistribution(out.resolve("http-latency.hgrm"), generator.latency());
+        writeDistribution(out.resolve("http-service-time.hgrm"), generator.serviceTime());
+        writeDistribution(out.resolve("time-to-completed.hgrm"), completions.completed());
+        writeTimeSeries(out.resolve("timeseries.csv"));
+        writeCharts(out);
+
+        List<String> violations = checkGates();
+        Files.writeString(out.resolve("report.md"), markdown(violations), StandardCharsets.UTF_8);
+        return violations;
+    }
+
+    private List<String> checkGates() {
+        LoadConfig.Gates gates = config.gates();
+        List<String> violations = new ArrayList<>();
+        // Shed arrivals were never timed, so no percentile can vouch for them
+        long shed = generator.measured().shed();
+        double httpP99 = millisAt(generator.latency(), 99);
+        if (gates.httpP99() != null && !(httpP99 <= gates.httpP99().toNanos() / 1e6)) {
+            violations.add("HTTP p99 %.1f ms is over %s".formatted(httpP99, LoadConfig.format(gates.httpP99())));
+        } else if (gates.httpP99() != null && shed > 0) {
+            violations.add("HTTP p99 not measurable: %d arrivals shed by the client".formatted(shed));
+        }
+        double completedP99 = millisAt(completions.completed(), 99);
+        if (gates.completedP99() != null && !(completedP99 <= gates.completedP99().toNanos() / 1e6)) {
+            violations.add("time-to-COMPLETED p99 %.1f ms is over %s"
+                    .formatted(completedP99, LoadConfig.format(gates.completedP99())));
+        } else if (gates.completedP99() != null && shed > 0) {
+            violations.add("time-to-COMPLETED p99 not measurable: %d arrivals shed by the client".formatted(shed));
+        }
+        if (gates.maxErrorRate() != null && errorRate() > gates.maxErrorRate()) {
+            violations.add("error rate %.4f is over %.4f".formatted(errorRate(), gates.maxErrorRate()));
+        }
+        if (gates.maxEndLag() != null && endLag() > gates.maxEndLag()) {
+            violations.add("consumer lag at the end of the drain %d is over %d".formatted(endLag(), gates.maxEndLag()));
+        }
+        return violations;
+    }
+
+    /**
+     * Everything the measured phase scheduled that didn't end well: HTTP failures, shed arrivals,
+     * orders that ended failed and orders that never finished.
+     */
+    private double errorRate() {
+        LoadGenerator.Counts measured = generator.measured();
+        if (measured.scheduled() == 0) {
+            return 0;
+        }
+        long finalFailures = completions.measuredOutcomes().entrySet().stream()
+                .filter(entry -> !entry.getKey().equals("COMPLETED"))
+                .mapToLong(entry -> entry.getValue().sum())
+                .sum();
+        long bad = measured.failed() + measured.shed() + finalFailures + completions.unfinishedMeasured();
+        return (double) bad / measured.scheduled();
+    }
+
+    private long endLag() {
+        return samples.isEmpty() ? 0 : totalLag(samples.getLast());
+    }
+
+    private static long totalLag(Sampler.Sample sample) {
+        return sample.lagByGroup().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private String markdown(List<String> violations) {
+        LoadGenerator.Counts measured = generator.measured();
+        double seconds = config.duration().toNanos() / 1e9;
+        long completedCount = completions.completed().getTotalCount();
+        StringBuilder md = new StringBuilder(8192);
+
+        md.append("# Load run: ").append(config.profile().name()).append("\n\n");
+        md.append(violations.isEmpty() ? "**Gates: passed**" : "**Gates: FAILED**").append("\n\n");
+        for (String violation : violations) {
+            md.append("- ").append(violation).append('\n');
+        }
+        if (!violations.isEmpty()) {
+            md.append('\n');
+        }
+
+        md.append("## Settings\n\n");
+        md.append("| | |\n|---|---|\n");
+        row(md, "Arrivals", "Poisson, " + config.profile().describe());
+        row(md, "Warmup / measured / drain", "%s / %s / %s".formatted(LoadConfig.format(config.warmup()),
+                LoadConfig.format(config.duration()), LoadConfig.format(config.drain())));
+        row(md, "Products / stock each / customers", "%d / %d / %d"
+                .formatted(config.products(), config.stockPerProduct(), config.customers()));
+        row(md, "Service JVM", "`" + String.join(" ", config.serviceJvmArgs()) + "`");
+        config.serviceArgs().forEach((service, args) -> {
+            if (!args.isEmpty()) {
+                row(md, service, "`" + String.join(" ", args) + "`");
+            }
+        });
+        row(md, "Machine", "%d cpus, %s %s, Java %s".formatted(Runtime.getRuntime().availableProcessors(),
+                System.getProperty("os.name"), System.getProperty("os.arch"), System.getProperty("java.version")));
+        md.append('\n');
+
+        md.append("## Throughput (measured phase)\n\n");
+        md.append("| | count | per second |\n|---|---:|---:|\n");
+        countRow(md, "Arrivals scheduled", measured.scheduled(), seconds);
+        countRow(md, "Accepted (2xx)", measured.succeeded(), seconds);
+        countRow(md, "Failed requests", measured.failed(), seconds);
+        countRow(md, "Shed by the client (max-outstanding)", measured.shed(), seconds);
+        countRow(md, "Reached COMPLETED", completedCount, seconds);
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(completions.measuredOutcomes()).entrySet()) {
+            if (!entry.getKey().equals("COMPLETED")) {
+                countRow(md, "Ended " + entry.getKey(), entry.getValue().sum(), seconds);
+            }
+        }
+        countRow(md, "Not final after the drain", completions.unfinishedMeasured(), seconds);
+        md.append("\nError rate: ").append(String.format(Locale.ROOT, "%.4f", errorRate())).append("\n\n");
+        md.append("| Response | count |\n|---|---:|\n");
+        new TreeMap<>(generator.outcomes()).forEach((outcome, count) ->
+                md.append("| ").append(outcome).append(" | ").append(count.sum()).append(" |\n"));
+        md.append("\nOrders by status at the end, warmup included:\n\n");
+        md.append("| Status | count |\n|---|---:|\n");
+        orderStatuses.forEach((status, count) ->
+                md.append("| ").append(status).append(" | ").append(count).append(" |\n"));
+        md.append('\n');
+
+        md.append("## Latency (ms)\n\n");
+        md.append("HTTP latency and time to COMPLETED are measured from each order's intended start in the ")
+                .append("arrival schedule (coordinated-omission corrected). HTTP latency includes failed requests, ")
+                .append("with timeouts and shed arrivals at the request timeout or more. Service time is send to ")
+                .append("response and is shown only for comparison; it hides queueing in the client and the server.\n\n");
+        md.append("| | count | p50 | p90 | p99 | p99.9 | max |\n|---|---:|---:|---:|---:|---:|---:|\n");
+        latencyRow(md, "HTTP POST /api/orders", generator.latency());
+        latencyRow(md, "HTTP service time (uncorrected)", generator.serviceTime());
+        latencyRow(md, "Time to COMPLETED", completions.completed());
+        md.append('\n');
+
+        md.append("## Consumer lag\n\n");
+        md.append("| Group | peak | end of drain |\n|---|---:|---:|\n");
+        TreeSet<String> groups = new TreeSet<>();
+        samples.forEach(sample -> groups.addAll(sample.lagByGroup().keySet()));
+        for (String group : groups) {
+            long peak = samples.stream().mapToLong(s -> s.lagByGroup().getOrDefault(group, 0L)).max().orElse(0);
+            long end = samples.isEmpty() ? 0 : samples.getLast().lagByGroup().getOrDefault(group, 0L);
+            md.append("| ").append(group).append(" | ").append(peak).append(" | ").append(end).append(" |\n");
+        }
+        md.append('\n');
+
+        md.append("## Heap used (MB)\n\n");
+        md.append("| Service | after warmup | end of run | peak |\n|---|---:|---:|---:|\n");
+        for (String service : LoadConfig.SERVICES) {
+            double afterWarmup = samples.stream().filter(s -> s.elapsedSeconds() >= 0).findFirst()
+                    .map(s -> s.heapMbByService().getOrDefault(service, Double.NaN)).orElse(Double.NaN);
+            double end = samples.isEmpty() ? Double.NaN
+                    : samples.getLast().heapMbByService().getOrDefault(service, Double.NaN);
+            double peak = samples.stream().mapToDouble(s -> s.heapMbByService().getOrDefault(service, Double.NaN))
+                    .filter(v -> !Double.isNaN(v)).max().orElse(Double.NaN);
+            md.append(String.format(Locale.ROOT, "| %s | %.0f | %.0f | %.0f |%n", service, afterWarmup, end, peak));
+        }
+        md.append('\n');
+
+        md.append("## Curves\n\n");
+        md.append("The dashed line is the end of the warmup.\n\n");
+        for (String chart : List.of("throughput", "latency", "completion", "lag", "heap")) {
+            md.append("![").append(chart).append("](").append(chart).append(".svg)\n\n");
+        }
+        return md.toString();
+    }
+
+    private void writeCharts(Path out) throws IOException {
+        double[] x = SvgChart.column(samples, Sampler.Sample::elapsedSeconds);
+        Files.writeString(out.resolve("throughput.svg"), new SvgChart("Throughput", "per second").x(x)
+                .series("offered", SvgChart.column(samples, Sampler.Sample::offeredRate))
+                .series("accepted (2xx)", SvgChart.column(samples, Sampler.Sample::okPerSecond))
+                .series("failed + shed", SvgChart.column(samples, s -> s.failedPerSecond() + s.shedPerSecond()))
+                .series("completed", SvgChart.column(samples, Sampler.Sample::completedPerSecond))
+                .render());
+        Files.writeString(out.resolve("latency.svg"), new SvgChart("HTTP latency per interval", "ms").x(x)
+                .series("p50", SvgChart.column(samples, s -> s.http().p50()))
+                .series("p99", SvgChart.column(samples, s -> s.http().p99()))
+                .series("p99.9", SvgChart.column(samples, s -> s.http().p999()))
+                .render());
+        Files.writeString(out.resolve("completion.svg"), new SvgChart("Time to COMPLETED per interval", "ms").x(x)
+                .series("p50", SvgChart.column(samples, s -> s.timeToCompleted().p50()))
+                .series("p99", SvgChart.column(samples, s -> s.timeToCompleted().p99()))
+                .series("p99.9", SvgChart.column(samples, s -> s.timeToCompleted().p999()))
+                .render());
+
+        SvgChart lag = new SvgChart("Consumer lag", "records").x(x);
+        TreeSet<String> groups = new TreeSet<>();
+        samples.forEach(sample -> groups.addAll(sample.lagByGroup().keySet()));
+        for (String group : groups) {
+            lag.series(group, SvgChart.column(samples, s -> s.lagByGroup().getOrDefault(group, 0L)));
+        }
+        Files.writeString(out.resolve("lag.svg"), lag.render());
+
+        SvgChart heap = new SvgChart("Heap used", "MB").x(x);
+        for (String service : LoadConfig.SERVICES) {
+            heap.series(service, SvgChart.column(samples, s -> s.heapMbByService().getOrDefault(service, Double.NaN)));
+        }
+        Files.writeString(out.resolve("heap.svg"), heap.render());
+    }
+
+    private void writeTimeSeries(Path file) throws IOException {
+        TreeSet<String> groups = new TreeSet<>();
+        samples.forEach(sample -> groups.addAll(sample.lagByGroup().keySet()));
+        try (Writer csv = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            csv.write("elapsed_s,phase,offered_per_s,sent_per_s,ok_per_s,failed_per_s,shed_per_s,outstanding,"
+                    + "http_p50_ms,http_p99_ms,http_p999_ms,http_max_ms,"
+                    + "completed_per_s,final_failed_per_s,completed_p50_ms,completed_p99_ms,completed_p999_ms,unfinished");
+            for (String group : groups) {
+                csv.write(",lag_" + group);
+            }
+            for (String service : LoadConfig.SERVICES) {
+                csv.write(",heap_mb_" + service);
+            }
+            csv.write('\n');
+            for (Sampler.Sample s : samples) {
+                csv.write(String.format(Locale.ROOT,
+                        "%.3f,%s,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%.1f,%.1f,%.3f,%.3f,%.3f,%d",
+                        s.elapsedSeconds(), s.phase(), s.offeredRate(), s.sentPerSecond(), s.okPerSecond(),
+                        s.failedPerSecond(), s.shedPerSecond(), s.outstanding(),
+                        s.http().p50(), s.http().p99(), s.http().p999(), s.http().max(),
+                        s.completedPerSecond(), s.finalFailedPerSecond(),
+                        s.timeToCompleted().p50(), s.timeToCompleted().p99(), s.timeToCompleted().p999(),
+                        s.unfinished()));
+                for (String group : groups) {
+                    csv.write("," + s.lagByGroup().getOrDefault(group, 0L));
+                }
+                for (String service : LoadConfig.SERVICES) {
+                    csv.write(String.format(Locale.ROOT, ",%.1f",
+                            s.heapMbByService().getOrDefault(service, Double.NaN)));
+                }
+                csv.write('\n');
+            }
+        }
+    }
+
+    private static void writeDistribution(Path file, Histogram micros) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            micros.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static void row(StringBuilder md, String name, String value) {
+        md.append("| ").append(name).append(" | ").append(value).append(" |\n");
+    }
+
+    private static void countRow(StringBuilder md, String name, long count, double seconds) {
+        md.append(String.format(Locale.ROOT, "| %s | %d | %.1f |%n", name, count, count / seconds));
+    }
+
+    private static void latencyRow(StringBuilder md, String name, Histogram micros) {
+        md.append(String.format(Locale.ROOT, "| %s | %d | %.1f | %.1f | %.1f | %.1f | %.1f |%n", name,
+                micros.getTotalCount(), millisAt(micros, 50), millisAt(micros, 90), millisAt(micros, 99),
+                millisAt(micros, 99.9), micros.getMaxValue() / 1000.0));
+    }
+
+    private static double millisAt(Histogram micros, double percentile) {
+        return micros.getTotalCount() == 0 ? Double.NaN : micros.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    static String summaryLine(Duration elapsed, List<String> violations) {
+        return "Run took %s, gates %s".formatted(LoadConfig.format(elapsed.withNanos(0)),
+                violations.isEmpty() ? "passed" : "FAILED: " + String.join("; ", violations));
+    }
+}
@@ -0,0 +1,210 @@
+package com.demo.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Takes one {@link Sample} per interval for the curves in the report: offered and achieved
+ * rates, interval latency percentiles, consumer lag of every group on the broker and the
+ * heap of each service. A soak run shows drift in these long before the totals move.
+ */
+public class Sampler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(Sampler.class);
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final LoadGenerator generator;
+    private final CompletionTracker completions;
+    private final List<ServiceProcess> services;
+    private final HttpClient http;
+    private final Admin admin;
+    private final long intervalNanos;
+    private final List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    /** Percentiles in milliseconds, NaN for an interval without values. */
+    public record Percentiles(long count, double p50, double p99, double p999, double max) {
+
+        static Percentiles of(Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return new Percentiles(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+            }
+            return new Percentiles(histogram.getTotalCount(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    public record Sample(
+            double elapsedSeconds,
+            String phase,
+            double offeredRate,
+            double sentPerSecond,
+            double okPerSecond,
+            double failedPerSecond,
+            double shedPerSecond,
+            int outstanding,
+            Percentiles http,
+            double completedPerSecond,
+            double finalFailedPerSecond,
+            Percentiles timeToCompleted,
+            long unfinished,
+            Map<String, Long> lagByGroup,
+            Map<String, Double> heapMbByService
+    ) {
+    }
+
+    public Sampler(LoadGenerator generator, CompletionTracker completions, List<ServiceProcess> services,
+                   HttpClient http, String bootstrapServers, Duration interval) {
+        this.generator = generator;
+        this.completions = completions;
+        this.services = services;
+        this.http = http;
+        this.admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        this.intervalNanos = interval.toNanos();
+        this.thread = Thread.ofPlatform().name("load-sampler").daemon().start(this::run);
+    }
+
+    private void run() {
+        long last = System.nanoTime();
+        LoadGenerator.Counts counts = generator.all();
+        long[] previous = {counts.scheduled(), counts.succeeded(), counts.failed(), counts.shed(),
+                completions.completedAll(), completions.failedAll()};
+        long next = last + intervalNanos;
+        while (running) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            next += intervalNanos;
+            long now = System.nanoTime();
+            double seconds = (now - last) / 1e9;
+            last = now;
+            long[] current = {counts.scheduled(), counts.succeeded(), counts.failed(), counts.shed(),
+                    completions.completedAll(), completions.failedAll()};
+            String phase = now < generator.measureStartNanos() ? "warmup"
+                    : now < generator.measureEndNanos() ? "measure" : "drain";
+            Sample sample = new Sample(
+                    (now - generator.measureStartNanos()) / 1e9,
+                    phase,
+                    phase.equals("drain") ? 0 : generator.currentRate(now),
+                    (current[0] - previous[0]) / seconds,
+                    (current[1] - previous[1]) / seconds,
+                    (current[2] - previous[2]) / seconds,
+                    (current[3] - previous[3]) / seconds,
+                    generator.outstanding(),
+                    Percentiles.of(generator.takeInterval()),
+                    (current[4] - previous[4]) / seconds,
+                    (current[5] - previous[5]) / seconds,
+                    Percentiles.of(completions.takeInterval()),
+                    completions.unfinished(),
+                    consumerLag(),
+                    heapUsed());
+            previous = current;
+            samples.add(sample);
+            log.info("{} t={}s offered={}/s ok={}/s http p99={}ms completed={}/s p99={}ms lag={}",
+                    sample.phase(), Math.round(sample.elapsedSeconds()), Math.round(sample.offeredRate()),
+                    Math.round(sample.okPerSecond()), Math.round(sample.http().p99()),
+                    Math.round(sample.completedPerSecond()), Math.round(sample.timeToCompleted().p99()),
+                    sample.lagByGroup().values().stream().mapToLong(Long::longValue).sum());
+        }
+    }
+
+    /** Sum over partitions of log end offset minus committed offset, per consumer group. */
+    public Map<String, Long> consumerLag() {
+        try {
+            Map<String, Long> lag = new TreeMap<>();
+            for (ConsumerGroupListing group : admin.listConsumerGroups().all().get(5, TimeUnit.SECONDS)) {
+                Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>(admin
+                        .listConsumerGroupOffsets(group.groupId())
+                        .partitionsToOffsetAndMetadata().get(5, TimeUnit.SECONDS));
+                committed.values().removeIf(offset -> offset == null);
+                if (committed.isEmpty()) {
+                    continue;
+                }
+                Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin
+                        .listOffsets(committed.keySet().stream()
+                                .collect(Collectors.toMap(Function.identity(), p -> OffsetSpec.latest())))
+                        .all().get(5, TimeUnit.SECONDS);
+                long total = 0;
+                for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committed.entrySet()) {
+                    total += Math.max(0, ends.get(entry.getKey()).offset() - entry.getValue().offset());
+                }
+                lag.put(group.groupId(), total);
+            }
+            return lag;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Could not read consumer lag: {}", e.toString());
+            return Map.of();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        }
+    }
+
+    private Map<String, Double> heapUsed() {
+        Map<String, Double> heap = new HashMap<>();
+        for (ServiceProcess service : services) {
+            HttpRequest request = HttpRequest.newBuilder(service.uri("/actuator/metrics/jvm.memory.used?tag=area:heap"))
+                    .timeout(Duration.ofSeconds(2))
+                    .build();
+            try {
+                JsonNode body = JSON.readTree(http.send(request, HttpResponse.BodyHandlers.ofByteArray()).body());
+                heap.put(service.name(), body.path("measurements").path(0).path("value").asDouble() / (1 << 20));
+            } catch (IOException e) {
+                heap.put(service.name(), Double.NaN);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                heap.put(service.name(), Double.NaN);
+            }
+        }
+        return heap;
+    }
+
+    public List<Sample> samples() {
+        synchronized (samples) {
+            return List.copyOf(samples);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        admin.close(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,110 @@
+package com.demo.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One service, started from its {@code -exec} jar in its own JVM and pointed at the stand-ins.
+ * It runs in {@code <out>/<service>/}, so relative paths it writes (span files, ledger
+ * snapshots) stay with the run, and its output goes to {@code <service>.log} there.
+ */
+public class ServiceProcess implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceProcess.class);
+
+    private final String name;
+    private final int port;
+    private final Process process;
+    private final Path logFile;
+
+    private ServiceProcess(String name, int port, Process process, Path logFile) {
+        this.name = name;
+        this.port = port;
+        this.process = process;
+        this.logFile = logFile;
+    }
+
+    public static ServiceProcess start(String name, int port, Path repositoryRoot, Path runDir,
+                                       List<String> jvmArgs, List<String> appArgs) throws IOException {
+        Path jar = findExecJar(repositoryRoot.resolve(name).resolve("target"));
+        Path workDir = Files.createDirectories(runDir.resolve(name));
+        Path logFile = workDir.resolve(name + ".log");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        log.info("Started {} (pid {}) on port {}, log {}", name, process.pid(), port, logFile);
+        return new ServiceProcess(name, port, process, logFile);
+    }
+
+    private static Path findExecJar(Path target) throws IOException {
+        if (Files.isDirectory(target)) {
+            try (DirectoryStream<Path> jars = Files.newDirectoryStream(target, "*-exec.jar")) {
+                for (Path jar : jars) {
+                    return jar;
+                }
+            }
+        }
+        throw new IllegalStateException("No -exec jar in " + target + ", package the services first");
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    public void awaitHealthy(HttpClient client, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        HttpRequest health = HttpRequest.newBuilder(uri("/actuator/health")).timeout(Duration.ofSeconds(2)).build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + logFile);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(name + " did not become healthy within " + timeout + ", see " + logFile);
+    }
+
+    /** SIGTERM first so the service shuts down gracefully, SIGKILL if it takes too long. */
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            log.warn("{} did not stop within 30s, killing it", name);
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local replacements for the docker-compose infrastructure: a single-node KRaft broker in this
+ * JVM, and one embedded Postgres server per service (as in compose, so the services don't share
+ * a WAL or buffer pool). Nothing listens beyond localhost.
+ */
+public class StandIns implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(StandIns.class);
+
+    private final EmbeddedKafkaKraftBroker kafka;
+    private final Map<String, EmbeddedPostgres> databases = new LinkedHashMap<>();
+
+    private StandIns(EmbeddedKafkaKraftBroker kafka) {
+        this.kafka = kafka;
+    }
+
+    /** {@code databases} maps service name to the database it expects. */
+    public static StandIns start(Path dataDir, Map<String, String> databases) throws IOException, SQLException {
+        EmbeddedKafkaKraftBroker kafka = new EmbeddedKafkaKraftBroker(1, 3);
+        kafka.brokerProperties(Map.of("auto.create.topics.enable", "true"));
+        kafka.afterPropertiesSet();
+        StandIns standIns = new StandIns(kafka);
+        log.info("Kafka listening on {}", kafka.getBrokersAsString());
+
+        try {
+            for (Map.Entry<String, String> entry : databases.entrySet()) {
+                Path directory = Files.createDirectories(dataDir.resolve("postgres-" + entry.getKey()));
+                ProcessBuilder.Redirect serverLog = ProcessBuilder.Redirect.appendTo(
+                        dataDir.resolve("postgres-" + entry.getKey() + ".log").toFile());
+                EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                        .setDataDirectory(directory)
+                        .setCleanDataDirectory(true)
+                        .setOutputRedirector(serverLog)
+                        .setErrorRedirector(serverLog)
+                        .setServerConfig("max_connections", "200")
+                        .start();
+                standIns.databases.put(entry.getKey(), postgres);
+                try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE DATABASE " + entry.getValue());
+                }
+                log.info("Postgres for {} listening on port {}", entry.getKey(), postgres.getPort());
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            standIns.close();
+            throw e;
+        }
+        return standIns;
+    }
+
+    public String bootstrapServers() {
+        return kafka.getBrokersAsString();
+    }
+
+    /** {@code parameters} is the query string the service uses in its own datasource URL, if any. */
+    public String jdbcUrl(String service, String database, String parameters) {
+        return "jdbc:postgresql://localhost:%d/%s%s".formatted(databases.get(service).getPort(), database, parameters);
+    }
+
+    public Connection connect(String service, String database) throws SQLException {
+        return databases.get(service).getDatabase("postgres", database).getConnection();
+    }
+
+    @Override
+    public void close() {
+        for (Map.Entry<String, EmbeddedPostgres> entry : databases.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                log.warn("Could not stop Postgres of {}", entry.getKey(), e);
+            }
+        }
+        kafka.destroy();
+    }
+}
@@ -0,0 +1,136 @@
+package com.demo.load;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/** Line chart as a standalone SVG, enough to eyeball a run's curves without other tools. */
+final class SvgChart {
+
+    private static final String[] COLORS = {"#1f77b4", "#d62728", "#2ca02c", "#ff7f0e", "#9467bd", "#8c564b"};
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 320;
+    private static final int LEFT = 70;
+    private static final int RIGHT = 180;
+    private static final int TOP = 30;
+    private static final int BOTTOM = 40;
+
+    private final String title;
+    private final String yLabel;
+    private final Map<String, double[]> series = new LinkedHashMap<>();
+    private double[] x;
+
+    SvgChart(String title, String yLabel) {
+        this.title = title;
+        this.yLabel = yLabel;
+    }
+
+    SvgChart x(double[] x) {
+        this.x = x;
+        return this;
+    }
+
+    SvgChart series(String name, double[] y) {
+        series.put(name, y);
+        return this;
+    }
+
+    String render() {
+        double minX = x.length > 0 ? x[0] : 0;
+        double maxX = x.length > 0 ? Math.max(x[x.length - 1], minX + 1) : 1;
+        double maxY = 0;
+        for (double[] values : series.values()) {
+            for (double value : values) {
+                if (!Double.isNaN(value)) {
+                    maxY = Math.max(maxY, value);
+                }
+            }
+        }
+        maxY = maxY > 0 ? niceCeiling(maxY) : 1;
+        int plotWidth = WIDTH - LEFT - RIGHT;
+        int plotHeight = HEIGHT - TOP - BOTTOM;
+
+        StringBuilder svg = new StringBuilder(16_384);
+        svg.append(String.format(Locale.ROOT,
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"sans-serif\" font-size=\"11\">%n",
+                WIDTH, HEIGHT));
+        svg.append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+        svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"18\" font-size=\"14\">%s</text>%n", LEFT, escape(title)));
+        for (int tick = 0; tick <= 4; tick++) {
+            double value = maxY * tick / 4;
+            double y = TOP + plotHeight - plotHeight * tick / 4.0;
+            svg.append(String.format(Locale.ROOT,
+                    "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"#ddd\"/>"
+                            + "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>%n",
+                    LEFT, y, LEFT + plotWidth, y, LEFT - 6, y + 4, label(value)));
+        }
+        for (int tick = 0; tick <= 5; tick++) {
+            double value = minX + (maxX - minX) * tick / 5;
+            double xPos = LEFT + plotWidth * tick / 5.0;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">%ss</text>%n",
+                    xPos, HEIGHT - BOTTOM + 16, label(value)));
+        }
+        svg.append(String.format(Locale.ROOT,
+                "<text x=\"14\" y=\"%d\" transform=\"rotate(-90 14 %d)\" text-anchor=\"middle\">%s</text>%n",
+                TOP + plotHeight / 2, TOP + plotHeight / 2, escape(yLabel)));
+        if (minX < 0 && maxX > 0) {
+            // end of warmup
+            double zero = LEFT + plotWidth * (-minX) / (maxX - minX);
+            svg.append(String.format(Locale.ROOT,
+                    "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" stroke=\"#999\" stroke-dasharray=\"4 3\"/>%n",
+                    zero, TOP, zero, TOP + plotHeight));
+        }
+
+        int index = 0;
+        for (Map.Entry<String, double[]> entry : series.entrySet()) {
+            String color = COLORS[index % COLORS.length];
+            StringBuilder path = new StringBuilder();
+            double[] values = entry.getValue();
+            boolean penDown = false;
+            for (int i = 0; i < Math.min(values.length, x.length); i++) {
+                if (Double.isNaN(values[i])) {
+                    penDown = false;
+                    continue;
+                }
+                double xPos = LEFT + plotWidth * (x[i] - minX) / (maxX - minX);
+                double yPos = TOP + plotHeight - plotHeight * values[i] / maxY;
+                path.append(penDown ? 'L' : 'M').append(String.format(Locale.ROOT, "%.1f %.1f ", xPos, yPos));
+                penDown = true;
+            }
+            svg.append(String.format(Locale.ROOT,
+                    "<path d=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"1.5\"/>%n", path.toString().trim(), color));
+            int legendY = TOP + 14 * index;
+            svg.append(String.format(Locale.ROOT,
+                    "<rect x=\"%d\" y=\"%d\" width=\"10\" height=\"10\" fill=\"%s\"/><text x=\"%d\" y=\"%d\">%s</text>%n",
+                    WIDTH - RIGHT + 12, legendY, color, WIDTH - RIGHT + 26, legendY + 9, escape(entry.getKey())));
+            index++;
+        }
+        return svg.append("</svg>\n").toString();
+    }
+
+    static double[] column(List<Sampler.Sample> samples, ToDoubleFunction<Sampler.Sample> value) {
+        return samples.stream().mapToDouble(value).toArray();
+    }
+
+    private static double niceCeiling(double value) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        for (double step : new double[]{1, 2, 2.5, 5, 10}) {
+            if (value <= step * magnitude) {
+                return step * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    private static String label(double value) {
+        return Math.abs(value) >= 100 || value == Math.rint(value)
+                ? String.format(Locale.ROOT, "%.0f", value)
+                : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,113 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-model load against POST /api/orders: N concurrent clients, each sending its next
+ * request as soon as the previous one returns. Prints throughput, p50/p99/max latency and errors.
+ * <p>
+ * Single-file program, run with: java VirtualThreadLoadBenchmark.java URL CONCURRENCY SECONDS LABEL
+ */
+public class VirtualThreadLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8081/api/orders";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        String label = args.length > 3 ? args[3] : "run";
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(Math.min(10, seconds / 5)).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> perClient = new ArrayList<>(concurrency);
+        int[] counts = new int[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+        // ~64 MB of samples in total, however many clients there are
+        int samplesPerClient = Math.max(1024, 8_000_000 / concurrency);
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                long[] latencies = new long[samplesPerClient];
+                perClient.add(latencies);
+                int clientId = c;
+                clients.execute(() -> {
+                    try {
+                        while (true) {
+                            long start = System.nanoTime();
+                            if (start >= end) {
+                                return;
+                            }
+                            try {
+                                HttpResponse<Void> response = client.send(orderRequest(url, clientId),
+                                        HttpResponse.BodyHandlers.discarding());
+                                if (response.statusCode() >= 400) {
+                                    errors.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                            long now = System.nanoTime();
+                            if (start >= warmupEnd && counts[clientId] < latencies.length) {
+                                latencies[counts[clientId]++] = now - start;
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int pos = 0;
+        for (int c = 0; c < concurrency; c++) {
+            System.arraycopy(perClient.get(c), 0, all, pos, counts[c]);
+            pos += counts[c];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%-16s concurrency=%-6d requests=%-9d throughput=%9.1f req/s  p50=%8.2f ms  p99=%8.2f ms  max=%8.2f ms  errors=%d%n",
+                label, concurrency, total, total / (double) seconds,
+                millis(percentile(all, 0.50)), millis(percentile(all, 0.99)),
+                millis(all.length == 0 ? 0 : all[all.length - 1]), errors.get());
+    }
+
+    private static HttpRequest orderRequest(String url, int clientId) {
+        int quantity = ThreadLocalRandom.current().nextInt(1, 5);
+        String body = """
+                {"customerId":"bench-%d","items":[{"productId":"P-%d","productName":"Bench item","quantity":%d,"unitPrice":19.99}]}
+                """.formatted(clientId, ThreadLocalRandom.current().nextInt(100), quantity);
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
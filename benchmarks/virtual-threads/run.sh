@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread mode of order-service under POST /api/orders load.
+#
+# Needs the docker-compose stack (Kafka + Postgres) running and a built order-service jar:
+#   docker compose up -d
+#   (cd order-service && ./mvnw -DskipTests package)
+#   benchmarks/virtual-threads/run.sh
+#
+# Env: SECONDS_PER_RUN (default 60), LEVELS (default "1000 5000 10000"), JAR (order-service jar).
+# 10k concurrent connections needs a raised open-file limit (ulimit -n 65536).
+set -euo pipefail
+
+cd "$(dirname "$0")"
+ROOT=../..
+JAR=${JAR:-$(ls "$ROOT"/order-service/target/order-service-*-exec.jar | head -1)}
+SECONDS_PER_RUN=${SECONDS_PER_RUN:-60}
+LEVELS=${LEVELS:-"1000 5000 10000"}
+URL=http://localhost:8081/api/orders
+RESULTS=results-$(date +%Y%m%d-%H%M%S).txt
+
+wait_for_health() {
+  for _ in $(seq 1 120); do
+    curl -sf http://localhost:8081/actuator/health >/dev/null && return 0
+    sleep 1
+  done
+  echo "order-service did not become healthy" >&2
+  exit 1
+}
+
+run_mode() {
+  local mode=$1 profile=$2
+  # -Djdk.tracePinnedThreads prints a stack trace whenever a virtual thread pins its carrier
+  java -Djdk.tracePinnedThreads=short -jar "$JAR" \
+    --spring.profiles.active="$profile" \
+    --logging.level.com.demo=WARN --spring.jpa.show-sql=false \
+    > "order-service-$mode.log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+  wait_for_health
+
+  for level in $LEVELS; do
+    java VirtualThreadLoadBenchmark.java "$URL" "$level" "$SECONDS_PER_RUN" "$mode" | tee -a "$RESULTS"
+  done
+
+  echo "pinning events ($mode): $(grep -c 'VirtualThreadPinned\|pinned' "order-service-$mode.log" || true)" | tee -a "$RESULTS"
+  kill $pid
+  wait $pid 2>/dev/null || true
+  trap - EXIT
+}
+
+run_mode platform default
+run_mode virtual virtual-threads
+
+echo "Results written to benchmarks/virtual-threads/$RESULTS"
@@ -2,10 +2,9 @@ package com.demo.event;
 
 import java.time.LocalDateTime;
 
-public record PaymentProcessedEvent(
+public record InventoryUpdatedEvent(
         String orderId,
-        String paymentId,
         boolean success,
         String message,
-        LocalDateTime processedAt
+        LocalDateTime updatedAt
 ) {}
@@ -0,0 +1,9 @@
+package com.demo.event;
+
+import java.time.LocalDateTime;
+
+public record OrderCancelledEvent(
+        String orderId,
+        String reason,
+        LocalDateTime cancelledAt
+) {}
@@ -0,0 +1,8 @@
+package com.demo.event;
+
+import java.time.LocalDateTime;
+
+public record OrderConfirmedEvent(
+        String orderId,
+        LocalDateTime confirmedAt
+) {}
@@ -0,0 +1,17 @@
+package com.demo.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@code items} are the order's lines, forwarded so inventory can reserve them without
+ * looking the order up; empty for payments that did not come from an order-created event.
+ */
+public record PaymentProcessedEvent(
+        String orderId,
+        String paymentId,
+        boolean success,
+        String message,
+        LocalDateTime processedAt,
+        List<OrderItemEvent> items
+) {}
@@ -0,0 +1,28 @@
+package com.demo.event.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Binary codec for one event type, following the message of the same name in
+ * {@code schemas/events.proto}.
+ * <p>
+ * {@link #size} must return exactly the number of bytes {@link #write} produces so that
+ * {@link EventCodecs} can encode straight into a right-sized array.
+ * {@link #read} must skip field numbers it does not know, which is what lets an older
+ * consumer read events from a newer producer.
+ */
+public interface EventCodec<T> {
+
+    int schemaId();
+
+    Class<T> type();
+
+    int size(T event);
+
+    void write(T event, CodedOutputStream out) throws IOException;
+
+    T read(CodedInputStream in) throws IOException;
+}
@@ -0,0 +1,103 @@
+package com.demo.event.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the event codecs and the framing around them.
+ * <p>
+ * A frame is one format byte ({@link #FORMAT_V1}), the schema id as a varint, then the
+ * message. The schema id picks the codec, so a topic can carry several event types and a
+ * consumer needs no type headers or per-topic configuration.
+ */
+public final class EventCodecs {
+
+    public static final byte FORMAT_V1 = 0x01;
+
+    private static final List<EventCodec<?>> CODECS = List.of(
+            new OrderCreatedEventCodec(),
+            new PaymentProcessedEventCodec(),
+            new InventoryUpdatedEventCodec(),
+            new OrderCancelledEventCodec(),
+            new OrderConfirmedEventCodec()
+    );
+
+    private static final Map<Class<?>, EventCodec<?>> BY_TYPE = CODECS.stream()
+            .collect(Collectors.toUnmodifiableMap(EventCodec::type, Function.identity()));
+
+    private static final EventCodec<?>[] BY_SCHEMA_ID = new EventCodec<?>[CODECS.stream()
+            .mapToInt(EventCodec::schemaId).max().orElse(0) + 1];
+
+    static {
+        for (EventCodec<?> codec : CODECS) {
+            BY_SCHEMA_ID[codec.schemaId()] = codec;
+        }
+    }
+
+    private EventCodecs() {
+    }
+
+    /**
+     * Encodes into an array of exactly the frame size, so there is no growing buffer and no
+     * trailing copy.
+     */
+    public static byte[] encode(Object event) {
+        EventCodec<?> codec = BY_TYPE.get(event.getClass());
+        if (codec == null) {
+            throw new IllegalArgumentException("No event codec for " + event.getClass().getName());
+        }
+        return encode(codec, event);
+    }
+
+    public static Object decode(byte[] data) {
+        return decode(CodedInputStream.newInstance(data));
+    }
+
+    /**
+     * Decodes in place: a heap buffer is read from its backing array and a direct buffer
+     * without copying it to the heap first.
+     */
+    public static Object decode(ByteBuffer data) {
+        return decode(CodedInputStream.newInstance(data));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> byte[] encode(EventCodec<T> codec, Object event) {
+        T value = (T) event;
+        int bodySize = codec.size(value);
+        byte[] frame = new byte[1 + CodedOutputStream.computeUInt32SizeNoTag(codec.schemaId()) + bodySize];
+        CodedOutputStream out = CodedOutputStream.newInstance(frame);
+        try {
+            out.writeRawByte(FORMAT_V1);
+            out.writeUInt32NoTag(codec.schemaId());
+            codec.write(value, out);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Size mismatch encoding " + codec.type().getSimpleName(), e);
+        }
+        return frame;
+    }
+
+    private static Object decode(CodedInputStream in) {
+        try {
+            byte format = in.readRawByte();
+            if (format != FORMAT_V1) {
+                throw new IllegalArgumentException("Unknown event format " + format);
+            }
+            int schemaId = in.readUInt32();
+            if (schemaId <= 0 || schemaId >= BY_SCHEMA_ID.length || BY_SCHEMA_ID[schemaId] == null) {
+                throw new IllegalArgumentException("Unknown event schema id " + schemaId);
+            }
+            return BY_SCHEMA_ID[schemaId].read(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed event payload", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.demo.event.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Kafka value deserializer for the shared events. The consumer hands over its fetch buffer
+ * through the {@link ByteBuffer} overload, so records are decoded without an intermediate
+ * {@code byte[]} per value.
+ */
+public class EventDeserializer implements Deserializer<Object> {
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EventCodecs.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot decode event from topic " + topic, e);
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EventCodecs.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot decode event from topic " + topic, e);
+        }
+    }
+}
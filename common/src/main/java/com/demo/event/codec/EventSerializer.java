@@ -0,0 +1,27 @@
+package com.demo.event.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer for the shared events. A {@code byte[]} value is taken to be an
+ * already encoded frame (the order outbox stores them that way) and is sent as is.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[] frame) {
+            return frame;
+        }
+        try {
+            return EventCodecs.encode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot encode " + data.getClass().getSimpleName()
+                    + " for topic " + topic, e);
+        }
+    }
+}
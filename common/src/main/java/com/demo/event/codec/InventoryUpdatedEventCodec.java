@@ -0,0 +1,64 @@
+package com.demo.event.codec;
+
+import com.demo.event.InventoryUpdatedEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+final class InventoryUpdatedEventCodec implements EventCodec<InventoryUpdatedEvent> {
+
+    static final int SCHEMA_ID = 3;
+
+    private static final int ORDER_ID = 1;
+    private static final int SUCCESS = 2;
+    private static final int MESSAGE = 3;
+    private static final int UPDATED_AT = 4;
+
+    @Override
+    public int schemaId() {
+        return SCHEMA_ID;
+    }
+
+    @Override
+    public Class<InventoryUpdatedEvent> type() {
+        return InventoryUpdatedEvent.class;
+    }
+
+    @Override
+    public int size(InventoryUpdatedEvent event) {
+        return Wire.stringSize(ORDER_ID, event.orderId())
+                + Wire.boolSize(SUCCESS, event.success())
+                + Wire.stringSize(MESSAGE, event.message())
+                + Wire.timestampSize(UPDATED_AT, event.updatedAt());
+    }
+
+    @Override
+    public void write(InventoryUpdatedEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, ORDER_ID, event.orderId());
+        Wire.writeBool(out, SUCCESS, event.success());
+        Wire.writeString(out, MESSAGE, event.message());
+        Wire.writeTimestamp(out, UPDATED_AT, event.updatedAt());
+    }
+
+    @Override
+    public InventoryUpdatedEvent read(CodedInputStream in) throws IOException {
+        String orderId = null;
+        boolean success = false;
+        String message = null;
+        LocalDateTime updatedAt = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ORDER_ID -> orderId = in.readStringRequireUtf8();
+                case SUCCESS -> success = in.readBool();
+                case MESSAGE -> message = in.readStringRequireUtf8();
+                case UPDATED_AT -> updatedAt = Wire.readTimestamp(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new InventoryUpdatedEvent(orderId, success, message, updatedAt);
+    }
+}
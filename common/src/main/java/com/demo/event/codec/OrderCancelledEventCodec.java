@@ -0,0 +1,59 @@
+package com.demo.event.codec;
+
+import com.demo.event.OrderCancelledEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+final class OrderCancelledEventCodec implements EventCodec<OrderCancelledEvent> {
+
+    static final int SCHEMA_ID = 4;
+
+    private static final int ORDER_ID = 1;
+    private static final int REASON = 2;
+    private static final int CANCELLED_AT = 3;
+
+    @Override
+    public int schemaId() {
+        return SCHEMA_ID;
+    }
+
+    @Override
+    public Class<OrderCancelledEvent> type() {
+        return OrderCancelledEvent.class;
+    }
+
+    @Override
+    public int size(OrderCancelledEvent event) {
+        return Wire.stringSize(ORDER_ID, event.orderId())
+                + Wire.stringSize(REASON, event.reason())
+                + Wire.timestampSize(CANCELLED_AT, event.cancelledAt());
+    }
+
+    @Override
+    public void write(OrderCancelledEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, ORDER_ID, event.orderId());
+        Wire.writeString(out, REASON, event.reason());
+        Wire.writeTimestamp(out, CANCELLED_AT, event.cancelledAt());
+    }
+
+    @Override
+    public OrderCancelledEvent read(CodedInputStream in) throws IOException {
+        String orderId = null;
+        String reason = null;
+        LocalDateTime cancelledAt = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ORDER_ID -> orderId = in.readStringRequireUtf8();
+                case REASON -> reason = in.readStringRequireUtf8();
+                case CANCELLED_AT -> cancelledAt = Wire.readTimestamp(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new OrderCancelledEvent(orderId, reason, cancelledAt);
+    }
+}
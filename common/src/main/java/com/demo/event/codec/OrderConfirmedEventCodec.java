@@ -0,0 +1,54 @@
+package com.demo.event.codec;
+
+import com.demo.event.OrderConfirmedEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+final class OrderConfirmedEventCodec implements EventCodec<OrderConfirmedEvent> {
+
+    static final int SCHEMA_ID = 5;
+
+    private static final int ORDER_ID = 1;
+    private static final int CONFIRMED_AT = 2;
+
+    @Override
+    public int schemaId() {
+        return SCHEMA_ID;
+    }
+
+    @Override
+    public Class<OrderConfirmedEvent> type() {
+        return OrderConfirmedEvent.class;
+    }
+
+    @Override
+    public int size(OrderConfirmedEvent event) {
+        return Wire.stringSize(ORDER_ID, event.orderId())
+                + Wire.timestampSize(CONFIRMED_AT, event.confirmedAt());
+    }
+
+    @Override
+    public void write(OrderConfirmedEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, ORDER_ID, event.orderId());
+        Wire.writeTimestamp(out, CONFIRMED_AT, event.confirmedAt());
+    }
+
+    @Override
+    public OrderConfirmedEvent read(CodedInputStream in) throws IOException {
+        String orderId = null;
+        LocalDateTime confirmedAt = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ORDER_ID -> orderId = in.readStringRequireUtf8();
+                case CONFIRMED_AT -> confirmedAt = Wire.readTimestamp(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new OrderConfirmedEvent(orderId, confirmedAt);
+    }
+}
@@ -0,0 +1,82 @@
+package com.demo.event.codec;
+
+import com.demo.event.OrderCreatedEvent;
+import com.demo.event.OrderItemEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+final class OrderCreatedEventCodec implements EventCodec<OrderCreatedEvent> {
+
+    static final int SCHEMA_ID = 1;
+
+    private static final int ORDER_ID = 1;
+    private static final int CUSTOMER_ID = 2;
+    private static final int TOTAL_AMOUNT = 3;
+    private static final int ITEMS = 4;
+    private static final int CREATED_AT = 5;
+
+    @Override
+    public int schemaId() {
+        return SCHEMA_ID;
+    }
+
+    @Override
+    public Class<OrderCreatedEvent> type() {
+        return OrderCreatedEvent.class;
+    }
+
+    @Override
+    public int size(OrderCreatedEvent event) {
+        int size = Wire.stringSize(ORDER_ID, event.orderId())
+                + Wire.stringSize(CUSTOMER_ID, event.customerId())
+                + Wire.decimalSize(TOTAL_AMOUNT, event.totalAmount())
+                + Wire.timestampSize(CREATED_AT, event.createdAt());
+        if (event.items() != null) {
+            for (OrderItemEvent item : event.items()) {
+                size += Wire.messageSize(ITEMS, OrderItemEventCodec.INSTANCE, item);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void write(OrderCreatedEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, ORDER_ID, event.orderId());
+        Wire.writeString(out, CUSTOMER_ID, event.customerId());
+        Wire.writeDecimal(out, TOTAL_AMOUNT, event.totalAmount());
+        if (event.items() != null) {
+            for (OrderItemEvent item : event.items()) {
+                Wire.writeMessage(out, ITEMS, OrderItemEventCodec.INSTANCE, item);
+            }
+        }
+        Wire.writeTimestamp(out, CREATED_AT, event.createdAt());
+    }
+
+    @Override
+    public OrderCreatedEvent read(CodedInputStream in) throws IOException {
+        String orderId = null;
+        String customerId = null;
+        BigDecimal totalAmount = null;
+        List<OrderItemEvent> items = new ArrayList<>();
+        LocalDateTime createdAt = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ORDER_ID -> orderId = in.readStringRequireUtf8();
+                case CUSTOMER_ID -> customerId = in.readStringRequireUtf8();
+                case TOTAL_AMOUNT -> totalAmount = Wire.readDecimal(in);
+                case ITEMS -> items.add(Wire.readMessage(in, OrderItemEventCodec.INSTANCE));
+                case CREATED_AT -> createdAt = Wire.readTimestamp(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new OrderCreatedEvent(orderId, customerId, totalAmount, items, createdAt);
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.event.codec;
+
+import com.demo.event.OrderItemEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/** Nested in {@link OrderCreatedEventCodec}; has no schema id of its own. */
+final class OrderItemEventCodec implements EventCodec<OrderItemEvent> {
+
+    static final OrderItemEventCodec INSTANCE = new OrderItemEventCodec();
+
+    private static final int PRODUCT_ID = 1;
+    private static final int PRODUCT_NAME = 2;
+    private static final int QUANTITY = 3;
+    private static final int UNIT_PRICE = 4;
+
+    @Override
+    public int schemaId() {
+        return 0;
+    }
+
+    @Override
+    public Class<OrderItemEvent> type() {
+        return OrderItemEvent.class;
+    }
+
+    @Override
+    public int size(OrderItemEvent event) {
+        return Wire.stringSize(PRODUCT_ID, event.productId())
+                + Wire.stringSize(PRODUCT_NAME, event.productName())
+                + Wire.int32Size(QUANTITY, event.quantity())
+                + Wire.decimalSize(UNIT_PRICE, event.unitPrice());
+    }
+
+    @Override
+    public void write(OrderItemEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, PRODUCT_ID, event.productId());
+        Wire.writeString(out, PRODUCT_NAME, event.productName());
+        Wire.writeInt32(out, QUANTITY, event.quantity());
+        Wire.writeDecimal(out, UNIT_PRICE, event.unitPrice());
+    }
+
+    @Override
+    public OrderItemEvent read(CodedInputStream in) throws IOException {
+        String productId = null;
+        String productName = null;
+        Integer quantity = null;
+        BigDecimal unitPrice = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PRODUCT_ID -> productId = in.readStringRequireUtf8();
+                case PRODUCT_NAME -> productName = in.readStringRequireUtf8();
+                case QUANTITY -> quantity = in.readInt32();
+                case UNIT_PRICE -> unitPrice = Wire.readDecimal(in);
+                default -> in.skipField(tag);
+            }
+        }
+        return new OrderItemEvent(productId, productName, quantity, unitPrice);
+    }
+}
@@ -0,0 +1,86 @@
+package com.demo.event.codec;
+
+import com.demo.event.OrderItemEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+final class PaymentProcessedEventCodec implements EventCodec<PaymentProcessedEvent> {
+
+    static final int SCHEMA_ID = 2;
+
+    private static final int ORDER_ID = 1;
+    private static final int PAYMENT_ID = 2;
+    private static final int SUCCESS = 3;
+    private static final int MESSAGE = 4;
+    private static final int PROCESSED_AT = 5;
+    private static final int ITEMS = 6;
+
+    @Override
+    public int schemaId() {
+        return SCHEMA_ID;
+    }
+
+    @Override
+    public Class<PaymentProcessedEvent> type() {
+        return PaymentProcessedEvent.class;
+    }
+
+    @Override
+    public int size(PaymentProcessedEvent event) {
+        int size = Wire.stringSize(ORDER_ID, event.orderId())
+                + Wire.stringSize(PAYMENT_ID, event.paymentId())
+                + Wire.boolSize(SUCCESS, event.success())
+                + Wire.stringSize(MESSAGE, event.message())
+                + Wire.timestampSize(PROCESSED_AT, event.processedAt());
+        if (event.items() != null) {
+            for (OrderItemEvent item : event.items()) {
+                size += Wire.messageSize(ITEMS, OrderItemEventCodec.INSTANCE, item);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void write(PaymentProcessedEvent event, CodedOutputStream out) throws IOException {
+        Wire.writeString(out, ORDER_ID, event.orderId());
+        Wire.writeString(out, PAYMENT_ID, event.paymentId());
+        Wire.writeBool(out, SUCCESS, event.success());
+        Wire.writeString(out, MESSAGE, event.message());
+        Wire.writeTimestamp(out, PROCESSED_AT, event.processedAt());
+        if (event.items() != null) {
+            for (OrderItemEvent item : event.items()) {
+                Wire.writeMessage(out, ITEMS, OrderItemEventCodec.INSTANCE, item);
+            }
+        }
+    }
+
+    @Override
+    public PaymentProcessedEvent read(CodedInputStream in) throws IOException {
+        String orderId = null;
+        String paymentId = null;
+        boolean success = false;
+        String message = null;
+        LocalDateTime processedAt = null;
+        List<OrderItemEvent> items = new ArrayList<>();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case ORDER_ID -> orderId = in.readStringRequireUtf8();
+                case PAYMENT_ID -> paymentId = in.readStringRequireUtf8();
+                case SUCCESS -> success = in.readBool();
+                case MESSAGE -> message = in.readStringRequireUtf8();
+                case PROCESSED_AT -> processedAt = Wire.readTimestamp(in);
+                case ITEMS -> items.add(Wire.readMessage(in, OrderItemEventCodec.INSTANCE));
+                default -> in.skipField(tag);
+            }
+        }
+        return new PaymentProcessedEvent(orderId, paymentId, success, message, processedAt, items);
+    }
+}
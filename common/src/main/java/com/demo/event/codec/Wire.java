@@ -0,0 +1,171 @@
+package com.demo.event.codec;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Field helpers shared by the codecs. Null values are simply not written, and a field that
+ * is absent on the wire reads back as null (or false / 0 for primitives).
+ */
+final class Wire {
+
+    private static final int DECIMAL_UNSCALED = 1;
+    private static final int DECIMAL_UNSCALED_BIG = 2;
+    private static final int DECIMAL_SCALE = 3;
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private Wire() {
+    }
+
+    // --- string ---
+
+    static int stringSize(int field, String value) {
+        return value == null ? 0 : CodedOutputStream.computeStringSize(field, value);
+    }
+
+    static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value);
+        }
+    }
+
+    // --- bool / int ---
+
+    static int boolSize(int field, boolean value) {
+        return value ? CodedOutputStream.computeBoolSize(field, true) : 0;
+    }
+
+    static void writeBool(CodedOutputStream out, int field, boolean value) throws IOException {
+        if (value) {
+            out.writeBool(field, true);
+        }
+    }
+
+    static int int32Size(int field, Integer value) {
+        return value == null ? 0 : CodedOutputStream.computeInt32Size(field, value);
+    }
+
+    static void writeInt32(CodedOutputStream out, int field, Integer value) throws IOException {
+        if (value != null) {
+            out.writeInt32(field, value);
+        }
+    }
+
+    // --- LocalDateTime: sint64 micros since the epoch, read as if UTC ---
+
+    static int timestampSize(int field, LocalDateTime value) {
+        return value == null ? 0 : CodedOutputStream.computeSInt64Size(field, toMicros(value));
+    }
+
+    static void writeTimestamp(CodedOutputStream out, int field, LocalDateTime value) throws IOException {
+        if (value != null) {
+            out.writeSInt64(field, toMicros(value));
+        }
+    }
+
+    static LocalDateTime readTimestamp(CodedInputStream in) throws IOException {
+        long micros = in.readSInt64();
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, MICROS_PER_SECOND),
+                (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000,
+                ZoneOffset.UTC);
+    }
+
+    private static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + value.getNano() / 1000;
+    }
+
+    // --- BigDecimal: nested Decimal message ---
+
+    static int decimalSize(int field, BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        int body = decimalBodySize(value);
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(body) + body;
+    }
+
+    static void writeDecimal(CodedOutputStream out, int field, BigDecimal value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(decimalBodySize(value));
+
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            if (unscaled.signum() != 0) {
+                out.writeSInt64(DECIMAL_UNSCALED, unscaled.longValue());
+            }
+        } else {
+            out.writeByteArray(DECIMAL_UNSCALED_BIG, unscaled.toByteArray());
+        }
+        if (value.scale() != 0) {
+            out.writeSInt32(DECIMAL_SCALE, value.scale());
+        }
+    }
+
+    static BigDecimal readDecimal(CodedInputStream in) throws IOException {
+        int limit = in.pushLimit(in.readRawVarint32());
+        long unscaled = 0;
+        BigInteger unscaledBig = null;
+        int scale = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case DECIMAL_UNSCALED -> unscaled = in.readSInt64();
+                case DECIMAL_UNSCALED_BIG -> unscaledBig = new BigInteger(in.readByteArray());
+                case DECIMAL_SCALE -> scale = in.readSInt32();
+                default -> in.skipField(tag);
+            }
+        }
+        in.popLimit(limit);
+        return unscaledBig != null ? new BigDecimal(unscaledBig, scale) : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static int decimalBodySize(BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        int size = 0;
+        if (unscaled.bitLength() < Long.SIZE) {
+            if (unscaled.signum() != 0) {
+                size += CodedOutputStream.computeSInt64Size(DECIMAL_UNSCALED, unscaled.longValue());
+            }
+        } else {
+            int length = unscaled.bitLength() / 8 + 1; // BigInteger.toByteArray() length
+            size += CodedOutputStream.computeTagSize(DECIMAL_UNSCALED_BIG)
+                    + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+        }
+        if (value.scale() != 0) {
+            size += CodedOutputStream.computeSInt32Size(DECIMAL_SCALE, value.scale());
+        }
+        return size;
+    }
+
+    // --- nested messages ---
+
+    static <T> int messageSize(int field, EventCodec<T> codec, T value) {
+        int body = codec.size(value);
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(body) + body;
+    }
+
+    static <T> void writeMessage(CodedOutputStream out, int field, EventCodec<T> codec, T value) throws IOException {
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(codec.size(value));
+        codec.write(value, out);
+    }
+
+    static <T> T readMessage(CodedInputStream in, EventCodec<T> codec) throws IOException {
+        int limit = in.pushLimit(in.readRawVarint32());
+        T value = codec.read(in);
+        in.popLimit(limit);
+        return value;
+    }
+}
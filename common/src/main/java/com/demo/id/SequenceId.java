@@ -0,0 +1,23 @@
+package com.demo.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Takes the annotated {@code Long} id from the database sequence {@link #value()}, one
+ * {@code nextval} per row, unless the entity already carries an id when it is inserted.
+ * Writers of many rows can fetch their ids from the sequence in a single query and assign
+ * them up front instead.
+ */
+@IdGeneratorType(SequenceIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SequenceId {
+
+    /** Sequence name, created with the schema like a {@code @SequenceGenerator}'s. */
+    String value();
+}
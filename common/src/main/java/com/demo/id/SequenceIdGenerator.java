@@ -0,0 +1,41 @@
+package com.demo.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+public class SequenceIdGenerator extends SequenceStyleGenerator implements AnnotationBasedGenerator<SequenceId> {
+
+    private String sequenceName;
+
+    @Override
+    public void initialize(SequenceId annotation, Member member, GeneratorCreationContext context) {
+        sequenceName = annotation.value();
+    }
+
+    // No pooled blocks: ids must follow the order in which rows are written, across instances
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM, "1");
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return currentValue != null ? currentValue : generate(session, owner);
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
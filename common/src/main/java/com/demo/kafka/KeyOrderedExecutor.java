@@ -0,0 +1,119 @@
+package com.demo.kafka;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a shared worker pool while keeping tasks with the same key strictly in
+ * submission order. Different keys run concurrently, so parallelism is bounded by the pool
+ * and {@code maxInFlight}, not by the number of partitions.
+ * <p>
+ * A key has an entry in {@code queues} exactly while one worker is draining it; all queue
+ * changes for a key happen inside the map's per-key compute, so no extra locking is needed.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyOrderedExecutor.class);
+
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final ConcurrentHashMap<String, ArrayDeque<Runnable>> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DistributionSummary keyQueueDepth;
+
+    public KeyOrderedExecutor(ExecutorService workers, int maxInFlight, String metricPrefix, MeterRegistry meterRegistry) {
+        this.workers = workers;
+        this.permits = new Semaphore(maxInFlight);
+
+        Gauge.builder(metricPrefix + ".in.flight", inFlight, AtomicInteger::get)
+                .description("Records submitted and not yet processed")
+                .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".active.keys", queues, ConcurrentHashMap::size)
+                .description("Keys with queued or running records")
+                .register(meterRegistry);
+        this.keyQueueDepth = DistributionSummary.builder(metricPrefix + ".key.queue.depth")
+                .description("Records queued for the same key at submit time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code task} behind earlier tasks for {@code key}. Blocks while {@code maxInFlight}
+     * tasks are outstanding, which back-pressures the calling listener thread.
+     */
+    public void submit(String key, Runnable task) throws InterruptedException {
+        permits.acquire();
+        inFlight.incrementAndGet();
+
+        boolean[] startDrain = new boolean[1];
+        ArrayDeque<Runnable> queue = queues.compute(key, (k, existing) -> {
+            ArrayDeque<Runnable> q = existing;
+            if (q == null) {
+                q = new ArrayDeque<>();
+                startDrain[0] = true;
+            }
+            q.add(task);
+            return q;
+        });
+        keyQueueDepth.record(queue.size());
+
+        if (startDrain[0]) {
+            try {
+                workers.execute(() -> drain(key));
+            } catch (RuntimeException e) {
+                // Pool shut down: undo so the caller sees the failure and nothing waits forever
+                queues.remove(key);
+                permits.release();
+                inFlight.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private void drain(String key) {
+        Runnable[] next = new Runnable[1];
+        while (true) {
+            next[0] = null;
+            queues.computeIfPresent(key, (k, q) -> {
+                next[0] = q.poll();
+                // Returning null removes the key: the next submit starts a fresh drain
+                return next[0] == null ? null : q;
+            });
+            if (next[0] == null) {
+                return;
+            }
+
+            try {
+                next[0].run();
+            } catch (Throwable t) {
+                log.error("Task for key {} failed", key, t);
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(Duration.ofSeconds(30).toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("{} records still in flight at shutdown", inFlight.get());
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.demo.kafka.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends dead letters back to their base topic, batch by batch, as fresh records (key and
+ * value only, so they get the full set of retry tiers again). A batch's DLT offsets are
+ * committed only once every record in it was acked on the base topic; a failed replay
+ * leaves them to the next call. Dead letters this version still can't decode are skipped;
+ * they stay on the DLT.
+ */
+public class DeadLetterReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterReplayer.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final KafkaOperations<String, Object> template;
+    private final RetryTopicPolicy policy;
+    private final String groupId;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final MeterRegistry meterRegistry;
+    private final String metricPrefix;
+
+    public DeadLetterReplayer(ConsumerFactory<?, ?> consumerFactory, KafkaOperations<String, Object> template,
+                              RetryTopicPolicy policy, String groupId, int batchSize, Duration sendTimeout,
+                              MeterRegistry meterRegistry, String metricPrefix) {
+        this.consumerFactory = consumerFactory;
+        this.template = template;
+        this.policy = policy;
+        this.groupId = groupId;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.meterRegistry = meterRegistry;
+        this.metricPrefix = metricPrefix;
+    }
+
+    /**
+     * Replays up to {@code maxRecords} dead letters of {@code baseTopic}, oldest first.
+     * Returns how many were replayed; fewer than asked means the DLT is drained.
+     */
+    public int replay(String baseTopic, int maxRecords) {
+        String dlt = policy.dltTopic(baseTopic);
+        Counter replayed = Counter.builder(metricPrefix + ".dlt.replayed")
+                .tag("topic", baseTopic)
+                .register(meterRegistry);
+
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(batchSize, maxRecords));
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        int total = 0;
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer(groupId, null, "-dlt-replay", overrides)) {
+            consumer.subscribe(List.of(dlt));
+            while (total < maxRecords) {
+                ConsumerRecords<?, ?> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<?, ?> record : records) {
+                    if (total + sends.size() == maxRecords) {
+                        break;
+                    }
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                    if (record.value() == null) {
+                        // Still can't be decoded; on the base topic it would only come straight back
+                        log.warn("Not replaying undecodable dead letter {}-{}@{}", record.topic(),
+                                record.partition(), record.offset());
+                        continue;
+                    }
+                    sends.add(template.send(new ProducerRecord<>(baseTopic, (String) record.key(), record.value())));
+                }
+
+                try {
+                    CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                            .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while replaying " + dlt, e);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Replay of " + dlt + " stopped after " + total + " records", e);
+                }
+
+                consumer.commitSync(offsets);
+                total += sends.size();
+                replayed.increment(sends.size());
+            }
+        }
+        return total;
+    }
+}
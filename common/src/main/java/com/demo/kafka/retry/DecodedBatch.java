@@ -0,0 +1,92 @@
+package com.demo.kafka.retry;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One poll of a batch listener, split into the records that decoded and the ones that did
+ * not. With the {@code ErrorHandlingDeserializer} in front of the event codec an undecodable
+ * record arrives with a null value and the failure in a header; the container only acts on
+ * that header for record listeners, so batch listeners have to send such records to their
+ * dead letter topic themselves, through {@link #deadLetter}. They can never succeed, so they
+ * skip any retry tiers.
+ */
+public final class DecodedBatch<K, V> {
+
+    /** Sends one record on to its dead letter topic; returns false if it could not. */
+    @FunctionalInterface
+    public interface DeadLetterRoute {
+        boolean route(ConsumerRecord<?, ?> record, Exception failure);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DecodedBatch.class);
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(DecodedBatch.class);
+
+    private final List<ConsumerRecord<K, V>> records;
+    private final List<ConsumerRecord<K, V>> undecodable;
+
+    private DecodedBatch(List<ConsumerRecord<K, V>> records, List<ConsumerRecord<K, V>> undecodable) {
+        this.records = records;
+        this.undecodable = undecodable;
+    }
+
+    public static <K, V> DecodedBatch<K, V> of(List<ConsumerRecord<K, V>> poll) {
+        List<ConsumerRecord<K, V>> decoded = null;
+        List<ConsumerRecord<K, V>> undecodable = List.of();
+        for (int i = 0; i < poll.size(); i++) {
+            ConsumerRecord<K, V> record = poll.get(i);
+            if (record.value() != null) {
+                if (decoded != null) {
+                    decoded.add(record);
+                }
+                continue;
+            }
+            // Only copied once a record has to be left out, which is rare
+            if (decoded == null) {
+                decoded = new ArrayList<>(poll.subList(0, i));
+                undecodable = new ArrayList<>();
+            }
+            undecodable.add(record);
+        }
+        return new DecodedBatch<>(decoded != null ? decoded : poll, undecodable);
+    }
+
+    /** The records that decoded, in poll order. */
+    public List<ConsumerRecord<K, V>> records() {
+        return records;
+    }
+
+    public List<V> values() {
+        return records.stream().map(ConsumerRecord::value).toList();
+    }
+
+    /**
+     * Routes the records that could not be decoded. Records without a value that are not
+     * decoding failures (tombstones) are only logged. Throws if a record could not be routed,
+     * so the poll is not committed past it.
+     */
+    public void deadLetter(DeadLetterRoute route) {
+        for (ConsumerRecord<K, V> record : undecodable) {
+            DeserializationException failure = SerializationUtils.getExceptionFromHeader(
+                    record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+            if (failure == null) {
+                log.warn("Skipping record {}-{}@{} without a value", record.topic(), record.partition(),
+                        record.offset());
+                continue;
+            }
+            log.error("Could not decode record {}-{}@{}, sending it to the dead letter topic", record.topic(),
+                    record.partition(), record.offset(), failure);
+            if (!route.route(record, failure)) {
+                throw new IllegalStateException("Could not route undecodable record " + record.topic() + "-"
+                        + record.partition() + "@" + record.offset());
+            }
+        }
+    }
+}
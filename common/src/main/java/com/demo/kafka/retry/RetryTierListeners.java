@@ -0,0 +1,114 @@
+package com.demo.kafka.retry;
+
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpoint;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import org.springframework.kafka.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Registers one listener container per retry tier of each topic, ids {@code <id>-1..N}.
+ * <p>
+ * A retry listener nacks a record that is not due yet, which pauses its whole container for
+ * the remaining delay. With every tier in its own container that wait only holds back records
+ * of the same tier, which have the same delay and so are due no earlier than about one delay
+ * later; a record waiting 16s on the last tier no longer stalls the 1s tier. The containers
+ * are in the {@code KafkaListenerEndpointRegistry} like annotated ones.
+ */
+public class RetryTierListeners implements KafkaListenerConfigurer {
+
+    private final RetryTopicPolicy policy;
+    private final KafkaListenerContainerFactory<?> containerFactory;
+    private final String groupId;
+    private final List<TierEndpoint> endpoints = new ArrayList<>();
+
+    public RetryTierListeners(RetryTopicPolicy policy, KafkaListenerContainerFactory<?> containerFactory,
+                              String groupId) {
+        this.policy = policy;
+        this.containerFactory = containerFactory;
+        this.groupId = groupId;
+    }
+
+    /** Adds a container for each retry tier of {@code baseTopic}, all calling {@code listener}. */
+    public RetryTierListeners add(String id, String baseTopic, AcknowledgingMessageListener<String, Object> listener) {
+        for (int tier = 1; tier <= policy.tiers(); tier++) {
+            endpoints.add(new TierEndpoint(id + "-" + tier, groupId, policy.retryTopic(baseTopic, tier), listener));
+        }
+        return this;
+    }
+
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        for (TierEndpoint endpoint : endpoints) {
+            registrar.registerEndpoint(endpoint, containerFactory);
+        }
+    }
+
+    /** Listens to one topic with a plain listener; everything else comes from the factory. */
+    private record TierEndpoint(String id, String groupId, String topic,
+                                AcknowledgingMessageListener<String, Object> listener) implements KafkaListenerEndpoint {
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getGroupId() {
+            return groupId;
+        }
+
+        @Override
+        public String getGroup() {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getTopics() {
+            return List.of(topic);
+        }
+
+        @Override
+        public TopicPartitionOffset[] getTopicPartitionsToAssign() {
+            return null;
+        }
+
+        @Override
+        public Pattern getTopicPattern() {
+            return null;
+        }
+
+        @Override
+        public String getClientIdPrefix() {
+            return null;
+        }
+
+        @Override
+        public Integer getConcurrency() {
+            return null;
+        }
+
+        @Override
+        public Boolean getAutoStartup() {
+            return null;
+        }
+
+        @Override
+        public void setupListenerContainer(MessageListenerContainer listenerContainer, MessageConverter messageConverter) {
+            listenerContainer.setupMessageListener(listener);
+        }
+
+        @Override
+        public boolean isSplitIterables() {
+            return true;
+        }
+    }
+}
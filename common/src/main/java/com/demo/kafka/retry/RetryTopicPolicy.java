@@ -0,0 +1,117 @@
+package com.demo.kafka.retry;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Names and delays of the retry tiers behind a topic. A record that fails on {@code t} moves
+ * to {@code t-retry-1}, {@code t-retry-2}, ... {@code t-retry-N} and finally {@code t-dlt};
+ * tier {@code n} waits {@code initialDelay * multiplier^(n-1)} before the record is retried.
+ * <p>
+ * Every tier has a single fixed delay, so within a partition records become due in offset
+ * order and a retry consumer only ever waits on the record at the head.
+ */
+public final class RetryTopicPolicy {
+
+    /** Epoch millis at which a record on a retry tier may be processed. */
+    public static final String DUE_AT_HEADER = "retry-due-at";
+
+    private static final String RETRY_SUFFIX = "-retry-";
+    private static final String DLT_SUFFIX = "-dlt";
+
+    private final int tiers;
+    private final Duration initialDelay;
+    private final double multiplier;
+
+    public RetryTopicPolicy(int tiers, Duration initialDelay, double multiplier) {
+        if (tiers < 0 || initialDelay.isNegative() || multiplier < 1.0) {
+            throw new IllegalArgumentException("Invalid retry policy: tiers=" + tiers
+                    + ", initialDelay=" + initialDelay + ", multiplier=" + multiplier);
+        }
+        this.tiers = tiers;
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+    }
+
+    public int tiers() {
+        return tiers;
+    }
+
+    public String retryTopic(String baseTopic, int tier) {
+        return baseTopic + RETRY_SUFFIX + tier;
+    }
+
+    public String dltTopic(String baseTopic) {
+        return baseTopic + DLT_SUFFIX;
+    }
+
+    /** All retry tiers of {@code baseTopic}, for a listener's {@code topics}. */
+    public String[] retryTopics(String baseTopic) {
+        String[] topics = new String[tiers];
+        for (int tier = 1; tier <= tiers; tier++) {
+            topics[tier - 1] = retryTopic(baseTopic, tier);
+        }
+        return topics;
+    }
+
+    /** Retry tiers and the DLT of {@code baseTopic}, for topic creation. */
+    public List<String> derivedTopics(String baseTopic) {
+        List<String> topics = new ArrayList<>(List.of(retryTopics(baseTopic)));
+        topics.add(dltTopic(baseTopic));
+        return topics;
+    }
+
+    public Duration delay(int tier) {
+        return Duration.ofMillis(Math.round(initialDelay.toMillis() * Math.pow(multiplier, tier - 1)));
+    }
+
+    /** 0 for a base topic, {@code n} for {@code -retry-n}, {@code tiers + 1} for the DLT. */
+    public int tierOf(String topic) {
+        if (topic.endsWith(DLT_SUFFIX)) {
+            return tiers + 1;
+        }
+        int at = topic.lastIndexOf(RETRY_SUFFIX);
+        if (at < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(topic.substring(at + RETRY_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public String baseTopic(String topic) {
+        if (topic.endsWith(DLT_SUFFIX)) {
+            return topic.substring(0, topic.length() - DLT_SUFFIX.length());
+        }
+        int at = topic.lastIndexOf(RETRY_SUFFIX);
+        return at < 0 || tierOf(topic) == 0 ? topic : topic.substring(0, at);
+    }
+
+    /** Where a record that just failed on {@code topic} goes next. */
+    public String nextTopic(String topic, boolean retryable) {
+        int next = tierOf(topic) + 1;
+        String base = baseTopic(topic);
+        return retryable && next <= tiers ? retryTopic(base, next) : dltTopic(base);
+    }
+
+    /** How long the record must still wait; zero when it carries no due time or is due. */
+    public static Duration remainingDelay(ConsumerRecord<?, ?> record) {
+        Header dueAt = record.headers().lastHeader(DUE_AT_HEADER);
+        if (dueAt == null || dueAt.value().length != Long.BYTES) {
+            return Duration.ZERO;
+        }
+        long remaining = ByteBuffer.wrap(dueAt.value()).getLong() - System.currentTimeMillis();
+        return remaining > 0 ? Duration.ofMillis(remaining) : Duration.ZERO;
+    }
+
+    static byte[] encodeDueAt(long epochMillis) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array();
+    }
+}
@@ -0,0 +1,125 @@
+package com.demo.kafka.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.util.Set;
+
+/**
+ * Moves a failed record one tier down its {@link RetryTopicPolicy}: from the base topic to
+ * the first retry tier, from each tier to the next, from the last one to the DLT. Records
+ * that can never succeed (undecodable payloads, wrong types) go straight to the DLT.
+ * <p>
+ * Used as the container error handler's recoverer with no in-place retries, so the failing
+ * partition moves on immediately, and called directly by workers that process records off
+ * the listener thread through {@link #routeUntilAccepted}.
+ */
+public class TieredDeadLetterRecoverer extends DeadLetterPublishingRecoverer {
+
+    private static final Set<Class<? extends Throwable>> NOT_RETRYABLE = Set.of(
+            SerializationException.class,
+            DeserializationException.class,
+            IllegalArgumentException.class,
+            ClassCastException.class);
+
+    private static final Logger log = LoggerFactory.getLogger(TieredDeadLetterRecoverer.class);
+
+    private static final long ROUTE_BACKOFF_INITIAL_MS = 100;
+    private static final long ROUTE_BACKOFF_MAX_MS = 30_000;
+
+    private final RetryTopicPolicy policy;
+    private final MeterRegistry meterRegistry;
+    private final String metricPrefix;
+
+    public TieredDeadLetterRecoverer(KafkaOperations<?, ?> template, RetryTopicPolicy policy,
+                                     MeterRegistry meterRegistry, String metricPrefix) {
+        // Negative partition: the producer partitions by key, as on the base topic
+        super(template, (record, ex) -> new TopicPartition(policy.nextTopic(record.topic(), isRetryable(ex)), -1));
+        this.policy = policy;
+        this.meterRegistry = meterRegistry;
+        this.metricPrefix = metricPrefix;
+
+        setHeadersFunction((record, ex) -> {
+            int next = policy.tierOf(policy.nextTopic(record.topic(), isRetryable(ex)));
+            RecordHeaders headers = new RecordHeaders();
+            if (next <= policy.tiers()) {
+                long dueAt = System.currentTimeMillis() + policy.delay(next).toMillis();
+                headers.add(RetryTopicPolicy.DUE_AT_HEADER, RetryTopicPolicy.encodeDueAt(dueAt));
+            }
+            return headers;
+        });
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer, Exception exception) {
+        super.accept(record, consumer, exception);
+
+        String next = policy.nextTopic(record.topic(), isRetryable(exception));
+        String base = policy.baseTopic(record.topic());
+        int tier = policy.tierOf(next);
+        if (tier <= policy.tiers()) {
+            counter(metricPrefix + ".retry.routed", base, "tier", String.valueOf(tier)).increment();
+        } else {
+            counter(metricPrefix + ".dlt.records", base, "from_tier", String.valueOf(policy.tierOf(record.topic())))
+                    .increment();
+        }
+    }
+
+    /**
+     * For workers that ack records themselves: routes {@code record} like {@link #accept}, and
+     * while the send to the next tier fails keeps trying with a growing back-off instead of
+     * giving up. The caller must only ack once this returned {@code true}; {@code false} means
+     * the thread was interrupted (shutdown) before the record was routed, so it stays
+     * uncommitted and is redelivered.
+     */
+    public boolean routeUntilAccepted(ConsumerRecord<?, ?> record, Exception failure) {
+        long backoff = ROUTE_BACKOFF_INITIAL_MS;
+        while (true) {
+            try {
+                accept(record, null, failure);
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Could not route record {}-{}@{} to the next tier, trying again in {}ms",
+                        record.topic(), record.partition(), record.offset(), backoff, e);
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, ROUTE_BACKOFF_MAX_MS);
+        }
+    }
+
+    private Counter counter(String name, String baseTopic, String tagKey, String tagValue) {
+        return Counter.builder(name)
+                .tag("topic", baseTopic)
+                .tag(tagKey, tagValue)
+                .register(meterRegistry);
+    }
+
+    static boolean isRetryable(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            for (Class<? extends Throwable> type : NOT_RETRYABLE) {
+                if (type.isInstance(t)) {
+                    return false;
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+package com.demo.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency-driven concurrency limit in the style of Netflix's Gradient2, measured against a
+ * Vegas-like baseline (the lowest recent latency). The limit is not configured but found:
+ * while the short-term latency stays near the baseline the limit grows by about
+ * {@code sqrt(limit)} per window; once queueing pushes latency up, the gradient
+ * {@code tolerance * longRtt / shortRtt} drops below 1 and the limit shrinks with it.
+ * Work beyond the limit is turned away before it can queue on the pool or the database,
+ * so latency for the work that is admitted stays flat.
+ * <p>
+ * Samples are averaged over windows of at least {@value #MIN_WINDOW_SAMPLES} samples and
+ * {@value #MIN_WINDOW_NANOS} ns. The limit only grows when the window actually used at least
+ * half of it, so an idle service does not inflate it. Dropped work (errors, timeouts)
+ * shrinks it by 10%. Every {@value #PROBE_INTERVAL_WINDOWS} windows the limit is halved
+ * for one window, so a baseline first measured under load (or during warm-up) is corrected.
+ * <p>
+ * Exports {@code <prefix>.limit}, {@code <prefix>.in.flight} and {@code <prefix>.rejected}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final long MIN_WINDOW_NANOS = 100_000_000L;
+    private static final int LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final int PROBE_INTERVAL_WINDOWS = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile double limit;
+
+    // Window state, guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private double longRtt;
+    private int windowsSinceProbe;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      String metricPrefix, MeterRegistry meterRegistry) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit
+                || tolerance < 1.0) {
+            throw new IllegalArgumentException("Invalid limiter settings: initial=" + initialLimit
+                    + ", min=" + minLimit + ", max=" + maxLimit + ", tolerance=" + tolerance);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+
+        Gauge.builder(metricPrefix + ".limit", this, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".in.flight", inFlight, AtomicInteger::get)
+                .description("Work currently holding a permit")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(metricPrefix + ".rejected")
+                .description("Work that arrived with the limit already reached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A permit for one unit of work, or {@code null} when the limit is reached. The caller
+     * must finish every permit it gets with exactly one of success, dropped or ignore.
+     */
+    public Permit tryAcquire() {
+        Permit permit = acquire(1);
+        if (!permit.withinLimit()) {
+            permit.ignore();
+            return null;
+        }
+        return permit;
+    }
+
+    /**
+     * Always admits the work, e.g. records that were already polled, but tells through
+     * {@link Permit#withinLimit()} whether it fit. {@code units} is the number of items
+     * the work covers (a batch); latency samples are recorded per unit.
+     */
+    public Permit acquire(int units) {
+        return acquire(units, units);
+    }
+
+    /**
+     * Like {@link #acquire} for a whole poll handed to a batch listener: the poll counts as
+     * one unit against the limit, however many records it holds, and its latency is sampled
+     * per record so full and nearly empty polls compare.
+     */
+    public Permit acquirePoll(int records) {
+        return acquire(1, Math.max(1, records));
+    }
+
+    private Permit acquire(int units, int samples) {
+        int current = inFlight.addAndGet(units);
+        boolean within = current <= limit;
+        if (!within) {
+            rejected.increment();
+        }
+        return new Permit(units, samples, current, within);
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        windowDropped |= dropped;
+
+        long now = System.nanoTime();
+        if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < MIN_WINDOW_NANOS) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowSamples;
+        updateLimit(shortRtt, windowMaxInFlight, windowDropped);
+
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+    }
+
+    private void updateLimit(double shortRtt, int maxInFlight, boolean dropped) {
+        // Baseline: drops to any faster window at once (warm-up, a lull), rises only slowly
+        // so a lasting slowdown is eventually accepted as the new normal
+        if (longRtt == 0 || shortRtt < longRtt) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        }
+
+        double current = limit;
+        double next;
+        if (++windowsSinceProbe >= PROBE_INTERVAL_WINDOWS) {
+            // Halve the limit for one window: if the baseline was learned under load,
+            // the lighter window measures a lower latency and the baseline drops to it
+            windowsSinceProbe = 0;
+            next = current / 2;
+        } else if (dropped) {
+            next = current * DROP_BACKOFF;
+        } else if (maxInFlight < current / 2) {
+            return;
+        } else {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double target = current * gradient + Math.sqrt(current);
+            next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public final class Permit {
+
+        private final long start = System.nanoTime();
+        private final int units;
+        private final int samples;
+        private final int inFlightAtStart;
+        private final boolean withinLimit;
+
+        private Permit(int units, int samples, int inFlightAtStart, boolean withinLimit) {
+            this.units = units;
+            this.samples = samples;
+            this.inFlightAtStart = inFlightAtStart;
+            this.withinLimit = withinLimit;
+        }
+
+        public boolean withinLimit() {
+            return withinLimit;
+        }
+
+        public void success() {
+            release(false);
+        }
+
+        /** The work failed or timed out: a sign of overload that shrinks the limit. */
+        public void dropped() {
+            release(true);
+        }
+
+        /** Releases the permit without using the work as a latency sample. */
+        public void ignore() {
+            inFlight.addAndGet(-units);
+        }
+
+        private void release(boolean dropped) {
+            inFlight.addAndGet(-units);
+            onSample((System.nanoTime() - start) / samples, inFlightAtStart, dropped);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.demo.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The adaptive limits of a service's API and listeners, for a {@code @Configuration} subclass
+ * that names the service. Settings are read from {@code <prefix>.limiter.http},
+ * {@code .listener} and {@code .batch-listener}; metrics go to {@code <prefix>.http.limiter},
+ * {@code <prefix>.consumer.limiter} and {@code <prefix>.consumer.batch.limiter}, with the
+ * backpressure of each listener kind under {@code <prefix>.consumer} and
+ * {@code <prefix>.consumer.batch}.
+ * <p>
+ * Record and batch listeners get a limiter each: batch listeners are limited in polls, a
+ * poll being up to {@code max-poll-records} records, which a record limit would treat as
+ * overload on its own. Containers whose listener id ends in {@value #BATCH_LISTENER_SUFFIX}
+ * count as batch listeners.
+ */
+public abstract class ConcurrencyLimitConfigSupport {
+
+    private static final String BATCH_LISTENER_SUFFIX = "-batch";
+
+    private final String prefix;
+    private final String urlPattern;
+    private final List<String> excludedPaths;
+
+    /**
+     * @param prefix        property and metric prefix, e.g. {@code order}
+     * @param urlPattern    the API requests that are limited
+     * @param excludedPaths long-running or streaming endpoints under {@code urlPattern}
+     */
+    protected ConcurrencyLimitConfigSupport(String prefix, String urlPattern, List<String> excludedPaths) {
+        this.prefix = prefix;
+        this.urlPattern = urlPattern;
+        this.excludedPaths = excludedPaths;
+    }
+
+    // Starts below the Hikari pool size so the latency baseline is learned unloaded
+    @Bean
+    public AdaptiveConcurrencyLimiter httpConcurrencyLimiter(Environment environment, MeterRegistry meterRegistry) {
+        return limiter(environment, "http", 20, 5, 200, prefix + ".http.limiter", meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            AdaptiveConcurrencyLimiter httpConcurrencyLimiter, Environment environment) {
+        Duration retryAfter = environment.getProperty(key("http.retry-after"), Duration.class, Duration.ofSeconds(1));
+        var registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(httpConcurrencyLimiter, excludedPaths, retryAfter));
+        registration.addUrlPatterns(urlPattern);
+        // Outside a tracing filter: shed requests would only flood the exporter with error spans
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return registration;
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter listenerConcurrencyLimiter(Environment environment, MeterRegistry meterRegistry) {
+        return limiter(environment, "listener", 1000, 50, 5000, prefix + ".consumer.limiter", meterRegistry);
+    }
+
+    @Bean
+    public ListenerBackpressure listenerBackpressure(
+            AdaptiveConcurrencyLimiter listenerConcurrencyLimiter,
+            KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+            Environment environment,
+            MeterRegistry meterRegistry) {
+        return new ListenerBackpressure(listenerConcurrencyLimiter, kafkaListenerEndpointRegistry,
+                id -> !id.endsWith(BATCH_LISTENER_SUFFIX), cooldown(environment, "listener"),
+                prefix + ".consumer", meterRegistry);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter batchListenerConcurrencyLimiter(Environment environment,
+                                                                      MeterRegistry meterRegistry) {
+        return limiter(environment, "batch-listener", 4, 1, 32, prefix + ".consumer.batch.limiter", meterRegistry);
+    }
+
+    @Bean
+    public ListenerBackpressure batchListenerBackpressure(
+            AdaptiveConcurrencyLimiter batchListenerConcurrencyLimiter,
+            KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+            Environment environment,
+            MeterRegistry meterRegistry) {
+        return new ListenerBackpressure(batchListenerConcurrencyLimiter, kafkaListenerEndpointRegistry,
+                id -> id.endsWith(BATCH_LISTENER_SUFFIX), cooldown(environment, "batch-listener"),
+                prefix + ".consumer.batch", meterRegistry);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(Environment environment, String kind, int initialLimit, int minLimit,
+                                               int maxLimit, String metricPrefix, MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(
+                environment.getProperty(key(kind + ".initial-limit"), Integer.class, initialLimit),
+                environment.getProperty(key(kind + ".min-limit"), Integer.class, minLimit),
+                environment.getProperty(key(kind + ".max-limit"), Integer.class, maxLimit),
+                environment.getProperty(key(kind + ".tolerance"), Double.class, 1.5),
+                metricPrefix, meterRegistry);
+    }
+
+    private Duration cooldown(Environment environment, String kind) {
+        return environment.getProperty(key(kind + ".cooldown"), Duration.class, Duration.ofMillis(500));
+    }
+
+    private String key(String name) {
+        return prefix + ".limiter." + name;
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.limit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Admits a request only with a permit from the {@link AdaptiveConcurrencyLimiter}; without
+ * one it answers 503 with {@code Retry-After} at once, before any thread waits for a
+ * connection. 5xx responses and exceptions count as dropped work.
+ * <p>
+ * Meant for synchronous endpoints: long-running or streaming requests belong in
+ * {@code excludedPaths}, their latency says nothing about overload.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final List<String> excludedPaths;
+    private final String retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, List<String> excludedPaths, Duration retryAfter) {
+        this.limiter = limiter;
+        this.excludedPaths = List.copyOf(excludedPaths);
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return excludedPaths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Service overloaded, retry later\"}");
+            return;
+        }
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (failed) {
+                permit.dropped();
+            } else {
+                permit.success();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.demo.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Pauses the running listener containers it governs when their work exceeds its adaptive
+ * limit, i.e. downstream latency has pushed the limit below the work already in flight.
+ * Records are never rejected; the containers just stop fetching. Every {@code cooldown} the
+ * in-flight count is checked again and the containers resume once it is back under the limit.
+ * <p>
+ * Each kind of listener needs its own instance and limiter: record listeners count records
+ * ({@link #run}), batch listeners count polls ({@link #runPoll}). A poll counted as its
+ * records would be over any limit below the poll size on its own, and pause on every poll.
+ * <p>
+ * Exports {@code <prefix>.backpressure.pauses} and {@code <prefix>.backpressure.paused}.
+ */
+public class ListenerBackpressure implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerBackpressure.class);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final KafkaListenerEndpointRegistry registry;
+    private final Predicate<String> listenerIds;
+    private final Duration cooldown;
+    private final Counter pauses;
+    private final AtomicBoolean paused = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("listener-backpressure").daemon().factory());
+
+    /** Governs the containers whose listener id matches {@code listenerIds}. */
+    public ListenerBackpressure(AdaptiveConcurrencyLimiter limiter, KafkaListenerEndpointRegistry registry,
+                                Predicate<String> listenerIds, Duration cooldown, String metricPrefix,
+                                MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.registry = registry;
+        this.listenerIds = listenerIds;
+        this.cooldown = cooldown;
+        this.pauses = Counter.builder(metricPrefix + ".backpressure.pauses")
+                .description("Times the listener containers were paused for downstream latency")
+                .register(meterRegistry);
+        Gauge.builder(metricPrefix + ".backpressure.paused", paused, p -> p.get() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code work} covering {@code units} records under a permit, and pauses the
+     * listeners if the permit did not fit the limit.
+     */
+    public void run(int units, Runnable work) {
+        run(limiter.acquire(units), work);
+    }
+
+    /** Runs {@code work} for a poll of {@code records} records under one permit. */
+    public void runPoll(int records, Runnable work) {
+        run(limiter.acquirePoll(records), work);
+    }
+
+    private void run(AdaptiveConcurrencyLimiter.Permit permit, Runnable work) {
+        if (!permit.withinLimit()) {
+            pause();
+        }
+        try {
+            work.run();
+            permit.success();
+        } catch (RuntimeException e) {
+            permit.dropped();
+            throw e;
+        }
+    }
+
+    private void pause() {
+        if (!paused.compareAndSet(false, true)) {
+            return;
+        }
+        pauses.increment();
+        log.warn("Pausing listeners: {} in flight, limit {}", limiter.inFlight(), limiter.limit());
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isRunning() && governs(container)) {
+                container.pause();
+            }
+        }
+        scheduler.schedule(this::resumeWhenDrained, cooldown.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void resumeWhenDrained() {
+        if (limiter.inFlight() >= limiter.limit()) {
+            scheduler.schedule(this::resumeWhenDrained, cooldown.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container.isPauseRequested() && governs(container)) {
+                container.resume();
+            }
+        }
+        paused.set(false);
+        log.info("Resumed listeners: {} in flight, limit {}", limiter.inFlight(), limiter.limit());
+    }
+
+    private boolean governs(MessageListenerContainer container) {
+        String id = container.getListenerId();
+        return id != null && listenerIds.test(id);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads pinned to their carrier (synchronized blocks or native frames around
+ * blocking calls) using the JFR {@code jdk.VirtualThreadPinned} event. Each pin is recorded in
+ * the {@code jvm.threads.virtual.pinned} timer tagged with the first application frame, and the
+ * first pin per site is logged with its stack top.
+ * <p>
+ * The one component in this module: the services' component scan of {@code com.demo} picks it
+ * up, and it only starts when {@code spring.threads.virtual.enabled} is set.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.demo.";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${monitoring.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("Watching for virtual thread pinning longer than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = pinningSite(event);
+        Timer.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold")
+                .tag("site", site)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        if (reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms at {}\n{}", event.getDuration().toMillis(), site,
+                    event.getStackTrace() == null ? "" : event.getStackTrace().getFrames().stream()
+                            .limit(12)
+                            .map(f -> "\tat " + frame(f))
+                            .reduce((a, b) -> a + "\n" + b)
+                            .orElse(""));
+        }
+    }
+
+    // First frame in our own code; pins inside libraries are attributed to the caller that got there
+    private static String pinningSite(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .filter(f -> f.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .or(() -> event.getStackTrace().getFrames().stream().findFirst())
+                .map(VirtualThreadPinningMonitor::frame)
+                .orElse("unknown");
+    }
+
+    private static String frame(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.saga;
+
+/**
+ * Points in an order's saga that get a timestamp. Each stamp is timed against its
+ * predecessor, so every stage metric covers one gap: a local step, a Kafka ack, or the
+ * transit from one service's send to the next one's consume.
+ * <p>
+ * The id is what goes on the wire: never reuse one, add new stages with new ids.
+ */
+public enum SagaStage {
+
+    ORDER_ACCEPTED(1, null, null),
+    ORDER_COMMITTED(2, ORDER_ACCEPTED, "order.commit"),
+    ORDER_SENT(3, ORDER_COMMITTED, "order.relay"),
+    ORDER_PUBLISHED(4, ORDER_SENT, "order.publish"),
+
+    PAYMENT_RECEIVED(5, ORDER_SENT, "payment.transit"),
+    PAYMENT_CHARGED(6, PAYMENT_RECEIVED, "payment.charge"),
+    PAYMENT_SENT(7, PAYMENT_CHARGED, "payment.record"),
+    PAYMENT_PUBLISHED(8, PAYMENT_SENT, "payment.publish"),
+
+    INVENTORY_RECEIVED(9, PAYMENT_SENT, "inventory.transit"),
+    INVENTORY_SENT(10, INVENTORY_RECEIVED, "inventory.reserve"),
+    INVENTORY_PUBLISHED(11, INVENTORY_SENT, "inventory.publish"),
+
+    ORDER_PAYMENT_RECEIVED(12, PAYMENT_SENT, "order.payment.transit"),
+    ORDER_PAYMENT_UPDATED(13, ORDER_PAYMENT_RECEIVED, "order.payment.update"),
+    ORDER_INVENTORY_RECEIVED(14, INVENTORY_SENT, "order.inventory.transit"),
+    ORDER_INVENTORY_UPDATED(15, ORDER_INVENTORY_RECEIVED, "order.inventory.update");
+
+    private static final SagaStage[] BY_ID = new SagaStage[16];
+
+    static {
+        for (SagaStage stage : values()) {
+            BY_ID[stage.id] = stage;
+        }
+    }
+
+    private final byte id;
+    private final SagaStage predecessor;
+    private final String metricName;
+
+    SagaStage(int id, SagaStage predecessor, String metricName) {
+        this.id = (byte) id;
+        this.predecessor = predecessor;
+        this.metricName = metricName;
+    }
+
+    public byte id() {
+        return id;
+    }
+
+    /** The stamp this stage is timed from, {@code null} for the start of the saga. */
+    public SagaStage predecessor() {
+        return predecessor;
+    }
+
+    /** Value of the {@code stage} tag on {@code saga.stage}. */
+    public String metricName() {
+        return metricName;
+    }
+
+    /** {@code null} for ids this version doesn't know, e.g. from a newer producer. */
+    static SagaStage byId(byte id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.demo.saga;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stamps of one order, epoch microseconds by stage (0 = not stamped), and their header form:
+ * one byte of stage id and eight bytes of timestamp per stamp, in stage order.
+ */
+final class SagaTimeline {
+
+    private static final int ENTRY_BYTES = 1 + Long.BYTES;
+    private static final SagaStage[] STAGES = SagaStage.values();
+
+    // Written from the listener, the gateway callback and the producer's I/O thread
+    private final AtomicLongArray stamps = new AtomicLongArray(STAGES.length);
+
+    long get(SagaStage stage) {
+        return stamps.get(stage.ordinal());
+    }
+
+    void set(SagaStage stage, long micros) {
+        stamps.set(stage.ordinal(), micros);
+    }
+
+    /** Adds the stamps of a header; stamps this timeline already has are kept. */
+    void merge(byte[] header) {
+        if (header == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        while (buffer.remaining() >= ENTRY_BYTES) {
+            SagaStage stage = SagaStage.byId(buffer.get());
+            long micros = buffer.getLong();
+            if (stage != null && micros > 0) {
+                stamps.compareAndSet(stage.ordinal(), 0, micros);
+            }
+        }
+    }
+
+    byte[] encode() {
+        int count = 0;
+        for (int i = 0; i < STAGES.length; i++) {
+            if (stamps.get(i) != 0) {
+                count++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_BYTES);
+        for (int i = 0; i < STAGES.length && buffer.remaining() >= ENTRY_BYTES; i++) {
+            long micros = stamps.get(i);
+            if (micros != 0) {
+                buffer.put(STAGES[i].id()).putLong(micros);
+            }
+        }
+        return buffer.array();
+    }
+}
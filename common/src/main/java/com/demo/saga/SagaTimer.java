@@ -0,0 +1,176 @@
+package com.demo.saga;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times orders through the saga. Each service keeps the timelines of the orders it is
+ * working on, stamps its own {@link SagaStage}s and sends the timeline on in the
+ * {@value #HEADER} header, so the next service can time the transit between them (broker,
+ * replication and consumer lag) from the sender's stamp instead of guessing it.
+ * <p>
+ * Every stamp whose predecessor is known is recorded in {@code saga.stage{stage}}, and the
+ * last stamp of an order in {@code saga.end.to.end{outcome}}, measured from the REST accept.
+ * Both publish fixed histogram buckets instead of client-side percentiles, so recording is
+ * a few adds and the quantiles can be aggregated across instances on the Prometheus side.
+ * Transit times compare clocks of different hosts and are only as good as their sync;
+ * negative gaps are recorded as 0 and counted in {@code saga.clock.skew}.
+ * <p>
+ * Timelines are dropped on the service's last stamp, or after {@code ttl} for orders that
+ * never get there (a failed send, a redelivery that was skipped).
+ */
+public class SagaTimer {
+
+    public static final String HEADER = "saga-timeline";
+
+    private final Cache<String, SagaTimeline> inFlight;
+    private final Timer[] stageTimers = new Timer[SagaStage.values().length];
+    private final ConcurrentHashMap<String, Timer> endToEnd = new ConcurrentHashMap<>();
+    private final Counter clockSkew;
+    private final MeterRegistry meterRegistry;
+
+    public SagaTimer(Duration ttl, long maxInFlight, MeterRegistry meterRegistry) {
+        this.inFlight = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxInFlight)
+                .build();
+        this.meterRegistry = meterRegistry;
+
+        for (SagaStage stage : SagaStage.values()) {
+            if (stage.predecessor() != null) {
+                stageTimers[stage.ordinal()] = Timer.builder("saga.stage")
+                        .description("Time from the previous saga stamp of an order to this one")
+                        .tag("stage", stage.metricName())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofMinutes(5))
+                        .register(meterRegistry);
+            }
+        }
+        this.clockSkew = Counter.builder("saga.clock.skew")
+                .description("Stage gaps that came out negative, i.e. host clocks disagree")
+                .register(meterRegistry);
+        Gauge.builder("saga.timelines.in.flight", inFlight, Cache::estimatedSize)
+                .description("Orders this service is timing")
+                .register(meterRegistry);
+    }
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    /** Starts the timeline of a new order at the moment its request was accepted. */
+    public void accepted(String orderId, long acceptedAtMicros) {
+        SagaTimeline timeline = new SagaTimeline();
+        timeline.set(SagaStage.ORDER_ACCEPTED, acceptedAtMicros);
+        inFlight.put(orderId, timeline);
+    }
+
+    /** Picks up the timeline an order arrived with and stamps {@code stage} as now. */
+    public void received(String orderId, byte[] header, SagaStage stage) {
+        SagaTimeline timeline = inFlight.get(orderId, key -> new SagaTimeline());
+        timeline.merge(header);
+        record(timeline, stage, nowMicros());
+    }
+
+    /** Stamps {@code stage} as now; orders without a timeline here are not timed. */
+    public void stamp(String orderId, SagaStage stage) {
+        SagaTimeline timeline = inFlight.getIfPresent(orderId);
+        if (timeline != null) {
+            record(timeline, stage, nowMicros());
+        }
+    }
+
+    /** The order's timeline in header form, {@code null} if it isn't timed here. */
+    public byte[] header(String orderId) {
+        SagaTimeline timeline = inFlight.getIfPresent(orderId);
+        return timeline != null ? timeline.encode() : null;
+    }
+
+    /** A record for {@code value} with the order's timeline, stamped {@code sent}, as header. */
+    public <V> ProducerRecord<String, V> outgoing(String topic, String orderId, V value, SagaStage sent) {
+        return outgoing(topic, orderId, value, sent, null);
+    }
+
+    /**
+     * Like {@link #outgoing(String, String, Object, SagaStage)}, adding the stamps of
+     * {@code carried}, e.g. a header stored with an outbox row.
+     */
+    public <V> ProducerRecord<String, V> outgoing(String topic, String orderId, V value, SagaStage sent,
+                                                  byte[] carried) {
+        ProducerRecord<String, V> record = new ProducerRecord<>(topic, orderId, value);
+        SagaTimeline timeline = carried != null
+                ? inFlight.get(orderId, key -> new SagaTimeline())
+                : inFlight.getIfPresent(orderId);
+        if (timeline == null) {
+            return record;
+        }
+        timeline.merge(carried);
+        record(timeline, sent, nowMicros());
+        record.headers().add(HEADER, timeline.encode());
+        return record;
+    }
+
+    /** Stamps the ack of the order's send; the order is done here. */
+    public void acked(String orderId, SagaStage stage) {
+        SagaTimeline timeline = inFlight.getIfPresent(orderId);
+        if (timeline != null) {
+            record(timeline, stage, nowMicros());
+            inFlight.invalidate(orderId);
+        }
+    }
+
+    /** Stamps the order's last stage and records the whole saga under {@code outcome}. */
+    public void completed(String orderId, SagaStage stage, String outcome) {
+        SagaTimeline timeline = inFlight.getIfPresent(orderId);
+        if (timeline == null) {
+            return;
+        }
+        long now = nowMicros();
+        record(timeline, stage, now);
+        inFlight.invalidate(orderId);
+        long accepted = timeline.get(SagaStage.ORDER_ACCEPTED);
+        if (accepted > 0) {
+            endToEnd.computeIfAbsent(outcome, this::endToEndTimer)
+                    .record(Math.max(0, now - accepted), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void record(SagaTimeline timeline, SagaStage stage, long micros) {
+        timeline.set(stage, micros);
+        if (stage.predecessor() == null) {
+            return;
+        }
+        long from = timeline.get(stage.predecessor());
+        if (from == 0) {
+            return;
+        }
+        long gap = micros - from;
+        if (gap < 0) {
+            clockSkew.increment();
+            gap = 0;
+        }
+        stageTimers[stage.ordinal()].record(gap, TimeUnit.MICROSECONDS);
+    }
+
+    private Timer endToEndTimer(String outcome) {
+        return Timer.builder("saga.end.to.end")
+                .description("Time from the REST accept of an order to its final saga status")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+    }
+}
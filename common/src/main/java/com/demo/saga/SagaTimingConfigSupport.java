@@ -0,0 +1,47 @@
+package com.demo.saga;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Saga latency timing of a service, for a {@code @Configuration} subclass that names the
+ * service and the arrivals it stamps. The timer's in-flight timelines are bounded by
+ * {@code <prefix>.saga-timing.ttl} and {@code <prefix>.saga-timing.max-in-flight}. The
+ * interceptor is meant to run in every listener container, next to tracing.
+ */
+public abstract class SagaTimingConfigSupport {
+
+    private final String prefix;
+    private final Map<String, SagaStage> arrivalsByTopicProperty;
+
+    /**
+     * @param prefix                  property prefix, e.g. {@code order}
+     * @param arrivalsByTopicProperty the stage stamped when a record arrives, keyed by the
+     *                                property naming its topic
+     */
+    protected SagaTimingConfigSupport(String prefix, Map<String, SagaStage> arrivalsByTopicProperty) {
+        this.prefix = prefix;
+        this.arrivalsByTopicProperty = arrivalsByTopicProperty;
+    }
+
+    @Bean
+    public SagaTimer sagaTimer(Environment environment, MeterRegistry meterRegistry) {
+        return new SagaTimer(
+                environment.getProperty(prefix + ".saga-timing.ttl", Duration.class, Duration.ofMinutes(5)),
+                environment.getProperty(prefix + ".saga-timing.max-in-flight", Long.class, 200_000L),
+                meterRegistry);
+    }
+
+    @Bean
+    public SagaTimingInterceptor sagaTimingInterceptor(SagaTimer sagaTimer, Environment environment) {
+        Map<String, SagaStage> arrivals = new HashMap<>();
+        arrivalsByTopicProperty.forEach((property, stage) ->
+                arrivals.put(environment.getRequiredProperty(property), stage));
+        return new SagaTimingInterceptor(sagaTimer, arrivals);
+    }
+}
@@ -0,0 +1,53 @@
+package com.demo.saga;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.util.Map;
+
+/**
+ * Stamps the consume of saga records before the listener sees them, for record and batch
+ * containers alike. Topics map to the stage their records start here; the retry tiers are
+ * not mapped, a retried record's delay would only distort the transit times.
+ */
+public class SagaTimingInterceptor implements RecordInterceptor<Object, Object>, BatchInterceptor<Object, Object> {
+
+    private final SagaTimer sagaTimer;
+    private final Map<String, SagaStage> receivedStages;
+
+    public SagaTimingInterceptor(SagaTimer sagaTimer, Map<String, SagaStage> receivedStages) {
+        this.sagaTimer = sagaTimer;
+        this.receivedStages = Map.copyOf(receivedStages);
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record,
+                                                    Consumer<Object, Object> consumer) {
+        received(record);
+        return record;
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records,
+                                                     Consumer<Object, Object> consumer) {
+        for (ConsumerRecord<Object, Object> record : records) {
+            received(record);
+        }
+        return records;
+    }
+
+    private void received(ConsumerRecord<Object, Object> record) {
+        SagaStage stage = receivedStages.get(record.topic());
+        if (stage == null || record.key() == null) {
+            return;
+        }
+        Header header = record.headers().lastHeader(SagaTimer.HEADER);
+        if (header != null) {
+            sagaTimer.received(record.key().toString(), header.value(), stage);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.demo.trace;
+
+/**
+ * One timed operation of a trace. Ended exactly once; ending it again does nothing.
+ */
+public final class Span {
+
+    private final Tracer tracer;
+    private final SpanContext context;
+    private final long parentSpanId;
+    private final String name;
+    private final String orderId;
+    private final long startEpochMicros;
+    private final long startNanos;
+
+    private long durationMicros = -1;
+    private String error;
+
+    Span(Tracer tracer, SpanContext context, long parentSpanId, String name, String orderId,
+         long startEpochMicros, long startNanos) {
+        this.tracer = tracer;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.orderId = orderId;
+        this.startEpochMicros = startEpochMicros;
+        this.startNanos = startNanos;
+    }
+
+    public SpanContext context() {
+        return context;
+    }
+
+    public void end() {
+        end((String) null);
+    }
+
+    /** Ends the span as failed; failed spans are recorded even if their trace isn't sampled. */
+    public void end(Throwable failure) {
+        end(failure.getClass().getSimpleName() + ": " + failure.getMessage());
+    }
+
+    public void end(String error) {
+        synchronized (this) {
+            if (durationMicros >= 0) {
+                return;
+            }
+            this.durationMicros = (System.nanoTime() - startNanos) / 1_000;
+            this.error = error;
+        }
+        tracer.ended(this);
+    }
+
+    long parentSpanId() {
+        return parentSpanId;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String orderId() {
+        return orderId;
+    }
+
+    long startEpochMicros() {
+        return startEpochMicros;
+    }
+
+    long durationMicros() {
+        return durationMicros;
+    }
+
+    String error() {
+        return error;
+    }
+}
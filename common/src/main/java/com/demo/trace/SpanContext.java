@@ -0,0 +1,57 @@
+package com.demo.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Identity of a span as propagated in the W3C {@code traceparent} format:
+ * {@code 00-<32 hex trace id>-<16 hex span id>-<2 hex flags>}, flag 01 meaning sampled.
+ */
+public record SpanContext(long traceIdHigh, long traceIdLow, long spanId, boolean sampled) {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int LENGTH = 55;
+
+    public String traceId() {
+        return HEX.toHexDigits(traceIdHigh) + HEX.toHexDigits(traceIdLow);
+    }
+
+    public String spanIdHex() {
+        return HEX.toHexDigits(spanId);
+    }
+
+    public String traceparent() {
+        return new StringBuilder(LENGTH)
+                .append("00-")
+                .append(HEX.toHexDigits(traceIdHigh))
+                .append(HEX.toHexDigits(traceIdLow))
+                .append('-')
+                .append(HEX.toHexDigits(spanId))
+                .append(sampled ? "-01" : "-00")
+                .toString();
+    }
+
+    /** {@code null} for a missing or malformed value, which starts a new trace. */
+    public static SpanContext parse(String traceparent) {
+        if (traceparent == null || traceparent.length() != LENGTH || !traceparent.startsWith("00-")
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        try {
+            long high = HexFormat.fromHexDigitsToLong(traceparent, 3, 19);
+            long low = HexFormat.fromHexDigitsToLong(traceparent, 19, 35);
+            long spanId = HexFormat.fromHexDigitsToLong(traceparent, 36, 52);
+            int flags = HexFormat.fromHexDigits(traceparent, 53, 55);
+            if ((high == 0 && low == 0) || spanId == 0) {
+                return null;
+            }
+            return new SpanContext(high, low, spanId, (flags & 1) != 0);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static SpanContext parse(byte[] traceparent) {
+        return traceparent != null ? parse(new String(traceparent, StandardCharsets.US_ASCII)) : null;
+    }
+}
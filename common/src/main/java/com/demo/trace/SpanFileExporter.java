@@ -0,0 +1,158 @@
+package com.demo.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains the {@link SpanRingBuffer} on its own thread and appends the spans to a file, one
+ * JSON object per line, for a local collector to tail. When the file passes
+ * {@code maxFileBytes} it is moved to {@code <file>.1} (replacing the previous one) and a
+ * new file is started.
+ */
+public class SpanFileExporter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpanFileExporter.class);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final SpanRingBuffer buffer;
+    private final String service;
+    private final Path file;
+    private final long maxFileBytes;
+    private final long intervalNanos;
+    private final Thread thread;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private Writer writer;
+    private long written;
+    private volatile boolean running = true;
+
+    public SpanFileExporter(SpanRingBuffer buffer, String service, Path file, long maxFileBytes, Duration interval) {
+        this.buffer = buffer;
+        this.service = service;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.intervalNanos = interval.toNanos();
+        this.thread = Thread.ofPlatform().name("span-exporter").daemon().start(this::run);
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            export();
+        }
+    }
+
+    private void export() {
+        if (buffer.drain(this::write) == 0 || writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("Could not export spans to {}", file, e);
+            closeWriter();
+        }
+    }
+
+    // A span that can't be written is lost; the next one tries a fresh file
+    private void write(Span span) {
+        try {
+            if (writer == null || written >= maxFileBytes) {
+                roll();
+            }
+            line.setLength(0);
+            line.append("{\"traceId\":\"").append(span.context().traceId())
+                    .append("\",\"spanId\":\"").append(span.context().spanIdHex()).append('"');
+            if (span.parentSpanId() != 0) {
+                line.append(",\"parentSpanId\":\"").append(HEX.toHexDigits(span.parentSpanId())).append('"');
+            }
+            line.append(",\"service\":\"").append(service)
+                    .append("\",\"name\":");
+            appendString(span.name());
+            line.append(",\"startMicros\":").append(span.startEpochMicros())
+                    .append(",\"durationMicros\":").append(span.durationMicros())
+                    .append(",\"sampled\":").append(span.context().sampled());
+            if (span.orderId() != null) {
+                line.append(",\"orderId\":");
+                appendString(span.orderId());
+            }
+            if (span.error() != null) {
+                line.append(",\"error\":");
+                appendString(span.error());
+            }
+            line.append("}\n");
+            writer.append(line);
+            written += line.length();
+        } catch (IOException e) {
+            log.warn("Could not export spans to {}", file, e);
+            closeWriter();
+        }
+    }
+
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private void roll() throws IOException {
+        closeWriter();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file) && Files.size(file) >= maxFileBytes) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("Could not close {}", file, e);
+            }
+            writer = null;
+        }
+    }
+
+    /** Stops the thread and writes what is left in the buffer. */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+        export();
+        closeWriter();
+    }
+}
@@ -0,0 +1,72 @@
+package com.demo.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer queue of ended spans. Producers claim a slot with
+ * one CAS and never wait: when the exporter has fallen a whole buffer behind, the span is
+ * dropped instead, so tracing can't slow the request or listener that ended it.
+ */
+public final class SpanRingBuffer {
+
+    private final AtomicReferenceArray<Span> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only the exporter thread moves the tail
+    private volatile long tail;
+
+    /** {@code capacity} is rounded up to a power of two. */
+    public SpanRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /** Returns false if the buffer was full and the span was dropped. */
+    public boolean offer(Span span) {
+        long claimed;
+        do {
+            claimed = head.get();
+            if (claimed - tail >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) (claimed & mask), span);
+        return true;
+    }
+
+    /**
+     * Hands every published span to {@code sink}. Stops at a slot that is claimed but not
+     * written yet; that span goes out with the next drain.
+     */
+    public int drain(Consumer<Span> sink) {
+        long next = tail;
+        long end = head.get();
+        int drained = 0;
+        while (next < end) {
+            int index = (int) (next & mask);
+            Span span = slots.get(index);
+            if (span == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            tail = ++next;
+            drained++;
+            sink.accept(span);
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) (head.get() - tail);
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+}
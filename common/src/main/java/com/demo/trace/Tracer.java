@@ -0,0 +1,150 @@
+package com.demo.trace;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Minimal tracer for following an order across the services without logging every hop.
+ * <p>
+ * Sampling is decided once, at the root of a trace, and travels with the context in the
+ * {@value #TRACEPARENT} header (HTTP and Kafka), so a trace is either recorded in every
+ * service or in none. Spans that end with an error are recorded whether sampled or not.
+ * Recorded spans go to a {@link SpanRingBuffer} and are written by a
+ * {@link SpanFileExporter} off the request and listener threads.
+ * <p>
+ * HTTP spans are bound to the request thread. Kafka work is not tied to a thread (batch
+ * listeners take many orders at once, parallel ones hand records to workers), so the span
+ * of a consumed record is kept by orderId until the service sends its result or finishes
+ * with the order; spans never ended that way are dropped after {@code ttl}, unrecorded.
+ */
+public class Tracer {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final double sampleRate;
+    private final SpanRingBuffer buffer;
+    private final Cache<String, Span> inFlight;
+    private final Counter recorded;
+
+    public Tracer(double sampleRate, SpanRingBuffer buffer, Duration ttl, long maxInFlight,
+                  MeterRegistry meterRegistry) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.buffer = buffer;
+        this.inFlight = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxInFlight)
+                .build();
+
+        this.recorded = Counter.builder("tracing.spans.recorded")
+                .description("Spans handed to the exporter")
+                .register(meterRegistry);
+        FunctionCounter.builder("tracing.spans.dropped", buffer, SpanRingBuffer::dropped)
+                .description("Spans dropped because the exporter fell a whole buffer behind")
+                .register(meterRegistry);
+        Gauge.builder("tracing.spans.in.flight", inFlight, Cache::estimatedSize)
+                .description("Consumed records whose span has not ended yet")
+                .register(meterRegistry);
+    }
+
+    /** Starts a span under {@code parent}, or the root of a new trace if there is none. */
+    public Span startSpan(String name, SpanContext parent) {
+        return startSpan(name, parent, null);
+    }
+
+    public Span startSpan(String name, SpanContext parent, String orderId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SpanContext context = parent != null
+                ? new SpanContext(parent.traceIdHigh(), parent.traceIdLow(), nonZero(random), parent.sampled())
+                : new SpanContext(random.nextLong(), nonZero(random), nonZero(random),
+                        random.nextDouble() < sampleRate);
+        return new Span(this, context, parent != null ? parent.spanId() : 0, name, orderId,
+                nowMicros(), System.nanoTime());
+    }
+
+    /** Makes {@code span} the current span of this thread until the scope is closed. */
+    public Scope activate(Span span) {
+        Span previous = CURRENT.get();
+        CURRENT.set(span);
+        return () -> CURRENT.set(previous);
+    }
+
+    /** Context of this thread's current span, {@code null} outside one. */
+    public SpanContext current() {
+        Span span = CURRENT.get();
+        return span != null ? span.context() : null;
+    }
+
+    /** Starts the span of a consumed record for the order; a record without context isn't traced. */
+    public void received(String orderId, String name, SpanContext parent) {
+        if (parent != null) {
+            inFlight.put(orderId, startSpan(name, parent, orderId));
+        }
+    }
+
+    /** Ends the order's span and puts its context on the record that carries the result on. */
+    public void inject(String orderId, Headers headers) {
+        Span span = orderId != null ? inFlight.asMap().remove(orderId) : null;
+        if (span != null) {
+            span.end();
+            headers.add(TRACEPARENT, span.context().traceparent().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /** Ends the order's span, e.g. once a result was applied. */
+    public void finished(String orderId) {
+        Span span = orderId != null ? inFlight.asMap().remove(orderId) : null;
+        if (span != null) {
+            span.end();
+        }
+    }
+
+    public void failed(String orderId, Throwable failure) {
+        Span span = orderId != null ? inFlight.asMap().remove(orderId) : null;
+        if (span != null) {
+            span.end(failure);
+        }
+    }
+
+    void ended(Span span) {
+        if (span.context().sampled() || span.error() != null) {
+            if (buffer.offer(span)) {
+                recorded.increment();
+            }
+        }
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    private static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    /** Restores the previous current span; never throws. */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.trace;
+
+import com.demo.saga.SagaTimingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
+import org.springframework.kafka.listener.CompositeRecordInterceptor;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Sampled tracing of a service's listeners, exported to a local NDJSON file, for a
+ * {@code @Configuration} subclass that sets how long and how many unfinished spans the
+ * service keeps. Settings are read from {@code tracing.*}; services with an API register a
+ * {@link TracingFilter} on top.
+ */
+public abstract class TracingConfigSupport {
+
+    private final Duration inFlightTtl;
+    private final long maxInFlight;
+
+    /**
+     * @param inFlightTtl default of {@code tracing.in-flight.ttl}
+     * @param maxInFlight default of {@code tracing.in-flight.max-size}
+     */
+    protected TracingConfigSupport(Duration inFlightTtl, long maxInFlight) {
+        this.inFlightTtl = inFlightTtl;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Bean
+    public SpanRingBuffer spanRingBuffer(Environment environment) {
+        return new SpanRingBuffer(environment.getProperty("tracing.buffer-size", Integer.class, 8192));
+    }
+
+    @Bean
+    public Tracer tracer(SpanRingBuffer spanRingBuffer, Environment environment, MeterRegistry meterRegistry) {
+        return new Tracer(
+                environment.getProperty("tracing.sample-rate", Double.class, 0.01),
+                spanRingBuffer,
+                environment.getProperty("tracing.in-flight.ttl", Duration.class, inFlightTtl),
+                environment.getProperty("tracing.in-flight.max-size", Long.class, maxInFlight),
+                meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public SpanFileExporter spanFileExporter(SpanRingBuffer spanRingBuffer, Environment environment) {
+        String service = environment.getRequiredProperty("spring.application.name");
+        return new SpanFileExporter(spanRingBuffer, service,
+                Path.of(environment.getProperty("tracing.export.file", "traces/" + service + ".ndjson")),
+                environment.getProperty("tracing.export.max-file-size", DataSize.class, DataSize.ofMegabytes(100))
+                        .toBytes(),
+                environment.getProperty("tracing.export.interval", Duration.class, Duration.ofSeconds(1)));
+    }
+
+    @Bean
+    public TracingInterceptor tracingInterceptor(Tracer tracer) {
+        return new TracingInterceptor(tracer);
+    }
+
+    // Boot hands the listener containers one interceptor of each kind, the primary one
+
+    @Bean
+    @Primary
+    public CompositeRecordInterceptor<Object, Object> listenerRecordInterceptor(
+            TracingInterceptor tracingInterceptor, SagaTimingInterceptor sagaTimingInterceptor) {
+        return new CompositeRecordInterceptor<>(tracingInterceptor, sagaTimingInterceptor);
+    }
+
+    @Bean
+    @Primary
+    public CompositeBatchInterceptor<Object, Object> listenerBatchInterceptor(
+            TracingInterceptor tracingInterceptor, SagaTimingInterceptor sagaTimingInterceptor) {
+        return new CompositeBatchInterceptor<>(tracingInterceptor, sagaTimingInterceptor);
+    }
+}
@@ -0,0 +1,43 @@
+package com.demo.trace;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Server span around each request, continuing the caller's trace if it sent a
+ * {@value Tracer#TRACEPARENT} header. The span is current while the request is handled, so
+ * work queued from it (outbox rows) can carry the context on; the response gets the header
+ * back so a client can look its trace up.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Span span = tracer.startSpan(request.getMethod() + " " + request.getRequestURI(),
+                SpanContext.parse(request.getHeader(Tracer.TRACEPARENT)));
+        response.setHeader(Tracer.TRACEPARENT, span.context().traceparent());
+        try (Tracer.Scope scope = tracer.activate(span)) {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.end(e);
+            throw e;
+        }
+        if (response.getStatus() >= 500) {
+            span.end("HTTP " + response.getStatus());
+        } else {
+            span.end();
+        }
+    }
+}
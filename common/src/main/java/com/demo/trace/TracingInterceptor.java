@@ -0,0 +1,81 @@
+package com.demo.trace;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+/**
+ * Starts the span of every consumed record that carries a {@value Tracer#TRACEPARENT}
+ * header, keyed by the record key (the orderId), and ends it as failed if the listener
+ * throws. Successful spans are ended by the service once it is done with the order, which
+ * for parallel listeners is long after the container considers the record handled.
+ */
+public class TracingInterceptor implements RecordInterceptor<Object, Object>, BatchInterceptor<Object, Object> {
+
+    private final Tracer tracer;
+
+    public TracingInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record,
+                                                    Consumer<Object, Object> consumer) {
+        received(record);
+        return record;
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> intercept(ConsumerRecords<Object, Object> records,
+                                                     Consumer<Object, Object> consumer) {
+        for (ConsumerRecord<Object, Object> record : records) {
+            received(record);
+        }
+        return records;
+    }
+
+    @Override
+    public void failure(ConsumerRecord<Object, Object> record, Exception exception,
+                        Consumer<Object, Object> consumer) {
+        if (record.key() != null) {
+            tracer.failed(record.key().toString(), exception);
+        }
+    }
+
+    /** Only the record a batch listener pinned the failure on failed, the rest is redelivered. */
+    @Override
+    public void failure(ConsumerRecords<Object, Object> records, Exception exception,
+                        Consumer<Object, Object> consumer) {
+        BatchListenerFailedException pinned = findPinned(exception);
+        ConsumerRecord<?, ?> failed = pinned != null ? pinned.getRecord() : null;
+        int index = pinned != null ? pinned.getIndex() : -1;
+        int i = 0;
+        for (ConsumerRecord<Object, Object> record : records) {
+            boolean isFailed = failed != null ? record == failed : index < 0 || i == index;
+            if (isFailed && record.key() != null) {
+                tracer.failed(record.key().toString(), exception);
+            }
+            i++;
+        }
+    }
+
+    private void received(ConsumerRecord<Object, Object> record) {
+        Header header = record.headers().lastHeader(Tracer.TRACEPARENT);
+        if (header != null && record.key() != null) {
+            tracer.received(record.key().toString(), record.topic() + " process", SpanContext.parse(header.value()));
+        }
+    }
+
+    private static BatchListenerFailedException findPinned(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchListenerFailedException pinned) {
+                return pinned;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.demo.event.codec;
+
+import com.demo.event.InventoryUpdatedEvent;
+import com.demo.event.OrderCancelledEvent;
+import com.demo.event.OrderConfirmedEvent;
+import com.demo.event.OrderCreatedEvent;
+import com.demo.event.OrderItemEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.google.protobuf.CodedOutputStream;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecsTest {
+
+	// Timestamps travel as micros
+	private static final LocalDateTime AT = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+
+	private static final List<OrderItemEvent> ITEMS = List.of(
+			new OrderItemEvent("P-1", "Keyboard", 2, new BigDecimal("49.90")),
+			new OrderItemEvent("P-2", "Cable", 1, new BigDecimal("-0.001")),
+			new OrderItemEvent("P-3", null, null, new BigDecimal("123456789012345678901234567890.12")));
+
+	@Test
+	void roundTripsEveryEventType() {
+		List<Object> events = List.of(
+				new OrderCreatedEvent("order-1", "customer-1", new BigDecimal("149.70"), ITEMS, AT),
+				new PaymentProcessedEvent("order-1", "payment-1", true, "Payment processed successfully", AT, ITEMS),
+				new InventoryUpdatedEvent("order-1", false, "Insufficient stock", AT),
+				new OrderCancelledEvent("order-1", "Payment failed", AT),
+				new OrderConfirmedEvent("order-1", AT));
+
+		for (Object event : events) {
+			byte[] frame = EventCodecs.encode(event);
+			assertThat(frame[0]).isEqualTo(EventCodecs.FORMAT_V1);
+			assertThat(EventCodecs.decode(frame)).isEqualTo(event);
+			assertThat(EventCodecs.decode(ByteBuffer.wrap(frame))).isEqualTo(event);
+			ByteBuffer direct = ByteBuffer.allocateDirect(frame.length).put(frame).flip();
+			assertThat(EventCodecs.decode(direct)).isEqualTo(event);
+		}
+	}
+
+	@Test
+	void leavesOutNullFieldsAndReadsThemBackAsDefaults() {
+		OrderCreatedEvent empty = new OrderCreatedEvent(null, null, null, List.of(), null);
+		byte[] frame = EventCodecs.encode(empty);
+
+		// Format byte and schema id only
+		assertThat(frame).hasSize(2);
+		assertThat(EventCodecs.decode(frame)).isEqualTo(empty);
+		assertThat(EventCodecs.decode(EventCodecs.encode(new InventoryUpdatedEvent("order-1", false, null, null))))
+				.isEqualTo(new InventoryUpdatedEvent("order-1", false, null, null));
+	}
+
+	@Test
+	void keepsTheScaleOfZeroAndWholeAmounts() {
+		for (String amount : List.of("0", "0.00", "100", "1E+3", "-7.5")) {
+			OrderCreatedEvent event = new OrderCreatedEvent("order-1", "customer-1", new BigDecimal(amount), List.of(), AT);
+			OrderCreatedEvent decoded = (OrderCreatedEvent) EventCodecs.decode(EventCodecs.encode(event));
+			assertThat(decoded.totalAmount()).isEqualTo(event.totalAmount());
+		}
+	}
+
+	@Test
+	void carriesTheOrderLinesOfPaymentResultsInFieldSix() throws IOException {
+		PaymentProcessedEvent event = new PaymentProcessedEvent("order-1", "payment-1", true, "ok", AT, ITEMS);
+
+		PaymentProcessedEvent decoded = (PaymentProcessedEvent) EventCodecs.decode(EventCodecs.encode(event));
+		assertThat(decoded.items()).containsExactlyElementsOf(ITEMS);
+
+		// A producer from before the lines were added sends fields 1-5 only
+		byte[] withoutItems = EventCodecs.encode(
+				new PaymentProcessedEvent("order-1", "payment-1", true, "ok", AT, null));
+		assertThat(((PaymentProcessedEvent) EventCodecs.decode(withoutItems)).items()).isEmpty();
+
+		// Field 6 is what older consumers skip; written on its own it still decodes as the lines
+		byte[] onlyItems = frame(PaymentProcessedEventCodec.SCHEMA_ID, out -> {
+			for (OrderItemEvent item : ITEMS) {
+				Wire.writeMessage(out, 6, OrderItemEventCodec.INSTANCE, item);
+			}
+		});
+		assertThat(((PaymentProcessedEvent) EventCodecs.decode(onlyItems)).items()).containsExactlyElementsOf(ITEMS);
+	}
+
+	@Test
+	void skipsFieldsItDoesNotKnow() throws IOException {
+		OrderCreatedEvent event = new OrderCreatedEvent("order-1", "customer-1", new BigDecimal("49.90"),
+				List.of(ITEMS.getFirst()), AT);
+		OrderCreatedEventCodec codec = new OrderCreatedEventCodec();
+
+		// Unknown fields of every wire type around the known ones, and inside a nested line
+		byte[] frame = frame(OrderCreatedEventCodec.SCHEMA_ID, out -> {
+			out.writeUInt64(90, 42);
+			out.writeString(91, "added by a newer producer");
+			codec.write(new OrderCreatedEvent(event.orderId(), event.customerId(), event.totalAmount(), List.of(),
+					event.createdAt()), out);
+			out.writeFixed64(92, 7L);
+			out.writeFixed32(93, 7);
+			byte[] item = body(itemOut -> {
+				OrderItemEventCodec.INSTANCE.write(ITEMS.getFirst(), itemOut);
+				itemOut.writeString(94, "newer line field");
+			});
+			out.writeByteArray(4, item);
+		});
+
+		assertThat(EventCodecs.decode(frame)).isEqualTo(event);
+	}
+
+	@Test
+	void rejectsUnknownFormatsAndSchemas() {
+		assertThatThrownBy(() -> EventCodecs.decode(new byte[]{0x02, 0x01}))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("format");
+		assertThatThrownBy(() -> EventCodecs.decode(new byte[]{EventCodecs.FORMAT_V1, 0x63}))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("schema id 99");
+		assertThatThrownBy(() -> EventCodecs.encode("not an event"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void deserializerReportsUndecodableValuesAsSerializationExceptions() {
+		EventDeserializer deserializer = new EventDeserializer();
+		byte[] frame = EventCodecs.encode(new OrderConfirmedEvent("order-1", AT));
+
+		assertThat(deserializer.deserialize("order-confirmed", frame)).isEqualTo(new OrderConfirmedEvent("order-1", AT));
+		assertThat(deserializer.deserialize("order-confirmed", null)).isNull();
+		assertThatThrownBy(() -> deserializer.deserialize("order-confirmed", new byte[]{0x02}))
+				.isInstanceOf(SerializationException.class);
+		// Truncated: the timestamp's varint is cut off
+		byte[] truncated = Arrays.copyOf(frame, frame.length - 1);
+		assertThatThrownBy(() -> deserializer.deserialize("order-confirmed", truncated))
+				.isInstanceOf(SerializationException.class);
+	}
+
+	@Test
+	void serializerPassesEncodedFramesThrough() {
+		byte[] frame = EventCodecs.encode(new OrderConfirmedEvent("order-1", AT));
+
+		assertThat(new EventSerializer().serialize("order-confirmed", frame)).isSameAs(frame);
+	}
+
+	private interface Body {
+		void write(CodedOutputStream out) throws IOException;
+	}
+
+	private static byte[] frame(int schemaId, Body body) throws IOException {
+		return body(out -> {
+			out.writeRawByte(EventCodecs.FORMAT_V1);
+			out.writeUInt32NoTag(schemaId);
+			body.write(out);
+		});
+	}
+
+	private static byte[] body(Body body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+		body.write(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,161 @@
+package com.demo.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyOrderedExecutorTest {
+
+	@Test
+	void runsTasksOfAKeyInSubmissionOrder() throws Exception {
+		Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+		try (KeyOrderedExecutor executor = executor(Executors.newFixedThreadPool(8), 64)) {
+			for (int i = 0; i < 2_000; i++) {
+				String key = "order-" + (i % 10);
+				int sequence = i;
+				executor.submit(key, () -> {
+					seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+					Thread.onSpinWait();
+				});
+			}
+			awaitIdle(executor);
+		}
+
+		assertThat(seen).hasSize(10);
+		seen.forEach((key, sequences) -> assertThat(sequences).hasSize(200).isSorted());
+	}
+
+	@Test
+	void runsDifferentKeysConcurrently() throws Exception {
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		try (KeyOrderedExecutor executor = executor(Executors.newFixedThreadPool(2), 8)) {
+			for (String key : List.of("order-1", "order-2")) {
+				executor.submit(key, () -> {
+					bothRunning.countDown();
+					awaitQuietly(bothRunning);
+				});
+			}
+			assertThat(bothRunning.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+
+	@Test
+	void keepsDrainingAKeyAfterATaskFails() throws Exception {
+		List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+		try (KeyOrderedExecutor executor = executor(Executors.newFixedThreadPool(2), 4)) {
+			executor.submit("order-1", () -> ran.add(1));
+			executor.submit("order-1", () -> {
+				throw new IllegalStateException("boom");
+			});
+			executor.submit("order-1", () -> ran.add(3));
+			awaitIdle(executor);
+
+			// The failed task gave its permit back: all four can be in flight again
+			CountDownLatch release = new CountDownLatch(1);
+			for (int i = 0; i < 4; i++) {
+				executor.submit("order-" + i, () -> awaitQuietly(release));
+			}
+			assertThat(executor.inFlight()).isEqualTo(4);
+			release.countDown();
+		}
+
+		assertThat(ran).containsExactly(1, 3);
+	}
+
+	@Test
+	void blocksTheSubmitterOnceMaxInFlightTasksAreOutstanding() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean thirdSubmitted = new AtomicBoolean();
+		try (KeyOrderedExecutor executor = executor(Executors.newFixedThreadPool(2), 2)) {
+			executor.submit("order-1", () -> awaitQuietly(release));
+			executor.submit("order-2", () -> awaitQuietly(release));
+
+			Thread submitter = Thread.ofPlatform().start(() -> {
+				try {
+					executor.submit("order-3", () -> { });
+					thirdSubmitted.set(true);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			submitter.join(200);
+			assertThat(thirdSubmitted).isFalse();
+
+			release.countDown();
+			submitter.join(5_000);
+			assertThat(thirdSubmitted).isTrue();
+		}
+	}
+
+	@Test
+	void undoesASubmitThePoolRejects() throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(1);
+		KeyOrderedExecutor executor = executor(workers, 1);
+		workers.shutdown();
+
+		assertThatThrownBy(() -> executor.submit("order-1", () -> { }))
+				.isInstanceOf(RejectedExecutionException.class);
+
+		// Neither the permit nor the key's queue leaked, so the next submit fails the same way
+		assertThat(executor.inFlight()).isZero();
+		assertThatThrownBy(() -> executor.submit("order-1", () -> { }))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	@Test
+	void registersItsMetersUnderThePrefix() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		try (KeyOrderedExecutor executor = new KeyOrderedExecutor(Executors.newFixedThreadPool(1), 4, "test.parallel",
+				registry)) {
+			IntStream.range(0, 3).forEach(i -> submitQuietly(executor, "order-1"));
+			awaitIdle(executor);
+		}
+
+		assertThat(registry.get("test.parallel.in.flight").gauge().value()).isZero();
+		assertThat(registry.get("test.parallel.active.keys").gauge().value()).isZero();
+		assertThat(registry.get("test.parallel.key.queue.depth").summary().count()).isEqualTo(3);
+	}
+
+	private static KeyOrderedExecutor executor(ExecutorService workers, int maxInFlight) {
+		return new KeyOrderedExecutor(workers, maxInFlight, "test.parallel", new SimpleMeterRegistry());
+	}
+
+	private static void awaitIdle(KeyOrderedExecutor executor) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (executor.inFlight() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(executor.inFlight()).isZero();
+	}
+
+	private static void submitQuietly(KeyOrderedExecutor executor, String key) {
+		try {
+			executor.submit(key, () -> { });
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
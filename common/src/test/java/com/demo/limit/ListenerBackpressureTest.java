@@ -0,0 +1,115 @@
+package com.demo.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListenerBackpressureTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+	private final MessageListenerContainer recordContainer = container("order-payment-processed");
+	private final MessageListenerContainer retryContainer = container("order-payment-processed-1");
+	private final MessageListenerContainer batchContainer = container("order-payment-processed-batch");
+	private final AdaptiveConcurrencyLimiter batchLimiter = new AdaptiveConcurrencyLimiter(1, 1, 32, 1.5,
+			"test.batch.limiter", meterRegistry);
+	private final ListenerBackpressure batchBackpressure = new ListenerBackpressure(batchLimiter, registry,
+			id -> id.endsWith("-batch"), Duration.ofMillis(20), "test.batch", meterRegistry);
+
+	@AfterEach
+	void tearDown() {
+		batchBackpressure.close();
+	}
+
+	@Test
+	void countsAFullPollAsOneUnit() {
+		batchBackpressure.runPoll(500, () -> assertThat(batchLimiter.inFlight()).isEqualTo(1));
+
+		assertThat(batchLimiter.inFlight()).isZero();
+		assertThat(meterRegistry.counter("test.batch.backpressure.pauses").count()).isZero();
+		verify(batchContainer, never()).pause();
+	}
+
+	@Test
+	void countsRecordsAsUnitsOtherwise() {
+		AdaptiveConcurrencyLimiter records = new AdaptiveConcurrencyLimiter(50, 50, 5000, 1.5,
+				"test.records.limiter", meterRegistry);
+		AdaptiveConcurrencyLimiter polls = new AdaptiveConcurrencyLimiter(50, 50, 5000, 1.5,
+				"test.polls.limiter", meterRegistry);
+
+		assertThat(records.acquire(500).withinLimit()).isFalse();
+		assertThat(records.inFlight()).isEqualTo(500);
+		assertThat(polls.acquirePoll(500).withinLimit()).isTrue();
+		assertThat(polls.inFlight()).isEqualTo(1);
+	}
+
+	@Test
+	void pausesOnlyTheContainersItGovernsAndResumesThemOnceDrained() throws InterruptedException {
+		CountDownLatch overLimit = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread first = Thread.ofPlatform().start(() -> batchBackpressure.runPoll(500, () -> {
+			overLimit.countDown();
+			await(release);
+		}));
+		assertThat(overLimit.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// Second poll while the first still holds the only permit
+		batchBackpressure.runPoll(500, () -> { });
+
+		verify(batchContainer).pause();
+		verify(recordContainer, never()).pause();
+		verify(retryContainer, never()).pause();
+		assertThat(meterRegistry.get("test.batch.backpressure.paused").gauge().value()).isEqualTo(1);
+
+		when(batchContainer.isPauseRequested()).thenReturn(true);
+		when(recordContainer.isPauseRequested()).thenReturn(true);
+		release.countDown();
+		first.join(5_000);
+
+		verify(batchContainer, timeout(5_000)).resume();
+		verify(recordContainer, never()).resume();
+	}
+
+	@Test
+	void releasesThePermitOfFailedWork() {
+		assertThatThrownBy(() -> batchBackpressure.runPoll(10, () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(batchLimiter.inFlight()).isZero();
+	}
+
+	private MessageListenerContainer container(String id) {
+		MessageListenerContainer container = mock(MessageListenerContainer.class);
+		when(container.getListenerId()).thenReturn(id);
+		when(container.isRunning()).thenReturn(true);
+		List<MessageListenerContainer> containers = new ArrayList<>(registry.getListenerContainers());
+		containers.add(container);
+		when(registry.getListenerContainers()).thenReturn(containers);
+		return container;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package com.demo.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpanRingBufferTest {
+
+	@Test
+	void roundsTheCapacityUpAndDropsWhenFull() {
+		SpanRingBuffer buffer = new SpanRingBuffer(3);
+
+		for (int i = 0; i < 4; i++) {
+			assertThat(buffer.offer(span("span-" + i))).isTrue();
+		}
+		assertThat(buffer.offer(span("span-4"))).isFalse();
+		assertThat(buffer.size()).isEqualTo(4);
+		assertThat(buffer.dropped()).isEqualTo(1);
+
+		List<String> drained = new ArrayList<>();
+		assertThat(buffer.drain(span -> drained.add(span.name()))).isEqualTo(4);
+		assertThat(drained).containsExactly("span-0", "span-1", "span-2", "span-3");
+
+		// Draining frees the slots again
+		assertThat(buffer.offer(span("span-5"))).isTrue();
+		assertThat(buffer.size()).isEqualTo(1);
+	}
+
+	@Test
+	void drainsEverySpanOfferedConcurrentlyOnceAndInEachProducersOrder() throws InterruptedException {
+		SpanRingBuffer buffer = new SpanRingBuffer(64);
+		int producers = 4;
+		int perProducer = 50_000;
+		AtomicLong accepted = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(producers);
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread.ofPlatform().start(() -> {
+				await(start);
+				for (int i = 0; i < perProducer; i++) {
+					if (buffer.offer(span(producer + ":" + i))) {
+						accepted.incrementAndGet();
+					}
+				}
+				done.countDown();
+			});
+		}
+
+		// This thread is the single consumer, draining while the producers offer
+		Set<String> seen = new HashSet<>();
+		List<String> duplicates = new ArrayList<>();
+		List<String> outOfOrder = new ArrayList<>();
+		int[] lastIndex = new int[producers];
+		Arrays.fill(lastIndex, -1);
+		start.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while ((done.getCount() > 0 || buffer.size() > 0) && System.nanoTime() < deadline) {
+			buffer.drain(span -> {
+				if (!seen.add(span.name())) {
+					duplicates.add(span.name());
+				}
+				String[] parts = span.name().split(":");
+				int producer = Integer.parseInt(parts[0]);
+				int index = Integer.parseInt(parts[1]);
+				if (index <= lastIndex[producer]) {
+					outOfOrder.add(span.name());
+				}
+				lastIndex[producer] = index;
+			});
+		}
+
+		assertThat(done.getCount()).isZero();
+		assertThat(buffer.size()).isZero();
+		assertThat(duplicates).isEmpty();
+		assertThat(outOfOrder).isEmpty();
+		assertThat((long) seen.size()).isEqualTo(accepted.get());
+		assertThat(accepted.get() + buffer.dropped()).isEqualTo((long) producers * perProducer);
+	}
+
+	private static Span span(String name) {
+		return new Span(null, null, 0, name, null, 0, 0);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
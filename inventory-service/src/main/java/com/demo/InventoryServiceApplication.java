@@ -1,4 +1,4 @@
-package com.demo.inventory_service;
+package com.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
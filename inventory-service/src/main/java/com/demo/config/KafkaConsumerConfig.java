@@ -0,0 +1,65 @@
+package com.demo.config;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /** Dead letters of this service; other consumer groups of the same topics keep their own. */
+    public static final String DLT_SUFFIX = "-inventory-dlt";
+
+    /**
+     * Hands a whole poll to the listener; offsets are committed once the listener returns.
+     * Inherits everything else from spring.kafka.* like the default factory.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    /**
+     * Picked up by the container factories through Boot's configurer, instead of the default
+     * of nine quick retries after which the poll is skipped. Reservations, releases and
+     * confirmations are idempotent, so a failing poll is retried with a growing back-off for as
+     * long as it keeps failing (database or broker down) and never dropped. Records that can
+     * never be read or converted go to {@code <topic>-inventory-dlt} instead of blocking their
+     * partition.
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            @Value("${inventory.consumer.retry.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${inventory.consumer.retry.max-backoff:30s}") Duration maxBackoff) {
+        // No max elapsed time or attempts: retried until it goes through
+        ExponentialBackOff backOff = new ExponentialBackOff(initialBackoff.toMillis(), 2.0);
+        backOff.setMaxInterval(maxBackoff.toMillis());
+        return new DefaultErrorHandler(deadLetterRecoverer, backOff);
+    }
+
+    /** Also used by the batch listeners for the records they could not decode. */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        // Negative partition: the producer partitions by key, as on the source topic
+        return new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + DLT_SUFFIX, -1));
+    }
+}
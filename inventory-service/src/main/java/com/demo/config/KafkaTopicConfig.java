@@ -0,0 +1,33 @@
+package com.demo.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.stream.Stream;
+
+@Configuration
+public class KafkaTopicConfig {
+    @Value("${kafka.topics.inventory-updated}")
+    private String inventoryUpdatedTopic;
+
+    @Bean
+    public NewTopic inventoryUpdatedTopic() {
+        return TopicBuilder.name(inventoryUpdatedTopic)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics deadLetterTopics(@Value("${kafka.topics.payment-processed}") String paymentProcessedTopic,
+                                                 @Value("${kafka.topics.order-cancelled}") String orderCancelledTopic,
+                                                 @Value("${kafka.topics.order-confirmed}") String orderConfirmedTopic) {
+        return new KafkaAdmin.NewTopics(Stream.of(paymentProcessedTopic, orderCancelledTopic, orderConfirmedTopic)
+                .map(topic -> TopicBuilder.name(topic + KafkaConsumerConfig.DLT_SUFFIX).partitions(3).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,17 @@
+package com.demo.config;
+
+import com.demo.trace.TracingConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Sampled tracing of the saga listeners, exported to a local NDJSON file.
+ */
+@Configuration
+public class TracingConfig extends TracingConfigSupport {
+
+    public TracingConfig() {
+        super(Duration.ofMinutes(2), 100_000);
+    }
+}
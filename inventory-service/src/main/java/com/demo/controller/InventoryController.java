@@ -0,0 +1,76 @@
+package com.demo.controller;
+
+import com.demo.dto.HotProductResponse;
+import com.demo.dto.ReservationResponse;
+import com.demo.dto.StockResponse;
+import com.demo.dto.UpdateStockRequest;
+import com.demo.service.InventoryService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @GetMapping("/hot")
+    public ResponseEntity<List<HotProductResponse>> getHotProducts() {
+        log.debug("GET /api/inventory/hot");
+        return ResponseEntity.ok(inventoryService.getHotProducts());
+    }
+
+    @PostMapping("/hot/{productId}")
+    public ResponseEntity<Void> promote(@PathVariable String productId) {
+        log.info("POST /api/inventory/hot/{}", productId);
+        inventoryService.promote(productId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{productId}")
+    public ResponseEntity<StockResponse> getStock(@PathVariable String productId) {
+        log.debug("GET /api/inventory/{}", productId);
+        return ResponseEntity.ok(inventoryService.getStock(productId));
+    }
+
+    @PutMapping("/{productId}")
+    public ResponseEntity<StockResponse> setStock(@PathVariable String productId,
+                                                  @Valid @RequestBody UpdateStockRequest request) {
+        log.info("PUT /api/inventory/{} - available: {}", productId, request.available());
+        return ResponseEntity.ok(inventoryService.setStock(productId, request.productName(), request.available()));
+    }
+
+    @GetMapping("/reservations/{orderId}")
+    public ResponseEntity<ReservationResponse> getReservation(@PathVariable String orderId) {
+        log.debug("GET /api/inventory/reservations/{}", orderId);
+        return ResponseEntity.ok(inventoryService.getReservation(orderId));
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(NoSuchElementException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleUnavailable(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", ex.getMessage()));
+    }
+}
@@ -0,0 +1,12 @@
+package com.demo.dto;
+
+import java.util.List;
+
+public record HotProductResponse(
+        String productId,
+        long available,
+        long reserved,
+        long rebalances,
+        long exhausted,
+        List<Long> shards
+) {}
@@ -0,0 +1,16 @@
+package com.demo.dto;
+
+import com.demo.entity.ReservationStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ReservationResponse(
+        String orderId,
+        ReservationStatus status,
+        String failureReason,
+        List<Line> lines,
+        LocalDateTime createdAt
+) {
+    public record Line(String productId, long quantity) {}
+}
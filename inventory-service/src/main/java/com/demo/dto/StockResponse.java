@@ -0,0 +1,8 @@
+package com.demo.dto;
+
+public record StockResponse(
+        String productId,
+        String productName,
+        long available,
+        long reserved
+) {}
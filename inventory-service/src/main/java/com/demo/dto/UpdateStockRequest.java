@@ -0,0 +1,12 @@
+package com.demo.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record UpdateStockRequest(
+        String productName,
+
+        @NotNull(message = "Available quantity is required")
+        @Min(value = 0, message = "Available quantity must not be negative")
+        Long available
+) {}
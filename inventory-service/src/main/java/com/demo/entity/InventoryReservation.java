@@ -0,0 +1,48 @@
+package com.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* Outcome of reserving one order's items, all or nothing. Decided in memory by StockLedger and
+* written behind it; afterwards only the status moves on, as a hold is confirmed, released or expires.
+* */
+@Entity
+@Table(name = "inventory_reservations",
+        indexes = @Index(name = "idx_inventory_reservations_commit_seq", columnList = "commitSeq"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class InventoryReservation {
+
+    @Id
+    private String orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservationStatus status;
+
+    private String failureReason;
+
+    // One line per product, quantities of repeated products summed
+    @ElementCollection
+    @CollectionTable(name = "inventory_reservation_lines", joinColumns = @JoinColumn(name = "order_id"),
+            indexes = @Index(name = "idx_inventory_reservation_lines_order_id", columnList = "order_id"))
+    @Builder.Default
+    private List<ReservationLine> lines = new ArrayList<>();
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // When an unconfirmed hold is released; null if nothing was reserved
+    private LocalDateTime expiresAt;
+
+    // Write-behind group commit that last changed the row; a ledger snapshot reloads the rows past its own
+    private Long commitSeq;
+}
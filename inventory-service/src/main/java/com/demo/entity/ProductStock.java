@@ -0,0 +1,39 @@
+package com.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/*
+* Durable copy of a product's stock. The live numbers are in StockLedger; this row trails it
+* by at most one write-behind batch and is only changed by adding that batch's deltas.
+* */
+@Entity
+@Table(name = "product_stock", indexes = @Index(name = "idx_product_stock_commit_seq", columnList = "commitSeq"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStock {
+
+    @Id
+    private String productId;
+
+    private String productName;
+
+    // Free to reserve
+    @Column(nullable = false)
+    private long available;
+
+    // Held by reservations
+    @Column(nullable = false)
+    private long reserved;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Write-behind group commit that last changed the row; a ledger snapshot reloads the rows past its own
+    private Long commitSeq;
+}
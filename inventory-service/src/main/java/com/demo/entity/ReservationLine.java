@@ -0,0 +1,20 @@
+package com.demo.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationLine {
+
+    @Column(nullable = false)
+    private String productId;
+
+    @Column(nullable = false)
+    private long quantity;
+}
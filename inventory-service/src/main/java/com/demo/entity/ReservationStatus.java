@@ -0,0 +1,19 @@
+package com.demo.entity;
+
+// Ledger snapshots store the ordinal: add new values at the end
+public enum ReservationStatus {
+    // Stock held until the order is confirmed or the hold expires
+    RESERVED,
+    REJECTED,
+    // Held for good, the order completed
+    CONFIRMED,
+    // Given back because the order was cancelled
+    RELEASED,
+    // Given back because the order was not confirmed in time
+    EXPIRED;
+
+    /** Whether stock is held for the order in this status. */
+    public boolean holdsStock() {
+        return this == RESERVED || this == CONFIRMED;
+    }
+}
@@ -0,0 +1,99 @@
+package com.demo.kafka;
+
+import com.demo.event.OrderCancelledEvent;
+import com.demo.event.OrderConfirmedEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.demo.kafka.retry.DecodedBatch;
+import com.demo.service.InventoryService;
+import com.demo.service.ReservationHolds;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reserves stock for a whole poll of payment outcomes at once: the ledger decides in memory
+ * and the poll's reservations go to the database in one group commit. Offsets are committed
+ * after the listener returns, i.e. after the outcomes are durable and published; a failed
+ * poll is retried with back-off until it goes through (see {@code KafkaConsumerConfig}), and
+ * orders decided before are answered from the ledger.
+ * <p>
+ * Cancellations and confirmations end holds the same way, a poll at a time; both are
+ * idempotent, so a redelivered poll changes nothing.
+ * <p>
+ * Records that can't be decoded are left out and sent to {@code <topic>-inventory-dlt} once
+ * the rest of their poll went through, so a poll retried after a failure doesn't send them
+ * again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryEventConsumer {
+
+    private final InventoryService inventoryService;
+    private final ReservationHolds reservationHolds;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    @KafkaListener(
+            id = "inventory-payment-processed",
+            topics = "${kafka.topics.payment-processed}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = {
+                    "max.poll.records=${inventory.consumer.batch.max-size:1000}",
+                    "fetch.min.bytes=${inventory.consumer.batch.min-bytes:65536}",
+                    "fetch.max.wait.ms=${inventory.consumer.batch.max-wait-ms:20}"
+            }
+    )
+    public void handlePaymentsProcessed(List<ConsumerRecord<String, PaymentProcessedEvent>> records) {
+        DecodedBatch<String, PaymentProcessedEvent> batch = DecodedBatch.of(records);
+        List<PaymentProcessedEvent> events = batch.values();
+        log.debug("Received batch of {} PaymentProcessedEvents", events.size());
+        if (!events.isEmpty()) {
+            inventoryService.reserveForPayments(events);
+        }
+        batch.deadLetter(this::deadLetter);
+    }
+
+    @KafkaListener(
+            id = "inventory-order-cancelled",
+            topics = "${kafka.topics.order-cancelled}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void handleOrdersCancelled(List<ConsumerRecord<String, OrderCancelledEvent>> records) {
+        DecodedBatch<String, OrderCancelledEvent> batch = DecodedBatch.of(records);
+        List<OrderCancelledEvent> events = batch.values();
+        log.debug("Received batch of {} OrderCancelledEvents", events.size());
+        if (!events.isEmpty()) {
+            reservationHolds.releaseCancelled(events);
+        }
+        batch.deadLetter(this::deadLetter);
+    }
+
+    @KafkaListener(
+            id = "inventory-order-confirmed",
+            topics = "${kafka.topics.order-confirmed}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void handleOrdersConfirmed(List<ConsumerRecord<String, OrderConfirmedEvent>> records) {
+        DecodedBatch<String, OrderConfirmedEvent> batch = DecodedBatch.of(records);
+        List<OrderConfirmedEvent> events = batch.values();
+        log.debug("Received batch of {} OrderConfirmedEvents", events.size());
+        if (!events.isEmpty()) {
+            reservationHolds.confirm(events);
+        }
+        batch.deadLetter(this::deadLetter);
+    }
+
+    // Throws if the send fails, and the poll is retried
+    private boolean deadLetter(ConsumerRecord<?, ?> record, Exception failure) {
+        deadLetterRecoverer.accept(record, null, failure);
+        return true;
+    }
+}
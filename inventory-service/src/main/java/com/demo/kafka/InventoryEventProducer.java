@@ -0,0 +1,48 @@
+package com.demo.kafka;
+
+import com.demo.event.InventoryUpdatedEvent;
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimer;
+import com.demo.trace.Tracer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryEventProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SagaTimer sagaTimer;
+    private final Tracer tracer;
+
+    @Value("${kafka.topics.inventory-updated}")
+    private String inventoryUpdatedTopic;
+
+    /**
+     * Sends all events without waiting in between so the producer can batch them per partition.
+     * The returned future completes when every send is acked (or one has failed).
+     */
+    public CompletableFuture<Void> publishInventoryUpdated(List<InventoryUpdatedEvent> events) {
+        log.debug("Publishing {} InventoryUpdatedEvents", events.size());
+
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < sends.length; i++) {
+            InventoryUpdatedEvent event = events.get(i);
+            // Only reservation outcomes have a timeline and a span here, released holds go out plain
+            ProducerRecord<String, Object> record =
+                    sagaTimer.outgoing(inventoryUpdatedTopic, event.orderId(), event, SagaStage.INVENTORY_SENT);
+            tracer.inject(event.orderId(), record.headers());
+            sends[i] = kafkaTemplate.send(record)
+                    .thenRun(() -> sagaTimer.acked(event.orderId(), SagaStage.INVENTORY_PUBLISHED));
+        }
+        return CompletableFuture.allOf(sends);
+    }
+}
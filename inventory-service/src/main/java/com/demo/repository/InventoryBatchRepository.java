@@ -0,0 +1,268 @@
+package com.demo.repository;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+import com.demo.service.ReservationTransition;
+import com.demo.service.StockChange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Set-based reads and writes behind the stock ledger. Reservations are inserted once, after
+ * which only their status moves, guarded by the status it moves from; stock rows only ever
+ * get deltas added, so a flush that races an earlier one can't overwrite it with stale
+ * totals. Every row a flush changes is stamped with that flush's commit sequence, which is
+ * what lets a ledger snapshot reload only the rows changed after it. Callers provide the
+ * transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryBatchRepository {
+
+    private static final String INSERT_RESERVATION = """
+            INSERT INTO inventory_reservations (order_id, status, failure_reason, created_at, expires_at, commit_seq)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (order_id) DO NOTHING""";
+
+    private static final String TRANSITION = """
+            UPDATE inventory_reservations SET status = ?, commit_seq = ?
+            WHERE order_id = ? AND status = ?""";
+
+    private static final String INSERT_LINE = """
+            INSERT INTO inventory_reservation_lines (order_id, product_id, quantity)
+            VALUES (?, ?, ?)""";
+
+    private static final String ADD_TO_STOCK = """
+            INSERT INTO product_stock AS s (product_id, product_name, available, reserved, updated_at, commit_seq)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (product_id) DO UPDATE SET
+                product_name = coalesce(EXCLUDED.product_name, s.product_name),
+                available    = s.available + EXCLUDED.available,
+                reserved     = s.reserved + EXCLUDED.reserved,
+                updated_at   = EXCLUDED.updated_at,
+                commit_seq   = EXCLUDED.commit_seq""";
+
+    private static final String SELECT_RESERVATIONS = """
+            SELECT r.order_id, r.status, r.failure_reason, r.created_at, r.expires_at, l.product_id, l.quantity
+            FROM inventory_reservations r
+            LEFT JOIN inventory_reservation_lines l ON l.order_id = r.order_id
+            ORDER BY r.order_id""";
+
+    private static final String SELECT_RESERVATIONS_CHANGED = """
+            SELECT r.order_id, r.status, r.failure_reason, r.created_at, r.expires_at, l.product_id, l.quantity
+            FROM inventory_reservations r
+            LEFT JOIN inventory_reservation_lines l ON l.order_id = r.order_id
+            WHERE r.commit_seq > ?
+            ORDER BY r.order_id""";
+
+    private static final String SELECT_STOCK = "SELECT product_id, product_name, available, reserved FROM product_stock";
+
+    private static final String SELECT_STOCK_CHANGED = SELECT_STOCK + " WHERE commit_seq > ? OR product_id = ANY (?)";
+
+    private static final String MAX_COMMIT_SEQ = """
+            SELECT coalesce(greatest((SELECT max(commit_seq) FROM product_stock),
+                                     (SELECT max(commit_seq) FROM inventory_reservations)), 0)""";
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    @FunctionalInterface
+    public interface StockRowHandler {
+        void accept(String productId, String productName, long available, long reserved);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Writes the reservations, then applies the status transitions in order, and adds their
+     * effect plus the given changes to the stock rows, one delta per product. Reservations
+     * that are already stored and transitions whose from-status doesn't match add nothing.
+     * Changed rows are stamped with {@code commitSeq}.
+     */
+    public void write(long commitSeq, List<InventoryReservation> reservations, List<ReservationTransition> transitions,
+                      List<StockChange> changes) {
+        // Sorted so concurrent writers take the stock row locks in the same order
+        Map<String, StockDelta> deltas = new TreeMap<>();
+        for (StockChange change : changes) {
+            deltas.computeIfAbsent(change.productId(), id -> new StockDelta())
+                    .add(change.productName(), change.availableDelta(), change.reservedDelta());
+        }
+
+        if (!reservations.isEmpty()) {
+            int[] inserted = jdbcTemplate.batchUpdate(INSERT_RESERVATION, reservations, reservations.size(), (ps, r) -> {
+                ps.setString(1, r.getOrderId());
+                ps.setString(2, r.getStatus().name());
+                ps.setString(3, r.getFailureReason());
+                ps.setObject(4, r.getCreatedAt());
+                ps.setObject(5, r.getExpiresAt());
+                ps.setLong(6, commitSeq);
+            })[0];
+
+            List<LineRow> lines = new ArrayList<>();
+            for (int i = 0; i < inserted.length; i++) {
+                InventoryReservation r = reservations.get(i);
+                if (inserted[i] != 1) {
+                    continue;
+                }
+                for (ReservationLine line : r.getLines()) {
+                    lines.add(new LineRow(r.getOrderId(), line));
+                    if (r.getStatus().holdsStock()) {
+                        deltas.computeIfAbsent(line.getProductId(), id -> new StockDelta())
+                                .add(null, -line.getQuantity(), line.getQuantity());
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_LINE, lines, lines.size(), (ps, row) -> {
+                    ps.setString(1, row.orderId());
+                    ps.setString(2, row.line().getProductId());
+                    ps.setLong(3, row.line().getQuantity());
+                });
+            }
+        }
+
+        if (!transitions.isEmpty()) {
+            int[] moved = jdbcTemplate.batchUpdate(TRANSITION, transitions, transitions.size(), (ps, t) -> {
+                ps.setString(1, t.to().name());
+                ps.setLong(2, commitSeq);
+                ps.setString(3, t.orderId());
+                ps.setString(4, t.from().name());
+            })[0];
+            for (int i = 0; i < moved.length; i++) {
+                ReservationTransition t = transitions.get(i);
+                if (moved[i] != 1 || t.heldDelta() == 0) {
+                    continue;
+                }
+                for (ReservationLine line : t.lines()) {
+                    long quantity = t.heldDelta() * line.getQuantity();
+                    deltas.computeIfAbsent(line.getProductId(), id -> new StockDelta())
+                            .add(null, -quantity, quantity);
+                }
+            }
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+        LocalDateTime updatedAt = LocalDateTime.now();
+        List<Map.Entry<String, StockDelta>> rows = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_TO_STOCK, rows, rows.size(), (ps, row) -> {
+            StockDelta d = row.getValue();
+            ps.setString(1, row.getKey());
+            ps.setString(2, d.productName);
+            ps.setLong(3, d.available);
+            ps.setLong(4, d.reserved);
+            ps.setObject(5, updatedAt);
+            ps.setLong(6, commitSeq);
+        });
+    }
+
+    /** Sequence of the last group commit, 0 if nothing was written yet. */
+    public long maxCommitSeq() {
+        Long max = jdbcTemplate.queryForObject(MAX_COMMIT_SEQ, Long.class);
+        return max != null ? max : 0;
+    }
+
+    /** Streams every stock row; needs a transaction for the cursor to be used. */
+    public void loadStock(StockRowHandler handler) {
+        jdbcTemplate.query(con -> fetching(con.prepareStatement(SELECT_STOCK)), stockRows(handler));
+    }
+
+    /** Streams the stock rows changed after {@code commitSeq} plus the given products; needs a transaction too. */
+    public void loadStockChangedSince(long commitSeq, Collection<String> productIds, StockRowHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = fetching(con.prepareStatement(SELECT_STOCK_CHANGED));
+            ps.setLong(1, commitSeq);
+            ps.setArray(2, con.createArrayOf("varchar", productIds.toArray()));
+            return ps;
+        }, stockRows(handler));
+    }
+
+    /** Streams every stored reservation with its lines; needs a transaction for the cursor to be used. */
+    public void loadReservations(Consumer<InventoryReservation> consumer) {
+        jdbcTemplate.query(con -> fetching(con.prepareStatement(SELECT_RESERVATIONS)), reservationRows(consumer));
+    }
+
+    /** Streams the reservations changed after {@code commitSeq} with their lines; needs a transaction too. */
+    public void loadReservationsChangedSince(long commitSeq, Consumer<InventoryReservation> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = fetching(con.prepareStatement(SELECT_RESERVATIONS_CHANGED));
+            ps.setLong(1, commitSeq);
+            return ps;
+        }, reservationRows(consumer));
+    }
+
+    private static RowCallbackHandler stockRows(StockRowHandler handler) {
+        return rs -> handler.accept(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getLong(4));
+    }
+
+    // Rows come ordered by order id, one per line; a reservation is complete when the id changes
+    private static ResultSetExtractor<Void> reservationRows(Consumer<InventoryReservation> consumer) {
+        return rs -> {
+            InventoryReservation current = null;
+            while (rs.next()) {
+                String orderId = rs.getString(1);
+                if (current == null || !current.getOrderId().equals(orderId)) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = toReservation(rs);
+                }
+                String productId = rs.getString(6);
+                if (productId != null) {
+                    current.getLines().add(new ReservationLine(productId, rs.getLong(7)));
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+            return null;
+        };
+    }
+
+
+    private static InventoryReservation toReservation(ResultSet rs) throws SQLException {
+        return InventoryReservation.builder()
+                .orderId(rs.getString(1))
+                .status(ReservationStatus.valueOf(rs.getString(2)))
+                .failureReason(rs.getString(3))
+                .createdAt(rs.getObject(4, LocalDateTime.class))
+                .expiresAt(rs.getObject(5, LocalDateTime.class))
+                .build();
+    }
+
+    private static PreparedStatement fetching(PreparedStatement ps) throws SQLException {
+        ps.setFetchSize(LOAD_FETCH_SIZE);
+        return ps;
+    }
+
+    private record LineRow(String orderId, ReservationLine line) {}
+
+    private static final class StockDelta {
+        private String productName;
+        private long available;
+        private long reserved;
+
+        private void add(String name, long availableDelta, long reservedDelta) {
+            if (name != null) {
+                productName = name;
+            }
+            available += availableDelta;
+            reserved += reservedDelta;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically promotes products with enough reservations in the last scan window to
+ * sharded stock. The per-product counts are kept by the ledger under the stripe lock a
+ * reservation already holds, so detection adds nothing to the reservation path.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.hot-keys.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class HotKeyDetector {
+
+    private final StockLedger stockLedger;
+
+    @Value("${inventory.hot-keys.promote-threshold:2000}")
+    private long promoteThreshold;
+
+    @Scheduled(fixedDelayString = "${inventory.hot-keys.scan-interval-ms:1000}")
+    public void scan() {
+        List<String> promoted = stockLedger.promoteHotProducts(promoteThreshold);
+        if (!promoted.isEmpty()) {
+            log.info("Promoted {} hot products: {}", promoted.size(), promoted);
+        }
+    }
+}
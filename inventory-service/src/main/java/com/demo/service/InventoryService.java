@@ -0,0 +1,152 @@
+package com.demo.service;
+
+import com.demo.dto.HotProductResponse;
+import com.demo.dto.ReservationResponse;
+import com.demo.dto.StockResponse;
+import com.demo.entity.InventoryReservation;
+import com.demo.event.InventoryUpdatedEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.demo.kafka.InventoryEventProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reserves stock for paid orders. Decisions are made in memory by {@link StockLedger}; an
+ * outcome is only published once {@link InventoryWriteBehind} has made it durable, so the
+ * order saga never acts on a reservation that a crash could still undo. Holds that are never
+ * confirmed are given back by {@link ReservationHolds}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final StockLedger stockLedger;
+    private final InventoryWriteBehind writeBehind;
+    private final ReservationHolds reservationHolds;
+    private final InventoryEventProducer inventoryEventProducer;
+
+    @Value("${inventory.write-behind.await-timeout:30s}")
+    private Duration awaitTimeout;
+
+    /**
+     * Reserves every successful payment's items, all or nothing per order, and publishes one
+     * InventoryUpdatedEvent per order. Failed payments are skipped; a successful one without
+     * items is rejected and answered with a failure, never reserved empty. Redelivered orders
+     * get their current outcome published again, which for a hold released meanwhile is a
+     * failure.
+     */
+    public void reserveForPayments(List<PaymentProcessedEvent> events) {
+        List<InventoryReservation> decided = new ArrayList<>(events.size());
+        List<InventoryUpdatedEvent> outcomes = new ArrayList<>(events.size());
+        for (PaymentProcessedEvent event : events) {
+            if (!event.success()) {
+                continue;
+            }
+            StockLedger.Result result = stockLedger.reserve(event.orderId(),
+                    event.items() != null ? event.items() : List.of());
+            if (result.fresh()) {
+                decided.add(result.reservation());
+            }
+            outcomes.add(toEvent(result.reservation()));
+        }
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        reservationHolds.track(decided);
+
+        // Also waits for an earlier, still unflushed write of a redelivered order
+        await(writeBehind.flushed(), "persisting " + decided.size() + " reservations");
+        await(inventoryEventProducer.publishInventoryUpdated(outcomes), "publishing " + outcomes.size() + " outcomes");
+        log.debug("Reserved stock for {} orders ({} new)", outcomes.size(), decided.size());
+    }
+
+    public StockResponse getStock(String productId) {
+        StockLedger.Level level = stockLedger.level(productId);
+        if (level == null) {
+            throw new NoSuchElementException("Product not found: " + productId);
+        }
+        return new StockResponse(level.productId(), level.productName(), level.available(), level.reserved());
+    }
+
+    /** Sets a product's free stock and returns once the change is durable. */
+    public StockResponse setStock(String productId, String productName, long available) {
+        StockChange change = stockLedger.setAvailable(productId, productName, available);
+        await(writeBehind.submit(List.of(change)), "persisting stock of " + productId);
+        log.info("Stock of {} set to {} available", productId, available);
+        return getStock(productId);
+    }
+
+    /** Products on sharded stock, with what each shard holds right now. */
+    public List<HotProductResponse> getHotProducts() {
+        List<HotProductResponse> hot = new ArrayList<>();
+        stockLedger.hotProducts().forEach((productId, stock) -> {
+            List<Long> shards = new ArrayList<>(stock.shards());
+            for (int i = 0; i < stock.shards(); i++) {
+                shards.add(stock.shardAvailable(i));
+            }
+            hot.add(new HotProductResponse(productId, stock.available(), stock.reserved(),
+                    stock.rebalances(), stock.exhausted(), shards));
+        });
+        return hot;
+    }
+
+    /** Moves a product to sharded stock ahead of expected load, e.g. before a sale starts. */
+    public void promote(String productId) {
+        if (stockLedger.level(productId) == null) {
+            throw new NoSuchElementException("Product not found: " + productId);
+        }
+        stockLedger.promote(productId);
+    }
+
+    public ReservationResponse getReservation(String orderId) {
+        InventoryReservation reservation = stockLedger.reservation(orderId);
+        if (reservation == null) {
+            throw new NoSuchElementException("Reservation not found for order: " + orderId);
+        }
+        return new ReservationResponse(
+                reservation.getOrderId(),
+                reservation.getStatus(),
+                reservation.getFailureReason(),
+                reservation.getLines().stream()
+                        .map(line -> new ReservationResponse.Line(line.getProductId(), line.getQuantity()))
+                        .toList(),
+                reservation.getCreatedAt());
+    }
+
+    private void await(CompletableFuture<?> future, String what) {
+        try {
+            future.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while " + what, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed " + what, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out " + what, e);
+        }
+    }
+
+    private static InventoryUpdatedEvent toEvent(InventoryReservation reservation) {
+        boolean reserved = reservation.getStatus().holdsStock();
+        String message = switch (reservation.getStatus()) {
+            case RESERVED, CONFIRMED -> "Reserved " + reservation.getLines().size() + " products";
+            case REJECTED -> reservation.getFailureReason();
+            case RELEASED -> "Reservation released";
+            case EXPIRED -> "Reservation expired before the order was confirmed";
+        };
+        return new InventoryUpdatedEvent(reservation.getOrderId(), reserved, message, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,248 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.repository.InventoryBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists what {@link StockLedger} decided, behind it, in group commits.
+ * <p>
+ * Entries queue up while a flush runs; one flusher thread then takes everything queued (up to
+ * {@code max-batch}) and writes it in a single transaction, so the database sees one commit per
+ * batch instead of one per order. A failed flush is retried with backoff for as long as the
+ * service runs. Entries are written in queue order; the ledger appends a reservation and each
+ * of its status changes while it holds that order's entry, so they reach the database in the
+ * order they happened. {@link #flushed} is a barrier for everything queued before it.
+ * <p>
+ * Each commit gets the next sequence number and stamps the rows it changes with it. This is
+ * the only writer of those tables, so the sequence orders the commits and {@link #committedSeq}
+ * tells how far the database is.
+ * <p>
+ * The queue is bounded: when the database falls behind, appending blocks the listener instead
+ * of letting unpersisted reservations pile up.
+ */
+@Component
+@Slf4j
+public class InventoryWriteBehind implements SmartLifecycle {
+
+    // One of reservation, transition or changes is set; done only for submissions that wait
+    private record Pending(InventoryReservation reservation, ReservationTransition transition,
+                           List<StockChange> changes, CompletableFuture<Void> done) {}
+
+    private final InventoryBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+    private final Counter failures;
+
+    // Written by the flusher only
+    private volatile long committedSeq;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public InventoryWriteBehind(InventoryBatchRepository batchRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${inventory.write-behind.queue-capacity:10000}") int queueCapacity,
+                                @Value("${inventory.write-behind.max-batch:1000}") int maxBatch,
+                                @Value("${inventory.write-behind.retry-backoff:100ms}") Duration retryBackoff,
+                                @Value("${inventory.write-behind.max-retry-backoff:5s}") Duration maxRetryBackoff,
+                                MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+
+        this.batchSize = DistributionSummary.builder("inventory.write.behind.batch.size")
+                .description("Reservations and status changes written per group commit")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("inventory.write.behind.flush")
+                .description("Time to write and commit one batch")
+                .register(meterRegistry);
+        this.failures = Counter.builder("inventory.write.behind.failures")
+                .description("Flush attempts that failed and were retried")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.write.behind.queue", queue, BlockingQueue::size);
+    }
+
+    /** Queues a newly decided reservation; blocks while the queue is full. */
+    public void append(InventoryReservation reservation) {
+        enqueue(new Pending(reservation, null, null, null));
+    }
+
+    /** Queues a status change of a reservation appended earlier; blocks while the queue is full. */
+    public void append(ReservationTransition transition) {
+        enqueue(new Pending(null, transition, null, null));
+    }
+
+    /**
+     * Queues stock changes. The future completes when they, and everything queued before
+     * them, are committed.
+     */
+    public CompletableFuture<Void> submit(List<StockChange> changes) {
+        Pending pending = new Pending(null, null, changes, new CompletableFuture<>());
+        try {
+            enqueue(pending);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return pending.done();
+    }
+
+    /** Completes when everything queued so far is committed. */
+    public CompletableFuture<Void> flushed() {
+        return submit(List.of());
+    }
+
+    /** Sequence of the last commit; every entry of that commit and the ones before is durable. */
+    public long committedSeq() {
+        return committedSeq;
+    }
+
+    private void enqueue(Pending pending) {
+        if (!running) {
+            throw new IllegalStateException("Inventory write-behind is not running");
+        }
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing inventory write", e);
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            Pending first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // stop() interrupts only to cut a retry backoff short; keep draining
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<InventoryReservation> reservations = new ArrayList<>();
+        List<ReservationTransition> transitions = new ArrayList<>();
+        List<StockChange> changes = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (pending.reservation() != null) {
+                reservations.add(pending.reservation());
+            } else if (pending.transition() != null) {
+                transitions.add(pending.transition());
+            } else {
+                changes.addAll(pending.changes());
+            }
+        }
+
+        Duration backoff = retryBackoff;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (!reservations.isEmpty() || !transitions.isEmpty() || !changes.isEmpty()) {
+                    long commitSeq = committedSeq + 1;
+                    flushTimer.record(() -> transactionTemplate.executeWithoutResult(
+                            status -> batchRepository.write(commitSeq, reservations, transitions, changes)));
+                    committedSeq = commitSeq;
+                }
+                batchSize.record(reservations.size() + transitions.size());
+                complete(batch, null);
+                return;
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (!running && attempt >= 3) {
+                    // Nothing of this batch was published or committed to Kafka, so the
+                    // events are redelivered after restart and decided again from the database
+                    log.error("Dropping {} unwritten reservations, {} status changes and {} stock changes on shutdown",
+                            reservations.size(), transitions.size(), changes.size(), e);
+                    complete(batch, e);
+                    return;
+                }
+                log.warn("Inventory flush of {} entries failed (attempt {}), retrying in {} ms",
+                        batch.size(), attempt, backoff.toMillis(), e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ignored) {
+                    // woken by stop(); retry right away
+                }
+                backoff = backoff.multipliedBy(2).compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    private static void complete(List<Pending> batch, Throwable failure) {
+        for (Pending pending : batch) {
+            if (pending.done() == null) {
+                continue;
+            }
+            if (failure == null) {
+                pending.done().complete(null);
+            } else {
+                pending.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        committedSeq = batchRepository.maxCommitSeq();
+        running = true;
+        flusher = Thread.ofPlatform().name("inventory-write-behind").start(this::drain);
+    }
+
+    @Override
+    public void stop() {
+        // Runs after the listener containers stopped, so nothing new is submitted
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Started before the ledger may append and stopped after it
+        return -1;
+    }
+}
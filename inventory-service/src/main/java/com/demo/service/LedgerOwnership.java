@@ -0,0 +1,177 @@
+package com.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes sure only one instance runs the {@link StockLedger}. The ledger decides reservations
+ * from its own memory and {@link InventoryWriteBehind} assumes it is the only writer, so two
+ * instances would each sell the same stock and interleave their commit sequences.
+ * <p>
+ * Startup takes a Postgres session advisory lock before anything else in the inventory
+ * lifecycle starts, waiting up to {@code acquire-timeout} for a previous instance to shut
+ * down, and fails otherwise. The lock lives on a dedicated connection outside the pool, so
+ * closing it ends the session and releases the lock. The connection is checked every
+ * {@code check-interval}; if the session was lost it is reopened, and if by then another
+ * instance holds the lock this one exits rather than keep deciding next to the new owner.
+ */
+@Component
+@Slf4j
+public class LedgerOwnership implements SmartLifecycle {
+
+    // Any fixed key works, as long as every instance of the service uses the same one
+    private static final long LOCK_KEY = 0x696e_7665_6e74_6f72L;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationContext applicationContext;
+    private final Duration acquireTimeout;
+    private final Duration checkInterval;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ledger-ownership").daemon().factory());
+
+    private volatile Connection connection;
+    private volatile boolean running;
+
+    public LedgerOwnership(DataSourceProperties dataSourceProperties,
+                           ApplicationContext applicationContext,
+                           @Value("${inventory.ledger.ownership.acquire-timeout:60s}") Duration acquireTimeout,
+                           @Value("${inventory.ledger.ownership.check-interval:5s}") Duration checkInterval) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.applicationContext = applicationContext;
+        this.acquireTimeout = acquireTimeout;
+        this.checkInterval = checkInterval;
+    }
+
+    @Override
+    public void start() {
+        long deadline = System.nanoTime() + acquireTimeout.toNanos();
+        boolean waiting = false;
+        while (!tryAcquire()) {
+            if (System.nanoTime() >= deadline) {
+                throw new IllegalStateException("Another inventory-service instance owns the stock ledger "
+                        + "(advisory lock " + LOCK_KEY + "); only one may run against this database");
+            }
+            if (!waiting) {
+                log.warn("Stock ledger is owned by another instance, waiting up to {} for it to stop", acquireTimeout);
+                waiting = true;
+            }
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the stock ledger lock", e);
+            }
+        }
+        running = true;
+        watchdog.scheduleWithFixedDelay(this::check, checkInterval.toMillis(), checkInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Owning the stock ledger (advisory lock {})", LOCK_KEY);
+    }
+
+    // False when the lock is held elsewhere or the database can't be reached
+    private boolean tryAcquire() {
+        try {
+            return lock();
+        } catch (SQLException e) {
+            log.warn("Could not try the stock ledger lock: {}", e.toString());
+            return false;
+        }
+    }
+
+    private boolean lock() throws SQLException {
+        Connection candidate = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        try (PreparedStatement statement = candidate.prepareStatement("SELECT pg_try_advisory_lock(?)");
+             ResultSet result = setKey(statement).executeQuery()) {
+            if (result.next() && result.getBoolean(1)) {
+                connection = candidate;
+                return true;
+            }
+        } catch (SQLException e) {
+            closeQuietly(candidate);
+            throw e;
+        }
+        closeQuietly(candidate);
+        return false;
+    }
+
+    private static PreparedStatement setKey(PreparedStatement statement) throws SQLException {
+        statement.setLong(1, LOCK_KEY);
+        return statement;
+    }
+
+    // Also keeps the session from being closed for idling
+    private void check() {
+        if (connection != null) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+                return;
+            } catch (SQLException e) {
+                log.error("Lost the session holding the stock ledger lock", e);
+                closeQuietly(connection);
+                connection = null;
+            }
+        }
+        try {
+            if (lock()) {
+                log.warn("Took the stock ledger lock back");
+                return;
+            }
+        } catch (SQLException e) {
+            // Nobody else can take the lock while the database is unreachable either; try again next time
+            log.warn("Could not reopen the stock ledger lock session: {}", e.toString());
+            return;
+        }
+        log.error("Stock ledger lock is now held by another instance, shutting down");
+        watchdog.shutdown();
+        // Not on this thread: closing the context stops this component
+        Thread.ofPlatform().name("ledger-ownership-exit").start(() ->
+                System.exit(SpringApplication.exit(applicationContext, () -> 1)));
+    }
+
+    @Override
+    public void stop() {
+        watchdog.shutdownNow();
+        // Closing the session releases the lock
+        closeQuietly(connection);
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before the write-behind (-1) and the ledger (0) start, after both stopped
+        return -2;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close the stock ledger lock connection", e);
+        }
+    }
+}
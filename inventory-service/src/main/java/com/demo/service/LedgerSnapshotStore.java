@@ -0,0 +1,457 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshots of the {@link StockLedger} in memory-mapped files, so a restart reads the
+ * ledger from local disk and only reloads from Postgres what changed after the snapshot.
+ * <p>
+ * A snapshot records the write-behind commit sequence it is consistent with. It is written to
+ * a temporary file and only replaces the previous snapshot once published, so a crash while
+ * writing leaves the last good one in place. Layout, little-endian:
+ * <pre>
+ * header   magic, version, commit sequence, written at (epoch ms), product count, reservation count
+ * records  int length + payload each; all products, then all reservations
+ * trailer  CRC32C of the records followed by the header
+ * </pre>
+ * Reservation lines refer to products by their position in the product records, so a product
+ * id is stored once and restored as one shared String. The file is written and read through
+ * 64 MB mapped windows; a record never spans two.
+ */
+@Component
+@Slf4j
+public class LedgerSnapshotStore {
+
+    private static final int MAGIC = 0x4C564E49; // "INVL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int TRAILER_SIZE = 4;
+    private static final int REGION_SIZE = 64 << 20;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final ReservationStatus[] STATUSES = ReservationStatus.values();
+
+    /** A written snapshot that is not in use yet; {@link #publish} or {@link #discard} it. */
+    public final class Draft {
+        private final Path path;
+        private final long commitSeq;
+        private final long size;
+
+        private Draft(Path path, long commitSeq, long size) {
+            this.path = path;
+            this.commitSeq = commitSeq;
+            this.size = size;
+        }
+
+        public void publish() {
+            try {
+                Files.move(path, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                failures.increment();
+                throw new UncheckedIOException("Failed to publish ledger snapshot " + path, e);
+            }
+            lastSize = size;
+            lastPublishedAt = System.currentTimeMillis();
+            log.info("Published ledger snapshot at commit {} ({} KB)", commitSeq, size >> 10);
+        }
+
+        public void discard() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete ledger snapshot draft {}", path, e);
+            }
+        }
+
+        public long size() {
+            return size;
+        }
+    }
+
+    /** Appends records to a snapshot; products first. */
+    public static final class Writer {
+        private final FileChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private final Map<String, Integer> productIndexes = new HashMap<>();
+        private final MappedByteBuffer header;
+        private MappedByteBuffer region;
+        private long regionStart;
+        private int crcFrom = HEADER_SIZE;
+        private int products;
+        private int reservations;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+            this.region = map(0, REGION_SIZE);
+            this.header = region;
+            region.position(HEADER_SIZE);
+        }
+
+        public void level(StockLedger.Level level) {
+            if (reservations > 0) {
+                throw new IllegalStateException("Products must be written before reservations");
+            }
+            byte[] productId = utf8(level.productId());
+            byte[] productName = utf8(level.productName());
+            beginRecord(stringSize(productId) + stringSize(productName) + 8 + 8 + 1);
+            putString(productId);
+            putString(productName);
+            region.putLong(level.available());
+            region.putLong(level.reserved());
+            region.put((byte) (level.hot() ? 1 : 0));
+            productIndexes.put(level.productId(), products++);
+        }
+
+        public void reservation(InventoryReservation reservation) {
+            byte[] orderId = utf8(reservation.getOrderId());
+            byte[] failureReason = utf8(reservation.getFailureReason());
+            List<ReservationLine> lines = reservation.getLines();
+            int size = stringSize(orderId) + 1 + stringSize(failureReason) + 8 + 8 + 4;
+            for (ReservationLine line : lines) {
+                size += 4 + 8;
+                // A product created after the product records were written goes inline
+                if (!productIndexes.containsKey(line.getProductId())) {
+                    size += stringSize(utf8(line.getProductId()));
+                }
+            }
+            beginRecord(size);
+            putString(orderId);
+            region.put((byte) reservation.getStatus().ordinal());
+            putString(failureReason);
+            region.putLong(micros(reservation.getCreatedAt()));
+            region.putLong(micros(reservation.getExpiresAt()));
+            region.putInt(lines.size());
+            for (ReservationLine line : lines) {
+                Integer index = productIndexes.get(line.getProductId());
+                region.putInt(index != null ? index : -1);
+                if (index == null) {
+                    putString(utf8(line.getProductId()));
+                }
+                region.putLong(line.getQuantity());
+            }
+            reservations++;
+        }
+
+        private long finish(long commitSeq) throws IOException {
+            ensure(TRAILER_SIZE);
+            crc.update(region.slice(crcFrom, region.position() - crcFrom));
+            header.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putLong(8, commitSeq)
+                    .putLong(16, System.currentTimeMillis())
+                    .putInt(24, products)
+                    .putInt(28, reservations);
+            crc.update(header.slice(0, HEADER_SIZE));
+            region.putInt((int) crc.getValue());
+            long size = regionStart + region.position();
+            region.force();
+            header.force(0, HEADER_SIZE);
+            channel.truncate(size);
+            channel.force(true);
+            return size;
+        }
+
+        private void beginRecord(int size) {
+            ensure(4 + size);
+            region.putInt(size);
+        }
+
+        // Moves on to a new window when the record doesn't fit the current one
+        private void ensure(int bytes) {
+            if (region.remaining() >= bytes) {
+                return;
+            }
+            long position = regionStart + region.position();
+            crc.update(region.slice(crcFrom, region.position() - crcFrom));
+            region.force();
+            region = map(position, Math.max(REGION_SIZE, bytes));
+            regionStart = position;
+            crcFrom = 0;
+        }
+
+        private MappedByteBuffer map(long position, int size) {
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return buffer;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void putString(byte[] bytes) {
+            if (bytes == null) {
+                region.putInt(-1);
+                return;
+            }
+            region.putInt(bytes.length);
+            region.put(bytes);
+        }
+    }
+
+    private final boolean enabled;
+    private final Path dir;
+    private final Path file;
+
+    private final Timer writeTimer;
+    private final Timer restoreTimer;
+    private final Counter failures;
+
+    private volatile long lastSize;
+    private volatile long lastPublishedAt;
+
+    public LedgerSnapshotStore(@Value("${inventory.snapshot.enabled:true}") boolean enabled,
+                               @Value("${inventory.snapshot.dir:data/ledger-snapshots}") Path dir,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = dir;
+        this.file = dir.resolve("ledger.snapshot");
+
+        this.writeTimer = Timer.builder("inventory.snapshot.write")
+                .description("Time to write a ledger snapshot, reservations keep running meanwhile")
+                .register(meterRegistry);
+        this.restoreTimer = Timer.builder("inventory.snapshot.restore")
+                .description("Time to read the ledger snapshot at startup")
+                .register(meterRegistry);
+        this.failures = Counter.builder("inventory.snapshot.failures")
+                .description("Ledger snapshots that could not be written or published")
+                .register(meterRegistry);
+        Gauge.builder("inventory.snapshot.size", this, s -> s.lastSize)
+                .description("Size of the last published ledger snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("inventory.snapshot.age", this,
+                        s -> s.lastPublishedAt == 0 ? Double.NaN : (System.currentTimeMillis() - s.lastPublishedAt) / 1000.0)
+                .description("Time since the last ledger snapshot was published")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Writes a snapshot consistent with {@code commitSeq} to a draft file. */
+    public Draft write(long commitSeq, Consumer<Writer> contents) {
+        long started = System.nanoTime();
+        Path draft = dir.resolve("ledger.snapshot.tmp");
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(draft, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Writer writer = new Writer(channel);
+                contents.accept(writer);
+                long size = writer.finish(commitSeq);
+                writeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                log.debug("Wrote ledger snapshot of {} products and {} reservations at commit {}",
+                        writer.products, writer.reservations, commitSeq);
+                return new Draft(draft, commitSeq, size);
+            }
+        } catch (IOException e) {
+            abandon(draft);
+            throw new UncheckedIOException("Failed to write ledger snapshot " + draft, e);
+        } catch (RuntimeException e) {
+            abandon(draft);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the published snapshot, if there is a valid one, and returns the commit sequence it
+     * is consistent with. The file is checked before anything is handed to the consumers.
+     */
+    public OptionalLong restore(Consumer<StockLedger.Level> levels, Consumer<InventoryReservation> reservations) {
+        if (!enabled || !Files.exists(file)) {
+            return OptionalLong.empty();
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long commitSeq = read(channel, levels, reservations);
+            restoreTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            lastSize = channel.size();
+            lastPublishedAt = Files.getLastModifiedTime(file).toMillis();
+            return OptionalLong.of(commitSeq);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable ledger snapshot {}", file, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    private static long read(FileChannel channel, Consumer<StockLedger.Level> levels,
+                             Consumer<InventoryReservation> reservations) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + TRAILER_SIZE) {
+            throw new IllegalStateException("Ledger snapshot is truncated");
+        }
+        ByteBuffer header = map(channel, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a version " + VERSION + " ledger snapshot");
+        }
+        verify(channel, size, header);
+        long commitSeq = header.getLong(8);
+        int productCount = header.getInt(24);
+        int reservationCount = header.getInt(28);
+
+        WindowReader in = new WindowReader(channel, size - TRAILER_SIZE);
+        String[] productIds = new String[productCount];
+        for (int i = 0; i < productCount; i++) {
+            ByteBuffer record = in.next();
+            String productId = getString(record);
+            String productName = getString(record);
+            long available = record.getLong();
+            long reserved = record.getLong();
+            boolean hot = record.get() != 0;
+            productIds[i] = productId;
+            levels.accept(new StockLedger.Level(productId, productName, available, reserved, hot));
+        }
+        for (int i = 0; i < reservationCount; i++) {
+            ByteBuffer record = in.next();
+            String orderId = getString(record);
+            ReservationStatus status = STATUSES[record.get()];
+            String failureReason = getString(record);
+            LocalDateTime createdAt = dateTime(record.getLong());
+            LocalDateTime expiresAt = dateTime(record.getLong());
+            int lineCount = record.getInt();
+            List<ReservationLine> lines = new ArrayList<>(lineCount);
+            for (int j = 0; j < lineCount; j++) {
+                int index = record.getInt();
+                String productId = index >= 0 ? productIds[index] : getString(record);
+                lines.add(new ReservationLine(productId, record.getLong()));
+            }
+            reservations.accept(InventoryReservation.builder()
+                    .orderId(orderId)
+                    .status(status)
+                    .failureReason(failureReason)
+                    .lines(lines)
+                    .createdAt(createdAt)
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+        return commitSeq;
+    }
+
+    // Checksums the whole file first, so a torn or corrupt snapshot never reaches the ledger
+    private static void verify(FileChannel channel, long size, ByteBuffer header) throws IOException {
+        CRC32C crc = new CRC32C();
+        long end = size - TRAILER_SIZE;
+        for (long position = HEADER_SIZE; position < end; position += REGION_SIZE) {
+            crc.update(map(channel, position, (int) Math.min(REGION_SIZE, end - position)));
+        }
+        crc.update(header.duplicate());
+        int expected = map(channel, end, TRAILER_SIZE).getInt(0);
+        if ((int) crc.getValue() != expected) {
+            throw new IllegalStateException("Ledger snapshot checksum mismatch");
+        }
+    }
+
+    /** Hands out one record at a time, remapping when the next one runs past the window. */
+    private static final class WindowReader {
+        private final FileChannel channel;
+        private final long end;
+        private ByteBuffer window;
+        private long windowStart = HEADER_SIZE;
+
+        private WindowReader(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+            this.window = ByteBuffer.allocate(0);
+        }
+
+        private ByteBuffer next() throws IOException {
+            ensure(4);
+            int length = window.getInt();
+            ensure(length);
+            ByteBuffer record = window.slice(window.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            window.position(window.position() + length);
+            return record;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return;
+            }
+            long position = windowStart + window.position();
+            if (end - position < bytes) {
+                throw new IllegalStateException("Ledger snapshot record runs past the end of the file");
+            }
+            window = map(channel, position, (int) Math.min(Math.max(REGION_SIZE, bytes), end - position));
+            windowStart = position;
+        }
+    }
+
+    private void abandon(Path draft) {
+        failures.increment();
+        try {
+            Files.deleteIfExists(draft);
+        } catch (IOException ignored) {
+            // the next write truncates it anyway
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + (bytes != null ? bytes.length : 0);
+    }
+
+    private static long micros(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime dateTime(long micros) {
+        if (micros == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,86 @@
+package com.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Periodically snapshots the stock ledger, and once more on shutdown so the next start has
+ * nothing to replay. A snapshot is only published after everything in it is durable.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LedgerSnapshotter implements SmartLifecycle {
+
+    private final StockLedger stockLedger;
+    private final InventoryWriteBehind writeBehind;
+    private final boolean onShutdown;
+    private final Duration awaitTimeout;
+
+    private volatile boolean running;
+
+    public LedgerSnapshotter(StockLedger stockLedger,
+                             InventoryWriteBehind writeBehind,
+                             @Value("${inventory.snapshot.on-shutdown:true}") boolean onShutdown,
+                             @Value("${inventory.write-behind.await-timeout:30s}") Duration awaitTimeout) {
+        this.stockLedger = stockLedger;
+        this.writeBehind = writeBehind;
+        this.onShutdown = onShutdown;
+        this.awaitTimeout = awaitTimeout;
+    }
+
+    @Scheduled(initialDelayString = "${inventory.snapshot.interval-ms:300000}",
+            fixedDelayString = "${inventory.snapshot.interval-ms:300000}")
+    public void snapshot() {
+        if (!running) {
+            return;
+        }
+        LedgerSnapshotStore.Draft draft = stockLedger.snapshot();
+        try {
+            writeBehind.flushed().get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            draft.discard();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Discarding ledger snapshot, its contents could not be made durable", e);
+            draft.discard();
+            return;
+        }
+        draft.publish();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        // The listeners have stopped, so this snapshot has everything
+        if (onShutdown) {
+            snapshot();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stopped before the ledger (0) and the write-behind (-1), after the listener containers
+        return 1;
+    }
+}
@@ -0,0 +1,298 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationStatus;
+import com.demo.event.InventoryUpdatedEvent;
+import com.demo.event.OrderCancelledEvent;
+import com.demo.event.OrderConfirmedEvent;
+import com.demo.kafka.InventoryEventProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lifecycle of reservation holds: a RESERVED order keeps its stock until order-service
+ * confirms it, the order is cancelled, or {@code inventory.holds.ttl} passes.
+ * <p>
+ * Each hold has a timeout in a {@link TimingWheel}; confirming or cancelling an order cancels
+ * its timeout in O(1), and expiry only ever touches the holds that are due, so there is no
+ * periodic scan of the reservations table. Releases give the stock back in the ledger at
+ * once, are written behind like any other status change, and are published as failed
+ * InventoryUpdatedEvents in batches once durable. An expiry whose write or publish fails is
+ * kept with its event and put back on the wheel {@code release-retry} later, until the event
+ * is out.
+ * <p>
+ * On startup the holds still RESERVED in the ledger are put back on the wheel with whatever
+ * is left of their TTL; overdue ones expire on the first tick.
+ */
+@Component
+@Slf4j
+public class ReservationHolds implements SmartLifecycle {
+
+    private final StockLedger stockLedger;
+    private final InventoryWriteBehind writeBehind;
+    private final InventoryEventProducer inventoryEventProducer;
+    private final TimingWheel<String> wheel;
+    private final ConcurrentHashMap<String, TimingWheel.Timeout<String>> timeouts = new ConcurrentHashMap<>();
+    // Expired in the ledger, event not published yet; only touched on the ticker thread
+    private final Map<String, InventoryUpdatedEvent> unpublished = new HashMap<>();
+    private final Duration holdTtl;
+    private final Duration releaseRetry;
+    private final int releaseBatchSize;
+    private final Duration awaitTimeout;
+
+    private final Counter cancelled;
+    private final Counter expired;
+    private final Counter confirmed;
+    private final Counter lateConfirmed;
+    private final Counter lateConfirmLost;
+    private final DistributionSummary releaseBatch;
+
+    private volatile boolean running;
+
+    public ReservationHolds(StockLedger stockLedger,
+                            InventoryWriteBehind writeBehind,
+                            InventoryEventProducer inventoryEventProducer,
+                            @Value("${inventory.holds.ttl:15m}") Duration holdTtl,
+                            @Value("${inventory.holds.tick:100ms}") Duration tick,
+                            @Value("${inventory.holds.release-retry:5s}") Duration releaseRetry,
+                            @Value("${inventory.holds.release-batch-size:1000}") int releaseBatchSize,
+                            @Value("${inventory.write-behind.await-timeout:30s}") Duration awaitTimeout,
+                            MeterRegistry meterRegistry) {
+        this.stockLedger = stockLedger;
+        this.writeBehind = writeBehind;
+        this.inventoryEventProducer = inventoryEventProducer;
+        this.wheel = new TimingWheel<>(tick, "inventory-hold-expiry", this::expire);
+        this.holdTtl = holdTtl;
+        this.releaseRetry = releaseRetry;
+        this.releaseBatchSize = releaseBatchSize;
+        this.awaitTimeout = awaitTimeout;
+
+        this.cancelled = releasedCounter(meterRegistry, "cancelled");
+        this.expired = releasedCounter(meterRegistry, "expired");
+        this.confirmed = Counter.builder("inventory.holds.confirmed")
+                .description("Holds made permanent by an order confirmation")
+                .register(meterRegistry);
+        this.lateConfirmed = Counter.builder("inventory.holds.late.confirmations")
+                .description("Confirmations of holds already released, taken again")
+                .tag("outcome", "retaken")
+                .register(meterRegistry);
+        this.lateConfirmLost = Counter.builder("inventory.holds.late.confirmations")
+                .description("Confirmations of holds already released, taken again")
+                .tag("outcome", "out_of_stock")
+                .register(meterRegistry);
+        this.releaseBatch = DistributionSummary.builder("inventory.holds.release.batch.size")
+                .description("Holds released per published batch")
+                .register(meterRegistry);
+        Gauge.builder("inventory.holds.active", wheel, TimingWheel::size)
+                .description("Holds waiting for confirmation or expiry")
+                .register(meterRegistry);
+    }
+
+    /** Starts the TTL of freshly decided reservations; rejections hold nothing. */
+    public void track(List<InventoryReservation> reservations) {
+        List<String> held = new ArrayList<>(reservations.size());
+        for (InventoryReservation reservation : reservations) {
+            if (reservation.getStatus() == ReservationStatus.RESERVED) {
+                held.add(reservation.getOrderId());
+            }
+        }
+        if (held.isEmpty()) {
+            return;
+        }
+        // Decided just now, so the ledger's TTL is still whole
+        List<TimingWheel.Timeout<String>> scheduled = wheel.scheduleAll(held, holdTtl);
+        for (TimingWheel.Timeout<String> timeout : scheduled) {
+            timeouts.put(timeout.value(), timeout);
+        }
+    }
+
+    /**
+     * Releases the holds of cancelled orders and publishes the releases. An order cancelled
+     * before anything was reserved is recorded as rejected, so a late payment can't reserve.
+     * A redelivered cancellation publishes its release again, in case the first publish failed.
+     */
+    public void releaseCancelled(List<OrderCancelledEvent> events) {
+        List<InventoryUpdatedEvent> released = new ArrayList<>();
+        for (OrderCancelledEvent event : events) {
+            cancelTimeout(event.orderId());
+            ReservationTransition transition = stockLedger.release(event.orderId(), ReservationStatus.RELEASED);
+            if (transition != null) {
+                cancelled.increment();
+                released.add(releaseEvent(event.orderId(), "Reservation released: " + event.reason()));
+            } else {
+                StockLedger.Result result = stockLedger.rejectIfAbsent(event.orderId(),
+                        "Order cancelled before stock was reserved");
+                if (!result.fresh() && result.reservation().getStatus() == ReservationStatus.RELEASED) {
+                    released.add(releaseEvent(event.orderId(), "Reservation released: " + event.reason()));
+                }
+            }
+        }
+        await(writeBehind.flushed(), "persisting " + events.size() + " cancellations");
+        publish(released);
+    }
+
+    /** Makes the holds of confirmed orders permanent. */
+    public void confirm(List<OrderConfirmedEvent> events) {
+        for (OrderConfirmedEvent event : events) {
+            cancelTimeout(event.orderId());
+            InventoryReservation before = stockLedger.reservation(event.orderId());
+            ReservationTransition transition = stockLedger.confirm(event.orderId());
+            if (transition == null) {
+                if (before != null && (before.getStatus() == ReservationStatus.RELEASED
+                        || before.getStatus() == ReservationStatus.EXPIRED)) {
+                    lateConfirmLost.increment();
+                    log.error("Order {} confirmed after its hold was {} and the stock is gone",
+                            event.orderId(), before.getStatus());
+                }
+                continue;
+            }
+            if (transition.from() == ReservationStatus.RESERVED) {
+                confirmed.increment();
+            } else {
+                lateConfirmed.increment();
+                log.warn("Order {} confirmed after its hold was {}, stock taken again",
+                        event.orderId(), transition.from());
+            }
+        }
+        await(writeBehind.flushed(), "persisting " + events.size() + " confirmations");
+    }
+
+    /**
+     * Runs on the wheel's ticker thread and never throws: an order whose release could not be
+     * decided, persisted or published is re-armed on the wheel, and the rest of the batch
+     * carries on. A re-armed order that already expired publishes its kept event again.
+     */
+    void expire(List<String> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += releaseBatchSize) {
+            List<String> chunk = orderIds.subList(from, Math.min(orderIds.size(), from + releaseBatchSize));
+            List<InventoryUpdatedEvent> released = new ArrayList<>(chunk.size());
+            List<String> retry = new ArrayList<>();
+            for (String orderId : chunk) {
+                timeouts.remove(orderId);
+                InventoryUpdatedEvent event = unpublished.remove(orderId);
+                try {
+                    if (event == null && stockLedger.release(orderId, ReservationStatus.EXPIRED) != null) {
+                        expired.increment();
+                        event = releaseEvent(orderId, "Reservation expired before the order was confirmed");
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Could not expire the hold of order {}", orderId, e);
+                    retry.add(orderId);
+                }
+                if (event != null) {
+                    released.add(event);
+                }
+            }
+            if (!released.isEmpty()) {
+                try {
+                    await(writeBehind.flushed(), "persisting " + released.size() + " expired holds");
+                    publish(released);
+                    log.info("Released {} expired holds", released.size());
+                } catch (RuntimeException e) {
+                    log.error("Could not persist or publish {} expired holds", released.size(), e);
+                    for (InventoryUpdatedEvent event : released) {
+                        unpublished.put(event.orderId(), event);
+                        retry.add(event.orderId());
+                    }
+                }
+            }
+            if (!retry.isEmpty()) {
+                wheel.scheduleAll(retry, releaseRetry);
+                log.warn("Retrying {} hold expiries in {}", retry.size(), releaseRetry);
+            }
+        }
+    }
+
+    private void cancelTimeout(String orderId) {
+        TimingWheel.Timeout<String> timeout = timeouts.remove(orderId);
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    private void publish(List<InventoryUpdatedEvent> released) {
+        if (released.isEmpty()) {
+            return;
+        }
+        releaseBatch.record(released.size());
+        await(inventoryEventProducer.publishInventoryUpdated(released), "publishing " + released.size() + " releases");
+    }
+
+    private void await(CompletableFuture<?> future, String what) {
+        try {
+            future.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while " + what, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed " + what, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out " + what, e);
+        }
+    }
+
+    private static InventoryUpdatedEvent releaseEvent(String orderId, String message) {
+        return new InventoryUpdatedEvent(orderId, false, message, LocalDateTime.now());
+    }
+
+    @Override
+    public void start() {
+        LocalDateTime now = LocalDateTime.now();
+        int[] restored = new int[1];
+        stockLedger.forEachReservation(reservation -> {
+            if (reservation.getStatus() != ReservationStatus.RESERVED) {
+                return;
+            }
+            Duration left = reservation.getExpiresAt() != null
+                    ? Duration.between(now, reservation.getExpiresAt())
+                    : Duration.ZERO;
+            timeouts.put(reservation.getOrderId(), wheel.schedule(reservation.getOrderId(), left));
+            restored[0]++;
+        });
+        wheel.start();
+        running = true;
+        log.info("Restored {} reservation holds", restored[0]);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        wheel.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // After the ledger is loaded (0), before the listener containers (DEFAULT_PHASE - 100)
+        return 1;
+    }
+
+    private static Counter releasedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("inventory.holds.released")
+                .description("Holds given back, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.demo.service;
+
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+
+import java.util.List;
+
+/**
+ * A reservation moving from one status to another. If that changes whether stock is held,
+ * the lines' quantities move between available and reserved.
+ */
+public record ReservationTransition(String orderId, ReservationStatus from, ReservationStatus to,
+                                    List<ReservationLine> lines) {
+
+    /** +1 if the transition takes stock, -1 if it gives stock back, 0 otherwise. */
+    public int heldDelta() {
+        return (to.holdsStock() ? 1 : 0) - (from.holdsStock() ? 1 : 0);
+    }
+}
@@ -0,0 +1,147 @@
+package com.demo.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Free stock of one hot product split into per-thread shards.
+ * <p>
+ * Each thread takes from its home shard with a single CAS that never lets the shard go
+ * below zero, so threads on different shards don't touch the same cache line. When the home
+ * shard can't cover a request, the stock is rebalanced under a lock: every shard is drained,
+ * the request is served from the total if it can be, and the rest is spread evenly again.
+ * Stock only moves between shards by draining, never by copying, so the sum of the shards
+ * plus what a rebalance holds is always the exact free stock and a reservation can't oversell.
+ * <p>
+ * Near sell-out most requests end up rebalancing, i.e. serialized on the lock, like an
+ * unsharded product.
+ */
+public final class ShardedStock {
+
+    // 16 longs = 128 bytes between shards, so no two share a cache line (or an adjacent-line prefetch)
+    private static final int STRIDE = 16;
+    private static final AtomicInteger NEXT_HOME = new AtomicInteger();
+    private static final ThreadLocal<Integer> HOME = ThreadLocal.withInitial(NEXT_HOME::getAndIncrement);
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    private final LongAdder reserved = new LongAdder();
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    // Guarded by rebalanceLock, read racily by metrics
+    private volatile long rebalances;
+    private volatile long exhausted;
+
+    /** {@code shards} is rounded up to a power of two. */
+    public ShardedStock(int shards, long available, long reserved) {
+        int size = shards <= 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.cells = new AtomicLongArray(size * STRIDE);
+        this.mask = size - 1;
+        this.reserved.add(reserved);
+        spread(available, 0);
+    }
+
+    /** Takes {@code quantity} from the free stock and moves it to reserved, or takes nothing. */
+    public boolean take(long quantity) {
+        int home = HOME.get() & mask;
+        int cell = home * STRIDE;
+        long current = cells.get(cell);
+        while (current >= quantity) {
+            long witness = cells.compareAndExchange(cell, current, current - quantity);
+            if (witness == current) {
+                reserved.add(quantity);
+                return true;
+            }
+            current = witness;
+        }
+        return rebalanceAndTake(quantity, home);
+    }
+
+    /** Returns stock from an earlier {@link #take}: an order rejected on another line, or a released hold. */
+    public void giveBack(long quantity) {
+        cells.getAndAdd((HOME.get() & mask) * STRIDE, quantity);
+        reserved.add(-quantity);
+    }
+
+    /**
+     * Replaces the free stock and returns the difference to what it was. Requests racing
+     * this are served from either the old or the new stock, never both.
+     */
+    public long setAvailable(long available) {
+        rebalanceLock.lock();
+        try {
+            long previous = drain();
+            spread(available, 0);
+            return available - previous;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /** Sum of the shards; exact when no request is in flight. */
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(i * STRIDE);
+        }
+        return sum;
+    }
+
+    public long reserved() {
+        return reserved.sum();
+    }
+
+    public int shards() {
+        return mask + 1;
+    }
+
+    public long shardAvailable(int shard) {
+        return cells.get(shard * STRIDE);
+    }
+
+    public long rebalances() {
+        return rebalances;
+    }
+
+    /** Requests that found too little stock even after draining every shard. */
+    public long exhausted() {
+        return exhausted;
+    }
+
+    private boolean rebalanceAndTake(long quantity, int home) {
+        rebalanceLock.lock();
+        try {
+            long total = drain();
+            rebalances++;
+            if (total < quantity) {
+                exhausted++;
+                spread(total, home);
+                return false;
+            }
+            spread(total - quantity, home);
+            reserved.add(quantity);
+            return true;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    private long drain() {
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += cells.getAndSet(i * STRIDE, 0);
+        }
+        return total;
+    }
+
+    // Even split, the remainder to the shard that asked
+    private void spread(long total, int home) {
+        long each = total / (mask + 1);
+        for (int i = 0; i <= mask; i++) {
+            cells.getAndAdd(i * STRIDE, each);
+        }
+        cells.getAndAdd(home * STRIDE, total - each * (mask + 1));
+    }
+}
@@ -0,0 +1,6 @@
+package com.demo.service;
+
+/**
+ * A stock delta that is not part of a reservation, e.g. a restock through the API.
+ */
+public record StockChange(String productId, String productName, long availableDelta, long reservedDelta) {}
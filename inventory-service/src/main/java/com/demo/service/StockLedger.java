@@ -0,0 +1,685 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+import com.demo.event.OrderItemEvent;
+import com.demo.repository.InventoryBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The live stock levels and every reservation decided since startup, held in memory.
+ * <p>
+ * Levels are guarded by a fixed array of lock stripes picked by product id hash. A reservation
+ * locks the stripes of all its products in ascending stripe order (so two orders can never
+ * deadlock), checks every line, and only then takes the stock: either all lines are reserved
+ * or none, and no other reservation sees a partial state. Orders on disjoint products mostly
+ * hit different stripes and run in parallel.
+ * <p>
+ * A stripe still serializes everyone reserving the same product. Products that get more
+ * than {@code inventory.hot-keys.promote-threshold} reservations in a scan window (see
+ * {@link HotKeyDetector}) are promoted to a {@link ShardedStock}, whose per-thread shards
+ * are taken without the ledger lock.
+ * <p>
+ * Reservations are keyed by orderId, so a redelivered event gets the original outcome back
+ * instead of reserving twice. Every decision and status change is appended to
+ * {@link InventoryWriteBehind} while the order's map entry is held, which keeps the database
+ * trailing behind the ledger in the same order. The ledger is loaded before the listener
+ * containers start: from the last {@link LedgerSnapshotStore snapshot} plus the rows changed
+ * after it if there is one, otherwise from {@code product_stock} and the stored reservations.
+ * <p>
+ * Because decisions are made from this memory alone, exactly one instance of the service may
+ * run against a database; {@link LedgerOwnership} holds a lock for that before the ledger loads.
+ */
+@Component
+@Slf4j
+public class StockLedger implements SmartLifecycle {
+
+    /** Outcome of {@link #reserve}; {@code fresh} is false for a reservation decided earlier. */
+    public record Result(InventoryReservation reservation, boolean fresh) {}
+
+    /** Point-in-time copy of one product's level. */
+    public record Level(String productId, String productName, long available, long reserved, boolean hot) {}
+
+    private static final class StockLevel {
+        private final String productId;
+        private String productName;
+        private long available;
+        private long reserved;
+        // Reservations since the last hot-key scan
+        private long hits;
+        // Set once on promotion; from then on the stock lives here and available/reserved are unused
+        private volatile ShardedStock hot;
+
+        private StockLevel(String productId) {
+            this.productId = productId;
+        }
+    }
+
+    private final InventoryBatchRepository batchRepository;
+    private final InventoryWriteBehind writeBehind;
+    private final LedgerSnapshotStore snapshotStore;
+    private final Duration holdTtl;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<String, StockLevel> levels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, InventoryReservation> reservations = new ConcurrentHashMap<>();
+    // Reservation changes in progress, counted per snapshot epoch; see snapshot()
+    private final LongAdder[] changesInFlight = {new LongAdder(), new LongAdder()};
+    private volatile int epoch;
+
+    private final Counter reserved;
+    private final Counter rejected;
+    private final Counter duplicates;
+    private final Counter promotions;
+    private final MeterRegistry meterRegistry;
+    private final int hotShards;
+
+    private volatile boolean running;
+
+    public StockLedger(InventoryBatchRepository batchRepository,
+                       PlatformTransactionManager transactionManager,
+                       InventoryWriteBehind writeBehind,
+                       LedgerSnapshotStore snapshotStore,
+                       @Value("${inventory.holds.ttl:15m}") Duration holdTtl,
+                       @Value("${inventory.ledger.lock-stripes:1024}") int lockStripes,
+                       @Value("${inventory.hot-keys.shards:0}") int hotShards,
+                       MeterRegistry meterRegistry) {
+        this.batchRepository = batchRepository;
+        this.writeBehind = writeBehind;
+        this.snapshotStore = snapshotStore;
+        this.holdTtl = holdTtl;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Power of two so the stripe is a mask of the spread hash
+        int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        this.reserved = outcomeCounter(meterRegistry, "reserved");
+        this.rejected = outcomeCounter(meterRegistry, "rejected");
+        this.duplicates = outcomeCounter(meterRegistry, "duplicate");
+        this.meterRegistry = meterRegistry;
+        this.hotShards = hotShards > 0 ? hotShards : Runtime.getRuntime().availableProcessors();
+        this.promotions = Counter.builder("inventory.hot.promotions")
+                .description("Products switched to sharded stock")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.hot.products", levels,
+                l -> l.values().stream().filter(level -> level.hot != null).count());
+        meterRegistry.gauge("inventory.ledger.products", levels, Map::size);
+        meterRegistry.gauge("inventory.ledger.reservations", reservations, Map::size);
+    }
+
+    /**
+     * Reserves all items of an order or none of them. Quantities of repeated products are
+     * added up first; an unknown product or a non-positive quantity rejects the whole order,
+     * and so does an order without items, which would otherwise hold nothing and still pass.
+     */
+    public Result reserve(String orderId, List<OrderItemEvent> items) {
+        InventoryReservation existing = reservations.get(orderId);
+        if (existing != null) {
+            duplicates.increment();
+            return new Result(existing, false);
+        }
+
+        boolean[] decided = new boolean[1];
+        // Only one partition consumer sees an order, so the bin lock is practically uncontended
+        InventoryReservation reservation = tracked(() -> reservations.computeIfAbsent(orderId, id -> {
+            decided[0] = true;
+            InventoryReservation decision = decide(id, items);
+            try {
+                writeBehind.append(decision);
+            } catch (RuntimeException e) {
+                if (decision.getStatus().holdsStock()) {
+                    returnAll(decision.getLines());
+                }
+                throw e;
+            }
+            return decision;
+        }));
+        if (!decided[0]) {
+            duplicates.increment();
+            return new Result(reservation, false);
+        }
+        (reservation.getStatus() == ReservationStatus.RESERVED ? reserved : rejected).increment();
+        return new Result(reservation, true);
+    }
+
+    public InventoryReservation reservation(String orderId) {
+        return reservations.get(orderId);
+    }
+
+    public void forEachReservation(Consumer<InventoryReservation> action) {
+        reservations.values().forEach(action);
+    }
+
+    /**
+     * Gives back the stock of a RESERVED order and moves it to {@code to} (RELEASED or
+     * EXPIRED). Returns null, changing nothing, if the order is in any other status.
+     */
+    public ReservationTransition release(String orderId, ReservationStatus to) {
+        ReservationTransition[] transition = new ReservationTransition[1];
+        tracked(() -> reservations.computeIfPresent(orderId, (id, current) -> {
+            if (current.getStatus() != ReservationStatus.RESERVED) {
+                return current;
+            }
+            transition[0] = new ReservationTransition(id, current.getStatus(), to, current.getLines());
+            // Appended first: if that fails the hold stays as it was
+            writeBehind.append(transition[0]);
+            returnAll(current.getLines());
+            return current.toBuilder().status(to).build();
+        }));
+        return transition[0];
+    }
+
+    /**
+     * Makes the hold of an order permanent. A hold that was already given back is taken again
+     * if the stock is still there. Returns null if nothing changed: already confirmed, rejected,
+     * unknown, or the stock is gone.
+     */
+    public ReservationTransition confirm(String orderId) {
+        ReservationTransition[] transition = new ReservationTransition[1];
+        tracked(() -> reservations.computeIfPresent(orderId, (id, current) -> {
+            ReservationStatus from = current.getStatus();
+            boolean held = from == ReservationStatus.RESERVED;
+            boolean retaken = !held && (from == ReservationStatus.RELEASED || from == ReservationStatus.EXPIRED)
+                    && takeAll(current.getLines()) == null;
+            if (!held && !retaken) {
+                return current;
+            }
+            transition[0] = new ReservationTransition(id, from, ReservationStatus.CONFIRMED, current.getLines());
+            try {
+                writeBehind.append(transition[0]);
+            } catch (RuntimeException e) {
+                if (retaken) {
+                    returnAll(current.getLines());
+                }
+                throw e;
+            }
+            return current.toBuilder().status(ReservationStatus.CONFIRMED).build();
+        }));
+        return transition[0];
+    }
+
+    /**
+     * Records a rejection for an order that has no reservation yet, e.g. one cancelled before
+     * its payment came through, so a later reservation attempt gets rejected too.
+     */
+    public Result rejectIfAbsent(String orderId, String reason) {
+        boolean[] decided = new boolean[1];
+        InventoryReservation reservation = tracked(() -> reservations.computeIfAbsent(orderId, id -> {
+            decided[0] = true;
+            InventoryReservation rejection = rejection(id, reason, LocalDateTime.now());
+            writeBehind.append(rejection);
+            return rejection;
+        }));
+        return new Result(reservation, decided[0]);
+    }
+
+    public Level level(String productId) {
+        StockLevel level = levels.get(productId);
+        return level != null ? copyOf(level) : null;
+    }
+
+    /**
+     * Sets the free stock of a product, creating it if needed, and returns the change to
+     * persist. Stock already held by reservations is left alone.
+     */
+    public StockChange setAvailable(String productId, String productName, long available) {
+        if (available < 0) {
+            throw new IllegalArgumentException("Available stock must not be negative: " + available);
+        }
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            StockLevel level = levels.computeIfAbsent(productId, StockLevel::new);
+            if (productName != null) {
+                level.productName = productName;
+            }
+            long delta;
+            if (level.hot != null) {
+                delta = level.hot.setAvailable(available);
+            } else {
+                delta = available - level.available;
+                level.available = available;
+            }
+            return new StockChange(productId, level.productName, delta, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes stock of one product without recording a reservation, the same way an order line
+     * is taken. Returns false, taking nothing, for an unknown product or too little stock.
+     */
+    public boolean tryTake(String productId, long quantity) {
+        return takeAll(List.of(new ReservationLine(productId, quantity))) == null;
+    }
+
+    /**
+     * Switches a product to sharded stock. Stock and reserved move over as they are, so the
+     * totals stay exact; there is no way back short of a restart.
+     */
+    public boolean promote(String productId) {
+        StockLevel level = levels.get(productId);
+        if (level == null || level.hot != null) {
+            return false;
+        }
+        ReentrantLock lock = stripeFor(productId);
+        lock.lock();
+        try {
+            if (level.hot != null) {
+                return false;
+            }
+            ShardedStock hot = new ShardedStock(hotShards, level.available, level.reserved);
+            level.available = 0;
+            level.reserved = 0;
+            level.hot = hot;
+        } finally {
+            lock.unlock();
+        }
+        registerShardMetrics(productId, level.hot);
+        promotions.increment();
+        log.info("Product {} is hot, stock split into {} shards", productId, level.hot.shards());
+        return true;
+    }
+
+    /**
+     * Promotes every product that had at least {@code threshold} reservations since the last
+     * scan and resets the counts. Returns the newly promoted product ids.
+     */
+    public List<String> promoteHotProducts(long threshold) {
+        List<String> promoted = new ArrayList<>();
+        for (StockLevel level : levels.values()) {
+            if (level.hot != null) {
+                continue;
+            }
+            long hits;
+            ReentrantLock lock = stripeFor(level.productId);
+            lock.lock();
+            try {
+                hits = level.hits;
+                level.hits = 0;
+            } finally {
+                lock.unlock();
+            }
+            if (hits >= threshold && promote(level.productId)) {
+                promoted.add(level.productId);
+            }
+        }
+        return promoted;
+    }
+
+    /** The sharded stock of every hot product. */
+    public Map<String, ShardedStock> hotProducts() {
+        Map<String, ShardedStock> hot = new TreeMap<>();
+        levels.forEach((productId, level) -> {
+            if (level.hot != null) {
+                hot.put(productId, level.hot);
+            }
+        });
+        return hot;
+    }
+
+    /**
+     * Writes a snapshot of the ledger while reservations go on. It is consistent with the
+     * write-behind commit it returns: every change committed up to there is in it, and a row
+     * changed by a later commit may or may not be, which is why a restore reloads those rows.
+     * The draft may hold changes that are not durable yet; publish it only after a
+     * {@link InventoryWriteBehind#flushed} barrier taken after this returns.
+     */
+    public synchronized LedgerSnapshotStore.Draft snapshot() {
+        long commitSeq = writeBehind.committedSeq();
+        // A change is appended to the write-behind inside its map update, so one that is
+        // already committed can still be on its way into the map. Wait for every change that
+        // started before the flip; changes starting after it count in the other epoch.
+        int previous = epoch;
+        epoch = previous ^ 1;
+        while (changesInFlight[previous].sum() != 0) {
+            LockSupport.parkNanos(100_000);
+        }
+        return snapshotStore.write(commitSeq, writer -> {
+            // Cold levels are copied under their stripe lock, so a copy is never half a reservation
+            levels.values().forEach(level -> writer.level(copyOf(level)));
+            reservations.values().forEach(writer::reservation);
+        });
+    }
+
+    private InventoryReservation decide(String orderId, List<OrderItemEvent> items) {
+        LocalDateTime now = LocalDateTime.now();
+        if (items.isEmpty()) {
+            return rejection(orderId, "Order has no items", now);
+        }
+        Map<String, Long> quantities = new TreeMap<>();
+        for (OrderItemEvent item : items) {
+            if (item.productId() == null || item.quantity() == null || item.quantity() <= 0) {
+                return rejection(orderId, "Invalid item " + item.productId() + " x " + item.quantity(), now);
+            }
+            quantities.merge(item.productId(), item.quantity().longValue(), Long::sum);
+        }
+
+        List<ReservationLine> lines = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> lines.add(new ReservationLine(productId, quantity)));
+
+        String failure = takeAll(lines);
+        if (failure != null) {
+            return rejection(orderId, failure, now);
+        }
+
+        return InventoryReservation.builder()
+                .orderId(orderId)
+                .status(ReservationStatus.RESERVED)
+                .lines(lines)
+                .createdAt(now)
+                .expiresAt(now.plus(holdTtl))
+                .build();
+    }
+
+    /**
+     * Takes stock for all lines or none and returns null, or the reason nothing was taken.
+     * <p>
+     * Stripes are only locked for products that are not hot; a hot product's stock is taken
+     * from its {@link ShardedStock} without any ledger lock. Since promotion needs the stripe
+     * lock, nothing locked here can turn hot, and a hot product never turns back. Locked
+     * lines are checked before any hot stock is taken, so only a hot line can fail after
+     * stock was taken; that stock is given back.
+     */
+    private String takeAll(List<ReservationLine> lines) {
+        int[] stripeIndexes = lines.stream()
+                .filter(line -> !isHot(line.getProductId()))
+                .mapToInt(line -> stripeIndex(line.getProductId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int i : stripeIndexes) {
+            stripes[i].lock();
+        }
+        try {
+            for (ReservationLine line : lines) {
+                StockLevel level = levels.get(line.getProductId());
+                if (level == null) {
+                    return "Unknown product " + line.getProductId();
+                }
+                if (level.hot == null && level.available < line.getQuantity()) {
+                    return "Insufficient stock for " + line.getProductId()
+                            + ": requested " + line.getQuantity() + ", available " + level.available;
+                }
+            }
+            for (int i = 0; i < lines.size(); i++) {
+                ReservationLine line = lines.get(i);
+                ShardedStock hot = levels.get(line.getProductId()).hot;
+                if (hot != null && !hot.take(line.getQuantity())) {
+                    for (int j = 0; j < i; j++) {
+                        ShardedStock taken = levels.get(lines.get(j).getProductId()).hot;
+                        if (taken != null) {
+                            taken.giveBack(lines.get(j).getQuantity());
+                        }
+                    }
+                    return "Insufficient stock for " + line.getProductId()
+                            + ": requested " + line.getQuantity() + ", available " + hot.available();
+                }
+            }
+            for (ReservationLine line : lines) {
+                StockLevel level = levels.get(line.getProductId());
+                if (level.hot == null) {
+                    level.available -= line.getQuantity();
+                    level.reserved += line.getQuantity();
+                    level.hits++;
+                }
+            }
+            return null;
+        } finally {
+            for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+
+    /** Puts the stock of taken lines back, hot lines to their shards. */
+    private void returnAll(List<ReservationLine> lines) {
+        int[] stripeIndexes = lines.stream()
+                .filter(line -> !isHot(line.getProductId()))
+                .mapToInt(line -> stripeIndex(line.getProductId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int i : stripeIndexes) {
+            stripes[i].lock();
+        }
+        try {
+            for (ReservationLine line : lines) {
+                StockLevel level = levels.get(line.getProductId());
+                if (level.hot != null) {
+                    level.hot.giveBack(line.getQuantity());
+                } else {
+                    level.available += line.getQuantity();
+                    level.reserved -= line.getQuantity();
+                }
+            }
+        } finally {
+            for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+
+    private boolean isHot(String productId) {
+        StockLevel level = levels.get(productId);
+        return level != null && level.hot != null;
+    }
+
+    private Level copyOf(StockLevel level) {
+        ShardedStock hot = level.hot;
+        if (hot != null) {
+            return new Level(level.productId, level.productName, hot.available(), hot.reserved(), true);
+        }
+        ReentrantLock lock = stripeFor(level.productId);
+        lock.lock();
+        try {
+            if (level.hot != null) {
+                return new Level(level.productId, level.productName, level.hot.available(), level.hot.reserved(), true);
+            }
+            return new Level(level.productId, level.productName, level.available, level.reserved, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs a reservation change counted in the current epoch. The epoch is checked again after
+    // counting, so a change is never counted in an epoch a snapshot has already flipped away from.
+    private <T> T tracked(Supplier<T> change) {
+        LongAdder counter;
+        while (true) {
+            int current = epoch;
+            counter = changesInFlight[current];
+            counter.increment();
+            if (epoch == current) {
+                break;
+            }
+            counter.decrement();
+        }
+        try {
+            return change.get();
+        } finally {
+            counter.decrement();
+        }
+    }
+
+    private static InventoryReservation rejection(String orderId, String reason, LocalDateTime now) {
+        return InventoryReservation.builder()
+                .orderId(orderId)
+                .status(ReservationStatus.REJECTED)
+                .failureReason(reason)
+                .createdAt(now)
+                .build();
+    }
+
+    private ReentrantLock stripeFor(String productId) {
+        return stripes[stripeIndex(productId)];
+    }
+
+    private int stripeIndex(String productId) {
+        int h = productId.hashCode();
+        return (h ^ h >>> 16) & (stripes.length - 1);
+    }
+
+    @Override
+    public void start() {
+        long started = System.nanoTime();
+        Set<String> hot = new HashSet<>();
+        long snapshotSeq = restoreSnapshot(hot);
+        if (snapshotSeq >= 0) {
+            replaySince(snapshotSeq, hot);
+        } else {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                batchRepository.loadStock(this::putLevel);
+                batchRepository.loadReservations(reservation -> reservations.put(reservation.getOrderId(), reservation));
+            });
+        }
+        hot.forEach(this::promote);
+        running = true;
+        log.info("Stock ledger loaded {} products and {} reservations {} in {} ms ({} lock stripes)",
+                levels.size(), reservations.size(),
+                snapshotSeq >= 0 ? "from the snapshot at commit " + snapshotSeq : "from the database",
+                Duration.ofNanos(System.nanoTime() - started).toMillis(), stripes.length);
+    }
+
+    // Returns the snapshot's commit sequence, or -1 with nothing loaded if there is no usable one
+    private long restoreSnapshot(Set<String> hot) {
+        OptionalLong restored = snapshotStore.restore(level -> {
+            putLevel(level.productId(), level.productName(), level.available(), level.reserved());
+            if (level.hot()) {
+                hot.add(level.productId());
+            }
+        }, reservation -> reservations.put(reservation.getOrderId(), reservation));
+        if (restored.isEmpty()) {
+            return -1;
+        }
+        long databaseSeq = writeBehind.committedSeq();
+        if (restored.getAsLong() > databaseSeq) {
+            // The database was reset or restored from a backup; the snapshot describes another history
+            log.warn("Ignoring ledger snapshot at commit {}, the database is only at {}",
+                    restored.getAsLong(), databaseSeq);
+            levels.clear();
+            reservations.clear();
+            hot.clear();
+            return -1;
+        }
+        return restored.getAsLong();
+    }
+
+    /**
+     * Reloads the rows committed after the snapshot over what it restored. Hot products are
+     * always reloaded: their shards are read without a lock, so the snapshot can have caught
+     * one between taking stock for an order and giving it back when another line failed.
+     */
+    private void replaySince(long snapshotSeq, Set<String> hot) {
+        long started = System.nanoTime();
+        int[] replayed = new int[2];
+        readOnlyTransaction.executeWithoutResult(status -> {
+            batchRepository.loadStockChangedSince(snapshotSeq, hot, (productId, productName, available, reservedQuantity) -> {
+                putLevel(productId, productName, available, reservedQuantity);
+                replayed[0]++;
+            });
+            batchRepository.loadReservationsChangedSince(snapshotSeq, reservation -> {
+                reservations.put(reservation.getOrderId(), reservation);
+                replayed[1]++;
+            });
+        });
+        Timer.builder("inventory.snapshot.replay")
+                .description("Time to reload the rows changed after the ledger snapshot at startup")
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        Counter.builder("inventory.snapshot.replayed")
+                .description("Rows reloaded after the ledger snapshot at startup")
+                .tag("table", "product_stock")
+                .register(meterRegistry)
+                .increment(replayed[0]);
+        Counter.builder("inventory.snapshot.replayed")
+                .description("Rows reloaded after the ledger snapshot at startup")
+                .tag("table", "inventory_reservations")
+                .register(meterRegistry)
+                .increment(replayed[1]);
+        log.info("Replayed {} stock rows and {} reservations committed after snapshot commit {} in {} ms",
+                replayed[0], replayed[1], snapshotSeq, Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void putLevel(String productId, String productName, long available, long reservedQuantity) {
+        StockLevel level = new StockLevel(productId);
+        level.productName = productName;
+        level.available = available;
+        level.reserved = reservedQuantity;
+        levels.put(productId, level);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before the listener containers (DEFAULT_PHASE - 100) start consuming
+        return 0;
+    }
+
+    private void registerShardMetrics(String productId, ShardedStock hot) {
+        for (int i = 0; i < hot.shards(); i++) {
+            int shard = i;
+            Gauge.builder("inventory.hot.shard.available", hot, h -> h.shardAvailable(shard))
+                    .description("Free stock held by one shard of a hot product")
+                    .tags("product", productId, "shard", Integer.toString(shard))
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("inventory.hot.rebalances", hot, ShardedStock::rebalances)
+                .description("Times a shard ran dry and the product's stock was redistributed")
+                .tag("product", productId)
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.hot.exhausted", hot, ShardedStock::exhausted)
+                .description("Requests rejected after draining every shard")
+                .tag("product", productId)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("inventory.reservations")
+                .description("Reservation requests by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,280 @@
+package com.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hierarchical timing wheel: four levels of 512 buckets, the first one tick wide, each next
+ * level 512 times coarser. With a 100 ms tick the levels span 51 s, 7 h, 155 days and beyond.
+ * <p>
+ * A timeout goes into the bucket of the finest level that still covers its deadline; a bucket
+ * is a doubly linked list, so scheduling and cancelling are O(1) whatever the number of
+ * outstanding timeouts. The ticker thread only visits the bucket of the current tick and,
+ * when a level wraps, re-files the next coarser bucket one level down. Nothing ever scans
+ * all timeouts.
+ * <p>
+ * Expired values are handed to the callback in one list per advance, on the ticker thread.
+ * If the callback is slow the wheel falls behind and catches up afterwards; timeouts fire
+ * late, never early. The values have left the wheel by then, so a callback that can fail must
+ * keep what it could not handle itself, e.g. by scheduling it again.
+ */
+@Slf4j
+public final class TimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int WHEEL_BITS = 9;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    /** Handle of a scheduled value, for {@link #cancel}. */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadline;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private Bucket<T> bucket;
+
+        private Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T value() {
+            return value;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+        private Timeout<T> tail;
+
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /** Empties the bucket and returns its former head; the chain stays linked by next. */
+        private Timeout<T> detach() {
+            Timeout<T> first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+
+    private final Bucket<T>[][] buckets;
+    private final long tickNanos;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+    private final Consumer<List<T>> onExpired;
+    private final String threadName;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private long currentTick;
+    private int size;
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    public TimingWheel(Duration tick, String threadName, Consumer<List<T>> onExpired) {
+        this(tick, threadName, onExpired, System::nanoTime);
+    }
+
+    // Tests drive the clock and call advanceTo() themselves instead of starting the ticker
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tick, String threadName, Consumer<List<T>> onExpired, LongSupplier nanoClock) {
+        this.tickNanos = tick.toNanos();
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.onExpired = onExpired;
+        this.threadName = threadName;
+        this.buckets = new Bucket[LEVELS][WHEEL_SIZE];
+        for (Bucket<T>[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Bucket<>();
+            }
+        }
+    }
+
+    public Timeout<T> schedule(T value, Duration delay) {
+        lock.lock();
+        try {
+            return add(value, delay);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Schedules all values with the same delay under one lock acquisition. */
+    public List<Timeout<T>> scheduleAll(List<T> values, Duration delay) {
+        List<Timeout<T>> timeouts = new ArrayList<>(values.size());
+        lock.lock();
+        try {
+            for (T value : values) {
+                timeouts.add(add(value, delay));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeouts;
+    }
+
+    /** Returns false if the timeout already fired or was cancelled. */
+    public boolean cancel(Timeout<T> timeout) {
+        lock.lock();
+        try {
+            if (timeout.bucket == null) {
+                return false;
+            }
+            timeout.bucket.remove(timeout);
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Outstanding timeouts. */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void start() {
+        running = true;
+        ticker = Thread.ofPlatform().name(threadName).daemon().start(this::run);
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            List<T> expired = advanceTo(ticksNow());
+            if (!expired.isEmpty()) {
+                try {
+                    onExpired.accept(expired);
+                } catch (RuntimeException e) {
+                    // Keeps the ticker alive; the values are not fired again
+                    log.error("Expiry callback failed for {} timeouts, they are dropped", expired.size(), e);
+                }
+            }
+            long nextTickAt = startNanos + (ticksNow() + 1) * tickNanos;
+            LockSupport.parkNanos(nextTickAt - nanoClock.getAsLong());
+        }
+    }
+
+    List<T> advanceTo(long tick) {
+        List<T> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (currentTick < tick) {
+                currentTick++;
+                cascade();
+                for (Timeout<T> t = buckets[0][(int) (currentTick & WHEEL_MASK)].detach(); t != null; ) {
+                    Timeout<T> next = t.next;
+                    t.prev = null;
+                    t.next = null;
+                    t.bucket = null;
+                    size--;
+                    expired.add(t.value);
+                    t = next;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    // When level 0 wraps, re-file the level 1 bucket of the new window, and so on upwards;
+    // coarser levels first so their timeouts can still land in the finer bucket being re-filed
+    private void cascade() {
+        int wrapped = 0;
+        while (wrapped < LEVELS - 1 && (currentTick & ((1L << (WHEEL_BITS * (wrapped + 1))) - 1)) == 0) {
+            wrapped++;
+        }
+        for (int level = wrapped; level >= 1; level--) {
+            int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            for (Timeout<T> t = buckets[level][index].detach(); t != null; ) {
+                Timeout<T> next = t.next;
+                file(t);
+                t = next;
+            }
+        }
+    }
+
+    private Timeout<T> add(T value, Duration delay) {
+        // Rounded up to the first tick boundary at or after the due time, and never into the
+        // bucket being expired right now
+        long due = Math.ceilDiv(nanoClock.getAsLong() - startNanos + Math.max(0, delay.toNanos()), tickNanos);
+        long deadline = Math.min(Math.max(due, currentTick + 1), currentTick + MAX_DELAY_TICKS);
+        Timeout<T> timeout = new Timeout<>(value, deadline);
+        file(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Finest level whose window distance to the deadline is under one wheel turn
+    private void file(Timeout<T> timeout) {
+        // A cascaded timeout can be due this very tick; level 0 then files it into the
+        // bucket that is expired right after the cascade
+        long deadline = timeout.deadline;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * level;
+            long distance = level == 0 ? deadline - currentTick : (deadline >>> shift) - (currentTick >>> shift);
+            if (distance < WHEEL_SIZE || level == LEVELS - 1) {
+                buckets[level][(int) ((deadline >>> shift) & WHEEL_MASK)].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private long ticksNow() {
+        return (nanoClock.getAsLong() - startNanos) / tickNanos;
+    }
+}
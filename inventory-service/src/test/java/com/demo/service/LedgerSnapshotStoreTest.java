@@ -0,0 +1,179 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerSnapshotStoreTest {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+
+	@TempDir
+	Path dir;
+
+	private final List<StockLedger.Level> levels = new ArrayList<>();
+	private final List<InventoryReservation> reservations = new ArrayList<>();
+
+	@Test
+	void restoresWhatWasWritten() {
+		List<StockLedger.Level> written = List.of(
+				new StockLedger.Level("P-1", "Keyboard", 40, 2, false),
+				new StockLedger.Level("P-2", null, 0, 0, false),
+				new StockLedger.Level("P-3", "Cable – 2m", 1_000_000, 35, true));
+		List<InventoryReservation> writtenReservations = List.of(
+				reservation("order-1", ReservationStatus.RESERVED, null, CREATED.plusMinutes(15),
+						new ReservationLine("P-1", 2), new ReservationLine("P-3", 5)),
+				reservation("order-2", ReservationStatus.REJECTED, "Insufficient stock for P-2", null),
+				// A product created after the product records were written is stored inline
+				reservation("order-3", ReservationStatus.CONFIRMED, null, null, new ReservationLine("P-9", 1)),
+				reservation("order-4", ReservationStatus.EXPIRED, null, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1_000)));
+		LedgerSnapshotStore store = store(true);
+
+		store.write(42, writer -> {
+			written.forEach(writer::level);
+			writtenReservations.forEach(writer::reservation);
+		}).publish();
+
+		assertThat(restore(store)).hasValue(42);
+		assertThat(levels).containsExactlyElementsOf(written);
+		assertThat(reservations).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(writtenReservations);
+		// Lines share the product id String of the product record
+		assertThat(reservations.getFirst().getLines().getFirst().getProductId()).isSameAs(levels.getFirst().productId());
+	}
+
+	@Test
+	void restoresAnEmptyLedger() {
+		LedgerSnapshotStore store = store(true);
+		store.write(0, writer -> { }).publish();
+
+		assertThat(restore(store)).hasValue(0);
+		assertThat(levels).isEmpty();
+		assertThat(reservations).isEmpty();
+	}
+
+	@Test
+	void keepsThePublishedSnapshotUntilTheNextDraftIsPublished() {
+		LedgerSnapshotStore store = store(true);
+		store.write(1, writer -> writer.level(new StockLedger.Level("P-1", "Keyboard", 10, 0, false))).publish();
+
+		LedgerSnapshotStore.Draft draft = store.write(2,
+				writer -> writer.level(new StockLedger.Level("P-1", "Keyboard", 7, 3, false)));
+		assertThat(restore(store)).hasValue(1);
+
+		draft.discard();
+		assertThat(dir.resolve("ledger.snapshot.tmp")).doesNotExist();
+		assertThat(restore(store)).hasValue(1);
+	}
+
+	@Test
+	void rejectsASnapshotWhoseRecordsWereCorrupted() throws IOException {
+		LedgerSnapshotStore store = publishedSnapshot();
+		Path file = dir.resolve("ledger.snapshot");
+		byte[] bytes = Files.readAllBytes(file);
+		// Inside the first product record, past the header
+		bytes[40] ^= 0x01;
+		Files.write(file, bytes);
+
+		assertThat(restore(store)).isEmpty();
+		assertThat(levels).isEmpty();
+		assertThat(reservations).isEmpty();
+	}
+
+	@Test
+	void rejectsASnapshotWhoseHeaderWasCorrupted() throws IOException {
+		LedgerSnapshotStore store = publishedSnapshot();
+		Path file = dir.resolve("ledger.snapshot");
+		byte[] bytes = Files.readAllBytes(file);
+		// The commit sequence; the checksum covers the header too
+		bytes[8] ^= 0x01;
+		Files.write(file, bytes);
+
+		assertThat(restore(store)).isEmpty();
+		assertThat(levels).isEmpty();
+	}
+
+	@Test
+	void rejectsATruncatedOrForeignFile() throws IOException {
+		LedgerSnapshotStore store = publishedSnapshot();
+		Path file = dir.resolve("ledger.snapshot");
+		byte[] bytes = Files.readAllBytes(file);
+
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+		assertThat(restore(store)).isEmpty();
+
+		Files.write(file, Arrays.copyOf(bytes, 20));
+		assertThat(restore(store)).isEmpty();
+
+		bytes[0] = 'X';
+		Files.write(file, bytes);
+		assertThat(restore(store)).isEmpty();
+		assertThat(levels).isEmpty();
+	}
+
+	@Test
+	void restoresNothingWhenDisabledOrMissing() {
+		assertThat(restore(store(true))).isEmpty();
+
+		publishedSnapshot();
+		assertThat(restore(store(false))).isEmpty();
+	}
+
+	@Test
+	void refusesProductsAfterReservationsAndDropsTheDraft() {
+		LedgerSnapshotStore store = store(true);
+
+		assertThatThrownBy(() -> store.write(1, writer -> {
+			writer.reservation(reservation("order-1", ReservationStatus.REJECTED, "Unknown product P-1", null));
+			writer.level(new StockLedger.Level("P-1", "Keyboard", 10, 0, false));
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(dir.resolve("ledger.snapshot.tmp")).doesNotExist();
+	}
+
+	private LedgerSnapshotStore publishedSnapshot() {
+		LedgerSnapshotStore store = store(true);
+		store.write(7, writer -> {
+			writer.level(new StockLedger.Level("P-1", "Keyboard", 10, 2, false));
+			writer.reservation(reservation("order-1", ReservationStatus.RESERVED, null, CREATED.plusMinutes(15),
+					new ReservationLine("P-1", 2)));
+		}).publish();
+		return store;
+	}
+
+	private LedgerSnapshotStore store(boolean enabled) {
+		return new LedgerSnapshotStore(enabled, dir, new SimpleMeterRegistry());
+	}
+
+	private OptionalLong restore(LedgerSnapshotStore store) {
+		levels.clear();
+		reservations.clear();
+		return store.restore(levels::add, reservations::add);
+	}
+
+	private static InventoryReservation reservation(String orderId, ReservationStatus status, String failureReason,
+			LocalDateTime expiresAt, ReservationLine... lines) {
+		return InventoryReservation.builder()
+				.orderId(orderId)
+				.status(status)
+				.failureReason(failureReason)
+				.lines(List.of(lines))
+				.createdAt(CREATED)
+				.expiresAt(expiresAt)
+				.build();
+	}
+}
@@ -0,0 +1,108 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationStatus;
+import com.demo.kafka.InventoryEventProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReservationHoldsTest {
+
+	private final StockLedger stockLedger = mock(StockLedger.class);
+	private final InventoryWriteBehind writeBehind = mock(InventoryWriteBehind.class);
+	private final InventoryEventProducer producer = mock(InventoryEventProducer.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ReservationHolds holds = new ReservationHolds(stockLedger, writeBehind, producer,
+			Duration.ofMillis(200), Duration.ofMillis(10), Duration.ofSeconds(5), 1000, Duration.ofSeconds(1),
+			meterRegistry);
+
+	@AfterEach
+	void stop() {
+		if (holds.isRunning()) {
+			holds.stop();
+		}
+	}
+
+	@Test
+	void tracksOnlyReservedHoldsOfAMixedBatch() {
+		LocalDateTime now = LocalDateTime.now();
+		InventoryReservation rejected = InventoryReservation.builder()
+				.orderId("rejected")
+				.status(ReservationStatus.REJECTED)
+				.failureReason("Insufficient stock")
+				.createdAt(now)
+				.build();
+		InventoryReservation reserved = InventoryReservation.builder()
+				.orderId("reserved")
+				.status(ReservationStatus.RESERVED)
+				.createdAt(now)
+				.expiresAt(now.plusMinutes(15))
+				.build();
+
+		holds.track(List.of(rejected, reserved));
+
+		assertThat(meterRegistry.get("inventory.holds.active").gauge().value()).isEqualTo(1.0);
+	}
+
+	@Test
+	void expiresTrackedHoldsAfterTheConfiguredTtl() {
+		LocalDateTime now = LocalDateTime.now();
+		holds.start();
+
+		holds.track(List.of(InventoryReservation.builder()
+				.orderId("reserved")
+				.status(ReservationStatus.RESERVED)
+				.createdAt(now)
+				.expiresAt(now.plusMinutes(15))
+				.build()));
+
+		verify(stockLedger, timeout(2_000)).release("reserved", ReservationStatus.EXPIRED);
+		verify(stockLedger, never()).release("rejected", ReservationStatus.EXPIRED);
+	}
+
+	@Test
+	void republishesAnExpiryWhosePublishFailed() {
+		when(stockLedger.release("expired", ReservationStatus.EXPIRED)).thenReturn(mock(ReservationTransition.class));
+		when(writeBehind.flushed()).thenReturn(CompletableFuture.completedFuture(null));
+		when(producer.publishInventoryUpdated(anyList()))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+				.thenReturn(CompletableFuture.completedFuture(null));
+
+		holds.expire(List.of("expired"));
+		holds.expire(List.of("expired"));
+
+		// Released once in the ledger, the kept event published again
+		verify(stockLedger, times(1)).release("expired", ReservationStatus.EXPIRED);
+		verify(producer, times(2)).publishInventoryUpdated(argThat(events ->
+				events.size() == 1 && events.getFirst().orderId().equals("expired")));
+	}
+
+	@Test
+	void carriesOnWithTheBatchWhenOneExpiryFails() {
+		when(stockLedger.release("broken", ReservationStatus.EXPIRED)).thenThrow(new IllegalStateException("boom"));
+		when(stockLedger.release("expired", ReservationStatus.EXPIRED)).thenReturn(mock(ReservationTransition.class));
+		when(writeBehind.flushed()).thenReturn(CompletableFuture.completedFuture(null));
+		when(producer.publishInventoryUpdated(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+		holds.expire(List.of("broken", "expired"));
+
+		verify(producer).publishInventoryUpdated(argThat(events ->
+				events.size() == 1 && events.getFirst().orderId().equals("expired")));
+	}
+}
@@ -0,0 +1,141 @@
+package com.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedStockTest {
+
+	private static final int THREADS = 16;
+
+	@Test
+	void neverOversellsUnderContention() throws Exception {
+		ShardedStock stock = new ShardedStock(8, 10_000, 0);
+
+		List<Long> taken = race(() -> {
+			long sum = 0;
+			// Keep asking well past sell-out so most late requests go through the rebalance
+			for (int i = 0; i < 2_000; i++) {
+				long quantity = 1 + ThreadLocalRandom.current().nextInt(3);
+				if (stock.take(quantity)) {
+					sum += quantity;
+				}
+			}
+			return sum;
+		});
+
+		long total = taken.stream().mapToLong(Long::longValue).sum();
+		assertThat(total).isLessThanOrEqualTo(10_000);
+		assertThat(stock.reserved()).isEqualTo(total);
+		assertThat(stock.available()).isEqualTo(10_000 - total).isLessThan(3);
+		assertThat(stock.exhausted()).isPositive();
+	}
+
+	@Test
+	void conservesStockWhileTakesRaceGiveBacksAndRestocks() throws Exception {
+		ShardedStock stock = new ShardedStock(4, 1_000, 0);
+		CountDownLatch restocking = new CountDownLatch(1);
+
+		Thread restocker = Thread.ofPlatform().start(() -> {
+			restocking.countDown();
+			for (int i = 0; i < 200; i++) {
+				stock.setAvailable(stock.available() + 10);
+			}
+		});
+		assertThat(restocking.await(5, TimeUnit.SECONDS)).isTrue();
+
+		List<Long> kept = race(() -> {
+			long held = 0;
+			for (int i = 0; i < 5_000; i++) {
+				if (stock.take(2)) {
+					held += 2;
+					if (ThreadLocalRandom.current().nextBoolean()) {
+						stock.giveBack(2);
+						held -= 2;
+					}
+				}
+			}
+			return held;
+		});
+		restocker.join();
+
+		// Whatever the restocks did to free stock, reserved is exactly what callers still hold
+		assertThat(stock.reserved()).isEqualTo(kept.stream().mapToLong(Long::longValue).sum());
+		assertThat(stock.available()).isNotNegative();
+		for (int shard = 0; shard < stock.shards(); shard++) {
+			assertThat(stock.shardAvailable(shard)).isNotNegative();
+		}
+	}
+
+	@Test
+	void servesARequestLargerThanAnyShardByRebalancing() {
+		ShardedStock stock = new ShardedStock(4, 100, 5);
+
+		assertThat(stock.take(90)).isTrue();
+		assertThat(stock.rebalances()).isEqualTo(1);
+		assertThat(stock.available()).isEqualTo(10);
+		assertThat(stock.reserved()).isEqualTo(95);
+
+		assertThat(stock.take(11)).isFalse();
+		assertThat(stock.exhausted()).isEqualTo(1);
+		assertThat(stock.available()).isEqualTo(10);
+		assertThat(stock.reserved()).isEqualTo(95);
+	}
+
+	@Test
+	void roundsShardsUpToAPowerOfTwoAndSpreadsEvenly() {
+		ShardedStock stock = new ShardedStock(5, 803, 0);
+
+		assertThat(stock.shards()).isEqualTo(8);
+		long smallest = Long.MAX_VALUE;
+		for (int shard = 0; shard < stock.shards(); shard++) {
+			smallest = Math.min(smallest, stock.shardAvailable(shard));
+		}
+		assertThat(smallest).isEqualTo(100);
+		assertThat(stock.available()).isEqualTo(803);
+		assertThat(new ShardedStock(1, 10, 0).shards()).isEqualTo(1);
+	}
+
+	@Test
+	void reportsTheDifferenceARestockMade() {
+		ShardedStock stock = new ShardedStock(4, 40, 0);
+		stock.take(15);
+
+		assertThat(stock.setAvailable(100)).isEqualTo(75);
+		assertThat(stock.available()).isEqualTo(100);
+		assertThat(stock.reserved()).isEqualTo(15);
+	}
+
+	private interface Worker {
+		long run();
+	}
+
+	// Starts every worker on its own thread at once and returns their results
+	private static List<Long> race(Worker worker) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Long>> results = new ArrayList<>();
+		try (ExecutorService pool = Executors.newFixedThreadPool(THREADS)) {
+			for (int t = 0; t < THREADS; t++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					return worker.run();
+				}));
+			}
+			start.countDown();
+			List<Long> values = new ArrayList<>();
+			for (Future<Long> result : results) {
+				values.add(result.get(30, TimeUnit.SECONDS));
+			}
+			return values;
+		}
+	}
+}
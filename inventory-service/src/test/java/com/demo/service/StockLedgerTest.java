@@ -0,0 +1,174 @@
+package com.demo.service;
+
+import com.demo.entity.InventoryReservation;
+import com.demo.entity.ReservationLine;
+import com.demo.entity.ReservationStatus;
+import com.demo.event.OrderItemEvent;
+import com.demo.repository.InventoryBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class StockLedgerTest {
+
+	private final InventoryWriteBehind writeBehind = mock(InventoryWriteBehind.class);
+	private final StockLedger ledger = new StockLedger(mock(InventoryBatchRepository.class),
+			mock(PlatformTransactionManager.class), writeBehind, mock(LedgerSnapshotStore.class),
+			Duration.ofMinutes(15), 16, 4, new SimpleMeterRegistry());
+
+	@Test
+	void takesNothingWhenAColdLineIsShortNextToAHotOne() {
+		stock("cold", 1);
+		hot("hot", 10);
+
+		StockLedger.Result result = ledger.reserve("order-1", List.of(item("hot", 3), item("cold", 2)));
+
+		assertThat(result.reservation().getStatus()).isEqualTo(ReservationStatus.REJECTED);
+		assertThat(result.reservation().getFailureReason()).contains("cold");
+		assertLevel("cold", 1, 0);
+		assertLevel("hot", 10, 0);
+	}
+
+	@Test
+	void givesBackTheColdAndHotStockTakenBeforeAHotLineFails() {
+		stock("a-cold", 10);
+		hot("b-hot", 10);
+		hot("c-hot", 2);
+
+		// Lines are taken in product order, so b-hot is taken before c-hot runs short
+		StockLedger.Result result = ledger.reserve("order-1",
+				List.of(item("c-hot", 3), item("a-cold", 4), item("b-hot", 5)));
+
+		assertThat(result.reservation().getStatus()).isEqualTo(ReservationStatus.REJECTED);
+		assertThat(result.reservation().getFailureReason()).contains("c-hot");
+		assertLevel("a-cold", 10, 0);
+		assertLevel("b-hot", 10, 0);
+		assertLevel("c-hot", 2, 0);
+	}
+
+	@Test
+	void reservesAndReleasesEveryLineOfAMixedOrder() {
+		stock("cold", 10);
+		hot("hot", 10);
+
+		StockLedger.Result result = ledger.reserve("order-1",
+				List.of(item("cold", 2), item("hot", 3), item("cold", 1)));
+
+		assertThat(result.fresh()).isTrue();
+		assertThat(result.reservation().getStatus()).isEqualTo(ReservationStatus.RESERVED);
+		assertLevel("cold", 7, 3);
+		assertLevel("hot", 7, 3);
+
+		assertThat(ledger.reserve("order-1", List.of(item("cold", 2))).fresh()).isFalse();
+		assertLevel("cold", 7, 3);
+
+		assertThat(ledger.release("order-1", ReservationStatus.RELEASED)).isNotNull();
+		assertLevel("cold", 10, 0);
+		assertLevel("hot", 10, 0);
+	}
+
+	@Test
+	void givesBackAMixedOrderWhoseDecisionCouldNotBeAppended() {
+		stock("cold", 10);
+		hot("hot", 10);
+		doThrow(new IllegalStateException("write-behind full")).when(writeBehind).append(any(InventoryReservation.class));
+
+		assertThatThrownBy(() -> ledger.reserve("order-1", List.of(item("cold", 2), item("hot", 3))))
+				.isInstanceOf(IllegalStateException.class);
+
+		assertThat(ledger.reservation("order-1")).isNull();
+		assertLevel("cold", 10, 0);
+		assertLevel("hot", 10, 0);
+	}
+
+	@Test
+	void keepsMixedOrdersAllOrNothingUnderContention() throws Exception {
+		stock("cold", 300);
+		hot("hot", 500);
+
+		int threads = 8;
+		int ordersPerThread = 100;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<>();
+		try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				results.add(pool.submit(() -> {
+					start.await();
+					int reserved = 0;
+					for (int i = 0; i < ordersPerThread; i++) {
+						String orderId = "order-" + thread + "-" + i;
+						// Alternate which line runs out first
+						List<OrderItemEvent> items = i % 2 == 0
+								? List.of(item("cold", 1), item("hot", 1))
+								: List.of(item("cold", 1), item("hot", 2));
+						if (ledger.reserve(orderId, items).reservation().getStatus() == ReservationStatus.RESERVED) {
+							reserved++;
+						}
+					}
+					return reserved;
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> result : results) {
+				result.get(30, TimeUnit.SECONDS);
+			}
+		}
+
+		long coldReserved = 0;
+		long hotReserved = 0;
+		List<InventoryReservation> all = new ArrayList<>();
+		ledger.forEachReservation(all::add);
+		for (InventoryReservation reservation : all) {
+			if (reservation.getStatus() == ReservationStatus.RESERVED) {
+				for (ReservationLine line : reservation.getLines()) {
+					if (line.getProductId().equals("cold")) {
+						coldReserved += line.getQuantity();
+					} else {
+						hotReserved += line.getQuantity();
+					}
+				}
+			}
+		}
+		assertThat(all).hasSize(threads * ordersPerThread);
+		assertLevel("cold", 300 - coldReserved, coldReserved);
+		assertLevel("hot", 500 - hotReserved, hotReserved);
+		assertThat(ledger.level("cold").available()).isNotNegative();
+		assertThat(ledger.level("hot").available()).isNotNegative();
+	}
+
+	private void stock(String productId, long available) {
+		ledger.setAvailable(productId, productId, available);
+	}
+
+	private void hot(String productId, long available) {
+		stock(productId, available);
+		assertThat(ledger.promote(productId)).isTrue();
+	}
+
+	private void assertLevel(String productId, long available, long reserved) {
+		StockLedger.Level level = ledger.level(productId);
+		assertThat(level.available()).as("%s available", productId).isEqualTo(available);
+		assertThat(level.reserved()).as("%s reserved", productId).isEqualTo(reserved);
+	}
+
+	private static OrderItemEvent item(String productId, int quantity) {
+		return new OrderItemEvent(productId, productId, quantity, BigDecimal.ONE);
+	}
+}
@@ -0,0 +1,147 @@
+package com.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long LEVEL_1 = 512;
+	private static final long LEVEL_2 = 512 * 512;
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+	private final TimingWheel<String> wheel = new TimingWheel<>(Duration.ofNanos(TICK_NANOS), "test-wheel",
+			expired -> { }, clock::get);
+
+	@Test
+	void firesOnTheDeadlineTickAcrossEveryCascadeBoundary() {
+		long[] delays = {1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1, 2 * LEVEL_1, LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1,
+				LEVEL_2 + LEVEL_1, 3 * LEVEL_2 + 7};
+		for (long delay : delays) {
+			wheel.schedule("due-" + delay, ticks(delay));
+		}
+
+		List<Long> firedAt = new ArrayList<>();
+		List<String> fired = new ArrayList<>();
+		for (long tick = 1; tick <= 3 * LEVEL_2 + 7; tick++) {
+			List<String> expired = advance(tick);
+			for (String value : expired) {
+				fired.add(value);
+				firedAt.add(tick);
+			}
+		}
+
+		assertThat(fired).containsExactly(Arrays.stream(delays).mapToObj(d -> "due-" + d).toArray(String[]::new));
+		assertThat(firedAt).containsExactly(Arrays.stream(delays).boxed().toArray(Long[]::new));
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void firesOnTimeWhenScheduledFromAnUnalignedTick() {
+		advance(LEVEL_1 - 3);
+
+		// Each of these crosses a level 0 wrap from the current tick
+		for (long delay : new long[]{2, 3, 4, LEVEL_1, LEVEL_1 + 3, LEVEL_2 + 3}) {
+			wheel.schedule("due-" + delay, ticks(delay));
+		}
+
+		assertThat(advance(LEVEL_1 - 1)).containsExactly("due-2");
+		assertThat(advance(LEVEL_1)).containsExactly("due-3");
+		assertThat(advance(LEVEL_1 + 1)).containsExactly("due-4");
+		assertThat(advance(2 * LEVEL_1 - 4)).isEmpty();
+		assertThat(advance(2 * LEVEL_1 - 3)).containsExactly("due-" + LEVEL_1);
+		assertThat(advance(2 * LEVEL_1)).containsExactly("due-" + (LEVEL_1 + 3));
+		assertThat(advance(LEVEL_2 + LEVEL_1 - 1)).isEmpty();
+		assertThat(advance(LEVEL_2 + LEVEL_1)).containsExactly("due-" + (LEVEL_2 + 3));
+	}
+
+	@Test
+	void roundsAPartialTickUpAndNeverFiresEarly() {
+		clock.addAndGet(TICK_NANOS / 2);
+		wheel.schedule("half", Duration.ofNanos(TICK_NANOS));
+		wheel.schedule("now", Duration.ZERO);
+
+		assertThat(advance(1)).containsExactly("now");
+		assertThat(advance(2)).containsExactly("half");
+	}
+
+	@Test
+	void firesEverythingOverdueInOneAdvanceAfterFallingBehind() {
+		wheel.scheduleAll(List.of("a", "b"), ticks(10));
+		wheel.schedule("c", ticks(LEVEL_1 * 3));
+
+		assertThat(advance(LEVEL_1 * 5)).containsExactly("a", "b", "c");
+	}
+
+	@Test
+	void cancelsFromAnyPositionInABucket() {
+		List<TimingWheel.Timeout<String>> timeouts = wheel.scheduleAll(List.of("head", "middle", "tail", "kept"),
+				ticks(5));
+
+		assertThat(wheel.cancel(timeouts.get(1))).isTrue();
+		assertThat(wheel.cancel(timeouts.get(0))).isTrue();
+		assertThat(wheel.cancel(timeouts.get(3))).isTrue();
+		assertThat(wheel.cancel(timeouts.get(1))).isFalse();
+		assertThat(wheel.size()).isEqualTo(1);
+
+		assertThat(advance(5)).containsExactly("tail");
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void cancelsATimeoutAfterItWasCascadedDown() {
+		TimingWheel.Timeout<String> cascaded = wheel.schedule("cascaded", ticks(LEVEL_1 + 10));
+		TimingWheel.Timeout<String> fired = wheel.schedule("fired", ticks(3));
+
+		assertThat(advance(LEVEL_1)).containsExactly("fired");
+		assertThat(wheel.cancel(fired)).isFalse();
+
+		// Re-filed into level 0 at tick 512; the handle still finds its new bucket
+		assertThat(wheel.cancel(cascaded)).isTrue();
+		assertThat(advance(2 * LEVEL_1)).isEmpty();
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	void keepsTickingAfterTheCallbackFails() throws InterruptedException {
+		List<String> handled = new CopyOnWriteArrayList<>();
+		TimingWheel<String> ticking = new TimingWheel<>(Duration.ofMillis(5), "test-ticker", expired -> {
+			if (expired.contains("poison")) {
+				throw new IllegalStateException("boom");
+			}
+			handled.addAll(expired);
+		});
+		ticking.start();
+		try {
+			ticking.schedule("poison", Duration.ofMillis(10));
+			ticking.schedule("after", Duration.ofMillis(300));
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (handled.isEmpty() && System.nanoTime() < deadline) {
+				Thread.sleep(5);
+			}
+		} finally {
+			ticking.stop();
+		}
+
+		assertThat(handled).containsExactly("after");
+	}
+
+	private List<String> advance(long tick) {
+		clock.set(1_000_000_000L + tick * TICK_NANOS);
+		return wheel.advanceTo(tick);
+	}
+
+	private static Duration ticks(long ticks) {
+		return Duration.ofNanos(ticks * TICK_NANOS);
+	}
+}
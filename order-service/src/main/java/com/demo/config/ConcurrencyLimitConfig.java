@@ -0,0 +1,20 @@
+package com.demo.config;
+
+import com.demo.limit.ConcurrencyLimitConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Adaptive limits in front of the order API and the saga listeners, so overload turns into
+ * fast 503s and paused fetching instead of a saturated Hikari pool and Tomcat queue.
+ */
+@Configuration
+public class ConcurrencyLimitConfig extends ConcurrencyLimitConfigSupport {
+
+    // The NDJSON export streams for minutes by design, and a batch of up to order.batch.max-size
+    // orders takes as long as that many single creates: either would only skew the latency samples
+    public ConcurrencyLimitConfig() {
+        super("order", "/api/orders/*", List.of("/api/orders/export", "/api/orders/batch"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.demo.config;
+
+import com.demo.kafka.OrderEventConsumer;
+import com.demo.kafka.retry.DeadLetterReplayer;
+import com.demo.kafka.retry.RetryTierListeners;
+import com.demo.kafka.retry.RetryTopicPolicy;
+import com.demo.kafka.retry.TieredDeadLetterRecoverer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * Non-blocking retries for the saga result listeners. A failed record is never retried in
+ * place: it moves to {@code <topic>-retry-1..N} (exponentially longer delays) and then to
+ * {@code <topic>-dlt}, so the partition it came from keeps flowing.
+ */
+@Configuration
+public class KafkaRetryConfig {
+
+    private static final String METRIC_PREFIX = "order.consumer";
+
+    @Bean
+    public RetryTopicPolicy retryTopicPolicy(
+            @Value("${kafka.retry.tiers:3}") int tiers,
+            @Value("${kafka.retry.initial-delay:1s}") Duration initialDelay,
+            @Value("${kafka.retry.multiplier:4}") double multiplier) {
+        return new RetryTopicPolicy(tiers, initialDelay, multiplier);
+    }
+
+    @Bean
+    public TieredDeadLetterRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> kafkaTemplate,
+                                                         RetryTopicPolicy retryTopicPolicy,
+                                                         MeterRegistry meterRegistry) {
+        return new TieredDeadLetterRecoverer(kafkaTemplate, retryTopicPolicy, meterRegistry, METRIC_PREFIX);
+    }
+
+    /**
+     * Picked up by every listener container factory through Boot's configurer. No back-off
+     * attempts: the first failure hands the record to the recoverer. Batch listeners point at
+     * the failed record with {@code BatchListenerFailedException}.
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(TieredDeadLetterRecoverer deadLetterRecoverer) {
+        return new DefaultErrorHandler(deadLetterRecoverer, new FixedBackOff(0L, 0L));
+    }
+
+    /**
+     * For the retry-tier listeners: manual acks so a record that is not due yet can be
+     * nacked with the remaining delay and redelivered once it is.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /** One container per tier, so a record waiting on a long tier doesn't hold back the short ones. */
+    @Bean
+    public RetryTierListeners sagaResultRetryListeners(
+            RetryTopicPolicy retryTopicPolicy,
+            ConcurrentKafkaListenerContainerFactory<Object, Object> retryKafkaListenerContainerFactory,
+            @Value("${spring.kafka.consumer.group-id}") String groupId,
+            @Value("${kafka.topics.payment-processed}") String paymentProcessedTopic,
+            @Value("${kafka.topics.inventory-updated}") String inventoryUpdatedTopic,
+            OrderEventConsumer orderEventConsumer) {
+        return new RetryTierListeners(retryTopicPolicy, retryKafkaListenerContainerFactory, groupId)
+                .add("order-payment-processed-retry", paymentProcessedTopic,
+                        orderEventConsumer::handlePaymentProcessedRetry)
+                .add("order-inventory-updated-retry", inventoryUpdatedTopic,
+                        orderEventConsumer::handleInventoryUpdatedRetry);
+    }
+
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            RetryTopicPolicy retryTopicPolicy,
+            @Value("${spring.kafka.consumer.group-id}") String groupId,
+            @Value("${kafka.retry.replay.batch-size:500}") int batchSize,
+            @Value("${kafka.retry.replay.send-timeout:30s}") Duration sendTimeout,
+            MeterRegistry meterRegistry) {
+        return new DeadLetterReplayer(kafkaConsumerFactory, kafkaTemplate, retryTopicPolicy,
+                groupId + "-dlt-replay", batchSize, sendTimeout, meterRegistry, METRIC_PREFIX);
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics sagaResultRetryTopics(RetryTopicPolicy retryTopicPolicy,
+                                                      @Value("${kafka.topics.payment-processed}") String paymentProcessedTopic,
+                                                      @Value("${kafka.topics.inventory-updated}") String inventoryUpdatedTopic) {
+        return new KafkaAdmin.NewTopics(Stream.of(paymentProcessedTopic, inventoryUpdatedTopic)
+                .flatMap(base -> retryTopicPolicy.derivedTopics(base).stream())
+                .map(topic -> TopicBuilder.name(topic).partitions(3).replicas(1).build())
+                .toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,22 @@
+package com.demo.config;
+
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimingConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Saga latency timing. The interceptor runs in every listener container built through
+ * Boot's configurer (combined with tracing in {@link TracingConfig}) and stamps the arrival
+ * of the saga results.
+ */
+@Configuration
+public class SagaTimingConfig extends SagaTimingConfigSupport {
+
+    public SagaTimingConfig() {
+        super("order", Map.of(
+                "kafka.topics.payment-processed", SagaStage.ORDER_PAYMENT_RECEIVED,
+                "kafka.topics.inventory-updated", SagaStage.ORDER_INVENTORY_RECEIVED));
+    }
+}
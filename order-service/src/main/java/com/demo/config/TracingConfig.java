@@ -0,0 +1,30 @@
+package com.demo.config;
+
+import com.demo.trace.Tracer;
+import com.demo.trace.TracingConfigSupport;
+import com.demo.trace.TracingFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Sampled tracing of the order API and the saga listeners, exported to a local NDJSON file.
+ */
+@Configuration
+public class TracingConfig extends TracingConfigSupport {
+
+    public TracingConfig() {
+        super(Duration.ofMinutes(5), 200_000);
+    }
+
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(Tracer tracer) {
+        var registration = new FilterRegistrationBean<>(new TracingFilter(tracer));
+        registration.addUrlPatterns("/api/orders/*");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
+}
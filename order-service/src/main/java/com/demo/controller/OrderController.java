@@ -1,15 +1,24 @@
 package com.demo.controller;
 
+import com.demo.dto.BatchOrderResponse;
 import com.demo.dto.CreateOderRequest;
+import com.demo.dto.OrderHistoryFilter;
+import com.demo.dto.OrderPageResponse;
 import com.demo.dto.OrderResponse;
+import com.demo.entity.OrderStatus;
 import com.demo.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -24,33 +33,65 @@ public class OrderController {
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOderRequest request) {
-        log.info("POST /api/orders - Creating order for customer: {}", request.customerId());
+        log.debug("POST /api/orders - Creating order for customer: {}", request.customerId());
         OrderResponse response = orderService.createOrder(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchOrderResponse> createOrders(@RequestBody List<CreateOderRequest> requests) {
+        log.debug("POST /api/orders/batch - Creating {} orders", requests.size());
+        BatchOrderResponse response = orderService.createOrders(requests);
+        HttpStatus status = response.rejected() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status).body(response);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable String orderId) {
-        log.info("GET /api/orders{}", orderId);
+        log.debug("GET /api/orders{}", orderId);
         return ResponseEntity.ok(orderService.getOrder(orderId));
     }
 
     @GetMapping
     public ResponseEntity<List<OrderResponse>> getAllOrders() {
-        log.info("GET /api/orders");
+        log.debug("GET /api/orders");
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        log.debug("GET /api/orders/export");
+        StreamingResponseBody body = orderService::exportOrders;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/customer/{customerId}")
     public ResponseEntity<List<OrderResponse>> getOrdersByCustomer(
             @PathVariable String customerId) {
-        log.info("GET /api/orders/customer/{}", customerId);
+        log.debug("GET /api/orders/customer/{}", customerId);
         return ResponseEntity.ok(orderService.getOrdersByCustomer(customerId));
     }
 
+    @GetMapping("/customer/{customerId}/history")
+    public ResponseEntity<OrderPageResponse> getOrderHistory(
+            @PathVariable String customerId,
+            @RequestParam(required = false) List<OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.debug("GET /api/orders/customer/{}/history", customerId);
+        var filter = new OrderHistoryFilter(status, from, to, minAmount, maxAmount);
+        return ResponseEntity.ok(orderService.getOrderHistory(customerId, filter, cursor, limit));
+    }
+
     @PatchMapping("/{orderId}/cancel")
     public ResponseEntity<OrderResponse> cancelOrder(@PathVariable String orderId) {
-        log.info("PATCH /api/orders/{}/cancel", orderId);
+        log.debug("PATCH /api/orders/{}/cancel", orderId);
         return ResponseEntity.ok(orderService.cancelOrder(orderId));
     }
 
@@ -60,6 +101,12 @@ public class OrderController {
                 .body(Map.of("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<Map<String, String>> handleIllegalState(IllegalStateException ex) {
         return ResponseEntity.status(HttpStatus.CONFLICT)
@@ -0,0 +1,9 @@
+package com.demo.dto;
+
+import java.util.List;
+
+public record BatchOrderResponse(
+        int accepted,
+        int rejected,
+        List<BatchOrderResult> results
+) {}
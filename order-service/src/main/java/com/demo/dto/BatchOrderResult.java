@@ -0,0 +1,18 @@
+package com.demo.dto;
+
+import java.util.List;
+
+public record BatchOrderResult(
+        int index,
+        String orderId,
+        String status,
+        List<String> errors
+) {
+    public static BatchOrderResult created(int index, String orderId) {
+        return new BatchOrderResult(index, orderId, "CREATED", List.of());
+    }
+
+    public static BatchOrderResult rejected(int index, List<String> errors) {
+        return new BatchOrderResult(index, null, "REJECTED", errors);
+    }
+}
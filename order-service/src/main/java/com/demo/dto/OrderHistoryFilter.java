@@ -0,0 +1,19 @@
+package com.demo.dto;
+
+import com.demo.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+* Optional filters for a customer's order history. Null (or empty) means "no filter".
+* from is inclusive, to is exclusive.
+* */
+public record OrderHistoryFilter(
+        List<OrderStatus> statuses,
+        LocalDateTime from,
+        LocalDateTime to,
+        BigDecimal minAmount,
+        BigDecimal maxAmount
+) {}
@@ -0,0 +1,8 @@
+package com.demo.dto;
+
+import java.util.List;
+
+public record OrderPageResponse(
+        List<OrderResponse> orders,
+        String nextCursor
+) {}
@@ -0,0 +1,20 @@
+package com.demo.dto;
+
+import com.demo.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+* Order row without its items - a JPQL constructor projection, so reading it
+* never triggers the EAGER items load of the Order entity.
+* */
+public record OrderSummary(
+        UUID id,
+        String customerId,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {}
@@ -1,16 +1,19 @@
 package com.demo.entity;
 
+import com.demo.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_customer_created", columnList = "customerId, createdAt, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,8 +22,8 @@ import java.util.List;
 public class Order {
 
     @Id
-    @UuidGenerator
-    private String id;
+    @TimeOrderedId
+    private UUID id;
 
     @Column(nullable = false)
     private String customerId;
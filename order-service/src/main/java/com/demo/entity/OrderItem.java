@@ -1,13 +1,16 @@
 package com.demo.entity;
 
+import com.demo.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        @Index(name = "idx_order_items_order_id", columnList = "order_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,8 +19,8 @@ import java.math.BigDecimal;
 public class OrderItem {
 
     @Id
-    @UuidGenerator
-    private String id;
+    @TimeOrderedId
+    private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
@@ -0,0 +1,84 @@
+package com.demo.entity;
+
+import com.demo.id.SequenceId;
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/*
+* Outbox row written in the same transaction as the order change.
+* OutboxRelay drains unsent rows in id order and marks them sent once Kafka acks.
+* */
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_unsent", columnList = "sentAt, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent implements Persistable<Long> {
+
+    public static final String SEQUENCE = "order_outbox_seq";
+
+    // Ids come from the sequence when the row is written, never from a pooled block per instance:
+    // that would let a row written later, on another instance, take a lower id than an earlier
+    // row of the same order and be relayed before it. Chunks fetch theirs in one query up front.
+    @Id
+    @SequenceId(OutboxEvent.SEQUENCE)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    // Kafka record key (the orderId) - keeps per-order ordering on the topic
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    // Encoded frame from EventCodecs, sent to Kafka byte for byte
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    // SagaTimer header of OrderCreated rows: the REST accept stamp, sent on with the event
+    @Column(columnDefinition = "bytea")
+    private byte[] sagaTimeline;
+
+    // Trace context of the request that queued the row, continued by the relay's send span
+    @Column(length = 55)
+    private String traceparent;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    // Rows come with their id already assigned, which must not make save() merge them
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    @PostPersist
+    @PostLoad
+    protected void markPersisted() {
+        persisted = true;
+    }
+}
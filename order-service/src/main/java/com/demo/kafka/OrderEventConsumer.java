@@ -2,36 +2,219 @@ package com.demo.kafka;
 
 import com.demo.event.InventoryUpdatedEvent;
 import com.demo.event.PaymentProcessedEvent;
+import com.demo.kafka.retry.DecodedBatch;
+import com.demo.kafka.retry.RetryTopicPolicy;
+import com.demo.kafka.retry.TieredDeadLetterRecoverer;
+import com.demo.limit.ListenerBackpressure;
 import com.demo.service.OrderService;
+import com.demo.trace.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Saga result listeners. {@code order.consumer.mode} selects which set runs:
+ * {@code record} handles one event per call, {@code batch} (default) applies a whole poll
+ * with set-based status updates and commits its offsets once, {@code parallel} fans records
+ * out to {@link KeyOrderedExecutor} workers keyed by orderId.
+ * <p>
+ * Whatever the mode, a record that fails is handed to {@link TieredDeadLetterRecoverer}
+ * instead of being retried in place, and comes back through the retry-tier listeners
+ * once its tier's delay has passed; one that can't be decoded goes straight to the DLT. All
+ * processing runs through a {@link ListenerBackpressure}, which pauses the containers while
+ * database latency keeps work above its adaptive limit; batch containers have their own,
+ * which counts polls instead of records.
+ * The trace span of a result ends once the result is applied.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class OrderEventConsumer {
 
     private final OrderService orderService;
+    private final KeyOrderedExecutor orderEventExecutor;
+    private final TieredDeadLetterRecoverer deadLetterRecoverer;
+    private final ListenerBackpressure listenerBackpressure;
+    private final ListenerBackpressure batchListenerBackpressure;
+    private final Tracer tracer;
 
     @KafkaListener(
+            id = "order-payment-processed",
             topics = "${kafka.topics.payment-processed}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'record'}"
     )
     public void handlePaymentProcessed(PaymentProcessedEvent event) {
-        log.info("Received PaymentProcessedEvent for orderId: {}, success: {}",
+        log.debug("Received PaymentProcessedEvent for orderId: {}, success: {}",
                 event.orderId(), event.success());
-        orderService.handlePaymentResult(event);
+        listenerBackpressure.run(1, () -> orderService.handlePaymentResult(event));
+        tracer.finished(event.orderId());
     }
 
     @KafkaListener(
+            id = "order-inventory-updated",
             topics = "${kafka.topics.inventory-updated}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'record'}"
     )
     public void handleInventoryUpdated(InventoryUpdatedEvent event) {
-        log.info("Received InventoryUpdatedEvent for orderId: {}, success: {}",
+        log.debug("Received InventoryUpdatedEvent for orderId: {}, success: {}",
                 event.orderId(), event.success());
-        orderService.handleInventoryResult(event);
+        listenerBackpressure.run(1, () -> orderService.handleInventoryResult(event));
+        tracer.finished(event.orderId());
+    }
+
+    @KafkaListener(
+            id = "order-payment-processed-batch",
+            topics = "${kafka.topics.payment-processed}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'batch'}"
+    )
+    public void handlePaymentProcessedBatch(List<ConsumerRecord<String, PaymentProcessedEvent>> records) {
+        DecodedBatch<String, PaymentProcessedEvent> batch = DecodedBatch.of(records);
+        batch.deadLetter(deadLetterRecoverer::routeUntilAccepted);
+        List<PaymentProcessedEvent> events = batch.values();
+        log.debug("Received batch of {} PaymentProcessedEvents", events.size());
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            batchListenerBackpressure.runPoll(events.size(), () -> orderService.handlePaymentResults(events));
+            events.forEach(event -> tracer.finished(event.orderId()));
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} PaymentProcessedEvents failed, retrying record by record", events.size(), e);
+            applyOneByOne(batch.records(), event -> {
+                orderService.handlePaymentResult(event);
+                tracer.finished(event.orderId());
+            });
+        }
+    }
+
+    @KafkaListener(
+            id = "order-inventory-updated-batch",
+            topics = "${kafka.topics.inventory-updated}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'batch'}"
+    )
+    public void handleInventoryUpdatedBatch(List<ConsumerRecord<String, InventoryUpdatedEvent>> records) {
+        DecodedBatch<String, InventoryUpdatedEvent> batch = DecodedBatch.of(records);
+        batch.deadLetter(deadLetterRecoverer::routeUntilAccepted);
+        List<InventoryUpdatedEvent> events = batch.values();
+        log.debug("Received batch of {} InventoryUpdatedEvents", events.size());
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            batchListenerBackpressure.runPoll(events.size(), () -> orderService.handleInventoryResults(events));
+            events.forEach(event -> tracer.finished(event.orderId()));
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} InventoryUpdatedEvents failed, retrying record by record", events.size(), e);
+            applyOneByOne(batch.records(), event -> {
+                orderService.handleInventoryResult(event);
+                tracer.finished(event.orderId());
+            });
+        }
+    }
+
+    @KafkaListener(
+            id = "order-payment-processed-parallel",
+            topics = "${kafka.topics.payment-processed}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'parallel'}"
+    )
+    public void handlePaymentProcessedParallel(ConsumerRecord<String, PaymentProcessedEvent> record,
+                                               Acknowledgment ack) throws InterruptedException {
+        dispatch(record, ack, () -> orderService.handlePaymentResult(record.value()));
+    }
+
+    @KafkaListener(
+            id = "order-inventory-updated-parallel",
+            topics = "${kafka.topics.inventory-updated}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "#{'${order.consumer.mode:batch}' == 'parallel'}"
+    )
+    public void handleInventoryUpdatedParallel(ConsumerRecord<String, InventoryUpdatedEvent> record,
+                                               Acknowledgment ack) throws InterruptedException {
+        dispatch(record, ack, () -> orderService.handleInventoryResult(record.value()));
+    }
+
+    /**
+     * Records on the retry tiers, one container per tier (see {@code KafkaRetryConfig}). One not
+     * yet due is nacked for its remaining delay, which also holds back the records behind it
+     * (they are due later still); failures move on to the next tier through the container's
+     * error handler.
+     */
+    public void handlePaymentProcessedRetry(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+        retry(record, ack, () -> orderService.handlePaymentResult((PaymentProcessedEvent) record.value()));
+    }
+
+    public void handleInventoryUpdatedRetry(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+        retry(record, ack, () -> orderService.handleInventoryResult((InventoryUpdatedEvent) record.value()));
+    }
+
+    private void retry(ConsumerRecord<String, ?> record, Acknowledgment ack, Runnable handler) {
+        Duration wait = RetryTopicPolicy.remainingDelay(record);
+        if (!wait.isZero()) {
+            ack.nack(wait);
+            return;
+        }
+        log.info("Retrying record for orderId: {} from {}", record.key(), record.topic());
+        listenerBackpressure.run(1, handler);
+        tracer.finished(record.key());
+        ack.acknowledge();
+    }
+
+    /**
+     * Finds the record that fails a batch: the ones before it are committed, it goes to the
+     * first retry tier and the rest are redelivered. The single-event handlers check the same
+     * allowed predecessors as the bulk updates, so records that were already applied are no-ops.
+     * The failed record is named rather than indexed: undecodable records were left out.
+     */
+    private static <T> void applyOneByOne(List<ConsumerRecord<String, T>> records, Consumer<T> handler) {
+        for (ConsumerRecord<String, T> record : records) {
+            try {
+                handler.accept(record.value());
+            } catch (RuntimeException recordFailure) {
+                throw new BatchListenerFailedException("Failed to process " + record.value().getClass().getSimpleName(),
+                        recordFailure, record);
+            }
+        }
+    }
+
+    private void dispatch(ConsumerRecord<String, ?> record, Acknowledgment ack, Runnable handler)
+            throws InterruptedException {
+        String key = record.key() != null ? record.key() : record.partition() + "-" + record.offset();
+        orderEventExecutor.submit(key, () -> {
+            boolean done = true;
+            try {
+                listenerBackpressure.run(1, handler);
+                tracer.finished(key);
+            } catch (RuntimeException e) {
+                tracer.failed(key, e);
+                done = recover(record, e);
+            }
+            // Not routed: leave it unacknowledged so the partition is never committed past it
+            if (done) {
+                ack.acknowledge();
+            }
+        });
+    }
+
+    private boolean recover(ConsumerRecord<String, ?> record, RuntimeException failure) {
+        log.warn("Failed to process record {}-{}@{}, routing to retry", record.topic(), record.partition(),
+                record.offset(), failure);
+        return deadLetterRecoverer.routeUntilAccepted(record, failure);
     }
 }
@@ -1,53 +1,109 @@
 package com.demo.kafka;
 
+import com.demo.entity.OutboxEvent;
+import com.demo.event.OrderCancelledEvent;
+import com.demo.event.OrderConfirmedEvent;
 import com.demo.event.OrderCreatedEvent;
+import com.demo.event.codec.EventCodecs;
+import com.demo.repository.OutboxRepository;
+import com.demo.saga.SagaTimer;
+import com.demo.trace.SpanContext;
+import com.demo.trace.Tracer;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.CompletableFuture;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Writes order events to the transactional outbox. Nothing reaches Kafka from here:
+ * the rows commit (or roll back) with the order change and {@link OutboxRelay} publishes them.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class OrderEventProducer {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxRepository outboxRepository;
+    private final SagaTimer sagaTimer;
+    private final Tracer tracer;
 
     @Value("${kafka.topics.order-created}")
     private String orderCreatedTopic;
 
+    @Value("${kafka.topics.order-confirmed}")
+    private String orderConfirmedTopic;
+
     @Value("${kafka.topics.order-cancelled}")
     private String orderCancelledTopic;
 
+    @Transactional(Transactional.TxType.MANDATORY)
     public void publishOrderCreated(OrderCreatedEvent event) {
-        log.info("Publishing OrderCreatedEvent for orderId: {}", event.orderId());
-
-        CompletableFuture<SendResult<String, Object>> future =
-                kafkaTemplate.send(orderCreatedTopic, event.orderId(), event);
-
-        future.whenComplete((result, ex) -> {
-            if (ex != null) {
-                log.error("Failed to publish OrderCreatedEvent for orderId: {}",
-                        event.orderId(), ex);
-            } else {
-                log.info("OrderCreatedEvent published successfully. Offset: {}",
-                        result.getRecordMetadata().offset());
-            }
-        });
+        log.debug("Queueing OrderCreatedEvent for orderId: {}", event.orderId());
+        outboxRepository.save(toOrderCreatedOutbox(event));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publishOrdersCreated(List<OrderCreatedEvent> events) {
+        log.debug("Queueing {} OrderCreatedEvents", events.size());
+        saveAll(events.stream()
+                .map(this::toOrderCreatedOutbox)
+                .toList());
     }
 
+    @Transactional(Transactional.TxType.MANDATORY)
     public void publishOrderCancelled(String orderId, String reason) {
-        log.info("Publishing OrderCancelledEvent for orderId: {}", orderId);
+        log.info("Queueing OrderCancelledEvent for orderId: {}", orderId);
+        var event = new OrderCancelledEvent(orderId, reason, LocalDateTime.now());
+        outboxRepository.save(toOutbox(orderCancelledTopic, orderId, "OrderCancelled", event));
+    }
 
-        var event = java.util.Map.of(
-                "orderId", orderId,
-                "reason", reason
-        );
+    /**
+     * Tells inventory the orders completed, so their stock holds become permanent instead of
+     * expiring.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publishOrdersConfirmed(List<String> orderIds) {
+        log.debug("Queueing {} OrderConfirmedEvents", orderIds.size());
+        LocalDateTime confirmedAt = LocalDateTime.now();
+        saveAll(orderIds.stream()
+                .map(orderId -> toOutbox(orderConfirmedTopic, orderId, "OrderConfirmed",
+                        new OrderConfirmedEvent(orderId, confirmedAt)))
+                .toList());
+    }
+
+    // Assigned in list order, so the relay sends a chunk's rows in the order they were queued
+    private void saveAll(List<OutboxEvent> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(outboxRepository.nextIds(rows.size()));
+        Collections.sort(ids);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setId(ids.get(i));
+        }
+        outboxRepository.saveAll(rows);
+    }
+
+    private OutboxEvent toOrderCreatedOutbox(OrderCreatedEvent event) {
+        OutboxEvent row = toOutbox(orderCreatedTopic, event.orderId(), "OrderCreated", event);
+        row.setSagaTimeline(sagaTimer.header(event.orderId()));
+        return row;
+    }
 
-        kafkaTemplate.send(orderCancelledTopic, orderId, event);
+    private OutboxEvent toOutbox(String topic, String key, String eventType, Object event) {
+        SpanContext trace = tracer.current();
+        return OutboxEvent.builder()
+                .topic(topic)
+                .aggregateId(key)
+                .eventType(eventType)
+                .payload(EventCodecs.encode(event))
+                .traceparent(trace != null ? trace.traceparent() : null)
+                .build();
     }
 }
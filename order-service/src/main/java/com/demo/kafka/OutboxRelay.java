@@ -0,0 +1,276 @@
+package com.demo.kafka;
+
+import com.demo.entity.OutboxEvent;
+import com.demo.repository.OutboxRepository;
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimer;
+import com.demo.trace.Span;
+import com.demo.trace.SpanContext;
+import com.demo.trace.Tracer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the order outbox into Kafka in id order, batch by batch.
+ * <p>
+ * Only one instance relays at a time: a round starts by trying a Postgres session advisory
+ * lock on a connection of its own, and an instance that doesn't get it skips the round. The
+ * lock is not a transaction, so reading a batch and marking it sent are short transactions
+ * and nothing is held open while Kafka acks.
+ * <p>
+ * A batch is sent without waiting per record (the producer batches by partition), one wave
+ * per row of a key: the second row of an order only goes out once its first was acked, since
+ * the rows of one order often go to different topics, where Kafka keeps no order between
+ * them. A key stops at its first failed row, and the round ends, so the next one re-sends the
+ * key from there in its original order. Acked rows are marked sent.
+ * <p>
+ * OrderCreated rows carry the order's saga timeline; it goes out as a header with the send
+ * stamp added, and the ack is timed as the {@code order.publish} stage. Rows queued under a
+ * trace are sent in a child span of it that ends with the ack.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    // Any fixed key works, as long as every instance of the service uses the same one
+    private static final long RELAY_LOCK_KEY = 0x6f75_7462_6f78_7265L;
+
+    private final OutboxRepository outboxRepository;
+    private final DataSource dataSource;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SagaTimer sagaTimer;
+    private final Tracer tracer;
+
+    private final DistributionSummary batchSize;
+    private final Timer relayLag;
+    private final AtomicLong currentLagMillis = new AtomicLong();
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${outbox.relay.send-timeout:30s}")
+    private Duration sendTimeout;
+
+    @Value("${outbox.relay.retention:24h}")
+    private Duration retention;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       DataSource dataSource,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       PlatformTransactionManager transactionManager,
+                       SagaTimer sagaTimer,
+                       Tracer tracer,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.dataSource = dataSource;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sagaTimer = sagaTimer;
+        this.tracer = tracer;
+
+        this.batchSize = DistributionSummary.builder("order.outbox.relay.batch.size")
+                .description("Outbox rows published per relay batch")
+                .register(meterRegistry);
+        this.relayLag = Timer.builder("order.outbox.relay.lag")
+                .description("Time from outbox insert to Kafka ack")
+                .register(meterRegistry);
+        meterRegistry.gauge("order.outbox.relay.lag.current", currentLagMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:100}")
+    public void relay() {
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!advisoryLock(lockConnection, "pg_try_advisory_lock")) {
+                // Another instance is relaying; its lag is the one that counts
+                currentLagMillis.set(0);
+                return;
+            }
+            try {
+                for (int i = 0; i < maxBatchesPerRun; i++) {
+                    if (publishNextBatch() < maxBatchSize) {
+                        return;
+                    }
+                }
+            } finally {
+                advisoryLock(lockConnection, "pg_advisory_unlock");
+            }
+        } catch (SQLException e) {
+            // Closing the connection ended the session, so the lock is gone either way
+            log.warn("Outbox relay lock failed: {}", e.toString());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.debug("Purged {} sent outbox rows", deleted);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, RELAY_LOCK_KEY);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private int publishNextBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> outboxRepository.findNextUnsent(maxBatchSize));
+        if (batch == null || batch.isEmpty()) {
+            currentLagMillis.set(0);
+            return 0;
+        }
+
+        currentLagMillis.set(Duration.between(batch.getFirst().getCreatedAt(), LocalDateTime.now()).toMillis());
+
+        // Wave n holds the n-th row of every key in the batch
+        List<List<Integer>> waves = new ArrayList<>();
+        Map<String, Integer> rowsPerKey = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            int wave = rowsPerKey.merge(batch.get(i).getAggregateId(), 1, Integer::sum) - 1;
+            if (wave == waves.size()) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(wave).add(i);
+        }
+
+        boolean[] acked = new boolean[batch.size()];
+        Set<String> blockedKeys = new HashSet<>();
+        for (List<Integer> wave : waves) {
+            sendWave(batch, wave, blockedKeys, acked);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent row = batch.get(i);
+            if (acked[i]) {
+                sentIds.add(row.getId());
+                relayLag.record(Duration.between(row.getCreatedAt(), now));
+                if (row.getSagaTimeline() != null) {
+                    sagaTimer.acked(row.getAggregateId(), SagaStage.ORDER_PUBLISHED);
+                }
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.markSent(sentIds, now));
+        }
+        batchSize.record(sentIds.size());
+
+        if (sentIds.size() < batch.size()) {
+            log.error("Outbox relay published {}/{} rows, {} keys will be retried",
+                    sentIds.size(), batch.size(), blockedKeys.size());
+            // Stop draining this round so failed keys are retried before anything newer
+            return 0;
+        }
+        return batch.size();
+    }
+
+    // Sends the rows of one wave whose key hasn't failed yet and waits for their acks
+    private void sendWave(List<OutboxEvent> batch, List<Integer> wave, Set<String> blockedKeys, boolean[] acked) {
+        List<Integer> sending = new ArrayList<>(wave.size());
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(wave.size());
+        Span[] spans = new Span[wave.size()];
+        for (int i : wave) {
+            OutboxEvent row = batch.get(i);
+            if (blockedKeys.contains(row.getAggregateId())) {
+                continue;
+            }
+            SpanContext trace = SpanContext.parse(row.getTraceparent());
+            Span span = trace != null ? tracer.startSpan(row.getTopic() + " send", trace, row.getAggregateId()) : null;
+            spans[sending.size()] = span;
+            sending.add(i);
+            futures.add(send(row, span));
+        }
+        if (sending.isEmpty()) {
+            return;
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Outbox wave of {} rows not fully acked: {}", sending.size(), e.toString());
+        }
+
+        for (int j = 0; j < sending.size(); j++) {
+            int i = sending.get(j);
+            CompletableFuture<SendResult<String, Object>> future = futures.get(j);
+            if (spans[j] != null) {
+                endSpan(spans[j], future);
+            }
+            acked[i] = future.isDone() && !future.isCompletedExceptionally();
+            if (!acked[i]) {
+                blockedKeys.add(batch.get(i).getAggregateId());
+            }
+        }
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxEvent row, Span span) {
+        try {
+            // The payload is already an encoded frame; EventSerializer passes byte[] through
+            ProducerRecord<String, Object> record = row.getSagaTimeline() == null
+                    ? new ProducerRecord<>(row.getTopic(), row.getAggregateId(), row.getPayload())
+                    : sagaTimer.outgoing(row.getTopic(), row.getAggregateId(), row.getPayload(),
+                            SagaStage.ORDER_SENT, row.getSagaTimeline());
+            if (span != null) {
+                record.headers().add(Tracer.TRACEPARENT,
+                        span.context().traceparent().getBytes(StandardCharsets.US_ASCII));
+            }
+            return kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void endSpan(Span span, CompletableFuture<?> future) {
+        if (!future.isDone()) {
+            span.end("Not acked within the send timeout");
+            return;
+        }
+        try {
+            future.join();
+            span.end();
+        } catch (CompletionException e) {
+            span.end(e.getCause());
+        }
+    }
+}
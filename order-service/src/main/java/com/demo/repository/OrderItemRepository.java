@@ -0,0 +1,15 @@
+package com.demo.repository;
+
+import com.demo.entity.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
+
+    List<OrderItem> findByOrderIdIn(Collection<UUID> orderIds);
+}
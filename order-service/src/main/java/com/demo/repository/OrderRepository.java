@@ -1,20 +1,46 @@
 package com.demo.repository;
 
+import com.demo.dto.OrderSummary;
 import com.demo.entity.Order;
 import com.demo.entity.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, String> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, OrderRepositoryCustom {
 
     List<Order> findByCustomerId(String customerId);
     List<Order> findByStatus(OrderStatus status);
     @Query("SELECT o FROM Order o WHERE o.customerId = :customerId ORDER BY o.createdAt DESC")
     Stream<Order> streamByCustomerId(String customerId);
-    boolean existsByIdAndCustomerId(String id, String customerId);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    // By primary key: the ids are time-ordered, so this is creation order read straight off the pk index
+    @Query("SELECT new com.demo.dto.OrderSummary(o.id, o.customerId, o.status, o.totalAmount, o.createdAt, o.updatedAt) " +
+            "FROM Order o ORDER BY o.id")
+    Stream<OrderSummary> streamAllSummaries();
+    boolean existsByIdAndCustomerId(UUID id, String customerId);
+
+    // Guarded bulk transition: rows not in an allowed predecessor status are left alone
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :updatedAt " +
+            "WHERE o.id IN :ids AND o.status IN :allowedFrom")
+    int transitionStatus(Collection<UUID> ids, OrderStatus status,
+                         Collection<OrderStatus> allowedFrom, LocalDateTime updatedAt);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.status = :status")
+    List<UUID> findIdsInStatus(Collection<UUID> ids, OrderStatus status);
 }
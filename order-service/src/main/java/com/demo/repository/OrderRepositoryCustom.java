@@ -0,0 +1,16 @@
+package com.demo.repository;
+
+import com.demo.dto.OrderCursor;
+import com.demo.dto.OrderHistoryFilter;
+import com.demo.dto.OrderSummary;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * One page of a customer's orders, newest first, strictly after {@code after} when given.
+     * Returns summaries only; items are loaded separately per page.
+     */
+    List<OrderSummary> findHistoryPage(String customerId, OrderHistoryFilter filter, OrderCursor after, int limit);
+}
@@ -0,0 +1,79 @@
+package com.demo.repository;
+
+import com.demo.dto.OrderCursor;
+import com.demo.dto.OrderHistoryFilter;
+import com.demo.dto.OrderSummary;
+import com.demo.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/*
+* Keyset pagination on (customerId, createdAt, id) - served by idx_orders_customer_created.
+* The cursor's OR cannot bound an index range by itself, so it is repeated as a plain
+* createdAt <= bound: each page starts at the cursor instead of at the customer's newest
+* order. Filters outside the index (status, amount) are still checked row by row.
+* */
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findHistoryPage(String customerId, OrderHistoryFilter filter, OrderCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummary> query = cb.createQuery(OrderSummary.class);
+        Root<Order> order = query.from(Order.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(order.get("customerId"), customerId));
+
+        if (filter.statuses() != null && !filter.statuses().isEmpty()) {
+            predicates.add(order.get("status").in(filter.statuses()));
+        }
+        if (filter.from() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.<LocalDateTime>get("createdAt"), filter.from()));
+        }
+        if (filter.to() != null) {
+            predicates.add(cb.lessThan(order.<LocalDateTime>get("createdAt"), filter.to()));
+        }
+        if (filter.minAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.<BigDecimal>get("totalAmount"), filter.minAmount()));
+        }
+        if (filter.maxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(order.<BigDecimal>get("totalAmount"), filter.maxAmount()));
+        }
+        if (after != null) {
+            // Redundant with the OR below, but it is what lets the index seek to the cursor
+            predicates.add(cb.lessThanOrEqualTo(order.<LocalDateTime>get("createdAt"), after.createdAt()));
+            predicates.add(cb.or(
+                    cb.lessThan(order.<LocalDateTime>get("createdAt"), after.createdAt()),
+                    cb.and(
+                            cb.equal(order.get("createdAt"), after.createdAt()),
+                            cb.lessThan(order.<UUID>get("id"), after.id()))));
+        }
+
+        query.select(cb.construct(OrderSummary.class,
+                        order.get("id"),
+                        order.get("customerId"),
+                        order.get("status"),
+                        order.get("totalAmount"),
+                        order.get("createdAt"),
+                        order.get("updatedAt")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.desc(order.get("createdAt")), cb.desc(order.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
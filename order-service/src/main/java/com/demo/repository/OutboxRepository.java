@@ -0,0 +1,31 @@
+package com.demo.repository;
+
+import com.demo.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // A whole chunk's ids in one round trip, instead of one nextval per row as it is flushed
+    @Query(value = "SELECT nextval('" + OutboxEvent.SEQUENCE + "') FROM generate_series(1, :count)", nativeQuery = true)
+    List<Long> nextIds(int count);
+
+    // No row locks: only the instance holding the relay lock reads and marks rows
+    @Query(value = "SELECT * FROM order_outbox WHERE sent_at IS NULL ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findNextUnsent(int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(Collection<Long> ids, LocalDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sentAt < :before")
+    int deleteSentBefore(LocalDateTime before);
+}
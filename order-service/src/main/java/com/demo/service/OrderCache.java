@@ -0,0 +1,70 @@
+package com.demo.service;
+
+import com.demo.dto.OrderResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of {@link OrderResponse} by order id.
+ * <p>
+ * Concurrent misses for the same id share one load. Writers never touch the cache directly:
+ * changes are applied after their transaction commits, so a reader that loaded the old row
+ * just before the commit cannot leave a stale entry behind.
+ */
+@Component
+public class OrderCache {
+
+    private final Cache<String, OrderResponse> cache;
+
+    public OrderCache(@Value("${order.cache.maximum-size:100000}") long maximumSize,
+                      @Value("${order.cache.ttl:30s}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orders");
+    }
+
+    public OrderResponse get(String orderId, Function<String, OrderResponse> loader) {
+        return cache.get(orderId, loader);
+    }
+
+    public void putAfterCommit(OrderResponse order) {
+        afterCommit(() -> cache.put(order.id(), order));
+    }
+
+    public void invalidateAfterCommit(String orderId) {
+        afterCommit(() -> cache.invalidate(orderId));
+    }
+
+    public void invalidateAfterCommit(Collection<String> orderIds) {
+        List<String> ids = List.copyOf(orderIds);
+        afterCommit(() -> cache.invalidateAll(ids));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
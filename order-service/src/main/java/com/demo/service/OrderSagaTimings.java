@@ -0,0 +1,66 @@
+package com.demo.service;
+
+import com.demo.event.InventoryUpdatedEvent;
+import com.demo.event.PaymentProcessedEvent;
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * The order-service ends of the saga timeline: a new order is timed from its REST accept,
+ * and status updates are stamped once they have committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderSagaTimings {
+
+    private final SagaTimer sagaTimer;
+
+    /** Call before the OrderCreated events are queued, so the outbox rows carry the accept stamp. */
+    public void accepted(List<String> orderIds, long acceptedAtMicros) {
+        for (String orderId : orderIds) {
+            sagaTimer.accepted(orderId, acceptedAtMicros);
+        }
+        afterCommit(() -> orderIds.forEach(orderId -> sagaTimer.stamp(orderId, SagaStage.ORDER_COMMITTED)));
+    }
+
+    /** A failed payment is the end of the order's saga. */
+    public void paymentsApplied(List<PaymentProcessedEvent> events) {
+        afterCommit(() -> {
+            for (PaymentProcessedEvent event : events) {
+                if (event.success()) {
+                    sagaTimer.stamp(event.orderId(), SagaStage.ORDER_PAYMENT_UPDATED);
+                } else {
+                    sagaTimer.completed(event.orderId(), SagaStage.ORDER_PAYMENT_UPDATED, "payment_failed");
+                }
+            }
+        });
+    }
+
+    public void inventoryApplied(List<InventoryUpdatedEvent> events) {
+        afterCommit(() -> {
+            for (InventoryUpdatedEvent event : events) {
+                sagaTimer.completed(event.orderId(), SagaStage.ORDER_INVENTORY_UPDATED,
+                        event.success() ? "completed" : "inventory_failed");
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
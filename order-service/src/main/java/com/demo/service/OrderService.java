@@ -1,9 +1,15 @@
 package com.demo.service;
 
+import com.demo.dto.BatchOrderResponse;
+import com.demo.dto.BatchOrderResult;
 import com.demo.dto.CreateOderRequest;
+import com.demo.dto.OrderCursor;
+import com.demo.dto.OrderHistoryFilter;
 import com.demo.dto.OrderItemRequest;
 import com.demo.dto.OrderItemResponse;
+import com.demo.dto.OrderPageResponse;
 import com.demo.dto.OrderResponse;
+import com.demo.dto.OrderSummary;
 import com.demo.entity.Order;
 import com.demo.entity.OrderItem;
 import com.demo.entity.OrderStatus;
@@ -12,18 +18,37 @@ import com.demo.event.OrderCreatedEvent;
 import com.demo.event.OrderItemEvent;
 import com.demo.event.PaymentProcessedEvent;
 import com.demo.kafka.OrderEventProducer;
+import com.demo.repository.OrderItemRepository;
 import com.demo.repository.OrderRepository;
+import com.demo.saga.SagaTimer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,28 +56,55 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderService {
 
+    // Statuses a saga result may move an order out of; anything else (e.g. CANCELLED) is final for it
+    private static final Map<OrderStatus, Set<OrderStatus>> ALLOWED_PREDECESSORS = new EnumMap<>(Map.of(
+            OrderStatus.PAYMENT_COMPLETED, EnumSet.of(
+                    OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PAYMENT_PROCESSING),
+            OrderStatus.PAYMENT_FAILED, EnumSet.of(
+                    OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PAYMENT_PROCESSING),
+            // Inventory results can overtake the payment result, they come from another topic
+            OrderStatus.COMPLETED, EnumSet.of(
+                    OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PAYMENT_PROCESSING,
+                    OrderStatus.PAYMENT_COMPLETED, OrderStatus.INVENTORY_RESERVED),
+            OrderStatus.INVENTORY_FAILED, EnumSet.of(
+                    OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.PAYMENT_PROCESSING,
+                    OrderStatus.PAYMENT_COMPLETED, OrderStatus.INVENTORY_RESERVED)
+    ));
+
     private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
     private final OrderEventProducer eventProducer;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final OrderCache orderCache;
+    private final OrderSagaTimings sagaTimings;
+
+    @Value("${order.batch.max-size:50000}")
+    private int batchMaxSize;
+
+    // Keep a multiple of hibernate.jdbc.batch_size
+    @Value("${order.batch.flush-size:500}")
+    private int batchFlushSize;
+
+    @Value("${order.export.chunk-size:500}")
+    private int exportChunkSize;
 
+    @Value("${order.history.max-page-size:200}")
+    private int historyMaxPageSize;
 
     public OrderResponse createOrder(CreateOderRequest request) {
-        log.info("Creating order for customer: {}", request.customerId());
+        long acceptedAt = SagaTimer.nowMicros();
+        log.debug("Creating order for customer: {}", request.customerId());
 
         //Build order items
         // Java 21: Use method reference with records
         List<OrderItem> items = request.items().stream()
-                .map(this::mapToOderItem)
+                .map(OrderService::mapToOderItem)
                 .toList(); // Java 16+: toList() instead of collect(Collectors.toList())
 
-
-        log.info("Request received: customerId={}, items count={}",
-                request.customerId(), request.items().size());
         //Calculate total
-        BigDecimal total = items.stream()
-                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO,(BigDecimal::add));
-
-        log.info("Calculated total: {}", total);
+        BigDecimal total = calculateTotal(items);
 
         Order order = Order.builder()
                 .customerId(request.customerId())
@@ -60,52 +112,159 @@ public class OrderService {
                 .status(OrderStatus.PENDING)
                 .build();
 
-        log.info("Built order: customerId={}, totalAmount={}, status={}",
-                order.getCustomerId(), order.getTotalAmount(), order.getStatus());
-
         //Link items to order
         items.forEach(item -> item.setOrder(order));
         order.setItems(items);
 
-        log.info("After setting items, totalAmount={}", order.getTotalAmount());
         // var: Obviously returns Order (from save method signature)
         var saved = orderRepository.save(order);
-        log.info("Order created with ID: {}, total: {}", saved.getId(), saved.getTotalAmount());
+        log.debug("Order created with ID: {}, total: {}", saved.getId(), saved.getTotalAmount());
 
         // Publish Kafka event
         OrderCreatedEvent event = new OrderCreatedEvent(
-                saved.getId(),
+                saved.getId().toString(),
                 saved.getCustomerId(),
                 saved.getTotalAmount(),
-                items.stream().map(this::mapToItemEvent).toList(),
+                items.stream().map(OrderService::mapToItemEvent).toList(),
                 LocalDateTime.now()
         );
 
+        sagaTimings.accepted(List.of(event.orderId()), acceptedAt);
         eventProducer.publishOrderCreated(event);
 
-        return mapToResponse(saved);
+        // Clients poll the new order right away; serve it from the cache once it is committed
+        OrderResponse response = mapToResponse(saved);
+        orderCache.putAfterCommit(response);
+        return response;
+    }
+
+    /**
+     * Creates many orders in one transaction. Invalid requests are reported per index and skipped;
+     * valid ones are inserted with JDBC statement batching and their events written to the outbox
+     * in the same batches. The persistence context is flushed and cleared every flush-size orders
+     * so memory stays bounded for large imports.
+     */
+    public BatchOrderResponse createOrders(List<CreateOderRequest> requests) {
+        if (requests.size() > batchMaxSize) {
+            throw new IllegalArgumentException(
+                    "Batch of " + requests.size() + " orders exceeds the limit of " + batchMaxSize);
+        }
+        long acceptedAt = SagaTimer.nowMicros();
+        log.info("Creating batch of {} orders", requests.size());
+
+        List<BatchOrderResult> results = new ArrayList<>(requests.size());
+        List<Order> chunk = new ArrayList<>(batchFlushSize);
+        List<Integer> chunkIndexes = new ArrayList<>(batchFlushSize);
+
+        for (int i = 0; i < requests.size(); i++) {
+            CreateOderRequest request = requests.get(i);
+            List<String> errors = validate(request);
+            if (!errors.isEmpty()) {
+                results.add(BatchOrderResult.rejected(i, errors));
+                continue;
+            }
+
+            chunk.add(buildOrder(request));
+            chunkIndexes.add(i);
+            if (chunk.size() == batchFlushSize) {
+                persistChunk(chunk, chunkIndexes, results, acceptedAt);
+            }
+        }
+        persistChunk(chunk, chunkIndexes, results, acceptedAt);
+
+        results.sort(Comparator.comparingInt(BatchOrderResult::index));
+        int accepted = (int) results.stream().filter(r -> r.orderId() != null).count();
+        log.info("Batch created {} orders, rejected {}", accepted, results.size() - accepted);
+        return new BatchOrderResponse(accepted, results.size() - accepted, results);
     }
 
+    /**
+     * Read-through {@link OrderCache}. SUPPORTS: a cache hit never opens a transaction, a miss
+     * loads in a non-transactional read.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
     public OrderResponse getOrder(String orderId) {
-       return orderRepository.findById(orderId)
-                .map(this::mapToResponse)
-                .orElseThrow(() -> new NoSuchElementException("Order not found: " + orderId));
+        UUID id = parseOrderId(orderId);
+        OrderResponse order = orderCache.get(orderId, key -> orderRepository.findById(id)
+                .map(OrderService::mapToResponse)
+                .orElse(null));
+        if (order == null) {
+            throw new NoSuchElementException("Order not found: " + orderId);
+        }
+        return order;
     }
 
     public List<OrderResponse> getOrdersByCustomer(String customerId) {
         return orderRepository.findByCustomerId(customerId).stream()
-                .map(this::mapToResponse)
+                .map(OrderService::mapToResponse)
                 .toList();
     }
 
+    /**
+     * Keyset-paginated order history. Each page is one index range scan on orders, starting
+     * at the cursor, plus one IN query for the page's items. Without status or amount filters
+     * that does not depend on how deep the client has paged; with them, rows that do not match
+     * are read and skipped.
+     */
+    public OrderPageResponse getOrderHistory(String customerId, OrderHistoryFilter filter,
+                                             String cursor, int limit) {
+        if (limit < 1 || limit > historyMaxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + historyMaxPageSize);
+        }
+        OrderCursor after = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+
+        // Fetch one extra row to know whether there is a next page
+        List<OrderSummary> rows = orderRepository.findHistoryPage(customerId, filter, after, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<OrderSummary> page = hasMore ? rows.subList(0, limit) : rows;
+
+        Map<UUID, List<OrderItemResponse>> itemsByOrder = loadItems(page);
+        List<OrderResponse> orders = page.stream()
+                .map(order -> mapToResponse(order, itemsByOrder.getOrDefault(order.id(), List.of())))
+                .toList();
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummary last = page.getLast();
+            nextCursor = new OrderCursor(last.createdAt(), last.id()).encode();
+        }
+        return new OrderPageResponse(orders, nextCursor);
+    }
+
+    /**
+     * @deprecated materializes every order in memory; use {@link #exportOrders(OutputStream)}.
+     */
+    @Deprecated
     public List<OrderResponse> getAllOrders() {
         return orderRepository.findAll().stream()
-                .map(this::mapToResponse)
+                .map(OrderService::mapToResponse)
                 .toList();
     }
 
+    /**
+     * Writes every order as one JSON line. Orders are read through a forward-only cursor and their
+     * items are loaded with one query per chunk, so memory use does not grow with the table size.
+     */
+    public void exportOrders(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(OrderResponse.class);
+        List<OrderSummary> chunk = new ArrayList<>(exportChunkSize);
+        long exported = 0;
+
+        try (Stream<OrderSummary> orders = orderRepository.streamAllSummaries()) {
+            Iterator<OrderSummary> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == exportChunkSize) {
+                    exported += writeExportChunk(chunk, writer, out);
+                }
+            }
+            exported += writeExportChunk(chunk, writer, out);
+        }
+        log.info("Exported {} orders", exported);
+    }
+
     public OrderResponse cancelOrder(String orderId) {
-        var order = orderRepository.findById(orderId)
+        var order = orderRepository.findById(parseOrderId(orderId))
                 .orElseThrow(() -> new NoSuchElementException("Order not found: " + orderId));
 
         // Java 21: Pattern matching for switch
@@ -121,20 +280,27 @@ public class OrderService {
 
         order.setStatus(OrderStatus.CANCELLED);
         var saved = orderRepository.save(order);
+        orderCache.invalidateAfterCommit(orderId);
 
         eventProducer.publishOrderCancelled(orderId, "Customer requested cancellation");
         return mapToResponse(saved);
     }
 
     public void handlePaymentResult(PaymentProcessedEvent event) {
-        orderRepository.findById(event.orderId()).ifPresent(order -> {
+        findOrder(event.orderId()).ifPresent(order -> {
             // Simple ternary operator (stable feature)
             OrderStatus newStatus = event.success()
                     ? OrderStatus.PAYMENT_COMPLETED
                     : OrderStatus.PAYMENT_FAILED;
 
+            // Same guard as the batch path: a late or redelivered result must not move a finished order back
+            if (!ALLOWED_PREDECESSORS.get(newStatus).contains(order.getStatus())) {
+                log.warn("Order {} not moved from {} to {}", event.orderId(), order.getStatus(), newStatus);
+                return;
+            }
+
             if (event.success()) {
-                log.info("Payment completed for order: {}", event.orderId());
+                log.debug("Payment completed for order: {}", event.orderId());
             } else {
                 log.warn("Payment failed for order: {}. Reason: {}",
                         event.orderId(), event.message());
@@ -142,28 +308,221 @@ public class OrderService {
 
             order.setStatus(newStatus);
             orderRepository.save(order);
+            orderCache.invalidateAfterCommit(event.orderId());
         });
+        sagaTimings.paymentsApplied(List.of(event));
     }
 
     public void handleInventoryResult(InventoryUpdatedEvent event) {
-        orderRepository.findById(event.orderId()).ifPresent(order -> {
+        findOrder(event.orderId()).ifPresent(order -> {
             OrderStatus newStatus = event.success()
                     ? OrderStatus.COMPLETED
                     : OrderStatus.INVENTORY_FAILED;
 
+            // Same guard as the batch path: a released hold must not fail a completed order
+            if (!ALLOWED_PREDECESSORS.get(newStatus).contains(order.getStatus())) {
+                if (newStatus == OrderStatus.COMPLETED && order.getStatus() == OrderStatus.COMPLETED) {
+                    eventProducer.publishOrdersConfirmed(List.of(event.orderId()));
+                }
+                log.warn("Order {} not moved from {} to {}", event.orderId(), order.getStatus(), newStatus);
+                return;
+            }
+
             String logMessage = event.success()
                     ? "Inventory reserved, order completed: " + event.orderId()
                     : "Inventory update failed for order: " + event.orderId();
 
-            log.info(logMessage);
+            log.debug(logMessage);
             order.setStatus(newStatus);
             orderRepository.save(order);
+            orderCache.invalidateAfterCommit(event.orderId());
+            if (newStatus == OrderStatus.COMPLETED) {
+                eventProducer.publishOrdersConfirmed(List.of(event.orderId()));
+            }
         });
+        sagaTimings.inventoryApplied(List.of(event));
+    }
+
+
+
+    /**
+     * Applies a poll's worth of payment results with one guarded UPDATE per target status.
+     */
+    public void handlePaymentResults(List<PaymentProcessedEvent> events) {
+        Map<Boolean, List<String>> byOutcome = events.stream()
+                .collect(Collectors.partitioningBy(PaymentProcessedEvent::success,
+                        Collectors.mapping(PaymentProcessedEvent::orderId, Collectors.toList())));
+
+        transitionAll(OrderStatus.PAYMENT_COMPLETED, byOutcome.get(true));
+        transitionAll(OrderStatus.PAYMENT_FAILED, byOutcome.get(false));
+        sagaTimings.paymentsApplied(events);
+    }
+
+    /**
+     * Applies a poll's worth of inventory results with one guarded UPDATE per target status.
+     */
+    public void handleInventoryResults(List<InventoryUpdatedEvent> events) {
+        Map<Boolean, List<String>> byOutcome = events.stream()
+                .collect(Collectors.partitioningBy(InventoryUpdatedEvent::success,
+                        Collectors.mapping(InventoryUpdatedEvent::orderId, Collectors.toList())));
+
+        transitionAll(OrderStatus.COMPLETED, byOutcome.get(true));
+        transitionAll(OrderStatus.INVENTORY_FAILED, byOutcome.get(false));
+        confirmCompleted(byOutcome.get(true));
+        sagaTimings.inventoryApplied(events);
+    }
+
+    /**
+     * Confirms the stock holds of the orders that are now COMPLETED, including ones that already
+     * were (a redelivered result); inventory ignores repeated confirmations.
+     */
+    private void confirmCompleted(List<String> orderIds) {
+        Set<UUID> keys = orderIds.stream()
+                .map(OrderService::toUuid)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<UUID> completed = orderRepository.findIdsInStatus(keys, OrderStatus.COMPLETED);
+        if (!completed.isEmpty()) {
+            eventProducer.publishOrdersConfirmed(completed.stream().map(UUID::toString).toList());
+        }
+    }
+
+    private void transitionAll(OrderStatus target, List<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Set<String> ids = Set.copyOf(orderIds);
+        // Ids that are not UUIDs cannot match an order; they count as unknown below
+        Set<UUID> keys = ids.stream()
+                .map(OrderService::toUuid)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toSet());
+        int updated = keys.isEmpty() ? 0 : orderRepository.transitionStatus(keys, target,
+                ALLOWED_PREDECESSORS.get(target), LocalDateTime.now());
+        orderCache.invalidateAfterCommit(ids);
+
+        if (updated < ids.size()) {
+            log.warn("{} of {} orders not moved to {}: unknown or not in an allowed status",
+                    ids.size() - updated, ids.size(), target);
+        } else {
+            log.debug("Moved {} orders to {}", updated, target);
+        }
     }
 
+    private List<String> validate(CreateOderRequest request) {
+        if (request == null) {
+            return List.of("Order is required");
+        }
+        return validator.validate(request).stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private Order buildOrder(CreateOderRequest request) {
+        List<OrderItem> items = request.items().stream()
+                .map(OrderService::mapToOderItem)
+                .toList();
+
+        Order order = Order.builder()
+                .customerId(request.customerId())
+                .totalAmount(calculateTotal(items))
+                .status(OrderStatus.PENDING)
+                .build();
+
+        items.forEach(item -> item.setOrder(order));
+        order.setItems(items);
+        return order;
+    }
+
+    private void persistChunk(List<Order> chunk, List<Integer> indexes, List<BatchOrderResult> results,
+                              long acceptedAt) {
+        if (chunk.isEmpty()) {
+            return;
+        }
 
+        orderRepository.saveAll(chunk);
+        sagaTimings.accepted(chunk.stream().map(order -> order.getId().toString()).toList(), acceptedAt);
+        LocalDateTime now = LocalDateTime.now();
+        eventProducer.publishOrdersCreated(chunk.stream()
+                .map(order -> new OrderCreatedEvent(
+                        order.getId().toString(),
+                        order.getCustomerId(),
+                        order.getTotalAmount(),
+                        order.getItems().stream().map(OrderService::mapToItemEvent).toList(),
+                        now))
+                .toList());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            results.add(BatchOrderResult.created(indexes.get(i), chunk.get(i).getId().toString()));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        chunk.clear();
+        indexes.clear();
+    }
+
+    private int writeExportChunk(List<OrderSummary> chunk, ObjectWriter writer, OutputStream out)
+            throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        Map<UUID, List<OrderItemResponse>> itemsByOrder = loadItems(chunk);
+        for (OrderSummary order : chunk) {
+            out.write(writer.writeValueAsBytes(
+                    mapToResponse(order, itemsByOrder.getOrDefault(order.id(), List.of()))));
+            out.write('\n');
+        }
+        out.flush();
+
+        // Drop the loaded items so the session does not grow with the export
+        entityManager.clear();
+        int written = chunk.size();
+        chunk.clear();
+        return written;
+    }
 
-    private OrderItem mapToOderItem(OrderItemRequest req) {
+    private Map<UUID, List<OrderItemResponse>> loadItems(List<OrderSummary> orders) {
+        if (orders.isEmpty()) {
+            return Map.of();
+        }
+        return orderItemRepository.findByOrderIdIn(orders.stream().map(OrderSummary::id).toList()).stream()
+                .collect(Collectors.groupingBy(item -> item.getOrder().getId(),
+                        Collectors.mapping(OrderService::mapToItemResponse, Collectors.toList())));
+    }
+
+    // Order ids are UUIDs in the database; everywhere else (API, events, cache keys) they are strings
+
+    private static UUID parseOrderId(String orderId) {
+        return toUuid(orderId).orElseThrow(() -> new NoSuchElementException("Order not found: " + orderId));
+    }
+
+    private Optional<Order> findOrder(String orderId) {
+        return toUuid(orderId).flatMap(orderRepository::findById);
+    }
+
+    private static Optional<UUID> toUuid(String value) {
+        try {
+            return Optional.of(UUID.fromString(value));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Pure mapping helpers below are static and package-private so the JMH benchmarks can call them
+
+    static BigDecimal calculateTotal(List<OrderItem> items) {
+        return items.stream()
+                .map(item -> item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    static OrderItem mapToOderItem(OrderItemRequest req) {
         return OrderItem.builder()
                 .productId(req.productId())
                 .productName(req.productName())
@@ -173,7 +532,7 @@ public class OrderService {
                 .build();
     }
 
-    private OrderItemEvent mapToItemEvent(OrderItem item) {
+    static OrderItemEvent mapToItemEvent(OrderItem item) {
         return new OrderItemEvent(
                 item.getProductId(),
                 item.getProductName(),
@@ -182,20 +541,13 @@ public class OrderService {
         );
     }
 
-    private OrderResponse mapToResponse(Order order) {
+    static OrderResponse mapToResponse(Order order) {
         List<OrderItemResponse> itemResponses = order.getItems().stream()
-                .map(item -> new OrderItemResponse(
-                        item.getId(),
-                        item.getProductId(),
-                        item.getProductName(),
-                        item.getQuantity(),
-                        item.getUnitPrice(),
-                        item.getSubtotal()
-                ))
+                .map(OrderService::mapToItemResponse)
                 .toList();
 
         return new OrderResponse(
-                order.getId(),
+                order.getId().toString(),
                 order.getCustomerId(),
                 order.getStatus().name(),
                 order.getTotalAmount(),
@@ -204,4 +556,27 @@ public class OrderService {
                 order.getUpdatedAt()
         );
     }
+
+    static OrderResponse mapToResponse(OrderSummary order, List<OrderItemResponse> items) {
+        return new OrderResponse(
+                order.id().toString(),
+                order.customerId(),
+                order.status().name(),
+                order.totalAmount(),
+                items,
+                order.createdAt(),
+                order.updatedAt()
+        );
+    }
+
+    static OrderItemResponse mapToItemResponse(OrderItem item) {
+        return new OrderItemResponse(
+                item.getId().toString(),
+                item.getProductId(),
+                item.getProductName(),
+                item.getQuantity(),
+                item.getUnitPrice(),
+                item.getSubtotal()
+        );
+    }
 }
@@ -0,0 +1,161 @@
+package com.demo.kafka;
+
+import com.demo.entity.OutboxEvent;
+import com.demo.repository.OutboxRepository;
+import com.demo.saga.SagaTimer;
+import com.demo.trace.Tracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+	private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+	private final DataSource dataSource = mock(DataSource.class);
+	private final Connection lockConnection = mock(Connection.class);
+	private final ResultSet lockResult = mock(ResultSet.class);
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+	private final List<String> sent = new ArrayList<>();
+	private final OutboxRelay relay = new OutboxRelay(outboxRepository, dataSource, kafkaTemplate,
+			mock(PlatformTransactionManager.class), mock(SagaTimer.class), mock(Tracer.class), new SimpleMeterRegistry());
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ReflectionTestUtils.setField(relay, "maxBatchSize", 500);
+		ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 20);
+		ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(dataSource.getConnection()).thenReturn(lockConnection);
+		when(lockConnection.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(lockResult);
+		when(lockResult.next()).thenReturn(true);
+		when(lockResult.getBoolean(1)).thenReturn(true);
+	}
+
+	@Test
+	void stopsAKeyAtItsFirstFailedRow() {
+		when(outboxRepository.findNextUnsent(anyInt())).thenReturn(List.of(
+				row(1, "order-created", "order-a"),
+				row(2, "order-created", "order-b"),
+				row(3, "order-cancelled", "order-a")));
+		whenSent("order-created", "order-a", CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		relay.relay();
+
+		assertThat(sent).containsExactly("order-created/order-a", "order-created/order-b");
+		verify(outboxRepository).markSent(eq(List.of(2L)), any());
+	}
+
+	@Test
+	void sendsTheNextRowOfAKeyOnlyAfterThePreviousWasAcked() {
+		when(outboxRepository.findNextUnsent(anyInt())).thenReturn(List.of(
+				row(1, "order-created", "order-a"),
+				row(2, "order-cancelled", "order-a")));
+		CompletableFuture<SendResult<String, Object>> created = new CompletableFuture<>();
+		whenSent("order-created", "order-a", created);
+		// Acked a moment later, so the cancellation can't have gone out with it
+		CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+				.execute(() -> {
+					assertThat(sent).containsExactly("order-created/order-a");
+					created.complete(null);
+				});
+
+		relay.relay();
+
+		assertThat(sent).containsExactly("order-created/order-a", "order-cancelled/order-a");
+		verify(outboxRepository).markSent(eq(List.of(1L, 2L)), any());
+	}
+
+	@Test
+	void endsTheRoundAfterAFailedBatch() {
+		List<OutboxEvent> full = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			full.add(row(i, "order-created", i == 0 ? "order-a" : "order-" + i));
+		}
+		when(outboxRepository.findNextUnsent(anyInt())).thenReturn(full);
+		whenSent("order-created", "order-a", CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		relay.relay();
+
+		// A full batch would normally be followed by the next one
+		verify(outboxRepository).findNextUnsent(500);
+	}
+
+	@Test
+	void skipsTheRoundWhileAnotherInstanceRelays() throws Exception {
+		when(lockResult.getBoolean(1)).thenReturn(false);
+
+		relay.relay();
+
+		verifyNoInteractions(outboxRepository, kafkaTemplate);
+		verify(lockConnection).close();
+	}
+
+	@Test
+	void releasesTheRelayLockAfterTheRound() throws Exception {
+		when(outboxRepository.findNextUnsent(anyInt())).thenReturn(List.of());
+
+		relay.relay();
+
+		InOrder order = inOrder(lockConnection, outboxRepository);
+		order.verify(lockConnection).prepareStatement("SELECT pg_try_advisory_lock(?)");
+		order.verify(outboxRepository).findNextUnsent(500);
+		order.verify(lockConnection).prepareStatement("SELECT pg_advisory_unlock(?)");
+		order.verify(lockConnection).close();
+		verify(outboxRepository, never()).markSent(anyCollection(), any());
+	}
+
+	@SuppressWarnings("unchecked")
+	private void whenSent(String topic, String key, CompletableFuture<SendResult<String, Object>> result) {
+		when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+			ProducerRecord<String, Object> record = invocation.getArgument(0);
+			sent.add(record.topic() + "/" + record.key());
+			return record.topic().equals(topic) && record.key().equals(key)
+					? result
+					: CompletableFuture.completedFuture(null);
+		});
+	}
+
+	private static OutboxEvent row(long id, String topic, String orderId) {
+		return OutboxEvent.builder()
+				.id(id)
+				.topic(topic)
+				.aggregateId(orderId)
+				.eventType(topic)
+				.payload(new byte[]{1})
+				.createdAt(LocalDateTime.now())
+				.build();
+	}
+}
@@ -0,0 +1,19 @@
+package com.demo.config;
+
+import com.demo.limit.ConcurrencyLimitConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Adaptive limits in front of the payment API and the order-created listeners, so overload
+ * turns into fast 503s and paused fetching instead of a saturated Hikari pool and gateway queue.
+ */
+@Configuration
+public class ConcurrencyLimitConfig extends ConcurrencyLimitConfigSupport {
+
+    // A summary rebuild scans the whole projection by design and would only skew the latency samples
+    public ConcurrencyLimitConfig() {
+        super("payment", "/api/payments/*", List.of("/api/payments/summaries/rebuild"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.demo.config;
+
+import com.demo.kafka.KeyOrderedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Hands a whole poll to the listener; offsets are committed once the listener returns.
+     * Inherits everything else from spring.kafka.* like the default factory.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    /**
+     * Record listener whose acks may arrive out of order from worker threads. With async acks
+     * the container only commits up to the lowest unacknowledged offset of each partition,
+     * so a commit never skips a record that is still being processed.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+
+    @Bean(destroyMethod = "close")
+    public KeyOrderedExecutor paymentEventExecutor(
+            @Value("${payment.consumer.parallel.virtual-threads:true}") boolean virtualThreads,
+            @Value("${payment.consumer.parallel.threads:16}") int threads,
+            @Value("${payment.consumer.parallel.max-in-flight:1000}") int maxInFlight,
+            MeterRegistry meterRegistry) {
+        ExecutorService workers = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("payment-worker-", 0).factory())
+                : Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("payment-worker-", 0).factory());
+        return new KeyOrderedExecutor(workers, maxInFlight, "payment.consumer.parallel", meterRegistry);
+    }
+}
@@ -0,0 +1,25 @@
+package com.demo.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    /**
+     * Where send-completion callbacks run. In virtual-thread mode they are moved off the
+     * producer's I/O thread so slow callbacks cannot delay other sends; otherwise they run inline.
+     */
+    @Bean
+    public Executor kafkaCallbackExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-callback-", 0).factory());
+        }
+        return Runnable::run;
+    }
+}
@@ -0,0 +1,50 @@
+package com.demo.config;
+
+import com.demo.gateway.PaymentGateway;
+import com.demo.gateway.ResilientPaymentGateway;
+import com.demo.gateway.StubPaymentGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * {@code paymentGatewayTransport} talks to the gateway (only the stub exists so far, selected
+ * by {@code payment.gateway.type}); the primary {@link PaymentGateway} wraps whichever
+ * transport is active with the concurrency, timeout, hedging and retry policy.
+ */
+@Configuration
+public class PaymentGatewayConfig {
+
+    @Bean("paymentGatewayTransport")
+    @ConditionalOnProperty(name = "payment.gateway.type", havingValue = "stub", matchIfMissing = true)
+    public StubPaymentGateway stubPaymentGateway(
+            @Value("${payment.gateway.stub.latency.median:50ms}") Duration medianLatency,
+            @Value("${payment.gateway.stub.latency.p99:400ms}") Duration p99Latency,
+            @Value("${payment.gateway.stub.decline-rate:0.0}") double declineRate,
+            @Value("${payment.gateway.stub.error-rate:0.0}") double errorRate,
+            @Value("${payment.gateway.stub.max-amount:10000}") BigDecimal maxAmount) {
+        return new StubPaymentGateway(medianLatency, p99Latency, declineRate, errorRate, maxAmount);
+    }
+
+    @Bean
+    @Primary
+    public ResilientPaymentGateway paymentGateway(
+            @Qualifier("paymentGatewayTransport") PaymentGateway transport,
+            @Value("${payment.gateway.max-in-flight:500}") int maxInFlight,
+            @Value("${payment.gateway.acquire-timeout:5s}") Duration acquireTimeout,
+            @Value("${payment.gateway.call-timeout:2s}") Duration callTimeout,
+            @Value("${payment.gateway.hedge-delay:500ms}") Duration hedgeDelay,
+            @Value("${payment.gateway.max-attempts:3}") int maxAttempts,
+            @Value("${payment.gateway.retry-backoff:100ms}") Duration retryBackoff,
+            MeterRegistry meterRegistry) {
+        return new ResilientPaymentGateway(transport, maxInFlight, acquireTimeout, callTimeout,
+                hedgeDelay, maxAttempts, retryBackoff, meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package com.demo.config;
+
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimingConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Saga latency timing. The interceptor runs in every listener container built through
+ * Boot's configurer (combined with tracing in {@link TracingConfig}) and stamps the arrival
+ * of new orders.
+ */
+@Configuration
+public class SagaTimingConfig extends SagaTimingConfigSupport {
+
+    public SagaTimingConfig() {
+        super("payment", Map.of("kafka.topics.order-created", SagaStage.PAYMENT_RECEIVED));
+    }
+}
@@ -0,0 +1,49 @@
+package com.demo.controller;
+
+import com.demo.kafka.retry.DeadLetterReplayer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/dead-letters")
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterController {
+
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    @Value("${kafka.topics.order-created}")
+    private String orderCreatedTopic;
+
+    @PostMapping("/{topic}/replay")
+    public ResponseEntity<Map<String, Object>> replay(@PathVariable String topic,
+                                                      @RequestParam(defaultValue = "500") int max) {
+        log.info("POST /api/admin/dead-letters/{}/replay - max {}", topic, max);
+        if (!topic.equals(orderCreatedTopic)) {
+            throw new IllegalArgumentException("No dead letters are kept for topic: " + topic);
+        }
+        if (max < 1) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        int replayed = deadLetterReplayer.replay(topic, max);
+        return ResponseEntity.ok(Map.of("topic", topic, "replayed", replayed, "drained", replayed < max));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleReplayFailure(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", ex.getMessage()));
+    }
+}
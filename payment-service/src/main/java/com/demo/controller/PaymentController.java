@@ -0,0 +1,86 @@
+package com.demo.controller;
+
+import com.demo.dto.CustomerPaymentSummaryResponse;
+import com.demo.dto.PaymentResponse;
+import com.demo.dto.ProcessPaymentRequest;
+import com.demo.service.PaymentService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/api/payments")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentController {
+
+    private final PaymentService paymentService;
+
+    @PostMapping
+    public ResponseEntity<PaymentResponse> processPayment(@Valid @RequestBody ProcessPaymentRequest request) {
+        log.debug("POST /api/payments - Processing payment for order: {}", request.orderId());
+        PaymentResponse response = paymentService.processPayment(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/{paymentId}")
+    public ResponseEntity<PaymentResponse> getPayment(@PathVariable String paymentId) {
+        log.debug("GET /api/payments/{}", paymentId);
+        return ResponseEntity.ok(paymentService.getPayment(paymentId));
+    }
+
+    @GetMapping("/order/{orderId}")
+    public ResponseEntity<PaymentResponse> getPaymentByOrderId(@PathVariable String orderId) {
+        log.debug("GET /api/payments/order/{}", orderId);
+        return ResponseEntity.ok(paymentService.getPaymentByOrderId(orderId));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<PaymentResponse>> getAllPayments() {
+        log.debug("GET /api/payments");
+        return ResponseEntity.ok(paymentService.getAllPayments());
+    }
+
+    @GetMapping("/customer/{customerId}")
+    public ResponseEntity<List<PaymentResponse>> getPaymentsByCustomer(@PathVariable String customerId) {
+        log.debug("GET /api/payments/customer/{}", customerId);
+        return ResponseEntity.ok(paymentService.getPaymentsByCustomer(customerId));
+    }
+
+    @GetMapping("/customer/{customerId}/summary")
+    public ResponseEntity<CustomerPaymentSummaryResponse> getCustomerSummary(@PathVariable String customerId) {
+        log.debug("GET /api/payments/customer/{}/summary", customerId);
+        return ResponseEntity.ok(paymentService.getCustomerSummary(customerId));
+    }
+
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildCustomerSummaries() {
+        log.info("POST /api/payments/summaries/rebuild");
+        return ResponseEntity.ok(Map.of("customers", paymentService.rebuildCustomerSummaries()));
+    }
+
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(NoSuchElementException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalState(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", ex.getMessage()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record CustomerPaymentSummaryResponse(
+        String customerId,
+        long paymentCount,
+        long completedCount,
+        long failedCount,
+        BigDecimal totalAmount,
+        BigDecimal completedAmount,
+        LocalDateTime lastPaymentAt,
+        LocalDateTime updatedAt
+) {}
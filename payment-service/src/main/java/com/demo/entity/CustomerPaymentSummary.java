@@ -0,0 +1,47 @@
+package com.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+* Running per-customer totals over the payments projection. Written with JDBC in the same
+* transaction that inserts the final payment rows (see PaymentBatchRepository), so it never
+* drifts from them; JPA only reads it.
+* */
+@Entity
+@Immutable
+@Table(name = "customer_payment_summaries")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerPaymentSummary {
+
+    @Id
+    private String customerId;
+
+    @Column(nullable = false)
+    private long paymentCount;
+
+    @Column(nullable = false)
+    private long completedCount;
+
+    @Column(nullable = false)
+    private long failedCount;
+
+    // Sum over all final payments; completedAmount is what was actually charged
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private BigDecimal completedAmount;
+
+    private LocalDateTime lastPaymentAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,13 +1,23 @@
 package com.demo.entity;
 
+import com.demo.event.OrderItemEvent;
+import com.demo.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.annotations.Immutable;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
+/*
+* Final-state projection of the payment ledger: one row per order, inserted once when the
+* payment reaches COMPLETED or FAILED and never updated. In-flight payments only exist
+* as PROCESSING entries in payment_ledger.
+* */
 @Entity
+@Immutable
 @Table(name = "payments")
 @Getter
 @Setter
@@ -17,8 +27,8 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @UuidGenerator
-    private String id;
+    @TimeOrderedId
+    private UUID id;
 
     @Column(nullable = false, unique = true)
     private String orderId;
@@ -44,6 +54,10 @@ public class Payment {
 
     private LocalDateTime processedAt;
 
+    // Lines of the triggering order, forwarded on PaymentProcessedEvent for inventory; not stored
+    @Transient
+    private List<OrderItemEvent> items;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -0,0 +1,63 @@
+package com.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+* One state transition of a payment, appended and never updated, except for the lease of a claim.
+* The unique (orderId, status) pair makes the PROCESSING entry the claim on an order:
+* only one caller can insert it, and only that caller appends the terminal entry, unless the
+* claim's lease ran out and another caller took it over.
+* */
+@Entity
+@Immutable
+@Table(name = "payment_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_ledger_order_status", columnNames = {"orderId", "status"}),
+        indexes = {
+                @Index(name = "idx_payment_ledger_payment_id", columnList = "paymentId"),
+                @Index(name = "idx_payment_ledger_customer_id", columnList = "customerId")
+        })
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentLedgerEntry {
+
+    // Identity: entries are appended with plain JDBC batches, never persisted through JPA
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID paymentId;
+
+    @Column(nullable = false)
+    private String orderId;
+
+    @Column(nullable = false)
+    private String customerId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    private String paymentMethod;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    private String transactionId;
+
+    private String failureReason;
+
+    @Column(nullable = false)
+    private LocalDateTime recordedAt;
+
+    // Claims only: when the current owner started charging; moved forward by a takeover
+    private LocalDateTime leasedAt;
+}
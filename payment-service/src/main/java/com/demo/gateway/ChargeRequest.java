@@ -0,0 +1,11 @@
+package com.demo.gateway;
+
+import java.math.BigDecimal;
+
+public record ChargeRequest(
+        String idempotencyKey,
+        String orderId,
+        String customerId,
+        BigDecimal amount,
+        String paymentMethod
+) {}
@@ -0,0 +1,15 @@
+package com.demo.gateway;
+
+public record ChargeResult(
+        boolean approved,
+        String transactionId,
+        String declineReason
+) {
+    public static ChargeResult approved(String transactionId) {
+        return new ChargeResult(true, transactionId, null);
+    }
+
+    public static ChargeResult declined(String reason) {
+        return new ChargeResult(false, null, reason);
+    }
+}
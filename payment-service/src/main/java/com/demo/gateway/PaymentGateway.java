@@ -0,0 +1,16 @@
+package com.demo.gateway;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client for the external payment gateway. Calls must not block the caller: the returned
+ * future completes when the gateway answers.
+ * <p>
+ * A decline is a normal {@link ChargeResult}; the future only fails when the outcome is
+ * unknown (timeout, transport error), in which case the same request may be sent again.
+ * Requests carry an idempotency key so the gateway charges at most once per key.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<ChargeResult> charge(ChargeRequest request);
+}
@@ -0,0 +1,15 @@
+package com.demo.gateway;
+
+/**
+ * The gateway could not give an answer. Safe to retry with the same idempotency key.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,207 @@
+package com.demo.gateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a {@link PaymentGateway} transport with the policies a remote call needs:
+ * <ul>
+ *     <li>at most {@code maxInFlight} transport calls outstanding, hedges and retries
+ *     included; a new charge waits up to {@code acquireTimeout} for a slot, which
+ *     back-pressures the consumers</li>
+ *     <li>every attempt is bounded by {@code callTimeout}</li>
+ *     <li>an attempt still unanswered after {@code hedgeDelay} gets one duplicate request
+ *     with the same idempotency key; whichever answers first wins</li>
+ *     <li>attempts that end without an answer are retried with exponential backoff up to
+ *     {@code maxAttempts} times</li>
+ * </ul>
+ * A call holds its slot until the transport completes it, not just until {@code callTimeout}
+ * gives up on it, since the gateway is still working on it; transports must complete every
+ * future they return. Hedges and retries never wait for a slot: without a free one they are
+ * skipped, and the charge ends with what it has.
+ * <p>
+ * Nothing here blocks a thread while a call is outstanding except the slot wait.
+ */
+@Slf4j
+public class ResilientPaymentGateway implements PaymentGateway, AutoCloseable {
+
+    private final PaymentGateway transport;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Duration acquireTimeout;
+    private final Duration callTimeout;
+    private final Duration hedgeDelay;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer approved;
+    private final Timer declined;
+    private final Timer failed;
+    private final Counter hedges;
+    private final Counter retries;
+    private final Counter rejected;
+    private final Counter skippedHedges;
+    private final Counter skippedRetries;
+
+    public ResilientPaymentGateway(PaymentGateway transport, int maxInFlight, Duration acquireTimeout,
+                                   Duration callTimeout, Duration hedgeDelay, int maxAttempts,
+                                   Duration retryBackoff, MeterRegistry meterRegistry) {
+        this.transport = transport;
+        this.permits = new Semaphore(maxInFlight);
+        this.acquireTimeout = acquireTimeout;
+        this.callTimeout = callTimeout;
+        this.hedgeDelay = hedgeDelay;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("payment-gateway-scheduler").daemon().factory());
+
+        this.approved = callTimer(meterRegistry, "approved");
+        this.declined = callTimer(meterRegistry, "declined");
+        this.failed = callTimer(meterRegistry, "failed");
+        this.hedges = Counter.builder("payment.gateway.hedges")
+                .description("Hedged duplicate requests sent")
+                .register(meterRegistry);
+        this.retries = Counter.builder("payment.gateway.retries")
+                .description("Attempts retried after a timeout or gateway error")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("payment.gateway.rejected")
+                .description("Charges refused because no in-flight slot freed up in time")
+                .register(meterRegistry);
+        this.skippedHedges = skipped(meterRegistry, "hedge");
+        this.skippedRetries = skipped(meterRegistry, "retry");
+        Gauge.builder("payment.gateway.in.flight", inFlight, AtomicInteger::get)
+                .description("Transport calls outstanding at the gateway")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CompletableFuture<ChargeResult> charge(ChargeRequest request) {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Payment gateway saturated"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long started = System.nanoTime();
+        return attempt(request, 1).whenComplete((result, ex) -> {
+            Timer outcome = ex != null ? failed : result.approved() ? approved : declined;
+            outcome.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    // The caller holds the slot for the attempt's first request
+    private CompletableFuture<ChargeResult> attempt(ChargeRequest request, int attempt) {
+        return hedged(request).exceptionallyCompose(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (attempt >= maxAttempts || !isRetryable(cause)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            retries.increment();
+            long backoff = retryBackoff.toNanos() << (attempt - 1);
+            log.debug("Gateway attempt {} for order {} failed ({}), retrying in {} ms",
+                    attempt, request.orderId(), cause.toString(), TimeUnit.NANOSECONDS.toMillis(backoff));
+            var delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.NANOSECONDS, scheduler);
+            return CompletableFuture.supplyAsync(() -> request, delayed)
+                    .thenCompose(r -> {
+                        if (!permits.tryAcquire()) {
+                            skippedRetries.increment();
+                            return CompletableFuture.failedFuture(cause);
+                        }
+                        return attempt(r, attempt + 1);
+                    });
+        });
+    }
+
+    /**
+     * One logical attempt: the primary request plus, if it is slow, one hedge. Completes with
+     * the first answer, or fails once every request sent has failed.
+     */
+    private CompletableFuture<ChargeResult> hedged(ChargeRequest request) {
+        CompletableFuture<ChargeResult> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+
+        send(request, result, outstanding);
+
+        if (!hedgeDelay.isZero()) {
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (!result.isDone() && !permits.tryAcquire()) {
+                    skippedHedges.increment();
+                } else if (!result.isDone()) {
+                    outstanding.incrementAndGet();
+                    hedges.increment();
+                    send(request, result, outstanding);
+                }
+            }, hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+            result.whenComplete((r, ex) -> hedge.cancel(false));
+        }
+        return result;
+    }
+
+    /** Sends one request under a slot the caller acquired, and returns the slot with the answer. */
+    private void send(ChargeRequest request, CompletableFuture<ChargeResult> result, AtomicInteger outstanding) {
+        inFlight.incrementAndGet();
+        CompletableFuture<ChargeResult> call;
+        try {
+            call = transport.charge(request);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((answer, ex) -> {
+            inFlight.decrementAndGet();
+            permits.release();
+        });
+        // Times out a copy: the call itself stays outstanding, and holds its slot, until the transport answers
+        call.copy().orTimeout(callTimeout.toNanos(), TimeUnit.NANOSECONDS).whenComplete((answer, ex) -> {
+            if (ex == null) {
+                result.complete(answer);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(ex);
+            }
+        });
+    }
+
+    private static boolean isRetryable(Throwable cause) {
+        return cause instanceof TimeoutException || cause instanceof PaymentGatewayException;
+    }
+
+    private static Counter skipped(MeterRegistry meterRegistry, String kind) {
+        return Counter.builder("payment.gateway.skipped")
+                .description("Hedges and retries not sent because no in-flight slot was free")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    private static Timer callTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("payment.gateway.calls")
+                .description("Charge latency including hedges and retries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,83 @@
+package com.demo.gateway;
+
+import com.demo.id.TimeOrderedIds;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the payment gateway. Answers after a log-normal latency fitted to the
+ * configured median and p99, declines a configurable share of charges (and always declines
+ * amounts above {@code maxAmount}), and fails a configurable share of calls outright.
+ * <p>
+ * No thread waits out the latency: answers are scheduled on one timer thread. Decisions are
+ * remembered per idempotency key, so retried and hedged calls get the same answer.
+ */
+public class StubPaymentGateway implements PaymentGateway, AutoCloseable {
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final double mu;
+    private final double sigma;
+    private final double declineRate;
+    private final double errorRate;
+    private final BigDecimal maxAmount;
+    private final ScheduledExecutorService timer;
+    private final Cache<String, ChargeResult> decisions;
+
+    public StubPaymentGateway(Duration medianLatency, Duration p99Latency,
+                              double declineRate, double errorRate, BigDecimal maxAmount) {
+        long median = Math.max(1, medianLatency.toNanos());
+        this.mu = Math.log(median);
+        this.sigma = Math.max(0, Math.log((double) Math.max(median, p99Latency.toNanos()) / median) / Z_99);
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+        this.maxAmount = maxAmount;
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("stub-gateway-timer").daemon().factory());
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(1_000_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<ChargeResult> charge(ChargeRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latencyNanos = (long) Math.exp(mu + sigma * random.nextGaussian());
+        boolean error = random.nextDouble() < errorRate;
+
+        CompletableFuture<ChargeResult> response = new CompletableFuture<>();
+        timer.schedule(() -> {
+            if (error) {
+                response.completeExceptionally(new PaymentGatewayException("Stub gateway error"));
+            } else {
+                response.complete(decisions.get(request.idempotencyKey(), key -> decide(request)));
+            }
+        }, latencyNanos, TimeUnit.NANOSECONDS);
+        return response;
+    }
+
+    private ChargeResult decide(ChargeRequest request) {
+        if (request.amount().compareTo(maxAmount) > 0) {
+            return ChargeResult.declined("Insufficient funds");
+        }
+        if (ThreadLocalRandom.current().nextDouble() < declineRate) {
+            return ChargeResult.declined("Card declined");
+        }
+        return ChargeResult.approved(TimeOrderedIds.next("TXN-"));
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
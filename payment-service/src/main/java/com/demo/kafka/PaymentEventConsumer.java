@@ -1,26 +1,164 @@
 package com.demo.kafka;
 
 import com.demo.event.OrderCreatedEvent;
+import com.demo.kafka.retry.DecodedBatch;
+import com.demo.kafka.retry.RetryTopicPolicy;
+import com.demo.kafka.retry.TieredDeadLetterRecoverer;
+import com.demo.limit.ListenerBackpressure;
 import com.demo.service.PaymentService;
+import com.demo.service.UnfinishedPaymentsException;
+import com.demo.trace.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * order-created listeners. {@code payment.consumer.mode} selects which one runs:
+ * {@code record} processes on the listener thread, {@code parallel} fans records out to
+ * {@link KeyOrderedExecutor} workers keyed by orderId, {@code batch} (default) processes a
+ * whole poll with set-based writes and concurrent gateway calls.
+ * <p>
+ * Whatever the mode, a record that fails is handed to {@link TieredDeadLetterRecoverer}
+ * instead of being retried in place, and comes back through {@link #handleOrderCreatedRetry}
+ * once its tier's delay has passed; one that can't be decoded goes straight to the DLT. All
+ * processing runs through a {@link ListenerBackpressure}, which pauses the containers while
+ * database and gateway latency keep work above its adaptive limit; the batch container has
+ * its own, which counts polls instead of records.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentEventConsumer {
     private final PaymentService paymentService;
+    private final KeyOrderedExecutor paymentEventExecutor;
+    private final TieredDeadLetterRecoverer deadLetterRecoverer;
+    private final ListenerBackpressure listenerBackpressure;
+    private final ListenerBackpressure batchListenerBackpressure;
+    private final Tracer tracer;
 
     @KafkaListener(
+            id = "payment-order-created",
             topics = "${kafka.topics.order-created}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{'${payment.consumer.mode:batch}' == 'record'}"
     )
     public void handleOrderCreated(OrderCreatedEvent event) {
-        log.info("Received OrderCreatedEvent for orderId: {}, amount: {}",
+        log.debug("Received OrderCreatedEvent for orderId: {}, amount: {}",
                 event.orderId(), event.totalAmount());
 
-        paymentService.processPaymentFromEvent(event);
+        listenerBackpressure.run(1, () -> paymentService.processPaymentFromEvent(event));
+    }
+
+    @KafkaListener(
+            id = "payment-order-created-parallel",
+            topics = "${kafka.topics.order-created}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "#{'${payment.consumer.mode:batch}' == 'parallel'}"
+    )
+    public void handleOrderCreatedParallel(ConsumerRecord<String, OrderCreatedEvent> record,
+                                           Acknowledgment ack) throws InterruptedException {
+        String key = record.key() != null ? record.key() : record.partition() + "-" + record.offset();
+        paymentEventExecutor.submit(key, () -> {
+            boolean done = true;
+            try {
+                listenerBackpressure.run(1, () -> paymentService.processPaymentFromEvent(record.value()));
+            } catch (RuntimeException e) {
+                tracer.failed(key, e);
+                done = recover(record, e);
+            }
+            // Not routed: leave it unacknowledged so the partition is never committed past it
+            if (done) {
+                ack.acknowledge();
+            }
+        });
+    }
+
+    /**
+     * Batch size and the broker-side wait that lets a batch fill up are per-listener consumer
+     * properties, so the other modes keep the global defaults.
+     */
+    @KafkaListener(
+            id = "payment-order-created-batch",
+            topics = "${kafka.topics.order-created}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{'${payment.consumer.mode:batch}' == 'batch'}",
+            properties = {
+                    "max.poll.records=${payment.consumer.batch.max-size:500}",
+                    "fetch.min.bytes=${payment.consumer.batch.min-bytes:65536}",
+                    "fetch.max.wait.ms=${payment.consumer.batch.max-wait-ms:100}"
+            }
+    )
+    public void handleOrderCreatedBatch(List<ConsumerRecord<String, OrderCreatedEvent>> records) {
+        DecodedBatch<String, OrderCreatedEvent> batch = DecodedBatch.of(records);
+        batch.deadLetter(deadLetterRecoverer::routeUntilAccepted);
+        List<OrderCreatedEvent> events = batch.values();
+        log.debug("Received batch of {} OrderCreatedEvents", events.size());
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            batchListenerBackpressure.runPoll(events.size(), () -> paymentService.processPaymentsFromEvents(events));
+        } catch (UnfinishedPaymentsException e) {
+            // The rest of the batch is done; publishing it again would only duplicate its events
+            log.warn("{} of {} OrderCreatedEvents in batch unfinished, retrying them record by record",
+                    e.getOrderIds().size(), events.size(), e);
+            retryOneByOne(batch.records().stream()
+                    .filter(record -> e.getOrderIds().contains(record.value().orderId()))
+                    .toList());
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} OrderCreatedEvents failed, retrying record by record", events.size(), e);
+            retryOneByOne(batch.records());
+        }
+    }
+
+    /**
+     * Finds the record that fails: the ones before it are committed, it goes to the first
+     * retry tier and the rest are redelivered. Finished orders are republished, unfinished
+     * ones resumed. Runs as one more poll under the batch backpressure.
+     */
+    private void retryOneByOne(List<ConsumerRecord<String, OrderCreatedEvent>> records) {
+        batchListenerBackpressure.runPoll(records.size(), () -> {
+            // Named rather than indexed: undecodable records were left out
+            for (ConsumerRecord<String, OrderCreatedEvent> record : records) {
+                try {
+                    paymentService.processPaymentFromEvent(record.value());
+                } catch (RuntimeException recordFailure) {
+                    throw new BatchListenerFailedException("Failed to process OrderCreatedEvent", recordFailure, record);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records on the retry tiers, one container per tier (see {@code KafkaRetryConfig}). One not
+     * yet due is nacked for its remaining delay, which also holds back the records behind it
+     * (they are due later still); failures move on to the next tier through the container's
+     * error handler.
+     */
+    public void handleOrderCreatedRetry(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+        Duration wait = RetryTopicPolicy.remainingDelay(record);
+        if (!wait.isZero()) {
+            ack.nack(wait);
+            return;
+        }
+        OrderCreatedEvent event = (OrderCreatedEvent) record.value();
+        log.info("Retrying OrderCreatedEvent for orderId: {} from {}", event.orderId(), record.topic());
+        listenerBackpressure.run(1, () -> paymentService.processPaymentFromEvent(event));
+        ack.acknowledge();
+    }
+
+    private boolean recover(ConsumerRecord<String, ?> record, RuntimeException failure) {
+        log.warn("Failed to process record {}-{}@{}, routing to retry", record.topic(), record.partition(),
+                record.offset(), failure);
+        return deadLetterRecoverer.routeUntilAccepted(record, failure);
     }
 }
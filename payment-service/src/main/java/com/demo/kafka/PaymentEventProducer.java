@@ -1,34 +1,72 @@
 package com.demo.kafka;
 
 import com.demo.event.PaymentProcessedEvent;
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimer;
+import com.demo.trace.Tracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentEventProducer {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final Executor kafkaCallbackExecutor;
+    private final SagaTimer sagaTimer;
+    private final Tracer tracer;
 
     @Value("${kafka.topics.payment-processed}")
     private String paymentProcessedTopic;
 
-    public void publishPaymentProcessed(PaymentProcessedEvent event) {
-        log.info("Publishing PaymentProcessedEvent for orderId: {}, success: {}",
+    /** The returned future completes when the send is acked, or fails with it. */
+    public CompletableFuture<Void> publishPaymentProcessed(PaymentProcessedEvent event) {
+        log.debug("Publishing PaymentProcessedEvent for orderId: {}, success: {}",
                 event.orderId(), event.success());
 
-        kafkaTemplate.send(paymentProcessedTopic, event.orderId(), event)
-                .whenComplete((result, ex) -> {
+        return kafkaTemplate.send(toRecord(event))
+                .whenCompleteAsync((result, ex) -> {
                     if (ex != null) {
                         log.error("Failed to publish PaymentProcessedEvent", ex);
                     } else {
-                        log.info("PaymentProcessedEvent published. Offset: {}",
+                        sagaTimer.acked(event.orderId(), SagaStage.PAYMENT_PUBLISHED);
+                        log.debug("PaymentProcessedEvent published. Offset: {}",
                                 result.getRecordMetadata().offset());
                     }
-                });
+                }, kafkaCallbackExecutor)
+                .thenRun(() -> {});
+    }
+
+    /**
+     * Sends all events without waiting in between so the producer can batch them per partition.
+     * The returned future completes when every send is acked (or one has failed).
+     */
+    public CompletableFuture<Void> publishPaymentsProcessed(List<PaymentProcessedEvent> events) {
+        log.debug("Publishing {} PaymentProcessedEvents", events.size());
+
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < sends.length; i++) {
+            PaymentProcessedEvent event = events.get(i);
+            sends[i] = kafkaTemplate.send(toRecord(event))
+                    .thenRun(() -> sagaTimer.acked(event.orderId(), SagaStage.PAYMENT_PUBLISHED));
+        }
+        return CompletableFuture.allOf(sends);
+    }
+
+    // Ends the order's processing span; the result carries its context on
+    private ProducerRecord<String, Object> toRecord(PaymentProcessedEvent event) {
+        ProducerRecord<String, Object> record =
+                sagaTimer.outgoing(paymentProcessedTopic, event.orderId(), event, SagaStage.PAYMENT_SENT);
+        tracer.inject(event.orderId(), record.headers());
+        return record;
     }
 }
@@ -0,0 +1,9 @@
+package com.demo.repository;
+
+import com.demo.entity.CustomerPaymentSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomerPaymentSummaryRepository extends JpaRepository<CustomerPaymentSummary, String> {
+}
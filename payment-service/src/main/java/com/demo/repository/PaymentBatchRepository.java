@@ -0,0 +1,236 @@
+package com.demo.repository;
+
+import com.demo.entity.Payment;
+import com.demo.entity.PaymentLedgerEntry;
+import com.demo.entity.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Writes of the payment ledger and its projections. Ledger and payments rows are sequential
+ * inserts sent as JDBC batches (one round trip per batch, not per payment) and never updated;
+ * only the per-customer summaries are upserted. Callers provide the transaction.
+ * <p>
+ * The per-row counts of the claim and projection inserts tell winners from conflicts, which is
+ * why the payments datasource must not use {@code reWriteBatchedInserts}: rewritten batches
+ * report no per-row counts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentBatchRepository {
+
+    private static final String APPEND_IF_ABSENT = """
+            INSERT INTO payment_ledger (payment_id, order_id, customer_id, amount, payment_method,
+                                        status, transaction_id, failure_reason, recorded_at, leased_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (order_id, status) DO NOTHING""";
+
+    // Claims from before the lease column have none; their recorded_at is when they were taken
+    private static final String TAKE_OVER = """
+            UPDATE payment_ledger l SET leased_at = ?
+            WHERE l.order_id = ANY (?) AND l.status = 'PROCESSING'
+              AND coalesce(l.leased_at, l.recorded_at) < ?
+              AND NOT EXISTS (SELECT 1 FROM payments p WHERE p.order_id = l.order_id)
+            RETURNING l.payment_id, l.order_id, l.customer_id, l.amount, l.payment_method, l.recorded_at""";
+
+    private static final String INSERT_PROJECTION = """
+            INSERT INTO payments (id, order_id, customer_id, amount, status, payment_method,
+                                  transaction_id, failure_reason, created_at, processed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (order_id) DO NOTHING""";
+
+    private static final String ADD_TO_SUMMARY = """
+            INSERT INTO customer_payment_summaries AS s (customer_id, payment_count, completed_count, failed_count,
+                                                         total_amount, completed_amount, last_payment_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (customer_id) DO UPDATE SET
+                payment_count    = s.payment_count + EXCLUDED.payment_count,
+                completed_count  = s.completed_count + EXCLUDED.completed_count,
+                failed_count     = s.failed_count + EXCLUDED.failed_count,
+                total_amount     = s.total_amount + EXCLUDED.total_amount,
+                completed_amount = s.completed_amount + EXCLUDED.completed_amount,
+                last_payment_at  = GREATEST(s.last_payment_at, EXCLUDED.last_payment_at),
+                updated_at       = EXCLUDED.updated_at""";
+
+    private static final String REBUILD_SUMMARIES = """
+            INSERT INTO customer_payment_summaries (customer_id, payment_count, completed_count, failed_count,
+                                                    total_amount, completed_amount, last_payment_at, updated_at)
+            SELECT customer_id,
+                   count(*),
+                   count(*) FILTER (WHERE status = 'COMPLETED'),
+                   count(*) FILTER (WHERE status = 'FAILED'),
+                   sum(amount),
+                   coalesce(sum(amount) FILTER (WHERE status = 'COMPLETED'), 0),
+                   max(coalesce(processed_at, created_at)),
+                   ?
+            FROM payments
+            GROUP BY customer_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Appends a PROCESSING entry per payment. Returns, per payment in order, whether its
+     * entry was the first for the order, i.e. whether this caller owns the payment.
+     */
+    public boolean[] claim(List<Payment> payments) {
+        int[] counts = append(payments, PaymentStatus.PROCESSING);
+        boolean[] won = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            won[i] = counts[i] == 1;
+        }
+        return won;
+    }
+
+    /**
+     * Takes over the unfinished claims among {@code orderIds} whose lease started before
+     * {@code staleBefore}, i.e. whose owner can no longer be waiting for the gateway, and
+     * leases them from {@code now}. The row lock of the update makes this atomic: of callers
+     * racing for the same claim, only the first sees it stale. Returns the claims taken.
+     */
+    public List<PaymentLedgerEntry> takeOver(Collection<String> orderIds, LocalDateTime staleBefore,
+                                             LocalDateTime now) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(TAKE_OVER);
+            ps.setObject(1, now);
+            ps.setArray(2, con.createArrayOf("varchar", orderIds.toArray()));
+            ps.setObject(3, staleBefore);
+            return ps;
+        }, (rs, row) -> PaymentLedgerEntry.builder()
+                .paymentId(rs.getObject("payment_id", UUID.class))
+                .orderId(rs.getString("order_id"))
+                .customerId(rs.getString("customer_id"))
+                .amount(rs.getBigDecimal("amount"))
+                .paymentMethod(rs.getString("payment_method"))
+                .status(PaymentStatus.PROCESSING)
+                .recordedAt(rs.getObject("recorded_at", LocalDateTime.class))
+                .leasedAt(now)
+                .build());
+    }
+
+    /**
+     * Appends each payment's terminal entry, inserts its row into the projection and adds it
+     * to its customer's summary. A payment whose projection row already existed (a replayed
+     * outcome) is not counted again.
+     */
+    public void recordOutcomes(List<Payment> payments) {
+        for (PaymentStatus terminal : List.of(PaymentStatus.COMPLETED, PaymentStatus.FAILED)) {
+            List<Payment> withStatus = payments.stream().filter(p -> p.getStatus() == terminal).toList();
+            if (!withStatus.isEmpty()) {
+                append(withStatus, terminal);
+            }
+        }
+
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_PROJECTION, payments, payments.size(), (ps, p) -> {
+            ps.setObject(1, p.getId());
+            ps.setString(2, p.getOrderId());
+            ps.setString(3, p.getCustomerId());
+            ps.setBigDecimal(4, p.getAmount());
+            ps.setString(5, p.getStatus().name());
+            ps.setString(6, p.getPaymentMethod());
+            ps.setString(7, p.getTransactionId());
+            ps.setString(8, p.getFailureReason());
+            ps.setObject(9, p.getCreatedAt());
+            ps.setObject(10, p.getProcessedAt());
+        })[0];
+
+        List<Payment> added = new ArrayList<>(payments.size());
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == 1) {
+                added.add(payments.get(i));
+            }
+        }
+        addToSummaries(added);
+    }
+
+    /**
+     * Recomputes every customer summary from the payments projection. The EXCLUSIVE lock
+     * lets readers through but holds back {@link #recordOutcomes} until the rebuild commits,
+     * so no payment is counted twice or missed. Returns the number of customers.
+     */
+    public int rebuildCustomerSummaries() {
+        jdbcTemplate.execute("LOCK TABLE payments IN EXCLUSIVE MODE");
+        // DELETE rather than TRUNCATE: readers keep seeing the old rows until commit
+        jdbcTemplate.update("DELETE FROM customer_payment_summaries");
+        return jdbcTemplate.update(REBUILD_SUMMARIES, LocalDateTime.now());
+    }
+
+    private void addToSummaries(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        // Sorted so concurrent batches take the summary row locks in the same order
+        Map<String, SummaryDelta> deltas = new TreeMap<>();
+        for (Payment p : payments) {
+            deltas.computeIfAbsent(p.getCustomerId(), id -> new SummaryDelta()).add(p);
+        }
+
+        LocalDateTime updatedAt = LocalDateTime.now();
+        List<Map.Entry<String, SummaryDelta>> rows = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate(ADD_TO_SUMMARY, rows, rows.size(), (ps, row) -> {
+            SummaryDelta d = row.getValue();
+            ps.setString(1, row.getKey());
+            ps.setLong(2, d.count);
+            ps.setLong(3, d.completed);
+            ps.setLong(4, d.failed);
+            ps.setBigDecimal(5, d.total);
+            ps.setBigDecimal(6, d.completedAmount);
+            ps.setObject(7, d.lastPaymentAt);
+            ps.setObject(8, updatedAt);
+        });
+    }
+
+    private int[] append(List<Payment> payments, PaymentStatus status) {
+        LocalDateTime recordedAt = LocalDateTime.now();
+        return jdbcTemplate.batchUpdate(APPEND_IF_ABSENT, payments, payments.size(), (ps, p) -> {
+            ps.setObject(1, p.getId());
+            ps.setString(2, p.getOrderId());
+            ps.setString(3, p.getCustomerId());
+            ps.setBigDecimal(4, p.getAmount());
+            ps.setString(5, p.getPaymentMethod());
+            ps.setString(6, status.name());
+            ps.setString(7, p.getTransactionId());
+            ps.setString(8, p.getFailureReason());
+            ps.setObject(9, status == PaymentStatus.PROCESSING ? p.getCreatedAt() : recordedAt);
+            ps.setObject(10, status == PaymentStatus.PROCESSING ? p.getCreatedAt() : null);
+        })[0];
+    }
+
+    private static final class SummaryDelta {
+        long count;
+        long completed;
+        long failed;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal completedAmount = BigDecimal.ZERO;
+        LocalDateTime lastPaymentAt;
+
+        void add(Payment p) {
+            count++;
+            total = total.add(p.getAmount());
+            if (p.getStatus() == PaymentStatus.COMPLETED) {
+                completed++;
+                completedAmount = completedAmount.add(p.getAmount());
+            } else {
+                failed++;
+            }
+            // Same rule as the rebuild: failed payments have no processedAt
+            LocalDateTime at = p.getProcessedAt() != null ? p.getProcessedAt() : p.getCreatedAt();
+            if (lastPaymentAt == null || at.isAfter(lastPaymentAt)) {
+                lastPaymentAt = at;
+            }
+        }
+    }
+}
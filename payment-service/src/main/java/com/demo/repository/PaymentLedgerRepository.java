@@ -0,0 +1,70 @@
+package com.demo.repository;
+
+import com.demo.entity.PaymentLedgerEntry;
+import com.demo.entity.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reads over the append-only ledger. "In flight" means claimed (PROCESSING entry) with no
+ * row in the payments projection yet.
+ */
+@Repository
+public interface PaymentLedgerRepository extends JpaRepository<PaymentLedgerEntry, Long> {
+
+    List<PaymentLedgerEntry> findByPaymentIdOrderByIdAsc(UUID paymentId);
+
+    long countByStatus(PaymentStatus status);
+
+    @Query("""
+            SELECT l FROM PaymentLedgerEntry l
+            WHERE l.paymentId = :paymentId AND l.status = com.demo.entity.PaymentStatus.PROCESSING
+              AND NOT EXISTS (SELECT 1 FROM Payment p WHERE p.orderId = l.orderId)""")
+    Optional<PaymentLedgerEntry> findInFlightByPaymentId(UUID paymentId);
+
+    @Query("""
+            SELECT l FROM PaymentLedgerEntry l
+            WHERE l.orderId = :orderId AND l.status = com.demo.entity.PaymentStatus.PROCESSING
+              AND NOT EXISTS (SELECT 1 FROM Payment p WHERE p.orderId = l.orderId)""")
+    Optional<PaymentLedgerEntry> findInFlightByOrderId(String orderId);
+
+    @Query("""
+            SELECT l FROM PaymentLedgerEntry l
+            WHERE l.orderId IN :orderIds AND l.status = com.demo.entity.PaymentStatus.PROCESSING
+              AND NOT EXISTS (SELECT 1 FROM Payment p WHERE p.orderId = l.orderId)""")
+    List<PaymentLedgerEntry> findInFlightByOrderIds(Collection<String> orderIds);
+
+    @Query("""
+            SELECT l FROM PaymentLedgerEntry l
+            WHERE l.customerId = :customerId AND l.status = com.demo.entity.PaymentStatus.PROCESSING
+              AND NOT EXISTS (SELECT 1 FROM Payment p WHERE p.orderId = l.orderId)""")
+    List<PaymentLedgerEntry> findInFlightByCustomerId(String customerId);
+
+    @Query("""
+            SELECT l FROM PaymentLedgerEntry l
+            WHERE l.status = com.demo.entity.PaymentStatus.PROCESSING
+              AND NOT EXISTS (SELECT 1 FROM Payment p WHERE p.orderId = l.orderId)""")
+    List<PaymentLedgerEntry> findAllInFlight();
+
+    @Query("""
+            SELECT l.orderId FROM PaymentLedgerEntry l
+            WHERE l.status = com.demo.entity.PaymentStatus.PROCESSING AND l.orderId IN :orderIds""")
+    List<String> findClaimedOrderIds(Collection<String> orderIds);
+
+    @Query("SELECT l.orderId FROM PaymentLedgerEntry l WHERE l.status = com.demo.entity.PaymentStatus.PROCESSING")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<String> streamClaimedOrderIds();
+}
@@ -5,14 +5,17 @@ import com.demo.entity.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment,String> {
+public interface PaymentRepository extends JpaRepository<Payment, UUID> {
 
 
     Optional<Payment> findByOrderId(String orderId);
+    List<Payment> findByOrderIdIn(Collection<String> orderIds);
     List<Payment> findByCustomerId(String customerId);
     List<Payment> findByStatus(PaymentStatus status);
     boolean existsByOrderId(String orderId);
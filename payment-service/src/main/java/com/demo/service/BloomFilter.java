@@ -0,0 +1,88 @@
+package com.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings. {@link #mightContain} never returns false for a key
+ * that was {@link #put}; it returns true for an absent key with roughly the configured
+ * false-positive probability while the filter holds no more than its expected insertions.
+ * <p>
+ * Bits are set with CAS, so concurrent puts and reads need no locking. A reader racing a put
+ * of the same key may miss it, which is fine for callers that treat "absent" as "go check".
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        // Bit indexes come from 31-bit hash combinations, so more than 2^31 bits would go unused
+        int words = (int) Math.min(1 << 25, Math.max(1, (m + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0
+                    && !bits.compareAndSet(word, current, current | mask)) {
+                Thread.onSpinWait();
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long insertions() {
+        return insertions.get();
+    }
+
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    private long index(int combined) {
+        // Flip negative combinations instead of taking abs(), as in the Kirsch-Mitzenmacher scheme
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    // FNV-1a over the chars (no byte[] per call), then the murmur3 finalizer to spread the bits
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,189 @@
+package com.demo.service;
+
+import com.demo.entity.PaymentStatus;
+import com.demo.repository.PaymentLedgerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * In-memory front for payment deduplication by orderId.
+ * <p>
+ * The recent-key cache holds orderIds known to have a committed payment and is the only
+ * thing that rejects a payment without the database. The Bloom filter answers the other
+ * direction: a miss means the orderId has certainly never been claimed, so callers can skip
+ * existence checks. A Bloom hit alone proves nothing and still goes to the database, where
+ * the insert-on-conflict claim is what actually decides.
+ * <p>
+ * Only the batch path has an existence check to skip (its {@code IN} query), so only it asks
+ * for a {@link #check verdict}. A single payment is claimed straight away, which costs the
+ * same round trip as a lookup, and asks {@link #recentlyClaimed} alone.
+ * <p>
+ * The filter is rebuilt from the claims in {@code payment_ledger} on startup, before the
+ * Kafka listener containers start.
+ */
+@Component
+@Slf4j
+public class PaymentIdempotencyGuard implements SmartLifecycle {
+
+    public enum Verdict {
+        /** Never claimed: the Bloom filter has not seen it. */
+        NEW,
+        /** Claimed and committed recently. */
+        DUPLICATE,
+        /** Unknown: may or may not exist, the database decides. */
+        MAYBE
+    }
+
+    private final PaymentLedgerRepository ledgerRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<String, Boolean> recent;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private final Counter verdictNew;
+    private final Counter verdictDuplicate;
+    private final Counter verdictMaybe;
+    private final Counter duplicatesFromDatabase;
+
+    private volatile BloomFilter filter;
+    private volatile boolean running;
+
+    public PaymentIdempotencyGuard(PaymentLedgerRepository ledgerRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${payment.idempotency.recent.maximum-size:100000}") long recentMaximumSize,
+                                   @Value("${payment.idempotency.recent.ttl:1h}") Duration recentTtl,
+                                   @Value("${payment.idempotency.bloom.expected-insertions:10000000}") long expectedInsertions,
+                                   @Value("${payment.idempotency.bloom.false-positive-probability:0.01}") double falsePositiveProbability,
+                                   MeterRegistry meterRegistry) {
+        this.ledgerRepository = ledgerRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveProbability);
+
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(recentMaximumSize)
+                .expireAfterWrite(recentTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "payment.idempotency.recent");
+
+        this.verdictNew = verdictCounter(meterRegistry, Verdict.NEW);
+        this.verdictDuplicate = verdictCounter(meterRegistry, Verdict.DUPLICATE);
+        this.verdictMaybe = verdictCounter(meterRegistry, Verdict.MAYBE);
+        this.duplicatesFromDatabase = Counter.builder("payment.idempotency.duplicates.db")
+                .description("Duplicates only detected by the insert-on-conflict claim")
+                .register(meterRegistry);
+        Gauge.builder("payment.idempotency.bloom.insertions", this, guard -> guard.filter.insertions())
+                .description("Keys added to the Bloom filter since it was built")
+                .register(meterRegistry);
+    }
+
+    public Verdict check(String orderId) {
+        if (recent.getIfPresent(orderId) != null) {
+            verdictDuplicate.increment();
+            return Verdict.DUPLICATE;
+        }
+        if (!filter.mightContain(orderId)) {
+            verdictNew.increment();
+            return Verdict.NEW;
+        }
+        verdictMaybe.increment();
+        return Verdict.MAYBE;
+    }
+
+    /**
+     * Whether the recent-key cache knows the orderId as claimed; the Bloom filter is not
+     * consulted. Hits and misses show in the cache's metrics.
+     */
+    public boolean recentlyClaimed(String orderId) {
+        return recent.getIfPresent(orderId) != null;
+    }
+
+    /**
+     * This caller's claim insert won. The filter learns the key at once (a false positive on
+     * rollback is harmless); the recent cache only after commit, since it rejects outright.
+     */
+    public void claimed(String orderId) {
+        filter.put(orderId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.put(orderId, Boolean.TRUE);
+                }
+            });
+        } else {
+            recent.put(orderId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * The claim insert lost: a committed payment already exists for this orderId.
+     * Cache it so the next redelivery is rejected without the database.
+     */
+    public void conflicted(String orderId) {
+        duplicatesFromDatabase.increment();
+        filter.put(orderId);
+        recent.put(orderId, Boolean.TRUE);
+    }
+
+    @Override
+    public void start() {
+        long started = System.nanoTime();
+        long rows = ledgerRepository.countByStatus(PaymentStatus.PROCESSING);
+        // Leave headroom so the false-positive rate holds while the table keeps growing
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, rows * 2), falsePositiveProbability);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> orderIds = ledgerRepository.streamClaimedOrderIds()) {
+                orderIds.forEach(rebuilt::put);
+            }
+        });
+        // Keys claimed while the rebuild ran were put into the old filter; the conflict
+        // claim still catches them if they come back
+        filter = rebuilt;
+        running = true;
+        log.info("Payment idempotency filter rebuilt from {} claims ({} KiB) in {} ms",
+                rebuilt.insertions(), rebuilt.sizeInBytes() / 1024,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Before the listener containers (DEFAULT_PHASE - 100) start consuming
+        return 0;
+    }
+
+    private static Counter verdictCounter(MeterRegistry meterRegistry, Verdict verdict) {
+        return Counter.builder("payment.idempotency.checks")
+                .description("Idempotency checks by in-memory verdict")
+                .tag("verdict", verdict.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.demo.service;
+
+/**
+ * The order's payment is claimed by a caller that may still be charging it. Answered with 409
+ * on the API; a Kafka delivery goes to the retry tiers and finds the outcome, or a claim it
+ * can take over, later.
+ */
+public class PaymentInProgressException extends IllegalStateException {
+
+    public PaymentInProgressException(String orderId) {
+        super("Payment for order " + orderId + " is still being processed");
+    }
+}
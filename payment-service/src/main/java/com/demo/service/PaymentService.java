@@ -1,23 +1,52 @@
 package com.demo.service;
 
+import com.demo.dto.CustomerPaymentSummaryResponse;
 import com.demo.dto.PaymentResponse;
 import com.demo.dto.ProcessPaymentRequest;
+import com.demo.entity.CustomerPaymentSummary;
 import com.demo.entity.Payment;
+import com.demo.entity.PaymentLedgerEntry;
 import com.demo.entity.PaymentStatus;
 import com.demo.event.OrderCreatedEvent;
+import com.demo.event.OrderItemEvent;
 import com.demo.event.PaymentProcessedEvent;
+import com.demo.gateway.ChargeRequest;
+import com.demo.gateway.PaymentGateway;
+import com.demo.gateway.PaymentGatewayException;
+import com.demo.id.TimeOrderedIds;
 import com.demo.kafka.PaymentEventProducer;
+import com.demo.repository.CustomerPaymentSummaryRepository;
+import com.demo.repository.PaymentBatchRepository;
+import com.demo.repository.PaymentLedgerRepository;
 import com.demo.repository.PaymentRepository;
+import com.demo.saga.SagaStage;
+import com.demo.saga.SagaTimer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,43 +55,58 @@ import java.util.UUID;
 public class PaymentService {
 
     private final PaymentRepository paymentRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final PaymentLedgerRepository ledgerRepository;
+    private final CustomerPaymentSummaryRepository summaryRepository;
     private final PaymentEventProducer eventProducer;
+    private final PaymentIdempotencyGuard idempotencyGuard;
+    private final PaymentGateway paymentGateway;
+    private final SagaTimer sagaTimer;
+    private final TransactionTemplate transactionTemplate;
+
+    // Longer than a charge can take, so a claim this old has no owner left waiting on the gateway
+    @Value("${payment.claim.lease:15s}")
+    private Duration claimLease;
 
     /**
      * Manually process payment (called via REST API).
+     * <p>
+     * Runs outside any transaction: the claim and the final status are two short
+     * transactions, and no connection is held while the gateway answers. A payment whose
+     * charge got no answer before is resumed rather than rejected as a duplicate, once its
+     * claim's lease ran out; until then it is {@link PaymentInProgressException}.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public PaymentResponse processPayment(ProcessPaymentRequest request) {
-        log.info("Processing payment for orderId: {}", request.orderId());
-
-        if (paymentRepository.existsByOrderId(request.orderId())) {
-            throw new IllegalStateException("Payment already exists for order: " + request.orderId());
-        }
+        log.debug("Processing payment for orderId: {}", request.orderId());
 
         Payment payment = Payment.builder()
                 .orderId(request.orderId())
                 .customerId(request.customerId())
                 .amount(request.amount())
                 .paymentMethod(request.paymentMethod())
-                .status(PaymentStatus.PROCESSING)
                 .build();
 
-        Payment saved = paymentRepository.save(payment);
-
-        // Simulate payment gateway processing
-        boolean paymentSuccess = simulatePaymentGateway(request.amount());
+        if (idempotencyGuard.recentlyClaimed(request.orderId()) || !claim(payment)) {
+            Optional<Payment> resumed = takeOverClaim(request.orderId(), null);
+            if (resumed.isEmpty()) {
+                if (ledgerRepository.findInFlightByOrderId(request.orderId()).isPresent()) {
+                    throw new PaymentInProgressException(request.orderId());
+                }
+                throw new IllegalStateException("Payment already exists for order: " + request.orderId());
+            }
+            log.info("Resuming unfinished payment for orderId: {}", request.orderId());
+            payment = resumed.get();
+        }
 
-        if (paymentSuccess) {
-            saved.setStatus(PaymentStatus.COMPLETED);
-            saved.setTransactionId("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-            saved.setProcessedAt(LocalDateTime.now());
-            log.info("Payment completed for orderId: {}", request.orderId());
+        Payment result = await(charge(payment));
+        if (result.getStatus() == PaymentStatus.COMPLETED) {
+            log.debug("Payment completed for orderId: {}", request.orderId());
         } else {
-            saved.setStatus(PaymentStatus.FAILED);
-            saved.setFailureReason("Simulated gateway decline");
             log.warn("Payment failed for orderId: {}", request.orderId());
         }
 
-        Payment result = paymentRepository.save(saved);
+        recordOutcome(result);
 
         // Publish event to Order Service
         publishPaymentEvent(result);
@@ -71,91 +115,392 @@ public class PaymentService {
     }
 
     /**
-     * Auto-process payment triggered by Kafka order-created event.
+     * Auto-process payment triggered by Kafka order-created event. Transactions are split
+     * around the gateway call as in {@link #processPayment}. A redelivered event publishes the
+     * recorded outcome again, in case the first publish failed. If there is none yet, it
+     * resumes a claim whose lease ran out and fails with {@link PaymentInProgressException}
+     * while the claim's owner may still be charging. Returns once the event is acked.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void processPaymentFromEvent(OrderCreatedEvent event) {
-        log.info("Auto-processing payment from Kafka event for orderId: {}", event.orderId());
-
-        if (paymentRepository.existsByOrderId(event.orderId())) {
-            log.warn("Payment already exists for orderId: {}, skipping", event.orderId());
-            return;
-        }
+        log.debug("Auto-processing payment from Kafka event for orderId: {}", event.orderId());
 
         Payment payment = Payment.builder()
                 .orderId(event.orderId())
                 .customerId(event.customerId())
                 .amount(event.totalAmount())
                 .paymentMethod("AUTO")
-                .status(PaymentStatus.PROCESSING)
+                .items(event.items())
                 .build();
 
-        Payment saved = paymentRepository.save(payment);
+        if (idempotencyGuard.recentlyClaimed(event.orderId()) || !claim(payment)) {
+            Optional<Payment> finished = paymentRepository.findByOrderId(event.orderId());
+            if (finished.isPresent()) {
+                log.info("Payment already exists for orderId: {}, publishing its outcome again", event.orderId());
+                finished.get().setItems(event.items());
+                awaitPublished(publishPaymentEvent(finished.get()), 1);
+                return;
+            }
+            Optional<Payment> resumed = takeOverClaim(event.orderId(), event.items());
+            if (resumed.isEmpty()) {
+                if (ledgerRepository.findInFlightByOrderId(event.orderId()).isPresent()) {
+                    throw new PaymentInProgressException(event.orderId());
+                }
+                // Finished since the lookup above; its owner published the outcome
+                log.warn("Payment already exists for orderId: {}, skipping", event.orderId());
+                return;
+            }
+            log.info("Resuming unfinished payment for orderId: {}", event.orderId());
+            payment = resumed.get();
+        }
+
+        Payment result = await(charge(payment));
+        recordOutcome(result);
+        awaitPublished(publishPaymentEvent(result), 1);
+    }
 
-        boolean success = simulatePaymentGateway(event.totalAmount());
+    /**
+     * Batch counterpart of {@link #processPaymentFromEvent} for one poll. Known duplicates are
+     * recognized in memory and the rest checked with a single {@code IN} query (orders the Bloom
+     * filter has never seen skip it). New payments are claimed with one JDBC batch, charged
+     * concurrently, finalized with a second round of batches, and their events sent together.
+     * <p>
+     * Duplicates are redeliveries, so they are looked up: finished payments have their
+     * outcome published again with the rest, and claims that were never finalized are charged
+     * again once their lease ran out. If any charge gets no answer, the answered ones are still
+     * finalized and the call then fails, leaving the rest PROCESSING for the redelivery; so do
+     * a failed publish and a claim still leased by another caller. Those failures are an
+     * {@link UnfinishedPaymentsException} naming the orders to see again.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void processPaymentsFromEvents(List<OrderCreatedEvent> events) {
+        // Redeliveries can put the same order into one poll more than once
+        Map<String, OrderCreatedEvent> received = new LinkedHashMap<>();
+        for (OrderCreatedEvent event : events) {
+            received.putIfAbsent(event.orderId(), event);
+        }
 
-        if (success) {
-            saved.setStatus(PaymentStatus.COMPLETED);
-            saved.setTransactionId("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-            saved.setProcessedAt(LocalDateTime.now());
-        } else {
-            saved.setStatus(PaymentStatus.FAILED);
-            saved.setFailureReason("Insufficient funds");
+        Map<String, OrderCreatedEvent> pending = new LinkedHashMap<>();
+        List<String> unknown = new ArrayList<>();
+        // Claimed before this poll; usually finished, unless that charge got no answer
+        List<String> claimedBefore = new ArrayList<>();
+        for (OrderCreatedEvent event : received.values()) {
+            PaymentIdempotencyGuard.Verdict verdict = idempotencyGuard.check(event.orderId());
+            if (verdict == PaymentIdempotencyGuard.Verdict.DUPLICATE) {
+                claimedBefore.add(event.orderId());
+                continue;
+            }
+            if (verdict == PaymentIdempotencyGuard.Verdict.MAYBE) {
+                unknown.add(event.orderId());
+            }
+            pending.put(event.orderId(), event);
         }
 
-        Payment result = paymentRepository.save(saved);
-        publishPaymentEvent(result);
+        if (!unknown.isEmpty()) {
+            for (String orderId : ledgerRepository.findClaimedOrderIds(unknown)) {
+                idempotencyGuard.conflicted(orderId);
+                pending.remove(orderId);
+                claimedBefore.add(orderId);
+            }
+        }
+
+        List<Payment> toCharge = new ArrayList<>(claim(pending.values(), claimedBefore));
+        List<Payment> finished = List.of();
+        // Claimed by a caller that may still be charging them
+        List<String> inProgress = new ArrayList<>();
+        if (!claimedBefore.isEmpty()) {
+            finished = paymentRepository.findByOrderIdIn(claimedBefore);
+            for (Payment payment : finished) {
+                payment.setItems(received.get(payment.getOrderId()).items());
+            }
+            Set<String> settled = new HashSet<>();
+            finished.forEach(payment -> settled.add(payment.getOrderId()));
+            for (PaymentLedgerEntry claim : takeOverClaims(claimedBefore)) {
+                log.info("Resuming unfinished payment for orderId: {}", claim.getOrderId());
+                toCharge.add(fromClaim(claim, received.get(claim.getOrderId()).items()));
+                settled.add(claim.getOrderId());
+            }
+            List<String> unsettled = claimedBefore.stream().filter(id -> !settled.contains(id)).toList();
+            if (!unsettled.isEmpty()) {
+                ledgerRepository.findInFlightByOrderIds(unsettled)
+                        .forEach(claim -> inProgress.add(claim.getOrderId()));
+            }
+        }
+        if (toCharge.isEmpty() && finished.isEmpty() && inProgress.isEmpty()) {
+            log.debug("All {} events in batch were duplicates", events.size());
+            return;
+        }
+
+        List<CompletableFuture<Payment>> charges = toCharge.stream().map(this::charge).toList();
+        List<Payment> results = new ArrayList<>(charges.size());
+        Set<String> unfinished = new LinkedHashSet<>(inProgress);
+        RuntimeException unanswered = null;
+        for (int i = 0; i < charges.size(); i++) {
+            try {
+                results.add(await(charges.get(i)));
+            } catch (RuntimeException e) {
+                unanswered = e;
+                unfinished.add(toCharge.get(i).getOrderId());
+            }
+        }
+
+        if (!results.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> paymentBatchRepository.recordOutcomes(results));
+        }
+        List<PaymentProcessedEvent> outcomes = Stream.concat(results.stream(), finished.stream())
+                .map(PaymentService::toProcessedEvent)
+                .toList();
+        if (!outcomes.isEmpty()) {
+            try {
+                awaitPublished(eventProducer.publishPaymentsProcessed(outcomes), outcomes.size());
+            } catch (IllegalStateException e) {
+                // Recorded, so seen again they are finished duplicates and published once more
+                outcomes.forEach(outcome -> unfinished.add(outcome.orderId()));
+                throw new UnfinishedPaymentsException(e.getMessage(), unfinished, e.getCause());
+            }
+        }
+        if (unanswered != null) {
+            throw new UnfinishedPaymentsException((toCharge.size() - results.size()) + " of " + toCharge.size()
+                    + " charges got no gateway answer", unfinished, unanswered);
+        }
+        if (!inProgress.isEmpty()) {
+            throw new UnfinishedPaymentsException(inProgress.size() + " payments are still being processed",
+                    unfinished, new PaymentInProgressException(inProgress.getFirst()));
+        }
+        log.debug("Processed {} payments and republished {} from a batch of {} events",
+                results.size(), finished.size(), events.size());
     }
 
+    // Reads hit the final-state projection first; only in-flight payments come from the ledger
+
     public PaymentResponse getPayment(String paymentId) {
-        return paymentRepository.findById(paymentId)
-                .map(this::mapToResponse)
+        UUID id;
+        try {
+            id = UUID.fromString(paymentId);
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchElementException("Payment not found: " + paymentId);
+        }
+        return paymentRepository.findById(id)
+                .map(PaymentService::mapToResponse)
+                .or(() -> ledgerRepository.findInFlightByPaymentId(id).map(PaymentService::mapToResponse))
                 .orElseThrow(() -> new NoSuchElementException("Payment not found: " + paymentId));
     }
 
     public PaymentResponse getPaymentByOrderId(String orderId) {
         return paymentRepository.findByOrderId(orderId)
-                .map(this::mapToResponse)
+                .map(PaymentService::mapToResponse)
+                .or(() -> ledgerRepository.findInFlightByOrderId(orderId).map(PaymentService::mapToResponse))
                 .orElseThrow(() -> new NoSuchElementException("No payment found for order: " + orderId));
     }
 
     public List<PaymentResponse> getPaymentsByCustomer(String customerId) {
-        return paymentRepository.findByCustomerId(customerId).stream()
-                .map(this::mapToResponse)
+        return Stream.concat(
+                        paymentRepository.findByCustomerId(customerId).stream().map(PaymentService::mapToResponse),
+                        ledgerRepository.findInFlightByCustomerId(customerId).stream().map(PaymentService::mapToResponse))
                 .toList();
     }
 
     public List<PaymentResponse> getAllPayments() {
-        return paymentRepository.findAll().stream()
-                .map(this::mapToResponse)
+        return Stream.concat(
+                        paymentRepository.findAll().stream().map(PaymentService::mapToResponse),
+                        ledgerRepository.findAllInFlight().stream().map(PaymentService::mapToResponse))
                 .toList();
     }
 
+    /**
+     * Per-customer totals over final payments, kept up to date by every outcome write.
+     * One primary-key lookup however many payments the customer has.
+     */
+    public CustomerPaymentSummaryResponse getCustomerSummary(String customerId) {
+        return summaryRepository.findById(customerId)
+                .map(PaymentService::mapToResponse)
+                .orElseThrow(() -> new NoSuchElementException("No payments found for customer: " + customerId));
+    }
+
+    /**
+     * Recomputes all customer summaries from the payments projection; outcome writes wait
+     * while it runs. Returns the number of customers summarized.
+     */
+    public int rebuildCustomerSummaries() {
+        int customers = paymentBatchRepository.rebuildCustomerSummaries();
+        log.info("Rebuilt payment summaries for {} customers", customers);
+        return customers;
+    }
+
+    /**
+     * Backfills the summaries once when payments exist but the table is still empty,
+     * i.e. on the first start after the table was introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCustomerSummaries() {
+        if (summaryRepository.count() == 0 && paymentRepository.count() > 0) {
+            rebuildCustomerSummaries();
+        }
+    }
+
     // ─── Private helpers ─────────────────────────────────────────────────────
 
     /**
-     * Simulates a payment gateway. Fails if amount > 10000 to demonstrate failure handling.
+     * Sends the charge and applies the answer to {@code payment}: COMPLETED if approved,
+     * FAILED only if declined. Without an answer (timeout, errors after the gateway's retries,
+     * no in-flight slot) the outcome is unknown, so the future fails with a
+     * {@link PaymentGatewayException} and the payment stays PROCESSING. Whoever sees the order
+     * again resumes it under the same payment id, the gateway's idempotency key.
      */
-    private boolean simulatePaymentGateway(BigDecimal amount) {
-        return amount.compareTo(new BigDecimal("10000")) <= 0;
+    private CompletableFuture<Payment> charge(Payment payment) {
+        ChargeRequest request = new ChargeRequest(
+                payment.getId().toString(),
+                payment.getOrderId(),
+                payment.getCustomerId(),
+                payment.getAmount(),
+                payment.getPaymentMethod());
+
+        return paymentGateway.charge(request).handle((result, ex) -> {
+            if (ex != null) {
+                throw new PaymentGatewayException("No gateway answer for orderId: " + payment.getOrderId(),
+                        ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+            sagaTimer.stamp(payment.getOrderId(), SagaStage.PAYMENT_CHARGED);
+            if (result.approved()) {
+                payment.setStatus(PaymentStatus.COMPLETED);
+                payment.setTransactionId(result.transactionId());
+                payment.setProcessedAt(LocalDateTime.now());
+            } else {
+                payment.setStatus(PaymentStatus.FAILED);
+                payment.setFailureReason(result.declineReason());
+            }
+            return payment;
+        });
+    }
+
+    // join() wraps the failure; callers and the retry tiers should see the cause
+    private static Payment await(CompletableFuture<Payment> charge) {
+        try {
+            return charge.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** The payment behind the order's claim if it was never finalized and is now ours to resume. */
+    private Optional<Payment> takeOverClaim(String orderId, List<OrderItemEvent> items) {
+        return takeOverClaims(List.of(orderId)).stream().findFirst().map(claim -> fromClaim(claim, items));
+    }
+
+    private List<PaymentLedgerEntry> takeOverClaims(Collection<String> orderIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentLedgerEntry> taken = transactionTemplate.execute(status ->
+                paymentBatchRepository.takeOver(orderIds, now.minus(claimLease), now));
+        return taken != null ? taken : List.of();
     }
 
-    private void publishPaymentEvent(Payment payment) {
-        PaymentProcessedEvent event = new PaymentProcessedEvent(
+    private static Payment fromClaim(PaymentLedgerEntry claim, List<OrderItemEvent> items) {
+        return Payment.builder()
+                .id(claim.getPaymentId())
+                .orderId(claim.getOrderId())
+                .customerId(claim.getCustomerId())
+                .amount(claim.getAmount())
+                .paymentMethod(claim.getPaymentMethod())
+                .items(items)
+                .status(PaymentStatus.PROCESSING)
+                .createdAt(claim.getRecordedAt())
+                .build();
+    }
+
+    /**
+     * Appends the PROCESSING ledger entry unless the order already has one, in one round
+     * trip. Returns whether this call won; the winner owns the rest of the processing.
+     */
+    private boolean claim(Payment payment) {
+        payment.setId(TimeOrderedIds.next());
+        payment.setStatus(PaymentStatus.PROCESSING);
+        payment.setCreatedAt(LocalDateTime.now());
+
+        boolean won = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                paymentBatchRepository.claim(List.of(payment))[0]));
+
+        if (won) {
+            idempotencyGuard.claimed(payment.getOrderId());
+        } else {
+            idempotencyGuard.conflicted(payment.getOrderId());
+        }
+        return won;
+    }
+
+    /** Claims the payments of {@code events} in one batch; orders already claimed go to {@code lost}. */
+    private List<Payment> claim(Collection<OrderCreatedEvent> events, List<String> lost) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Payment> candidates = events.stream()
+                .map(event -> Payment.builder()
+                        .id(TimeOrderedIds.next())
+                        .orderId(event.orderId())
+                        .customerId(event.customerId())
+                        .amount(event.totalAmount())
+                        .paymentMethod("AUTO")
+                        .items(event.items())
+                        .status(PaymentStatus.PROCESSING)
+                        .createdAt(now)
+                        .build())
+                .toList();
+
+        List<Payment> claimed = transactionTemplate.execute(status -> {
+            boolean[] won = paymentBatchRepository.claim(candidates);
+            List<Payment> winners = new ArrayList<>(candidates.size());
+            for (int i = 0; i < won.length; i++) {
+                Payment payment = candidates.get(i);
+                if (won[i]) {
+                    idempotencyGuard.claimed(payment.getOrderId());
+                    winners.add(payment);
+                } else {
+                    idempotencyGuard.conflicted(payment.getOrderId());
+                    lost.add(payment.getOrderId());
+                }
+            }
+            return winners;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    private void recordOutcome(Payment payment) {
+        transactionTemplate.executeWithoutResult(status -> paymentBatchRepository.recordOutcomes(List.of(payment)));
+    }
+
+    private CompletableFuture<Void> publishPaymentEvent(Payment payment) {
+        return eventProducer.publishPaymentProcessed(toProcessedEvent(payment));
+    }
+
+    // Failing the delivery brings the event back, and the recorded outcome is published again
+    private static void awaitPublished(CompletableFuture<Void> publish, int count) {
+        try {
+            publish.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to publish " + count + " PaymentProcessedEvents", e.getCause());
+        }
+    }
+
+    private static PaymentProcessedEvent toProcessedEvent(Payment payment) {
+        return new PaymentProcessedEvent(
                 payment.getOrderId(),
-                payment.getId(),
+                payment.getId().toString(),
                 payment.getStatus() == PaymentStatus.COMPLETED,
                 payment.getStatus() == PaymentStatus.COMPLETED
                         ? "Payment processed successfully"
                         : payment.getFailureReason(),
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                payment.getItems() != null ? payment.getItems() : List.of()
         );
-
-        eventProducer.publishPaymentProcessed(event);
     }
 
-    private PaymentResponse mapToResponse(Payment p) {
+    // Static and package-private so the JMH benchmarks can call it
+    static PaymentResponse mapToResponse(Payment p) {
         return new PaymentResponse(
-                p.getId(),
+                p.getId().toString(),
                 p.getOrderId(),
                 p.getCustomerId(),
                 p.getAmount(),
@@ -167,4 +512,32 @@ public class PaymentService {
                 p.getProcessedAt()
         );
     }
+
+    static CustomerPaymentSummaryResponse mapToResponse(CustomerPaymentSummary s) {
+        return new CustomerPaymentSummaryResponse(
+                s.getCustomerId(),
+                s.getPaymentCount(),
+                s.getCompletedCount(),
+                s.getFailedCount(),
+                s.getTotalAmount(),
+                s.getCompletedAmount(),
+                s.getLastPaymentAt(),
+                s.getUpdatedAt()
+        );
+    }
+
+    static PaymentResponse mapToResponse(PaymentLedgerEntry entry) {
+        return new PaymentResponse(
+                entry.getPaymentId().toString(),
+                entry.getOrderId(),
+                entry.getCustomerId(),
+                entry.getAmount(),
+                entry.getStatus().name(),
+                entry.getPaymentMethod(),
+                entry.getTransactionId(),
+                entry.getFailureReason(),
+                entry.getRecordedAt(),
+                null
+        );
+    }
 }
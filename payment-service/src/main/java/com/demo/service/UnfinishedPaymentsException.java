@@ -0,0 +1,23 @@
+package com.demo.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A batch of payments left some orders unfinished: their charge got no answer, their claim is
+ * still leased by another caller, or their outcome could not be published. Everything else in
+ * the batch is done, so only these orders need to be seen again.
+ */
+public class UnfinishedPaymentsException extends RuntimeException {
+
+    private final Set<String> orderIds;
+
+    public UnfinishedPaymentsException(String message, Collection<String> orderIds, Throwable cause) {
+        super(message, cause);
+        this.orderIds = Set.copyOf(orderIds);
+    }
+
+    public Set<String> getOrderIds() {
+        return orderIds;
+    }
+}
@@ -0,0 +1,201 @@
+package com.demo.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientPaymentGatewayTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final StubTransport transport = new StubTransport();
+	private final List<ResilientPaymentGateway> gateways = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		gateways.forEach(ResilientPaymentGateway::close);
+		transport.close();
+	}
+
+	@Test
+	void neverHasMoreTransportCallsOutstandingThanSlots() throws Exception {
+		// Answers after 0-60 ms against a 20 ms timeout and 10 ms hedge delay: plenty of hedges,
+		// timed-out calls still running and retries competing for the slots
+		transport.answerAfter(() -> Duration.ofMillis(ThreadLocalRandom.current().nextInt(60)));
+		ResilientPaymentGateway gateway = gateway(8, Duration.ofSeconds(10), Duration.ofMillis(20),
+				Duration.ofMillis(10), 3);
+
+		List<CompletableFuture<ChargeResult>> charges = new ArrayList<>();
+		try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 200; i++) {
+				String orderId = "order-" + i;
+				charges.add(CompletableFuture.supplyAsync(() -> gateway.charge(request(orderId)), callers)
+						.thenCompose(charge -> charge));
+			}
+			CompletableFuture.allOf(charges.toArray(CompletableFuture[]::new))
+					.exceptionally(ex -> null)
+					.get(30, TimeUnit.SECONDS);
+		}
+
+		assertThat(transport.calls()).isGreaterThan(200);
+		assertThat(meterRegistry.counter("payment.gateway.hedges").count()).isPositive();
+		assertThat(transport.peak()).isLessThanOrEqualTo(8);
+		awaitTrue(() -> transport.outstanding() == 0);
+		assertThat(meterRegistry.get("payment.gateway.in.flight").gauge().value()).isZero();
+	}
+
+	@Test
+	void holdsTheSlotOfATimedOutCallUntilTheTransportAnswers() throws Exception {
+		ResilientPaymentGateway gateway = gateway(1, Duration.ofMillis(50), Duration.ofMillis(20), Duration.ZERO, 1);
+
+		CompletableFuture<ChargeResult> first = gateway.charge(request("order-1"));
+		assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+
+		// The gateway may still be working on it, so the slot stays taken
+		assertThatThrownBy(() -> gateway.charge(request("order-2")).get(5, TimeUnit.SECONDS))
+				.hasMessageContaining("saturated");
+		assertThat(meterRegistry.counter("payment.gateway.rejected").count()).isEqualTo(1);
+
+		transport.answerNext(ChargeResult.approved("tx-1"));
+		CompletableFuture<ChargeResult> second = gateway.charge(request("order-3"));
+		transport.answerNext(ChargeResult.approved("tx-3"));
+
+		assertThat(second.get(5, TimeUnit.SECONDS).transactionId()).isEqualTo("tx-3");
+	}
+
+	@Test
+	void hedgesASlowCallWhenASlotIsFreeAndTakesTheFirstAnswer() throws Exception {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofMillis(10), 1);
+
+		CompletableFuture<ChargeResult> charge = gateway.charge(request("order-1"));
+		awaitTrue(() -> transport.outstanding() == 2);
+		transport.answerLast(ChargeResult.approved("tx-hedge"));
+
+		assertThat(charge.get(5, TimeUnit.SECONDS).transactionId()).isEqualTo("tx-hedge");
+		assertThat(meterRegistry.counter("payment.gateway.hedges").count()).isEqualTo(1);
+		assertThat(transport.outstanding()).isEqualTo(1);
+
+		transport.answerNext(ChargeResult.approved("tx-primary"));
+		assertThat(meterRegistry.get("payment.gateway.in.flight").gauge().value()).isZero();
+	}
+
+	@Test
+	void skipsTheHedgeAndTheRetryWhenNoSlotIsFree() throws Exception {
+		ResilientPaymentGateway gateway = gateway(1, Duration.ofSeconds(1), Duration.ofMillis(50), Duration.ofMillis(10), 3);
+
+		CompletableFuture<ChargeResult> charge = gateway.charge(request("order-1"));
+
+		assertThatThrownBy(() -> charge.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+		assertThat(transport.calls()).isEqualTo(1);
+		assertThat(meterRegistry.counter("payment.gateway.skipped", "kind", "hedge").count()).isEqualTo(1);
+		assertThat(meterRegistry.counter("payment.gateway.skipped", "kind", "retry").count()).isEqualTo(1);
+	}
+
+	private ResilientPaymentGateway gateway(int maxInFlight, Duration acquireTimeout, Duration callTimeout,
+											Duration hedgeDelay, int maxAttempts) {
+		ResilientPaymentGateway gateway = new ResilientPaymentGateway(transport, maxInFlight, acquireTimeout,
+				callTimeout, hedgeDelay, maxAttempts, Duration.ofMillis(1), meterRegistry);
+		gateways.add(gateway);
+		return gateway;
+	}
+
+	private static ChargeRequest request(String orderId) {
+		return new ChargeRequest("key-" + orderId, orderId, "customer-1", new BigDecimal("49.90"), "CARD");
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	/** Counts the calls it holds open; answers them on request, or by itself after a delay. */
+	private static final class StubTransport implements PaymentGateway, AutoCloseable {
+
+		private final Queue<CompletableFuture<ChargeResult>> open = new ConcurrentLinkedQueue<>();
+		private final List<CompletableFuture<ChargeResult>> opened = new ArrayList<>();
+		private final AtomicInteger outstanding = new AtomicInteger();
+		private final AtomicInteger peak = new AtomicInteger();
+		private final AtomicInteger calls = new AtomicInteger();
+		private final ScheduledExecutorService answers = Executors.newSingleThreadScheduledExecutor();
+		private volatile Supplier<Duration> delay;
+
+		@Override
+		public CompletableFuture<ChargeResult> charge(ChargeRequest request) {
+			calls.incrementAndGet();
+			peak.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+			CompletableFuture<ChargeResult> call = new CompletableFuture<>();
+			if (delay != null) {
+				answers.schedule(() -> answer(call, ChargeResult.approved("tx-" + request.orderId())),
+						delay.get().toNanos(), TimeUnit.NANOSECONDS);
+			} else {
+				open.add(call);
+				synchronized (opened) {
+					opened.add(call);
+				}
+			}
+			return call;
+		}
+
+		void answerAfter(Supplier<Duration> delay) {
+			this.delay = delay;
+		}
+
+		void answerNext(ChargeResult result) {
+			answer(open.remove(), result);
+		}
+
+		void answerLast(ChargeResult result) {
+			CompletableFuture<ChargeResult> last;
+			synchronized (opened) {
+				last = opened.getLast();
+			}
+			open.remove(last);
+			answer(last, result);
+		}
+
+		// Counts the call as answered before the gateway sees the answer and hands its slot on
+		private void answer(CompletableFuture<ChargeResult> call, ChargeResult result) {
+			outstanding.decrementAndGet();
+			call.complete(result);
+		}
+
+		int outstanding() {
+			return outstanding.get();
+		}
+
+		int peak() {
+			return peak.get();
+		}
+
+		int calls() {
+			return calls.get();
+		}
+
+		@Override
+		public void close() {
+			open.forEach(call -> call.cancel(false));
+			answers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.demo.kafka;
+
+import com.demo.event.OrderCreatedEvent;
+import com.demo.gateway.PaymentGatewayException;
+import com.demo.kafka.retry.TieredDeadLetterRecoverer;
+import com.demo.limit.AdaptiveConcurrencyLimiter;
+import com.demo.limit.ListenerBackpressure;
+import com.demo.service.PaymentService;
+import com.demo.service.UnfinishedPaymentsException;
+import com.demo.trace.Tracer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PaymentEventConsumerTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PaymentService paymentService = mock(PaymentService.class);
+	private final AdaptiveConcurrencyLimiter batchLimiter = new AdaptiveConcurrencyLimiter(4, 1, 32, 1.5,
+			"test.batch.limiter", meterRegistry);
+	private final ListenerBackpressure batchBackpressure = new ListenerBackpressure(batchLimiter,
+			mock(KafkaListenerEndpointRegistry.class), id -> true, Duration.ofMillis(500), "test.batch", meterRegistry);
+	private final PaymentEventConsumer consumer = new PaymentEventConsumer(paymentService,
+			mock(KeyOrderedExecutor.class), mock(TieredDeadLetterRecoverer.class), mock(ListenerBackpressure.class),
+			batchBackpressure, mock(Tracer.class));
+
+	private final List<ConsumerRecord<String, OrderCreatedEvent>> poll = List.of(
+			record(0, "order-1"), record(1, "order-2"), record(2, "order-3"), record(3, "order-4"));
+
+	@AfterEach
+	void tearDown() {
+		batchBackpressure.close();
+	}
+
+	@Test
+	void retriesOnlyTheOrdersTheBatchLeftUnfinished() {
+		doThrow(unfinished("order-2", "order-4")).when(paymentService).processPaymentsFromEvents(anyList());
+
+		consumer.handleOrderCreatedBatch(poll);
+
+		verify(paymentService).processPaymentFromEvent(argThat(event -> event.orderId().equals("order-2")));
+		verify(paymentService).processPaymentFromEvent(argThat(event -> event.orderId().equals("order-4")));
+		verify(paymentService, times(2)).processPaymentFromEvent(argThat(event -> true));
+		assertThat(batchLimiter.inFlight()).isZero();
+	}
+
+	@Test
+	void pinsTheFailureOnTheFirstUnfinishedOrderThatFailsAgain() {
+		doThrow(unfinished("order-2", "order-3", "order-4")).when(paymentService).processPaymentsFromEvents(anyList());
+		doThrow(new PaymentGatewayException("still no answer")).when(paymentService)
+				.processPaymentFromEvent(argThat(event -> event != null && event.orderId().equals("order-3")));
+
+		assertThatThrownBy(() -> consumer.handleOrderCreatedBatch(poll))
+				.isInstanceOfSatisfying(BatchListenerFailedException.class,
+						e -> assertThat(e.getRecord()).isSameAs(poll.get(2)));
+
+		verify(paymentService, times(2)).processPaymentFromEvent(argThat(event -> true));
+		assertThat(batchLimiter.inFlight()).isZero();
+	}
+
+	@Test
+	void retriesEveryRecordWhenTheBatchFailedBeforeCharging() {
+		doThrow(new IllegalStateException("database down")).when(paymentService).processPaymentsFromEvents(anyList());
+
+		consumer.handleOrderCreatedBatch(poll);
+
+		verify(paymentService, times(4)).processPaymentFromEvent(argThat(event -> true));
+	}
+
+	private static UnfinishedPaymentsException unfinished(String... orderIds) {
+		return new UnfinishedPaymentsException(orderIds.length + " charges got no gateway answer", Set.of(orderIds),
+				new PaymentGatewayException("no answer"));
+	}
+
+	private static ConsumerRecord<String, OrderCreatedEvent> record(long offset, String orderId) {
+		return new ConsumerRecord<>("order-created", 0, offset, orderId,
+				new OrderCreatedEvent(orderId, "customer-1", new BigDecimal("49.90"), List.of(), LocalDateTime.now()));
+	}
+}
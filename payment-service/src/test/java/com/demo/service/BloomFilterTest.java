@@ -0,0 +1,92 @@
+package com.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+	@Test
+	void neverMissesAKeyThatWasPut() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		List<String> keys = orderIds(10_000, "put");
+		keys.forEach(filter::put);
+
+		assertThat(keys).allMatch(filter::mightContain);
+		assertThat(filter.insertions()).isEqualTo(10_000);
+	}
+
+	@Test
+	void staysNearTheConfiguredFalsePositiveRateAtCapacity() {
+		for (double probability : new double[]{0.01, 0.001}) {
+			BloomFilter filter = new BloomFilter(100_000, probability);
+			orderIds(100_000, "put").forEach(filter::put);
+
+			long falsePositives = orderIds(200_000, "absent").stream().filter(filter::mightContain).count();
+
+			// Allow for sampling noise; a broken index or hash spread is off by orders of magnitude
+			assertThat(falsePositives / 200_000.0).as("false-positive rate at p=%s", probability)
+					.isLessThan(probability * 1.5);
+		}
+	}
+
+	@Test
+	void keepsSimilarKeysApart() {
+		BloomFilter filter = new BloomFilter(50_000, 0.01);
+		for (int i = 0; i < 50_000; i++) {
+			filter.put("order-" + i);
+		}
+
+		long falsePositives = 0;
+		for (int i = 50_000; i < 150_000; i++) {
+			if (filter.mightContain("order-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives / 100_000.0).isLessThan(0.015);
+	}
+
+	@Test
+	void keepsEveryKeyPutConcurrently() throws Exception {
+		BloomFilter filter = new BloomFilter(80_000, 0.01);
+		List<List<String>> slices = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			slices.add(orderIds(10_000, "thread-" + t));
+		}
+
+		try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+			List<Future<?>> puts = new ArrayList<>();
+			for (List<String> slice : slices) {
+				puts.add(pool.submit(() -> slice.forEach(filter::put)));
+			}
+			for (Future<?> put : puts) {
+				put.get();
+			}
+		}
+
+		assertThat(slices).allSatisfy(slice -> assertThat(slice).allMatch(filter::mightContain));
+		assertThat(filter.insertions()).isEqualTo(80_000);
+	}
+
+	@Test
+	void sizesTheBitArrayFromExpectedInsertionsAndProbability() {
+		// m = -n ln p / ln^2 2, about 9.6 bits per key at 1%
+		assertThat(new BloomFilter(1_000_000, 0.01).sizeInBytes()).isBetween(1_190_000L, 1_200_000L);
+		assertThat(new BloomFilter(0, 0.01).sizeInBytes()).isEqualTo(8);
+	}
+
+	private static List<String> orderIds(int count, String seed) {
+		List<String> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(UUID.nameUUIDFromBytes((seed + i).getBytes()).toString());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,253 @@
+package com.demo.service;
+
+import com.demo.entity.Payment;
+import com.demo.entity.PaymentLedgerEntry;
+import com.demo.entity.PaymentStatus;
+import com.demo.event.OrderCreatedEvent;
+import com.demo.gateway.ChargeRequest;
+import com.demo.gateway.ChargeResult;
+import com.demo.gateway.PaymentGateway;
+import com.demo.gateway.PaymentGatewayException;
+import com.demo.kafka.PaymentEventProducer;
+import com.demo.repository.CustomerPaymentSummaryRepository;
+import com.demo.repository.PaymentBatchRepository;
+import com.demo.repository.PaymentLedgerRepository;
+import com.demo.repository.PaymentRepository;
+import com.demo.saga.SagaTimer;
+import com.demo.dto.ProcessPaymentRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+
+	private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+	private final PaymentBatchRepository batchRepository = mock(PaymentBatchRepository.class);
+	private final PaymentLedgerRepository ledgerRepository = mock(PaymentLedgerRepository.class);
+	private final PaymentEventProducer eventProducer = mock(PaymentEventProducer.class);
+	private final PaymentIdempotencyGuard idempotencyGuard = mock(PaymentIdempotencyGuard.class);
+	private final PaymentGateway gateway = mock(PaymentGateway.class);
+	private final PaymentService paymentService = new PaymentService(paymentRepository, batchRepository,
+			ledgerRepository, mock(CustomerPaymentSummaryRepository.class), eventProducer, idempotencyGuard, gateway,
+			mock(SagaTimer.class), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(paymentService, "claimLease", Duration.ofSeconds(15));
+	}
+
+	@Test
+	void leavesAnUnansweredChargeProcessing() {
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true});
+		when(gateway.charge(any())).thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+
+		assertThatThrownBy(() -> paymentService.processPaymentFromEvent(event("order-1")))
+				.isInstanceOf(PaymentGatewayException.class)
+				.hasCauseInstanceOf(TimeoutException.class);
+
+		verify(batchRepository, never()).recordOutcomes(anyList());
+		verifyNoInteractions(eventProducer);
+	}
+
+	@Test
+	void failsADeclinedCharge() {
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true});
+		when(gateway.charge(any())).thenReturn(CompletableFuture.completedFuture(ChargeResult.declined("Card declined")));
+		when(eventProducer.publishPaymentProcessed(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+		paymentService.processPaymentFromEvent(event("order-1"));
+
+		verify(batchRepository).recordOutcomes(argThat(payments ->
+				payments.getFirst().getStatus() == PaymentStatus.FAILED));
+		verify(eventProducer).publishPaymentProcessed(argThat(event -> !event.success()));
+	}
+
+	@Test
+	void resumesAnUnfinishedClaimWithItsPaymentId() {
+		UUID paymentId = UUID.randomUUID();
+		when(idempotencyGuard.recentlyClaimed("order-1")).thenReturn(true);
+		when(batchRepository.takeOver(eq(List.of("order-1")), any(), any())).thenReturn(List.of(claim(paymentId, "order-1")));
+		when(gateway.charge(any())).thenReturn(CompletableFuture.completedFuture(ChargeResult.approved("TXN-1")));
+		when(eventProducer.publishPaymentProcessed(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+		paymentService.processPaymentFromEvent(event("order-1"));
+
+		ArgumentCaptor<ChargeRequest> request = ArgumentCaptor.forClass(ChargeRequest.class);
+		verify(gateway).charge(request.capture());
+		assertThat(request.getValue().idempotencyKey()).isEqualTo(paymentId.toString());
+		verify(batchRepository, never()).claim(anyList());
+		verify(batchRepository).recordOutcomes(argThat(payments ->
+				payments.getFirst().getId().equals(paymentId)
+						&& payments.getFirst().getStatus() == PaymentStatus.COMPLETED));
+	}
+
+	@Test
+	void takesOverOnlyClaimsOlderThanTheLease() {
+		when(idempotencyGuard.recentlyClaimed("order-1")).thenReturn(true);
+		when(batchRepository.takeOver(eq(List.of("order-1")), any(), any())).thenReturn(List.of());
+		when(ledgerRepository.findInFlightByOrderId("order-1")).thenReturn(Optional.of(claim(UUID.randomUUID(), "order-1")));
+
+		LocalDateTime before = LocalDateTime.now();
+		assertThatThrownBy(() -> paymentService.processPaymentFromEvent(event("order-1")))
+				.isInstanceOf(PaymentInProgressException.class);
+
+		ArgumentCaptor<LocalDateTime> staleBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+		ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+		verify(batchRepository).takeOver(anyCollection(), staleBefore.capture(), now.capture());
+		assertThat(now.getValue()).isAfterOrEqualTo(before);
+		assertThat(Duration.between(staleBefore.getValue(), now.getValue())).isEqualTo(Duration.ofSeconds(15));
+		verifyNoInteractions(gateway, eventProducer);
+	}
+
+	@Test
+	void answersConflictWhileAnotherRequestIsCharging() {
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{false});
+		when(ledgerRepository.findInFlightByOrderId("order-1")).thenReturn(Optional.of(claim(UUID.randomUUID(), "order-1")));
+
+		assertThatThrownBy(() -> paymentService.processPayment(
+				new ProcessPaymentRequest("order-1", "customer-1", new BigDecimal("49.90"), "CARD")))
+				.isInstanceOf(PaymentInProgressException.class);
+
+		verifyNoInteractions(gateway);
+	}
+
+	@Test
+	void chargesTheRestOfABatchAndFailsItForAClaimStillLeased() {
+		when(idempotencyGuard.check("order-1")).thenReturn(PaymentIdempotencyGuard.Verdict.DUPLICATE);
+		when(idempotencyGuard.check("order-2")).thenReturn(PaymentIdempotencyGuard.Verdict.NEW);
+		when(ledgerRepository.findInFlightByOrderIds(List.of("order-1")))
+				.thenReturn(List.of(claim(UUID.randomUUID(), "order-1")));
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true});
+		when(gateway.charge(any())).thenReturn(CompletableFuture.completedFuture(ChargeResult.approved("TXN-2")));
+		when(eventProducer.publishPaymentsProcessed(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+		assertThatThrownBy(() -> paymentService.processPaymentsFromEvents(List.of(event("order-1"), event("order-2"))))
+				.isInstanceOfSatisfying(UnfinishedPaymentsException.class,
+						e -> assertThat(e.getOrderIds()).containsExactly("order-1"))
+				.hasCauseInstanceOf(PaymentInProgressException.class);
+
+		verify(gateway).charge(argThat(request -> request.orderId().equals("order-2")));
+		verify(batchRepository).recordOutcomes(argThat(payments -> payments.size() == 1
+				&& payments.getFirst().getOrderId().equals("order-2")));
+	}
+
+	@Test
+	void republishesTheOutcomeOfAFinishedDuplicate() {
+		when(idempotencyGuard.recentlyClaimed("order-1")).thenReturn(true);
+		when(paymentRepository.findByOrderId("order-1")).thenReturn(Optional.of(finished("order-1")));
+		when(eventProducer.publishPaymentProcessed(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+		paymentService.processPaymentFromEvent(event("order-1"));
+
+		verifyNoInteractions(gateway);
+		verify(eventProducer).publishPaymentProcessed(argThat(event -> event.orderId().equals("order-1")
+				&& event.success()));
+	}
+
+	@Test
+	void failsTheDeliveryWhenThePublishFails() {
+		when(idempotencyGuard.check("order-1")).thenReturn(PaymentIdempotencyGuard.Verdict.NEW);
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true});
+		when(gateway.charge(any())).thenReturn(CompletableFuture.completedFuture(ChargeResult.approved("TXN-1")));
+		when(eventProducer.publishPaymentsProcessed(anyList()))
+				.thenReturn(CompletableFuture.failedFuture(new TimeoutException("broker down")));
+
+		assertThatThrownBy(() -> paymentService.processPaymentsFromEvents(List.of(event("order-1"))))
+				.isInstanceOfSatisfying(UnfinishedPaymentsException.class,
+						e -> assertThat(e.getOrderIds()).containsExactly("order-1"))
+				.hasCauseInstanceOf(TimeoutException.class);
+		verify(batchRepository).recordOutcomes(anyList());
+	}
+
+	@Test
+	void republishesFinishedDuplicatesOfABatchWithItsNewPayments() {
+		when(idempotencyGuard.check("order-1")).thenReturn(PaymentIdempotencyGuard.Verdict.DUPLICATE);
+		when(idempotencyGuard.check("order-2")).thenReturn(PaymentIdempotencyGuard.Verdict.NEW);
+		when(paymentRepository.findByOrderIdIn(List.of("order-1"))).thenReturn(List.of(finished("order-1")));
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true});
+		when(gateway.charge(any())).thenReturn(CompletableFuture.completedFuture(ChargeResult.approved("TXN-2")));
+		when(eventProducer.publishPaymentsProcessed(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+		paymentService.processPaymentsFromEvents(List.of(event("order-1"), event("order-2")));
+
+		verify(gateway).charge(argThat(request -> request.orderId().equals("order-2")));
+		verify(eventProducer).publishPaymentsProcessed(argThat(events -> events.size() == 2));
+	}
+
+	@Test
+	void finalizesTheAnsweredChargesOfABatchBeforeFailingIt() {
+		when(idempotencyGuard.check(any())).thenReturn(PaymentIdempotencyGuard.Verdict.NEW);
+		when(batchRepository.claim(anyList())).thenReturn(new boolean[]{true, true});
+		when(gateway.charge(argThat(request -> request != null && request.orderId().equals("order-1"))))
+				.thenReturn(CompletableFuture.completedFuture(ChargeResult.approved("TXN-1")));
+		when(gateway.charge(argThat(request -> request != null && request.orderId().equals("order-2"))))
+				.thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("Payment gateway saturated")));
+		when(eventProducer.publishPaymentsProcessed(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+		assertThatThrownBy(() -> paymentService.processPaymentsFromEvents(List.of(event("order-1"), event("order-2"))))
+				.isInstanceOfSatisfying(UnfinishedPaymentsException.class,
+						e -> assertThat(e.getOrderIds()).containsExactly("order-2"))
+				.hasCauseInstanceOf(PaymentGatewayException.class);
+
+		verify(batchRepository).recordOutcomes(argThat(payments -> payments.size() == 1
+				&& payments.getFirst().getOrderId().equals("order-1")));
+		verify(eventProducer).publishPaymentsProcessed(argThat(events -> events.size() == 1
+				&& events.getFirst().orderId().equals("order-1")));
+	}
+
+	private static OrderCreatedEvent event(String orderId) {
+		return new OrderCreatedEvent(orderId, "customer-1", new BigDecimal("49.90"), List.of(), LocalDateTime.now());
+	}
+
+	private static Payment finished(String orderId) {
+		return Payment.builder()
+				.id(UUID.randomUUID())
+				.orderId(orderId)
+				.customerId("customer-1")
+				.amount(new BigDecimal("49.90"))
+				.paymentMethod("AUTO")
+				.status(PaymentStatus.COMPLETED)
+				.transactionId("TXN-1")
+				.createdAt(LocalDateTime.now())
+				.processedAt(LocalDateTime.now())
+				.build();
+	}
+
+	private static PaymentLedgerEntry claim(UUID paymentId, String orderId) {
+		return PaymentLedgerEntry.builder()
+				.paymentId(paymentId)
+				.orderId(orderId)
+				.customerId("customer-1")
+				.amount(new BigDecimal("49.90"))
+				.paymentMethod("AUTO")
+				.status(PaymentStatus.PROCESSING)
+				.recordedAt(LocalDateTime.now())
+				.build();
+	}
+}